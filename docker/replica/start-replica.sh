@@ -0,0 +1,15 @@
+#!/bin/bash
+# Lần chạy đầu sao chép primary bằng pg_basebackup (-R tạo standby.signal và primary_conninfo),
+# sau đó khởi động như một hot standby nhận WAL qua streaming replication
+set -e
+
+if [ ! -s "$PGDATA/PG_VERSION" ]; then
+    until pg_isready -h "$PRIMARY_HOST" -p 5432 -U "$REPLICATION_USER"; do
+        sleep 1
+    done
+    PGPASSWORD="$REPLICATION_PASSWORD" pg_basebackup -h "$PRIMARY_HOST" -p 5432 -U "$REPLICATION_USER" \
+        -D "$PGDATA" -R -X stream -P
+    chmod 0700 "$PGDATA"
+fi
+
+exec postgres -c hot_standby=on
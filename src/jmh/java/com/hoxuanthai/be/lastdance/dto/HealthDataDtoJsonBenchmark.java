@@ -0,0 +1,55 @@
+package com.hoxuanthai.be.lastdance.dto;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.hoxuanthai.be.lastdance.ingest.HealthBatchFixtures;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JSON (de)serialization của payload đồng bộ HealthDataDto, cấu hình ObjectMapper giống Spring Boot.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class HealthDataDtoJsonBenchmark {
+
+    @Param({"1000", "10000", "100000"})
+    int points;
+
+    ObjectMapper objectMapper;
+
+    HealthDataDto dto;
+
+    byte[] json;
+
+    @Setup
+    public void setup() throws IOException {
+        objectMapper = JsonMapper.builder()
+                .findAndAddModules()
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .build();
+        dto = HealthDataDto.builder()
+                .deviceUuid("benchmark-device")
+                .sequence(1L)
+                .dataPoints(HealthBatchFixtures.random(points))
+                .build();
+        json = objectMapper.writeValueAsBytes(dto);
+    }
+
+    @Benchmark
+    public byte[] serialize() throws IOException {
+        return objectMapper.writeValueAsBytes(dto);
+    }
+
+    @Benchmark
+    public HealthDataDto deserialize() throws IOException {
+        return objectMapper.readValue(json, HealthDataDto.class);
+    }
+}
@@ -0,0 +1,44 @@
+package com.hoxuanthai.be.lastdance.ingest;
+
+import java.time.LocalDateTime;
+import java.util.SplittableRandom;
+
+/**
+ * Dữ liệu mẫu cho benchmark: một điểm mỗi giây, khoảng 10% giá trị bị thiếu như dữ liệu thật từ thiết bị.
+ */
+public final class HealthBatchFixtures {
+
+    private static final LocalDateTime START = LocalDateTime.of(2026, 1, 1, 0, 0);
+
+    private HealthBatchFixtures() {
+    }
+
+    public static HealthBatch random(int points) {
+        SplittableRandom random = new SplittableRandom(42);
+        HealthBatch.Builder builder = HealthBatch.builder(points);
+        long startMicros = HealthBatch.toMicros(START);
+        for (int i = 0; i < points; i++) {
+            int row = builder.addRow(startMicros + i * 1_000_000L);
+            if (random.nextInt(10) != 0) {
+                builder.setInt(HealthMetric.HEART_RATE, row, 55 + random.nextInt(60));
+            }
+            if (random.nextInt(10) != 0) {
+                builder.setInt(HealthMetric.STEPS_COUNT, row, random.nextInt(30));
+            }
+            if (random.nextInt(10) != 0) {
+                builder.setDouble(HealthMetric.SPO2_PERCENT, row, 94 + random.nextDouble() * 6);
+            }
+            if (random.nextInt(10) != 0) {
+                builder.setDouble(HealthMetric.CALORIES_BURNED, row, random.nextDouble() * 2);
+            }
+            if (random.nextInt(2) == 0) {
+                builder.setInt(HealthMetric.WATER_INTAKE_ML, row, random.nextInt(250));
+            }
+            builder.setInt(HealthMetric.ACTIVITY_STATUS, row, random.nextInt(4));
+            if (random.nextInt(4) == 0) {
+                builder.setInt(HealthMetric.SLEEP_DURATION_MINUTES, row, random.nextInt(480));
+            }
+        }
+        return builder.build();
+    }
+}
@@ -0,0 +1,75 @@
+package com.hoxuanthai.be.lastdance.ingest;
+
+import com.hoxuanthai.be.lastdance.entity.Device;
+import com.hoxuanthai.be.lastdance.entity.HealthData;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Chuyển đổi một lô dữ liệu đồng bộ: HealthBatch → HealthData (đường ghi JPA), HealthBatch → dòng cần ghi
+ * (đường batch INSERT) và mã hóa/giải mã columnar.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class HealthDataConversionBenchmark {
+
+    @Param({"1000", "10000", "100000"})
+    int points;
+
+    HealthBatch batch;
+
+    Device device;
+
+    byte[] columnar;
+
+    @Setup
+    public void setup() throws IOException {
+        batch = HealthBatchFixtures.random(points);
+        device = Device.builder().id(1L).deviceUuid("benchmark-device").deviceName("Benchmark").build();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        HealthBatchCodec.encode(new HealthBatchCodec.Message(device.getDeviceUuid(), 1L, batch), out);
+        columnar = out.toByteArray();
+    }
+
+    @Benchmark
+    public List<HealthData> toHealthData() {
+        List<HealthData> target = new ArrayList<>(batch.size());
+        Set<LocalDateTime> seen = new HashSet<>();
+        HealthDataWriter.toHealthData(batch, device, seen, target);
+        return target;
+    }
+
+    @Benchmark
+    public List<HealthDataWriter.Row> toRows() {
+        List<HealthDataWriter.Row> target = new ArrayList<>(batch.size());
+        Set<LocalDateTime> seen = new HashSet<>();
+        HealthDataWriter.toRows(device.getId(), batch, seen, target);
+        return target;
+    }
+
+    @Benchmark
+    public void encodeColumnar(Blackhole blackhole) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(columnar.length);
+        HealthBatchCodec.encode(new HealthBatchCodec.Message(device.getDeviceUuid(), 1L, batch), out);
+        blackhole.consume(out);
+    }
+
+    @Benchmark
+    public HealthBatchCodec.Message decodeColumnar() throws IOException {
+        return HealthBatchCodec.decode(new ByteArrayInputStream(columnar), Integer.MAX_VALUE);
+    }
+}
@@ -0,0 +1,73 @@
+package com.hoxuanthai.be.lastdance.mapper;
+
+import com.hoxuanthai.be.lastdance.dto.DeviceDto;
+import com.hoxuanthai.be.lastdance.dto.UserDto;
+import com.hoxuanthai.be.lastdance.entity.Device;
+import com.hoxuanthai.be.lastdance.entity.User;
+import com.hoxuanthai.be.lastdance.entity.UserRole;
+import com.hoxuanthai.be.lastdance.security.mapper.UserMapper;
+import org.mapstruct.factory.Mappers;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mapping entity → DTO của MapStruct cho danh sách người dùng/thiết bị.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MapperBenchmark {
+
+    DeviceMapper deviceMapper;
+
+    UserMapper userMapper;
+
+    User user;
+
+    Device device;
+
+    @Setup
+    public void setup() {
+        deviceMapper = Mappers.getMapper(DeviceMapper.class);
+        userMapper = Mappers.getMapper(UserMapper.class);
+        user = User.builder()
+                .id(1L)
+                .username("benchmark")
+                .email("benchmark@example.com")
+                .firstName("Bench")
+                .lastName("Mark")
+                .dob(LocalDate.of(2000, 1, 1))
+                .weightKg(70.0)
+                .heightM(1.75)
+                .userRole(UserRole.USER)
+                .build();
+        List<Device> devices = new ArrayList<>();
+        for (long i = 1; i <= 5; i++) {
+            devices.add(Device.builder().id(i).deviceUuid("device-" + i).deviceName("Device " + i).user(user).build());
+        }
+        user.setDevices(devices);
+        device = devices.get(0);
+    }
+
+    @Benchmark
+    public DeviceDto deviceToDto() {
+        return deviceMapper.toDto(device);
+    }
+
+    @Benchmark
+    public UserDto userToDto() {
+        return userMapper.toDto(user);
+    }
+
+    @Benchmark
+    public UserDto userToDetailDto() {
+        return userMapper.toDetailDto(user);
+    }
+}
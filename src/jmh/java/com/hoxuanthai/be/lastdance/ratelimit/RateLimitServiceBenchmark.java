@@ -0,0 +1,61 @@
+package com.hoxuanthai.be.lastdance.ratelimit;
+
+import io.github.bucket4j.ConsumptionProbe;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.postgresql.ds.PGSimpleDataSource;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Consume token của backend LOCAL khi nhiều thread cùng gọi: cùng một key (tranh chấp trên một bucket)
+ * và mỗi request một IP khác nhau (tranh chấp trên cache bucket).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(8)
+@Fork(1)
+public class RateLimitServiceBenchmark {
+
+    RateLimitService rateLimitService;
+
+    RateLimitKey sharedKey;
+
+    @Setup
+    public void setup() {
+        RateLimitProperties properties = new RateLimitProperties();
+        for (RateLimitType type : RateLimitType.values()) {
+            // Bucket đủ lớn để luôn còn token, đo chi phí consume chứ không phải đường bị từ chối
+            RateLimitProperties.Limit limit = new RateLimitProperties.Limit();
+            limit.setCapacity(1_000_000_000L);
+            limit.setUnitsPerToken(1000);
+            properties.getLimits().put(type, limit);
+        }
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        RateLimitConfigurations configurations = new RateLimitConfigurations(properties, meterRegistry);
+        rateLimitService = new RateLimitService(configurations,
+                new LocalBucketStore(configurations, properties, meterRegistry),
+                // Không mở kết nối, chỉ để dựng service (benchmark không dùng backend JDBC)
+                new JdbcBucketStore(new PGSimpleDataSource(), configurations, properties, meterRegistry));
+        sharedKey = RateLimitKey.ofAddress("10.0.0.1");
+    }
+
+    @Benchmark
+    public ConsumptionProbe sameKey() {
+        return rateLimitService.tryConsumeAndReturnRemaining(RateLimitType.UPLOAD_HEALTH_DATA, KeyType.TOKEN,
+                sharedKey, RateLimitBackend.LOCAL, 500);
+    }
+
+    @Benchmark
+    public ConsumptionProbe distinctKeys() {
+        // 65536 IP khác nhau, nằm gọn trong cache
+        int host = ThreadLocalRandom.current().nextInt(1 << 16);
+        RateLimitKey key = RateLimitKey.ofAddress("10.1." + (host >>> 8) + "." + (host & 0xFF));
+        return rateLimitService.tryConsumeAndReturnRemaining(RateLimitType.LOGIN, KeyType.IP,
+                key, RateLimitBackend.LOCAL, 0);
+    }
+}
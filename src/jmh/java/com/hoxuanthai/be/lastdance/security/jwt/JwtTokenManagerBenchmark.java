@@ -0,0 +1,66 @@
+package com.hoxuanthai.be.lastdance.security.jwt;
+
+import com.hoxuanthai.be.lastdance.entity.User;
+import com.hoxuanthai.be.lastdance.entity.UserRole;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tạo và xác thực JWT: lần xác thực đầu tiên (giải mã + kiểm tra chữ ký) và các lần sau dùng cache.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JwtTokenManagerBenchmark {
+
+	JwtTokenManager cachingManager;
+
+	JwtTokenManager nonCachingManager;
+
+	User user;
+
+	String token;
+
+	@Setup
+	public void setup() {
+
+		cachingManager = new JwtTokenManager(properties(10_000), new SimpleMeterRegistry());
+		nonCachingManager = new JwtTokenManager(properties(0), new SimpleMeterRegistry());
+		user = User.builder().username("benchmark").userRole(UserRole.USER).build();
+		token = cachingManager.generateToken(user);
+	}
+
+	private static JwtProperties properties(long cacheSize) {
+
+		final JwtProperties properties = new JwtProperties();
+		properties.setIssuer("benchmark");
+		properties.setSecretKey("benchmark-secret-key-benchmark-secret-key");
+		properties.setExpirationMinute(60);
+		properties.setVerifiedTokenCacheSize(cacheSize);
+		return properties;
+	}
+
+	@Benchmark
+	public String generate() {
+
+		return cachingManager.generateToken(user);
+	}
+
+	@Benchmark
+	public VerifiedToken verifyCached() {
+
+		return cachingManager.verify(token);
+	}
+
+	@Benchmark
+	public VerifiedToken verifyUncached() {
+
+		return nonCachingManager.verify(token);
+	}
+
+}
@@ -0,0 +1,172 @@
+package com.hoxuanthai.be.lastdance.loadtest;
+
+import com.hoxuanthai.be.lastdance.ingest.HealthBatch;
+import com.hoxuanthai.be.lastdance.ingest.HealthMetric;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.SplittableRandom;
+
+/**
+ * Sinh luồng dữ liệu sức khỏe liên tục cho một thiết bị đeo.
+ * <p>
+ * Mỗi thiết bị có nhịp tim nghỉ, SpO2 nền, cân nặng và giờ ngủ riêng. Ban đêm thiết bị ở trạng thái ngủ
+ * (nhịp tim thấp, SpO2 thỉnh thoảng tụt, thời gian ngủ tăng dần); ban ngày chuyển giữa nghỉ, đi bộ và chạy
+ * theo chuỗi Markov với thời lượng ngẫu nhiên. Nhịp tim tiến dần về mức mục tiêu của trạng thái hiện tại,
+ * số bước và calo tính theo trạng thái và độ dài mẫu. Cùng seed luôn sinh cùng dữ liệu.
+ */
+final class DeviceSimulator {
+
+    private static final int SLEEPING = 0;
+    private static final int RESTING = 1;
+    private static final int WALKING = 2;
+    private static final int RUNNING = 3;
+
+    // MET (metabolic equivalent) của từng trạng thái, dùng để tính calo
+    private static final double[] MET = {0.95, 1.3, 3.5, 9.0};
+
+    private static final double[] STEPS_PER_SECOND = {0, 0.02, 1.8, 2.7};
+
+    private final SplittableRandom random;
+
+    private final long sampleMicros;
+
+    private final double sampleSeconds;
+
+    private final int restingHeartRate;
+
+    private final double spo2Baseline;
+
+    private final double weightKg;
+
+    private final LocalTime bedtime;
+
+    private final LocalTime wakeTime;
+
+    private LocalDateTime clock;
+
+    private int activity = RESTING;
+
+    private double stateRemainingSeconds;
+
+    private double heartRate;
+
+    private double sleepSeconds;
+
+    private long sequence;
+
+    DeviceSimulator(long seed, LocalDateTime start, Duration sampleInterval) {
+        this.random = new SplittableRandom(seed);
+        this.sampleMicros = sampleInterval.toNanos() / 1_000;
+        this.sampleSeconds = sampleInterval.toNanos() / 1e9;
+        this.restingHeartRate = 55 + random.nextInt(21);
+        this.spo2Baseline = 95.5 + random.nextDouble() * 3;
+        this.weightKg = 50 + random.nextDouble() * 45;
+        this.bedtime = LocalTime.of(22, 0).plusMinutes(random.nextInt(150));
+        this.wakeTime = LocalTime.of(6, 0).plusMinutes(random.nextInt(120));
+        this.clock = start;
+        this.heartRate = restingHeartRate;
+    }
+
+    /**
+     * Sinh {@code points} điểm dữ liệu tiếp theo, tiếp nối ngay sau điểm cuối của lần gọi trước.
+     */
+    HealthBatch next(int points) {
+        HealthBatch.Builder builder = HealthBatch.builder(points);
+        for (int i = 0; i < points; i++) {
+            advance();
+            int row = builder.addRow(clock);
+            builder.setInt(HealthMetric.ACTIVITY_STATUS, row, activity);
+            builder.setInt(HealthMetric.HEART_RATE, row, (int) Math.round(heartRate));
+            builder.setDouble(HealthMetric.SPO2_PERCENT, row, round1(spo2()));
+            builder.setInt(HealthMetric.STEPS_COUNT, row, steps());
+            builder.setDouble(HealthMetric.CALORIES_BURNED, row,
+                    Math.round(MET[activity] * weightKg * sampleSeconds / 3600 * 1000) / 1000.0);
+            if (activity == SLEEPING) {
+                builder.setInt(HealthMetric.SLEEP_DURATION_MINUTES, row, (int) (sleepSeconds / 60));
+            } else if (random.nextDouble() < sampleSeconds / 5400) {
+                // Trung bình mỗi 90 phút thức uống một lần
+                builder.setInt(HealthMetric.WATER_INTAKE_ML, row, 150 + random.nextInt(200));
+            }
+        }
+        return builder.build();
+    }
+
+    long nextSequence() {
+        return ++sequence;
+    }
+
+    private void advance() {
+        clock = clock.plusNanos(sampleMicros * 1_000);
+
+        if (asleepAt(clock.toLocalTime())) {
+            if (activity != SLEEPING) {
+                sleepSeconds = 0;
+            }
+            activity = SLEEPING;
+            sleepSeconds += sampleSeconds;
+        } else {
+            if (activity == SLEEPING) {
+                enter(RESTING);
+            }
+            stateRemainingSeconds -= sampleSeconds;
+            if (stateRemainingSeconds <= 0) {
+                double roll = random.nextDouble();
+                enter(activity != RESTING ? RESTING : roll < 0.9 ? WALKING : RUNNING);
+            }
+        }
+
+        // Nhịp tim tiến dần về mức mục tiêu (hằng số thời gian khoảng 30 giây) cộng nhiễu
+        double alpha = Math.min(1, sampleSeconds / 30);
+        heartRate += (targetHeartRate() - heartRate) * alpha + random.nextGaussian() * 1.5;
+        heartRate = Math.clamp(heartRate, 38, 200);
+    }
+
+    private void enter(int state) {
+        activity = state;
+        stateRemainingSeconds = switch (state) {
+            case WALKING -> 120 + random.nextInt(18 * 60);
+            case RUNNING -> 600 + random.nextInt(35 * 60);
+            default -> 300 + random.nextInt(55 * 60);
+        };
+    }
+
+    private boolean asleepAt(LocalTime time) {
+        return bedtime.isAfter(wakeTime)
+                ? !time.isBefore(bedtime) || time.isBefore(wakeTime)
+                : !time.isBefore(bedtime) && time.isBefore(wakeTime);
+    }
+
+    private double targetHeartRate() {
+        return switch (activity) {
+            case SLEEPING -> restingHeartRate - 8;
+            case WALKING -> restingHeartRate + 30;
+            case RUNNING -> restingHeartRate + 85;
+            default -> restingHeartRate + 5;
+        };
+    }
+
+    private double spo2() {
+        double value = spo2Baseline + random.nextGaussian() * 0.4;
+        if (activity == SLEEPING) {
+            value -= 1;
+            // Thỉnh thoảng tụt SpO2 khi ngủ
+            if (random.nextDouble() < 0.01) {
+                value -= 3 + random.nextDouble() * 4;
+            }
+        } else if (activity == RUNNING) {
+            value -= 1;
+        }
+        return Math.clamp(value, 85, 100);
+    }
+
+    private int steps() {
+        double mean = STEPS_PER_SECOND[activity] * sampleSeconds;
+        return mean == 0 ? 0 : (int) Math.max(0, Math.round(mean + random.nextGaussian() * Math.sqrt(mean)));
+    }
+
+    private static double round1(double value) {
+        return Math.round(value * 10) / 10.0;
+    }
+}
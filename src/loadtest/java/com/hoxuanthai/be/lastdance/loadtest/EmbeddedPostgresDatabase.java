@@ -0,0 +1,123 @@
+package com.hoxuanthai.be.lastdance.loadtest;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * PostgreSQL nhúng (không có TimescaleDB) dùng khi máy không có Docker.
+ * <p>
+ * Các câu lệnh chỉ dành cho TimescaleDB trong migration bị bỏ qua, {@code time_bucket} được thay bằng
+ * {@code date_bin} (xem {@link SchemaMigrator}). Kết quả chỉ dùng để so sánh giữa các lần chạy trên cùng máy,
+ * không thay cho số đo trên TimescaleDB.
+ * <p>
+ * CPU của database là tổng utime/stime của postmaster và các tiến trình con (kể cả các backend đã kết thúc),
+ * đọc từ /proc nên chỉ đo được trên Linux.
+ */
+@Slf4j
+final class EmbeddedPostgresDatabase implements LoadTestDatabase {
+
+    // USER_HZ của /proc/<pid>/stat, bằng 100 trên hầu hết các bản Linux
+    private static final long NANOS_PER_TICK = 10_000_000L;
+
+    private final EmbeddedPostgres postgres;
+
+    private EmbeddedPostgresDatabase(EmbeddedPostgres postgres) {
+        this.postgres = postgres;
+    }
+
+    static EmbeddedPostgresDatabase start() {
+        try {
+            EmbeddedPostgres postgres = EmbeddedPostgres.builder()
+                    .setServerConfig("max_connections", "200")
+                    .start();
+            log.info("Started embedded PostgreSQL on port {}", postgres.getPort());
+            return new EmbeddedPostgresDatabase(postgres);
+        } catch (IOException e) {
+            throw new RuntimeException("Cannot start embedded PostgreSQL", e);
+        }
+    }
+
+    @Override
+    public String jdbcUrl() {
+        return "jdbc:postgresql://localhost:" + postgres.getPort() + "/postgres";
+    }
+
+    @Override
+    public String username() {
+        return "postgres";
+    }
+
+    @Override
+    public String password() {
+        return "postgres";
+    }
+
+    @Override
+    public boolean timescale() {
+        return false;
+    }
+
+    @Override
+    public long cpuTimeNanos() {
+        if (!Files.isDirectory(Path.of("/proc/self"))) {
+            return -1;
+        }
+        // pg_ctl tách postmaster khỏi tiến trình hiện tại nên tìm postmaster qua tiến trình cha của một backend
+        ProcessHandle postmaster = postmaster();
+        if (postmaster == null) {
+            return -1;
+        }
+        long ticks = cpuTicks(postmaster.pid()) + postmaster.children()
+                .mapToLong(process -> cpuTicks(process.pid()))
+                .sum();
+        return ticks * NANOS_PER_TICK;
+    }
+
+    private ProcessHandle postmaster() {
+        try (Connection connection = openConnection();
+             Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery("SELECT pg_backend_pid()")) {
+            resultSet.next();
+            return ProcessHandle.of(resultSet.getLong(1)).flatMap(ProcessHandle::parent).orElse(null);
+        } catch (SQLException e) {
+            log.debug("Cannot find postmaster process: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    private static long cpuTicks(long pid) {
+        try {
+            String stat = Files.readString(Path.of("/proc", Long.toString(pid), "stat"));
+            // Bỏ qua "pid (comm) " vì comm có thể chứa khoảng trắng; field tiếp theo là field thứ 3 (state)
+            String[] fields = stat.substring(stat.lastIndexOf(')') + 2).split(" ");
+            // utime, stime, cutime, cstime là field 14-17
+            return Long.parseLong(fields[11]) + Long.parseLong(fields[12])
+                    + Long.parseLong(fields[13]) + Long.parseLong(fields[14]);
+        } catch (IOException | RuntimeException e) {
+            // Tiến trình đã kết thúc giữa chừng
+            return 0;
+        }
+    }
+
+    @Override
+    public String description() {
+        return "embedded PostgreSQL (no TimescaleDB)";
+    }
+
+    @Override
+    public void close() {
+        try {
+            postgres.close();
+        } catch (IOException e) {
+            log.warn("Cannot stop embedded PostgreSQL: {}", e.getMessage());
+        }
+    }
+}
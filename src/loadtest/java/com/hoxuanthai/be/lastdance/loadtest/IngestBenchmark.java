@@ -0,0 +1,129 @@
+package com.hoxuanthai.be.lastdance.loadtest;
+
+import com.hoxuanthai.be.lastdance.ingest.HealthDataWriter;
+import com.hoxuanthai.be.lastdance.ingest.IngestBatch;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * So sánh thông lượng ghi dữ liệu sức khỏe đồng bộ (không qua hàng đợi) giữa các cấu hình ghi:
+ * JPA không batching, JPA với hibernate.jdbc.batch_size + order_inserts, batch INSERT qua JDBC theo
+ * {@code ingest.insert-batch-size}, mỗi loại có thêm reWriteBatchedInserts của pgjdbc, và COPY để tham chiếu.
+ * <p>
+ * Mỗi cấu hình chạy trên database mới với cùng đội thiết bị và cùng dữ liệu. Mỗi vòng, từng thiết bị ghi
+ * một lô {@code loadtest.points} điểm qua {@link HealthDataWriter} (một transaction như một request đồng bộ).
+ * <p>
+ * Chạy: {@code mvn -Ploadtest compile exec:java -Dloadtest.main=com.hoxuanthai.be.lastdance.loadtest.IngestBenchmark
+ * -Dloadtest.devices=50 -Dloadtest.points=1000 -Dloadtest.ingest.rounds=5}.
+ */
+@Slf4j
+public final class IngestBenchmark {
+
+    private static final String JPA_BATCH_SIZE = "spring.jpa.properties.hibernate.jdbc.batch_size";
+
+    private static final String ORDER_INSERTS = "spring.jpa.properties.hibernate.order_inserts";
+
+    private static final String INSERT_BATCH_SIZE = "ingest.insert-batch-size";
+
+    private static final String REWRITE_BATCHED_INSERTS = "spring.datasource.hikari.data-source-properties.reWriteBatchedInserts";
+
+    private record Variant(String name, Map<String, Object> properties) {
+    }
+
+    private record Result(String name, long points, double seconds, double meanWriteMillis) {
+
+        double pointsPerSecond() {
+            return points / seconds;
+        }
+    }
+
+    private IngestBenchmark() {
+    }
+
+    public static void main(String[] args) {
+        LoadTestConfig config = LoadTestConfig.fromSystemProperties();
+        int rounds = Integer.getInteger("loadtest.ingest.rounds", 5);
+        int warmupRounds = Integer.getInteger("loadtest.ingest.warmup-rounds", 1);
+        int batchSize = Integer.getInteger("loadtest.ingest.batch-size", 500);
+
+        List<Variant> variants = List.of(
+                new Variant("JPA, no batching", Map.of("ingest.mode", "JPA",
+                        JPA_BATCH_SIZE, 0, ORDER_INSERTS, false, REWRITE_BATCHED_INSERTS, false)),
+                new Variant("JPA, batch_size=" + batchSize, Map.of("ingest.mode", "JPA",
+                        JPA_BATCH_SIZE, batchSize, ORDER_INSERTS, true, REWRITE_BATCHED_INSERTS, false)),
+                new Variant("JPA, batch_size=" + batchSize + " + reWriteBatchedInserts", Map.of("ingest.mode", "JPA",
+                        JPA_BATCH_SIZE, batchSize, ORDER_INSERTS, true, REWRITE_BATCHED_INSERTS, true)),
+                new Variant("INSERT, batch size=" + batchSize, Map.of("ingest.mode", "INSERT",
+                        INSERT_BATCH_SIZE, batchSize, REWRITE_BATCHED_INSERTS, false)),
+                new Variant("INSERT, batch size=" + batchSize + " + reWriteBatchedInserts", Map.of("ingest.mode", "INSERT",
+                        INSERT_BATCH_SIZE, batchSize, REWRITE_BATCHED_INSERTS, true)),
+                new Variant("COPY", Map.of("ingest.mode", "COPY")));
+
+        List<Result> results = new ArrayList<>();
+        for (Variant variant : variants) {
+            results.add(run(config, variant, warmupRounds, rounds));
+        }
+        System.out.println(format(config, rounds, results));
+    }
+
+    private static Result run(LoadTestConfig config, Variant variant, int warmupRounds, int rounds) {
+        LocalDateTime start = LocalDateTime.now()
+                .minus(config.sampleInterval().multipliedBy((long) (warmupRounds + rounds) * config.points()))
+                .truncatedTo(ChronoUnit.SECONDS);
+        try (LoadTestDatabase database = LoadTestDatabase.start(config)) {
+            SchemaMigrator.migrate(database);
+            List<SyntheticFleet.Member> members = SyntheticFleet.create(database, config.devices(), start,
+                    config.sampleInterval());
+
+            Map<String, Object> properties = new HashMap<>(variant.properties());
+            properties.put("ingest.async.enabled", false);
+            try (ConfigurableApplicationContext context = LoadTestApplication.start(database, properties)) {
+                HealthDataWriter writer = context.getBean(HealthDataWriter.class);
+                for (int round = 0; round < warmupRounds; round++) {
+                    writeRound(writer, members, config.points());
+                }
+
+                log.info("Measuring '{}' for {} rounds of {} devices x {} points", variant.name(), rounds,
+                        members.size(), config.points());
+                long points = 0;
+                long startTime = System.nanoTime();
+                for (int round = 0; round < rounds; round++) {
+                    points += writeRound(writer, members, config.points());
+                }
+                double seconds = (System.nanoTime() - startTime) / 1e9;
+                long writes = (long) rounds * members.size();
+                return new Result(variant.name(), points, seconds, seconds * 1000 / writes);
+            }
+        }
+    }
+
+    private static long writeRound(HealthDataWriter writer, List<SyntheticFleet.Member> members, int points) {
+        long inserted = 0;
+        for (SyntheticFleet.Member member : members) {
+            IngestBatch batch = new IngestBatch(member.deviceId(), member.userId(),
+                    member.simulator().nextSequence(), member.simulator().next(points));
+            inserted += writer.write(List.of(batch));
+        }
+        return inserted;
+    }
+
+    private static String format(LoadTestConfig config, int rounds, List<Result> results) {
+        StringBuilder text = new StringBuilder();
+        text.append(String.format("%nIngest benchmark: %d devices x %d points x %d rounds, one transaction per batch%n",
+                config.devices(), config.points(), rounds));
+        text.append(String.format("%-50s %12s %14s %10s%n", "variant", "points/s", "ms/batch", "speedup"));
+        double baseline = results.getFirst().pointsPerSecond();
+        for (Result result : results) {
+            text.append(String.format("%-50s %12.0f %14.1f %9.1fx%n", result.name(), result.pointsPerSecond(),
+                    result.meanWriteMillis(), result.pointsPerSecond() / baseline));
+        }
+        return text.toString();
+    }
+}
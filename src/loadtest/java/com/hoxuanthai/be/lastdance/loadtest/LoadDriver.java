@@ -0,0 +1,191 @@
+package com.hoxuanthai.be.lastdance.loadtest;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hoxuanthai.be.lastdance.dto.HealthDataDto;
+import com.hoxuanthai.be.lastdance.ingest.HealthBatch;
+import com.hoxuanthai.be.lastdance.ingest.HealthBatchCodec;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
+
+/**
+ * Chạy các kịch bản tải song song trên virtual thread:
+ * <ul>
+ *     <li>mỗi thiết bị gửi {@code points} điểm dữ liệu mỗi {@code sync-interval},</li>
+ *     <li>mỗi admin tải /dashboard mỗi {@code dashboard-interval},</li>
+ *     <li>mỗi user tải /health-data/statistics (lần lượt các chỉ số, theo ngày và theo tuần)
+ *     mỗi {@code statistics-interval}.</li>
+ * </ul>
+ * Request được gửi theo lịch cố định (open model): khi server chậm, request tiếp theo được gửi ngay
+ * khi request trước xong và độ trễ vẫn tính từ thời điểm theo lịch.
+ */
+@Slf4j
+final class LoadDriver {
+
+    static final String SYNC = "sync";
+    static final String DASHBOARD = "dashboard";
+    static final String STATISTICS = "statistics";
+
+    private static final String[] METRICS = {"hr", "steps", "spo2", "sleep", "water"};
+
+    private static final String[] RANGES = {"day", "week"};
+
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(60);
+
+    private final HttpClient client = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(10))
+            .executor(Executors.newVirtualThreadPerTaskExecutor())
+            .build();
+
+    private final String baseUrl;
+
+    private final ObjectMapper objectMapper;
+
+    private final LoadTestConfig config;
+
+    private final ScenarioStats sync = new ScenarioStats(SYNC);
+
+    private final ScenarioStats dashboard = new ScenarioStats(DASHBOARD);
+
+    private final ScenarioStats statistics = new ScenarioStats(STATISTICS);
+
+    private record PreparedRequest(HttpRequest request, int points) {
+    }
+
+    LoadDriver(String baseUrl, ObjectMapper objectMapper, LoadTestConfig config) {
+        this.baseUrl = baseUrl;
+        this.objectMapper = objectMapper;
+        this.config = config;
+    }
+
+    /**
+     * Chạy tải từ bây giờ đến {@code endNanos}, chỉ ghi nhận request có thời điểm theo lịch sau {@code measureStartNanos}.
+     *
+     * @param tokens     JWT của user sở hữu từng thiết bị, theo username.
+     * @param adminToken JWT của tài khoản admin.
+     */
+    void run(List<SyntheticFleet.Member> members, Map<String, String> tokens, String adminToken,
+             long measureStartNanos, long endNanos) {
+        long startNanos = System.nanoTime();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < members.size(); i++) {
+                SyntheticFleet.Member member = members.get(i);
+                String token = tokens.get(member.username());
+                long first = startNanos + offset(i, members.size(), config.syncInterval());
+                executor.submit(() -> schedule(sync, config.syncInterval(), first, measureStartNanos, endNanos,
+                        () -> syncRequest(member, token)));
+            }
+            for (int i = 0; i < config.admins(); i++) {
+                long first = startNanos + offset(i, config.admins(), config.dashboardInterval());
+                executor.submit(() -> schedule(dashboard, config.dashboardInterval(), first, measureStartNanos,
+                        endNanos, () -> new PreparedRequest(get("/dashboard", adminToken), 0)));
+            }
+            for (int i = 0; i < config.users() && !members.isEmpty(); i++) {
+                String token = tokens.get(members.get(i % members.size()).username());
+                long first = startNanos + offset(i, config.users(), config.statisticsInterval());
+                int[] iteration = {i};
+                executor.submit(() -> schedule(statistics, config.statisticsInterval(), first, measureStartNanos,
+                        endNanos, () -> {
+                            int n = iteration[0]++;
+                            String query = "?metric=" + METRICS[n % METRICS.length]
+                                    + "&range=" + RANGES[(n / METRICS.length) % RANGES.length];
+                            return new PreparedRequest(get("/health-data/statistics" + query, token), 0);
+                        }));
+            }
+        }
+    }
+
+    List<ScenarioStats> stats() {
+        return List.of(sync, dashboard, statistics);
+    }
+
+    private void schedule(ScenarioStats stats, Duration interval, long first, long measureStartNanos, long endNanos,
+                          Supplier<PreparedRequest> requests) {
+        long intervalNanos = interval.toNanos();
+        for (long scheduled = first; scheduled < endNanos; scheduled += intervalNanos) {
+            // Chuẩn bị payload trước khi đến lịch để thời gian sinh dữ liệu không tính vào độ trễ
+            PreparedRequest prepared = requests.get();
+            long wait = scheduled - System.nanoTime();
+            if (wait > 0) {
+                try {
+                    Thread.sleep(Duration.ofNanos(wait));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+
+            int status = send(prepared.request());
+            if (scheduled >= measureStartNanos) {
+                stats.record(status, System.nanoTime() - scheduled, prepared.points());
+            }
+        }
+    }
+
+    private int send(HttpRequest request) {
+        try {
+            return client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+        } catch (IOException e) {
+            log.debug("{} {} failed: {}", request.method(), request.uri(), e.toString());
+            return 0;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return 0;
+        }
+    }
+
+    private PreparedRequest syncRequest(SyntheticFleet.Member member, String token) {
+        HealthBatch batch = member.simulator().next(config.points());
+        long sequence = member.simulator().nextSequence();
+        HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(baseUrl + "/sync/health-data"))
+                .timeout(REQUEST_TIMEOUT)
+                .header("Authorization", "Bearer " + token);
+        try {
+            if (config.format() == LoadTestConfig.PayloadFormat.COLUMNAR) {
+                ByteArrayOutputStream body = new ByteArrayOutputStream();
+                HealthBatchCodec.encode(new HealthBatchCodec.Message(member.deviceUuid(), sequence, batch), body);
+                builder.header("Content-Type", HealthBatchCodec.MEDIA_TYPE)
+                        .POST(HttpRequest.BodyPublishers.ofByteArray(body.toByteArray()));
+            } else {
+                HealthDataDto dto = HealthDataDto.builder()
+                        .deviceUuid(member.deviceUuid())
+                        .dataPoints(batch)
+                        .sequence(sequence)
+                        .build();
+                builder.header("Content-Type", "application/json")
+                        .POST(HttpRequest.BodyPublishers.ofByteArray(objectMapper.writeValueAsBytes(dto)));
+            }
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("Cannot serialize health data", e);
+        } catch (IOException e) {
+            throw new RuntimeException("Cannot encode health data", e);
+        }
+        return new PreparedRequest(builder.build(), batch.size());
+    }
+
+    private HttpRequest get(String path, String token) {
+        return HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .timeout(REQUEST_TIMEOUT)
+                .header("Authorization", "Bearer " + token)
+                .GET()
+                .build();
+    }
+
+    // Dàn đều request đầu tiên của các client trong một chu kỳ để tránh dồn tải vào cùng một thời điểm
+    private static long offset(int index, int clients, Duration interval) {
+        return interval.toNanos() * index / Math.max(1, clients);
+    }
+}
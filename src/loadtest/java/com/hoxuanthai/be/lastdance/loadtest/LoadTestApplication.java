@@ -0,0 +1,103 @@
+package com.hoxuanthai.be.lastdance.loadtest;
+
+import com.hoxuanthai.be.lastdance.BeLastDanceApplication;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.beans.factory.support.BeanDefinitionRegistry;
+import org.springframework.beans.factory.support.BeanDefinitionRegistryPostProcessor;
+import org.springframework.beans.factory.support.RootBeanDefinition;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.servlet.context.ServletWebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.core.env.MutablePropertySources;
+import org.springframework.core.env.StandardEnvironment;
+import software.amazon.awssdk.auth.credentials.AnonymousCredentialsProvider;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.presigner.S3Presigner;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Khởi động ứng dụng thật (cùng cấu hình application.yml) trên cổng ngẫu nhiên, trỏ vào database của load test.
+ * <p>
+ * Các thuộc tính của ứng dụng vẫn ghi đè được bằng system property, ví dụ
+ * {@code -Dingest.async.enabled=false} hoặc {@code -Dspring.datasource.hikari.maximum-pool-size=20}.
+ */
+final class LoadTestApplication {
+
+    private LoadTestApplication() {
+    }
+
+    static ConfigurableApplicationContext start(LoadTestDatabase database) {
+        return start(database, Map.of());
+    }
+
+    /**
+     * @param overrides Thuộc tính ghi đè cả system property, dùng khi một lần chạy so sánh nhiều cấu hình.
+     */
+    static ConfigurableApplicationContext start(LoadTestDatabase database, Map<String, Object> overrides) {
+        // Thuộc tính bắt buộc của load test, ưu tiên cao nhất
+        Map<String, Object> required = new HashMap<>(overrides);
+        required.put("spring.datasource.url", database.jdbcUrl());
+        required.put("spring.datasource.username", database.username());
+        required.put("spring.datasource.password", database.password());
+        required.put("server.port", 0);
+        if (!database.timescale()) {
+            // PostgreSQL thường không có continuous aggregate, thống kê tính từ dữ liệu thô
+            required.put("statistics.use-continuous-aggregates", false);
+        }
+
+        // Giá trị mặc định thay cho biến môi trường khi chạy local, system property vẫn được ưu tiên hơn
+        Map<String, Object> defaults = Map.of(
+                "jwt.secretKey", "load-test-secret-key");
+
+        return new SpringApplicationBuilder(BeLastDanceApplication.class)
+                .initializers(context -> {
+                    MutablePropertySources sources = context.getEnvironment().getPropertySources();
+                    sources.addFirst(new MapPropertySource("loadtest", required));
+                    sources.addAfter(StandardEnvironment.SYSTEM_ENVIRONMENT_PROPERTY_SOURCE_NAME,
+                            new MapPropertySource("loadtestDefaults", defaults));
+                    context.addBeanFactoryPostProcessor(new OfflineS3Clients());
+                })
+                .run();
+    }
+
+    static String baseUrl(ConfigurableApplicationContext context) {
+        int port = ((ServletWebServerApplicationContext) context).getWebServer().getPort();
+        return "http://localhost:" + port + context.getEnvironment().getProperty("server.servlet.context-path", "");
+    }
+
+    /**
+     * S3Config đọc credentials từ biến môi trường và không khởi động được khi thiếu.
+     * Load test không dùng S3 nên thay bằng client không credentials, không kết nối mạng khi khởi tạo.
+     */
+    private static final class OfflineS3Clients implements BeanDefinitionRegistryPostProcessor {
+
+        @Override
+        public void postProcessBeanDefinitionRegistry(BeanDefinitionRegistry registry) {
+            // Bean definition của S3Config chưa được đăng ký ở giai đoạn này
+        }
+
+        @Override
+        public void postProcessBeanFactory(ConfigurableListableBeanFactory beanFactory) {
+            BeanDefinitionRegistry registry = (BeanDefinitionRegistry) beanFactory;
+            replace(registry, "s3Client", new RootBeanDefinition(S3Client.class, () -> S3Client.builder()
+                    .region(Region.AP_SOUTHEAST_2)
+                    .credentialsProvider(AnonymousCredentialsProvider.create())
+                    .build()));
+            replace(registry, "s3Presigner", new RootBeanDefinition(S3Presigner.class, () -> S3Presigner.builder()
+                    .region(Region.AP_SOUTHEAST_2)
+                    .credentialsProvider(AnonymousCredentialsProvider.create())
+                    .build()));
+        }
+
+        private static void replace(BeanDefinitionRegistry registry, String name, RootBeanDefinition definition) {
+            if (registry.containsBeanDefinition(name)) {
+                registry.removeBeanDefinition(name);
+            }
+            registry.registerBeanDefinition(name, definition);
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package com.hoxuanthai.be.lastdance.loadtest;
+
+import org.springframework.boot.convert.DurationStyle;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+/**
+ * Cấu hình một lần chạy load test, đọc từ system property {@code loadtest.*}
+ * (ví dụ {@code mvn -Ploadtest compile exec:java -Dloadtest.devices=500 -Dloadtest.duration=5m}).
+ *
+ * @param database         AUTO (Docker nếu có, nếu không thì PostgreSQL nhúng), CONTAINER hoặc EMBEDDED.
+ * @param image            Image TimescaleDB dùng với Testcontainers.
+ * @param devices          Số thiết bị (mỗi thiết bị thuộc một user riêng).
+ * @param points           Số điểm dữ liệu trong mỗi lần đồng bộ.
+ * @param syncInterval     Chu kỳ đồng bộ của mỗi thiết bị.
+ * @param sampleInterval   Khoảng cách giữa hai điểm dữ liệu liên tiếp của thiết bị.
+ * @param format           Định dạng payload đồng bộ: JSON hoặc COLUMNAR.
+ * @param admins           Số admin cùng mở dashboard.
+ * @param dashboardInterval Chu kỳ tải /dashboard của mỗi admin.
+ * @param users            Số user cùng xem thống kê.
+ * @param statisticsInterval Chu kỳ tải /health-data/statistics của mỗi user.
+ * @param warmup           Thời gian chạy trước khi bắt đầu ghi nhận kết quả.
+ * @param duration         Thời gian đo (không tính warmup).
+ * @param reportDir        Thư mục ghi báo cáo.
+ * @param gate             Ngưỡng hồi quy, lần chạy thất bại nếu vượt ngưỡng.
+ */
+public record LoadTestConfig(
+        DatabaseMode database,
+        String image,
+        int devices,
+        int points,
+        Duration syncInterval,
+        Duration sampleInterval,
+        PayloadFormat format,
+        int admins,
+        Duration dashboardInterval,
+        int users,
+        Duration statisticsInterval,
+        Duration warmup,
+        Duration duration,
+        Path reportDir,
+        Gate gate) {
+
+    public enum DatabaseMode {
+        AUTO, CONTAINER, EMBEDDED
+    }
+
+    public enum PayloadFormat {
+        JSON, COLUMNAR
+    }
+
+    /**
+     * Ngưỡng hồi quy. Giá trị null nghĩa là không kiểm tra.
+     *
+     * @param syncP95             p95 tối đa của request đồng bộ.
+     * @param dashboardP95        p95 tối đa của /dashboard.
+     * @param statisticsP95       p95 tối đa của /health-data/statistics.
+     * @param minPointsPerSecond  Số điểm dữ liệu tối thiểu được ghi xuống database mỗi giây.
+     * @param maxErrorRate        Tỉ lệ lỗi tối đa (không tính request bị từ chối có chủ đích: 429/503).
+     */
+    public record Gate(Duration syncP95, Duration dashboardP95, Duration statisticsP95,
+                       Double minPointsPerSecond, double maxErrorRate) {
+    }
+
+    public static LoadTestConfig fromSystemProperties() {
+        return new LoadTestConfig(
+                DatabaseMode.valueOf(property("database", "auto").toUpperCase()),
+                property("image", "timescale/timescaledb:2.14.2-pg16"),
+                Integer.parseInt(property("devices", "100")),
+                Integer.parseInt(property("points", "300")),
+                duration("sync-interval", "10s"),
+                duration("sample-interval", "1s"),
+                PayloadFormat.valueOf(property("format", "json").toUpperCase()),
+                Integer.parseInt(property("admins", "2")),
+                duration("dashboard-interval", "5s"),
+                Integer.parseInt(property("users", "20")),
+                duration("statistics-interval", "5s"),
+                duration("warmup", "15s"),
+                duration("duration", "1m"),
+                Path.of(property("report-dir", "target/loadtest")),
+                new Gate(
+                        duration("gate.sync-p95", null),
+                        duration("gate.dashboard-p95", null),
+                        duration("gate.statistics-p95", null),
+                        System.getProperty("loadtest.gate.min-points-per-second") != null
+                                ? Double.parseDouble(property("gate.min-points-per-second", null)) : null,
+                        Double.parseDouble(property("gate.max-error-rate", "0.01"))));
+    }
+
+    private static String property(String name, String defaultValue) {
+        return System.getProperty("loadtest." + name, defaultValue);
+    }
+
+    private static Duration duration(String name, String defaultValue) {
+        String value = property(name, defaultValue);
+        return value != null ? DurationStyle.detectAndParse(value) : null;
+    }
+}
@@ -0,0 +1,65 @@
+package com.hoxuanthai.be.lastdance.loadtest;
+
+import lombok.extern.slf4j.Slf4j;
+import org.testcontainers.DockerClientFactory;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+
+/**
+ * Database dùng cho một lần chạy load test: TimescaleDB trong Docker (Testcontainers),
+ * hoặc PostgreSQL nhúng khi máy không có Docker.
+ */
+public interface LoadTestDatabase extends AutoCloseable {
+
+    String jdbcUrl();
+
+    String username();
+
+    String password();
+
+    /**
+     * @return true nếu database có extension TimescaleDB (hypertable, continuous aggregate, compression).
+     */
+    boolean timescale();
+
+    /**
+     * Tổng thời gian CPU mà các tiến trình database đã dùng kể từ khi khởi động.
+     *
+     * @return Thời gian CPU tính bằng nano giây, hoặc -1 nếu không đo được trên môi trường này.
+     */
+    long cpuTimeNanos();
+
+    String description();
+
+    default Connection openConnection() throws SQLException {
+        return DriverManager.getConnection(jdbcUrl(), username(), password());
+    }
+
+    @Override
+    void close();
+
+    static LoadTestDatabase start(LoadTestConfig config) {
+        return switch (config.database()) {
+            case CONTAINER -> TimescaleContainerDatabase.start(config.image());
+            case EMBEDDED -> EmbeddedPostgresDatabase.start();
+            case AUTO -> Auto.start(config);
+        };
+    }
+
+    @Slf4j
+    final class Auto {
+
+        private Auto() {
+        }
+
+        static LoadTestDatabase start(LoadTestConfig config) {
+            if (DockerClientFactory.instance().isDockerAvailable()) {
+                return TimescaleContainerDatabase.start(config.image());
+            }
+            log.warn("Docker is not available, falling back to embedded PostgreSQL without TimescaleDB");
+            return EmbeddedPostgresDatabase.start();
+        }
+    }
+}
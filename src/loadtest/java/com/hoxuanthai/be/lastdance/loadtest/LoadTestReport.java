@@ -0,0 +1,121 @@
+package com.hoxuanthai.be.lastdance.loadtest;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Báo cáo của một lần chạy load test: thông lượng, độ trễ theo từng loại request và tải của database.
+ *
+ * @param database              Mô tả database đã dùng.
+ * @param config                Cấu hình của lần chạy.
+ * @param measuredSeconds       Độ dài cửa sổ đo.
+ * @param scenarios             Kết quả theo loại request.
+ * @param persistedPoints       Số điểm dữ liệu được ghi xuống HEALTH_DATA trong cửa sổ đo (sau khi hàng đợi ghi đã xả).
+ * @param persistedPointsPerSecond Số điểm dữ liệu được ghi mỗi giây.
+ * @param dbCpuSeconds          Thời gian CPU của database trong cửa sổ đo, -1 nếu không đo được.
+ * @param dbCpuCores            Số core trung bình database sử dụng, -1 nếu không đo được.
+ * @param dbTransactions        Số transaction đã commit (pg_stat_database.xact_commit).
+ * @param dbCacheHitRatio       Tỉ lệ block đọc từ shared buffers (pg_stat_database.blks_hit / (blks_hit + blks_read)).
+ * @param ingestFlushes         Số micro-batch hàng đợi ghi đã flush (từ lúc ứng dụng khởi động).
+ * @param ingestFlushMeanMs     Thời gian flush trung bình.
+ * @param ingestFlushMaxMs      Thời gian flush lâu nhất gần đây.
+ * @param ingestRejectedPoints  Số điểm dữ liệu bị hàng đợi ghi từ chối.
+ */
+public record LoadTestReport(
+        String database,
+        LoadTestConfig config,
+        double measuredSeconds,
+        List<Scenario> scenarios,
+        long persistedPoints,
+        double persistedPointsPerSecond,
+        double dbCpuSeconds,
+        double dbCpuCores,
+        long dbTransactions,
+        double dbCacheHitRatio,
+        long ingestFlushes,
+        double ingestFlushMeanMs,
+        double ingestFlushMaxMs,
+        double ingestRejectedPoints) {
+
+    public record Scenario(
+            String name,
+            long requests,
+            long rejected,
+            long errors,
+            double requestsPerSecond,
+            double pointsPerSecond,
+            double p50Ms,
+            double p95Ms,
+            double p99Ms,
+            double maxMs) {
+
+        double errorRate() {
+            return requests > 0 ? (double) errors / requests : 0;
+        }
+    }
+
+    Scenario scenario(String name) {
+        return scenarios.stream().filter(scenario -> scenario.name().equals(name)).findFirst().orElseThrow();
+    }
+
+    /**
+     * So sánh kết quả với ngưỡng hồi quy.
+     *
+     * @return Danh sách ngưỡng bị vượt, rỗng nếu lần chạy đạt.
+     */
+    List<String> violations(LoadTestConfig.Gate gate) {
+        List<String> violations = new ArrayList<>();
+        checkP95(violations, scenario(LoadDriver.SYNC), gate.syncP95());
+        checkP95(violations, scenario(LoadDriver.DASHBOARD), gate.dashboardP95());
+        checkP95(violations, scenario(LoadDriver.STATISTICS), gate.statisticsP95());
+        if (gate.minPointsPerSecond() != null && persistedPointsPerSecond < gate.minPointsPerSecond()) {
+            violations.add(String.format(Locale.ROOT, "persisted points/s %.0f < %.0f",
+                    persistedPointsPerSecond, gate.minPointsPerSecond()));
+        }
+        for (Scenario scenario : scenarios) {
+            if (scenario.errorRate() > gate.maxErrorRate()) {
+                violations.add(String.format(Locale.ROOT, "%s error rate %.4f > %.4f",
+                        scenario.name(), scenario.errorRate(), gate.maxErrorRate()));
+            }
+        }
+        return violations;
+    }
+
+    private static void checkP95(List<String> violations, Scenario scenario, Duration limit) {
+        if (limit != null && scenario.p95Ms() > limit.toNanos() / 1e6) {
+            violations.add(String.format(Locale.ROOT, "%s p95 %.1f ms > %d ms",
+                    scenario.name(), scenario.p95Ms(), limit.toMillis()));
+        }
+    }
+
+    String format() {
+        StringBuilder out = new StringBuilder();
+        out.append(String.format(Locale.ROOT, "Database: %s%n", database));
+        out.append(String.format(Locale.ROOT,
+                "Fleet: %d devices x %d points every %s (%s payload), %d admins every %s, %d users every %s%n",
+                config.devices(), config.points(), config.syncInterval(), config.format(), config.admins(),
+                config.dashboardInterval(), config.users(), config.statisticsInterval()));
+        out.append(String.format(Locale.ROOT, "Measured: %.1f s after %s warmup%n%n", measuredSeconds, config.warmup()));
+
+        out.append(String.format(Locale.ROOT, "%-12s %9s %8s %7s %9s %11s %9s %9s %9s %9s%n",
+                "scenario", "requests", "rejected", "errors", "req/s", "points/s", "p50 ms", "p95 ms", "p99 ms", "max ms"));
+        for (Scenario s : scenarios) {
+            out.append(String.format(Locale.ROOT, "%-12s %9d %8d %7d %9.1f %11.0f %9.1f %9.1f %9.1f %9.1f%n",
+                    s.name(), s.requests(), s.rejected(), s.errors(), s.requestsPerSecond(), s.pointsPerSecond(),
+                    s.p50Ms(), s.p95Ms(), s.p99Ms(), s.maxMs()));
+        }
+
+        out.append(String.format(Locale.ROOT, "%nPersisted: %d points (%.0f points/s)%n",
+                persistedPoints, persistedPointsPerSecond));
+        out.append(dbCpuSeconds >= 0
+                ? String.format(Locale.ROOT, "DB CPU: %.1f s (%.2f cores)%n", dbCpuSeconds, dbCpuCores)
+                : "DB CPU: not available\n");
+        out.append(String.format(Locale.ROOT, "DB transactions: %d, cache hit ratio: %.4f%n",
+                dbTransactions, dbCacheHitRatio));
+        out.append(String.format(Locale.ROOT, "Ingest: %d flushes, mean %.1f ms, max %.1f ms, %.0f points rejected%n",
+                ingestFlushes, ingestFlushMeanMs, ingestFlushMaxMs, ingestRejectedPoints));
+        return out.toString();
+    }
+}
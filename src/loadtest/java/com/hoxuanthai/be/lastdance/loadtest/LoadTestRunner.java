@@ -0,0 +1,206 @@
+package com.hoxuanthai.be.lastdance.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hoxuanthai.be.lastdance.entity.User;
+import com.hoxuanthai.be.lastdance.entity.UserRole;
+import com.hoxuanthai.be.lastdance.ingest.HealthDataIngestQueue;
+import com.hoxuanthai.be.lastdance.security.jwt.JwtTokenManager;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Load test end-to-end: database thật, ứng dụng thật, client HTTP thật.
+ * <p>
+ * Các bước: khởi động TimescaleDB (hoặc PostgreSQL nhúng), chạy migration, tạo đội thiết bị giả lập,
+ * khởi động ứng dụng, chạy tải trong {@code warmup + duration}, chờ hàng đợi ghi xả hết rồi ghi báo cáo
+ * (text và JSON) vào {@code loadtest.report-dir}. Lần chạy thất bại nếu vượt một ngưỡng {@code loadtest.gate.*}.
+ * <p>
+ * Chạy: {@code mvn -Ploadtest compile exec:java -Dloadtest.devices=200 -Dloadtest.duration=5m}.
+ */
+@Slf4j
+public final class LoadTestRunner {
+
+    private static final Duration DRAIN_TIMEOUT = Duration.ofSeconds(60);
+
+    private static final String DB_STATS_SQL = "SELECT xact_commit, blks_hit, blks_read FROM pg_stat_database " +
+            "WHERE datname = current_database()";
+
+    private static final String COUNT_HEALTH_DATA_SQL = "SELECT count(*) FROM health_data";
+
+    /**
+     * Trạng thái database tại một thời điểm, dùng để tính chênh lệch trong cửa sổ đo.
+     */
+    private record DbSnapshot(long nanoTime, long cpuNanos, long transactions, long blocksHit, long blocksRead,
+                              long healthDataRows) {
+    }
+
+    private LoadTestRunner() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        LoadTestConfig config = LoadTestConfig.fromSystemProperties();
+        LoadTestReport report;
+        try (LoadTestDatabase database = LoadTestDatabase.start(config)) {
+            SchemaMigrator.migrate(database);
+            List<SyntheticFleet.Member> members = SyntheticFleet.create(database, config.devices(),
+                    firstSampleTime(config), config.sampleInterval());
+            log.info("Created synthetic fleet of {} devices", members.size());
+
+            try (ConfigurableApplicationContext context = LoadTestApplication.start(database)) {
+                report = run(config, database, members, context);
+            }
+        }
+
+        String text = report.format();
+        System.out.println(text);
+        writeReport(config.reportDir(), text, report);
+
+        List<String> violations = report.violations(config.gate());
+        if (!violations.isEmpty()) {
+            throw new IllegalStateException("Load test gate failed: " + String.join("; ", violations));
+        }
+    }
+
+    private static LoadTestReport run(LoadTestConfig config, LoadTestDatabase database,
+                                      List<SyntheticFleet.Member> members, ConfigurableApplicationContext context) {
+        JwtTokenManager jwtTokenManager = context.getBean(JwtTokenManager.class);
+        Map<String, String> tokens = new HashMap<>();
+        for (SyntheticFleet.Member member : members) {
+            tokens.put(member.username(), jwtTokenManager.generateToken(
+                    User.builder().username(member.username()).userRole(UserRole.USER).build()));
+        }
+        String adminToken = jwtTokenManager.generateToken(
+                User.builder().username("admin").userRole(UserRole.ADMIN).build());
+
+        LoadDriver driver = new LoadDriver(LoadTestApplication.baseUrl(context), context.getBean(ObjectMapper.class),
+                config);
+        long measureStart = System.nanoTime() + config.warmup().toNanos();
+        long end = measureStart + config.duration().toNanos();
+        CompletableFuture<DbSnapshot> before = CompletableFuture.supplyAsync(() -> snapshot(database),
+                CompletableFuture.delayedExecutor(config.warmup().toNanos(), TimeUnit.NANOSECONDS));
+
+        log.info("Running load for {} warmup + {}", config.warmup(), config.duration());
+        driver.run(members, tokens, adminToken, measureStart, end);
+        awaitIngestDrained(context.getBean(HealthDataIngestQueue.class));
+        DbSnapshot after = snapshot(database);
+
+        return report(config, database, driver, before.join(), after, context.getBean(MeterRegistry.class));
+    }
+
+    private static LoadTestReport report(LoadTestConfig config, LoadTestDatabase database, LoadDriver driver,
+                                         DbSnapshot before, DbSnapshot after, MeterRegistry meterRegistry) {
+        double measuredSeconds = config.duration().toNanos() / 1e9;
+        List<LoadTestReport.Scenario> scenarios = new ArrayList<>();
+        for (ScenarioStats stats : driver.stats()) {
+            scenarios.add(stats.summarize(measuredSeconds));
+        }
+
+        // Dữ liệu của cửa sổ đo chỉ được ghi xong khi hàng đợi đã xả, nên tính theo thời gian đến lúc đó
+        double persistSeconds = (after.nanoTime() - before.nanoTime()) / 1e9;
+        long persistedPoints = after.healthDataRows() - before.healthDataRows();
+        double dbCpuSeconds = before.cpuNanos() >= 0 && after.cpuNanos() >= 0
+                ? (after.cpuNanos() - before.cpuNanos()) / 1e9 : -1;
+        long blocksHit = after.blocksHit() - before.blocksHit();
+        long blocksRead = after.blocksRead() - before.blocksRead();
+
+        Timer flushTimer = meterRegistry.find("ingest.flush.latency").timer();
+        Counter rejectedCounter = meterRegistry.find("ingest.queue.rejected").counter();
+
+        return new LoadTestReport(
+                database.description(),
+                config,
+                measuredSeconds,
+                scenarios,
+                persistedPoints,
+                persistedPoints / persistSeconds,
+                dbCpuSeconds,
+                dbCpuSeconds >= 0 ? dbCpuSeconds / persistSeconds : -1,
+                after.transactions() - before.transactions(),
+                blocksHit + blocksRead > 0 ? (double) blocksHit / (blocksHit + blocksRead) : 1,
+                flushTimer != null ? flushTimer.count() : 0,
+                flushTimer != null ? flushTimer.mean(TimeUnit.MILLISECONDS) : 0,
+                flushTimer != null ? flushTimer.max(TimeUnit.MILLISECONDS) : 0,
+                rejectedCounter != null ? rejectedCounter.count() : 0);
+    }
+
+    /**
+     * Điểm dữ liệu đầu tiên được lùi về quá khứ sao cho điểm cuối cùng của lần chạy rơi vào khoảng hiện tại,
+     * để thống kê theo ngày/tuần (tính đến thời điểm hiện tại) thấy được dữ liệu vừa đồng bộ.
+     */
+    private static LocalDateTime firstSampleTime(LoadTestConfig config) {
+        long syncs = config.warmup().plus(config.duration()).toNanos() / config.syncInterval().toNanos() + 1;
+        Duration span = config.sampleInterval().multipliedBy(syncs * config.points());
+        return LocalDateTime.now().minus(span).truncatedTo(ChronoUnit.SECONDS);
+    }
+
+    private static void awaitIngestDrained(HealthDataIngestQueue queue) {
+        long deadline = System.nanoTime() + DRAIN_TIMEOUT.toNanos();
+        while (queue.getDepth() > 0 && System.nanoTime() < deadline) {
+            try {
+                Thread.sleep(100);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+        if (queue.getDepth() > 0) {
+            log.warn("Ingest queue still has {} points after {}", queue.getDepth(), DRAIN_TIMEOUT);
+        }
+    }
+
+    private static DbSnapshot snapshot(LoadTestDatabase database) {
+        long nanoTime = System.nanoTime();
+        long cpuNanos = database.cpuTimeNanos();
+        try (Connection connection = database.openConnection();
+             Statement statement = connection.createStatement()) {
+            long transactions;
+            long blocksHit;
+            long blocksRead;
+            try (ResultSet resultSet = statement.executeQuery(DB_STATS_SQL)) {
+                resultSet.next();
+                transactions = resultSet.getLong(1);
+                blocksHit = resultSet.getLong(2);
+                blocksRead = resultSet.getLong(3);
+            }
+            long rows;
+            try (ResultSet resultSet = statement.executeQuery(COUNT_HEALTH_DATA_SQL)) {
+                resultSet.next();
+                rows = resultSet.getLong(1);
+            }
+            return new DbSnapshot(nanoTime, cpuNanos, transactions, blocksHit, blocksRead, rows);
+        } catch (SQLException e) {
+            throw new RuntimeException("Cannot read database statistics", e);
+        }
+    }
+
+    private static void writeReport(Path directory, String text, LoadTestReport report) throws IOException {
+        Files.createDirectories(directory);
+        String name = "loadtest-" + LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss"));
+        Files.writeString(directory.resolve(name + ".txt"), text);
+        new ObjectMapper().findAndRegisterModules()
+                .writerWithDefaultPrettyPrinter()
+                .writeValue(directory.resolve(name + ".json").toFile(), report);
+        log.info("Report written to {}", directory.resolve(name + ".txt").toAbsolutePath());
+    }
+}
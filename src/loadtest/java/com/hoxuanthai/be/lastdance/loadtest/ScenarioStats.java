@@ -0,0 +1,72 @@
+package com.hoxuanthai.be.lastdance.loadtest;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Kết quả của một loại request trong cửa sổ đo.
+ * <p>
+ * Độ trễ được tính từ thời điểm request lẽ ra được gửi theo lịch chứ không phải lúc thực sự gửi,
+ * để thời gian chờ khi server chậm không bị bỏ sót (coordinated omission).
+ */
+final class ScenarioStats {
+
+    private final String name;
+
+    private final Histogram latencyMicros = new ConcurrentHistogram(3);
+
+    private final LongAdder requests = new LongAdder();
+
+    private final LongAdder rejected = new LongAdder();
+
+    private final LongAdder errors = new LongAdder();
+
+    private final LongAdder points = new LongAdder();
+
+    ScenarioStats(String name) {
+        this.name = name;
+    }
+
+    /**
+     * @param status      HTTP status, hoặc 0 nếu request không nhận được response.
+     * @param latencyNanos Độ trễ tính từ thời điểm theo lịch.
+     * @param points      Số điểm dữ liệu trong request (0 với request đọc).
+     */
+    void record(int status, long latencyNanos, int points) {
+        requests.increment();
+        latencyMicros.recordValue(Math.max(1, TimeUnit.NANOSECONDS.toMicros(latencyNanos)));
+        if (status >= 200 && status < 300) {
+            this.points.add(points);
+        } else if (status == 429 || status == 503) {
+            // Bị rate limit, concurrency limit hoặc hàng đợi ghi từ chối: client sẽ gửi lại sau
+            rejected.increment();
+        } else {
+            errors.increment();
+        }
+    }
+
+    /**
+     * @param seconds Độ dài cửa sổ đo tính bằng giây.
+     */
+    LoadTestReport.Scenario summarize(double seconds) {
+        long total = requests.sum();
+        return new LoadTestReport.Scenario(
+                name,
+                total,
+                rejected.sum(),
+                errors.sum(),
+                total / seconds,
+                points.sum() / seconds,
+                percentileMillis(50),
+                percentileMillis(95),
+                percentileMillis(99),
+                total > 0 ? latencyMicros.getMaxValue() / 1000.0 : 0);
+    }
+
+    private double percentileMillis(double percentile) {
+        return requests.sum() > 0 ? latencyMicros.getValueAtPercentile(percentile) / 1000.0 : 0;
+    }
+}
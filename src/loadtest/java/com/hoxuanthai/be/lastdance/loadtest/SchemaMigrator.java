@@ -0,0 +1,146 @@
+package com.hoxuanthai.be.lastdance.loadtest;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Chạy các script trong db/migration theo thứ tự tên file, giống cách chạy bằng psql khi triển khai.
+ * <p>
+ * Mỗi câu lệnh chạy riêng ở chế độ autocommit vì một số lệnh của TimescaleDB
+ * ({@code CALL refresh_continuous_aggregate}) không chạy được trong transaction block.
+ * Trên PostgreSQL thường, các lệnh chỉ dành cho TimescaleDB bị bỏ qua và {@code time_bucket}
+ * được định nghĩa lại bằng {@code date_bin} để truy vấn thống kê trên dữ liệu thô vẫn chạy được.
+ */
+@Slf4j
+final class SchemaMigrator {
+
+    private static final String MIGRATIONS = "classpath:db/migration/*.sql";
+
+    // Lệnh dùng extension, hypertable, policy hoặc continuous aggregate của TimescaleDB
+    private static final Pattern TIMESCALE_ONLY = Pattern.compile(
+            "timescaledb|create_hypertable|add_\\w+_policy|remove_\\w+_policy|continuous_aggregate" +
+                    "|health_data_hourly|health_data_daily",
+            Pattern.CASE_INSENSITIVE);
+
+    // Cùng origin mặc định với TimescaleDB (thứ Hai 2000-01-03) để bucket theo tuần trùng nhau
+    private static final String TIME_BUCKET_SHIM = """
+            CREATE OR REPLACE FUNCTION time_bucket(bucket_width INTERVAL, ts TIMESTAMP) RETURNS TIMESTAMP
+            LANGUAGE SQL IMMUTABLE PARALLEL SAFE
+            AS $$ SELECT date_bin(bucket_width, ts, TIMESTAMP '2000-01-03') $$""";
+
+    private SchemaMigrator() {
+    }
+
+    static void migrate(LoadTestDatabase database) {
+        try (Connection connection = database.openConnection();
+             Statement statement = connection.createStatement()) {
+            connection.setAutoCommit(true);
+            if (!database.timescale()) {
+                statement.execute(TIME_BUCKET_SHIM);
+            }
+
+            Resource[] scripts = new PathMatchingResourcePatternResolver().getResources(MIGRATIONS);
+            Arrays.sort(scripts, Comparator.comparing(Resource::getFilename));
+            for (Resource script : scripts) {
+                int executed = 0;
+                int skipped = 0;
+                for (String sql : split(script.getContentAsString(StandardCharsets.UTF_8))) {
+                    if (!database.timescale() && TIMESCALE_ONLY.matcher(sql).find()) {
+                        skipped++;
+                        continue;
+                    }
+                    try {
+                        statement.execute(sql);
+                    } catch (SQLException e) {
+                        throw new IllegalStateException("Migration " + script.getFilename() + " failed at: " + sql, e);
+                    }
+                    executed++;
+                }
+                log.info("Applied {} ({} statements, {} TimescaleDB-only statements skipped)",
+                        script.getFilename(), executed, skipped);
+            }
+        } catch (SQLException | IOException e) {
+            throw new RuntimeException("Cannot migrate load test database", e);
+        }
+    }
+
+    /**
+     * Tách script thành các câu lệnh theo dấu ';', bỏ qua ';' nằm trong chuỗi, identifier trong ngoặc kép,
+     * dollar-quoted string ({@code $$ ... $$}) và comment.
+     */
+    static List<String> split(String script) {
+        List<String> statements = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        int i = 0;
+        int length = script.length();
+        while (i < length) {
+            char c = script.charAt(i);
+            if (c == '-' && i + 1 < length && script.charAt(i + 1) == '-') {
+                int end = script.indexOf('\n', i);
+                i = end < 0 ? length : end;
+            } else if (c == '/' && i + 1 < length && script.charAt(i + 1) == '*') {
+                int end = script.indexOf("*/", i + 2);
+                i = end < 0 ? length : end + 2;
+            } else if (c == '\'' || c == '"') {
+                int end = i + 1;
+                while (end < length && script.charAt(end) != c) {
+                    end++;
+                }
+                end = Math.min(end + 1, length);
+                current.append(script, i, end);
+                i = end;
+            } else if (c == '$' && dollarTagEnd(script, i) > 0) {
+                int tagEnd = dollarTagEnd(script, i);
+                String tag = script.substring(i, tagEnd);
+                int close = script.indexOf(tag, tagEnd);
+                int end = close < 0 ? length : close + tag.length();
+                current.append(script, i, end);
+                i = end;
+            } else if (c == ';') {
+                addStatement(statements, current);
+                i++;
+            } else {
+                current.append(c);
+                i++;
+            }
+        }
+        addStatement(statements, current);
+        return statements;
+    }
+
+    // Vị trí ngay sau tag mở ($$ hoặc $tag$), hoặc -1 nếu '$' không mở dollar-quoted string
+    private static int dollarTagEnd(String script, int start) {
+        int i = start + 1;
+        while (i < script.length()) {
+            char c = script.charAt(i);
+            if (c == '$') {
+                return i + 1;
+            }
+            if (!Character.isLetterOrDigit(c) && c != '_') {
+                return -1;
+            }
+            i++;
+        }
+        return -1;
+    }
+
+    private static void addStatement(List<String> statements, StringBuilder current) {
+        String sql = current.toString().strip();
+        if (!sql.isEmpty()) {
+            statements.add(sql);
+        }
+        current.setLength(0);
+    }
+}
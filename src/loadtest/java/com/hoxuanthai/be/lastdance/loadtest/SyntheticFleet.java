@@ -0,0 +1,80 @@
+package com.hoxuanthai.be.lastdance.loadtest;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Đội thiết bị giả lập: mỗi thiết bị thuộc một user riêng, được tạo trực tiếp trong database
+ * trước khi ứng dụng khởi động để không tính chi phí đăng ký vào kết quả đo.
+ */
+final class SyntheticFleet {
+
+    // Password@123, cùng hash với tài khoản mẫu trong V2025.12.24.00000__Init.sql
+    private static final String PASSWORD_HASH = "$2a$10$EZyJ1ln5LH1Z7xV6E.K05ek7ObFZ9kdMKmfjm39NpAplFAlXJeyWG";
+
+    private static final String USERNAME_PREFIX = "loadtest_user_";
+
+    private static final String INSERT_USERS_SQL = "INSERT INTO users (username, password, email, first_name, last_name, " +
+            "user_role, enabled, deleted) " +
+            "SELECT ? || lpad(g::text, 6, '0'), ?, 'loadtest' || g || '@lastdance.local', 'Load', 'Test ' || g, " +
+            "'USER', TRUE, FALSE FROM generate_series(1, ?) g " +
+            "ON CONFLICT (username) DO NOTHING";
+
+    private static final String INSERT_DEVICES_SQL = "INSERT INTO devices (device_uuid, device_name, is_active, user_id, deleted) " +
+            "SELECT 'loadtest-' || u.id, 'Load test device ' || u.id, TRUE, u.id, FALSE FROM users u " +
+            "WHERE u.username LIKE ? ON CONFLICT (device_uuid) DO NOTHING";
+
+    private static final String SELECT_MEMBERS_SQL = "SELECT u.id, u.username, d.id, d.device_uuid FROM users u " +
+            "JOIN devices d ON d.user_id = u.id WHERE u.username LIKE ? ORDER BY u.username LIMIT ?";
+
+    /**
+     * Một thiết bị trong đội cùng user sở hữu và bộ sinh dữ liệu của nó.
+     */
+    record Member(long userId, String username, long deviceId, String deviceUuid, DeviceSimulator simulator) {
+    }
+
+    private SyntheticFleet() {
+    }
+
+    /**
+     * Tạo user và thiết bị cho đội, rồi khởi tạo bộ sinh dữ liệu cho từng thiết bị.
+     *
+     * @param start Thời điểm của điểm dữ liệu đầu tiên.
+     */
+    static List<Member> create(LoadTestDatabase database, int devices, LocalDateTime start, Duration sampleInterval) {
+        try (Connection connection = database.openConnection()) {
+            try (PreparedStatement statement = connection.prepareStatement(INSERT_USERS_SQL)) {
+                statement.setString(1, USERNAME_PREFIX);
+                statement.setString(2, PASSWORD_HASH);
+                statement.setInt(3, devices);
+                statement.executeUpdate();
+            }
+            try (PreparedStatement statement = connection.prepareStatement(INSERT_DEVICES_SQL)) {
+                statement.setString(1, USERNAME_PREFIX + "%");
+                statement.executeUpdate();
+            }
+
+            List<Member> members = new ArrayList<>(devices);
+            try (PreparedStatement statement = connection.prepareStatement(SELECT_MEMBERS_SQL)) {
+                statement.setString(1, USERNAME_PREFIX + "%");
+                statement.setInt(2, devices);
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    while (resultSet.next()) {
+                        long deviceId = resultSet.getLong(3);
+                        members.add(new Member(resultSet.getLong(1), resultSet.getString(2), deviceId,
+                                resultSet.getString(4), new DeviceSimulator(deviceId, start, sampleInterval)));
+                    }
+                }
+            }
+            return members;
+        } catch (SQLException e) {
+            throw new RuntimeException("Cannot create synthetic fleet", e);
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package com.hoxuanthai.be.lastdance.loadtest;
+
+import lombok.extern.slf4j.Slf4j;
+import org.testcontainers.containers.Container;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.utility.DockerImageName;
+
+import java.io.IOException;
+
+/**
+ * TimescaleDB chạy trong Docker bằng Testcontainers, cùng image với docker-compose.
+ * <p>
+ * Không dùng {@code fsync=off} mặc định của {@link PostgreSQLContainer} để chi phí ghi giống môi trường thật.
+ * CPU của database được đọc từ cgroup của container nên bao gồm mọi tiến trình backend và background worker.
+ */
+@Slf4j
+final class TimescaleContainerDatabase implements LoadTestDatabase {
+
+    private final PostgreSQLContainer<?> container;
+
+    private TimescaleContainerDatabase(PostgreSQLContainer<?> container) {
+        this.container = container;
+    }
+
+    static TimescaleContainerDatabase start(String image) {
+        PostgreSQLContainer<?> container = new PostgreSQLContainer<>(
+                DockerImageName.parse(image).asCompatibleSubstituteFor("postgres"))
+                .withDatabaseName("lastdance")
+                .withUsername("lastdance")
+                .withPassword("lastdance")
+                .withCommand("postgres", "-c", "max_connections=200");
+        container.start();
+        log.info("Started {} at {}", image, container.getJdbcUrl());
+        return new TimescaleContainerDatabase(container);
+    }
+
+    @Override
+    public String jdbcUrl() {
+        return container.getJdbcUrl();
+    }
+
+    @Override
+    public String username() {
+        return container.getUsername();
+    }
+
+    @Override
+    public String password() {
+        return container.getPassword();
+    }
+
+    @Override
+    public boolean timescale() {
+        return true;
+    }
+
+    @Override
+    public long cpuTimeNanos() {
+        try {
+            // cgroup v2
+            Container.ExecResult result = container.execInContainer("cat", "/sys/fs/cgroup/cpu.stat");
+            if (result.getExitCode() == 0) {
+                for (String line : result.getStdout().split("\n")) {
+                    if (line.startsWith("usage_usec ")) {
+                        return Long.parseLong(line.substring("usage_usec ".length()).trim()) * 1_000;
+                    }
+                }
+            }
+            // cgroup v1
+            result = container.execInContainer("cat", "/sys/fs/cgroup/cpuacct/cpuacct.usage");
+            if (result.getExitCode() == 0) {
+                return Long.parseLong(result.getStdout().trim());
+            }
+        } catch (IOException | NumberFormatException e) {
+            log.debug("Cannot read container CPU usage: {}", e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return -1;
+    }
+
+    @Override
+    public String description() {
+        return "TimescaleDB container " + container.getDockerImageName();
+    }
+
+    @Override
+    public void close() {
+        container.stop();
+    }
+}
@@ -0,0 +1,83 @@
+package com.hoxuanthai.be.lastdance.concurrency;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Semaphore giới hạn số request xử lý đồng thời, kích thước tính theo pool Hikari
+ * (xem {@link ConcurrencyProperties.Limiter}).
+ */
+@Slf4j
+@Component
+public class ConcurrencyLimiter {
+
+    private final ConcurrencyProperties.Limiter properties;
+
+    private final int permits;
+
+    private final Semaphore semaphore;
+
+    private final Counter rejectedCounter;
+
+    public ConcurrencyLimiter(ConcurrencyProperties concurrencyProperties, DataSource dataSource,
+                              MeterRegistry meterRegistry) {
+        this.properties = concurrencyProperties.getLimiter();
+        this.permits = properties.getMaxConcurrentRequests() > 0
+                ? properties.getMaxConcurrentRequests()
+                : poolSize(dataSource) * properties.getRequestsPerConnection();
+        // fair = true để request chờ lâu nhất được phục vụ trước
+        this.semaphore = new Semaphore(permits, true);
+
+        Gauge.builder("http.server.requests.in-flight", semaphore, s -> permits - s.availablePermits())
+                .description("Requests currently holding a concurrency limiter permit")
+                .register(meterRegistry);
+        Gauge.builder("http.server.requests.waiting", semaphore, Semaphore::getQueueLength)
+                .description("Requests waiting for a concurrency limiter permit")
+                .register(meterRegistry);
+        this.rejectedCounter = Counter.builder("http.server.requests.rejected")
+                .description("Requests rejected because the concurrency limit was reached")
+                .register(meterRegistry);
+        log.info("Concurrency limiter allows {} concurrent requests", permits);
+    }
+
+    public boolean isEnabled() {
+        return properties.isEnabled();
+    }
+
+    /**
+     * Chờ tối đa {@code acquire-timeout} để nhận permit.
+     *
+     * @return true nếu nhận được permit, khi đó caller phải gọi {@link #release()}.
+     */
+    public boolean tryAcquire() throws InterruptedException {
+        if (semaphore.tryAcquire(properties.getAcquireTimeout().toNanos(), TimeUnit.NANOSECONDS)) {
+            return true;
+        }
+        rejectedCounter.increment();
+        return false;
+    }
+
+    public void release() {
+        semaphore.release();
+    }
+
+    public long getRetryAfterSeconds() {
+        return Math.max(1, properties.getRetryAfter().toSeconds());
+    }
+
+    private static int poolSize(DataSource dataSource) {
+        try {
+            return dataSource.unwrap(HikariDataSource.class).getMaximumPoolSize();
+        } catch (Exception e) {
+            return 10; // mặc định của Hikari
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package com.hoxuanthai.be.lastdance.concurrency;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Getter
+@Setter
+@Configuration
+@ConfigurationProperties(prefix = "concurrency")
+public class ConcurrencyProperties {
+
+    private Limiter limiter = new Limiter();
+
+    private PinningMonitor pinningMonitor = new PinningMonitor();
+
+    /**
+     * Giới hạn số request được xử lý đồng thời. Với virtual thread, Tomcat nhận gần như không giới hạn request,
+     * nên giới hạn được đặt theo kích thước pool Hikari để request dư chờ ngắn rồi nhận 503
+     * thay vì cùng chờ kết nối database đến hết connection-timeout.
+     */
+    @Getter
+    @Setter
+    public static class Limiter {
+
+        private boolean enabled = true;
+
+        // Số request đồng thời cho mỗi kết nối trong pool Hikari (request còn chờ I/O khác ngoài database)
+        private int requestsPerConnection = 4;
+
+        // Ghi đè giới hạn tính từ pool, 0 = maximum-pool-size * requests-per-connection
+        private int maxConcurrentRequests;
+
+        private Duration acquireTimeout = Duration.ofSeconds(2);
+
+        private Duration retryAfter = Duration.ofSeconds(1);
+    }
+
+    /**
+     * Ghi log khi virtual thread bị ghim (pinned) vào carrier thread lâu hơn threshold, qua sự kiện JFR
+     * jdk.VirtualThreadPinned (tương đương -Djdk.tracePinnedThreads nhưng có ngưỡng và metric).
+     */
+    @Getter
+    @Setter
+    public static class PinningMonitor {
+
+        private boolean enabled = true;
+
+        private Duration threshold = Duration.ofMillis(20);
+
+        // Số frame của stack trace được ghi log
+        private int stackDepth = 8;
+    }
+}
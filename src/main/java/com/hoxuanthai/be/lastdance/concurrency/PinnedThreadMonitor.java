@@ -0,0 +1,86 @@
+package com.hoxuanthai.be.lastdance.concurrency;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordedStackTrace;
+import jdk.jfr.consumer.RecordingStream;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Ghi log và đếm các lần virtual thread bị ghim vào carrier thread (block bên trong synchronized
+ * hoặc native frame), dựa trên sự kiện JFR {@code jdk.VirtualThreadPinned}.
+ * <p>
+ * Khi bị ghim, carrier thread không phục vụ được virtual thread khác, nên pinning kéo dài trên đường
+ * xử lý request làm mất lợi ích của virtual thread. Stack trace trong log chỉ ra đoạn code cần đổi
+ * synchronized sang {@link java.util.concurrent.locks.ReentrantLock}.
+ */
+@Slf4j
+@Component
+public class PinnedThreadMonitor {
+
+    private static final String EVENT_NAME = "jdk.VirtualThreadPinned";
+
+    private final ConcurrencyProperties.PinningMonitor properties;
+
+    private final Counter pinnedCounter;
+
+    private RecordingStream stream;
+
+    public PinnedThreadMonitor(ConcurrencyProperties concurrencyProperties, MeterRegistry meterRegistry) {
+        this.properties = concurrencyProperties.getPinningMonitor();
+        this.pinnedCounter = Counter.builder("jvm.threads.virtual.pinned")
+                .description("Virtual threads pinned to their carrier longer than the configured threshold")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    void start() {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        try {
+            stream = new RecordingStream();
+            stream.enable(EVENT_NAME).withThreshold(properties.getThreshold()).withStackTrace();
+            stream.onEvent(EVENT_NAME, this::onPinned);
+            stream.startAsync();
+            log.info("Monitoring virtual thread pinning longer than {}", properties.getThreshold());
+        } catch (Exception e) {
+            // JFR có thể không khả dụng (ví dụ bị tắt trong JVM), không ảnh hưởng hoạt động của ứng dụng
+            log.warn("Virtual thread pinning monitor is not available: {}", e.getMessage());
+        }
+    }
+
+    private void onPinned(RecordedEvent event) {
+        pinnedCounter.increment();
+        if (!log.isWarnEnabled()) {
+            return;
+        }
+        StringBuilder frames = new StringBuilder();
+        RecordedStackTrace stackTrace = event.getStackTrace();
+        if (stackTrace != null) {
+            List<RecordedFrame> recordedFrames = stackTrace.getFrames();
+            for (int i = 0; i < Math.min(properties.getStackDepth(), recordedFrames.size()); i++) {
+                RecordedFrame frame = recordedFrames.get(i);
+                frames.append("\n\tat ").append(frame.getMethod().getType().getName())
+                        .append('.').append(frame.getMethod().getName())
+                        .append(':').append(frame.getLineNumber());
+            }
+        }
+        log.warn("Virtual thread {} pinned for {} ms{}", event.getThread() != null ? event.getThread().getJavaName() : "?",
+                event.getDuration().toMillis(), frames);
+    }
+
+    @PreDestroy
+    void stop() {
+        if (stream != null) {
+            stream.close();
+        }
+    }
+}
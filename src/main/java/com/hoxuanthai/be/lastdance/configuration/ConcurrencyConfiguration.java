@@ -0,0 +1,18 @@
+package com.hoxuanthai.be.lastdance.configuration;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+@Configuration
+public class ConcurrencyConfiguration {
+
+	// Mỗi tác vụ một virtual thread, dùng cho các tác vụ chủ yếu chờ I/O (truy vấn song song, làm mới snapshot)
+	@Bean(destroyMethod = "close")
+	public ExecutorService virtualThreadExecutor() {
+		return Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("vt-task-", 0).factory());
+	}
+
+}
@@ -2,6 +2,7 @@ package com.hoxuanthai.be.lastdance.configuration;
 
 import com.hoxuanthai.be.lastdance.security.jwt.JwtAuthenticationEntryPoint;
 import com.hoxuanthai.be.lastdance.security.jwt.JwtAuthenticationFilter;
+import jakarta.servlet.DispatcherType;
 import lombok.RequiredArgsConstructor;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -34,7 +35,10 @@ public class SecurityConfiguration {
 				.csrf(CsrfConfigurer::disable)
 				.cors(cors -> {})
 				.addFilterBefore(jwtAuthenticationFilter, UsernamePasswordAuthenticationFilter.class)
-				.authorizeHttpRequests(request -> request.requestMatchers("/register",
+				// ASYNC dispatch of a streaming response was already authorized on the original request
+				.authorizeHttpRequests(request -> request.dispatcherTypeMatchers(DispatcherType.ASYNC)
+													   .permitAll()
+													   .requestMatchers("/register",
 																	      "/login",
 																	      "/v3/api-docs/**",
 																          "/swagger-ui/**",
@@ -61,6 +61,16 @@ public class BaseResponse<T> {
         return ResponseEntity.status(HttpStatus.CREATED).body(response);
     }
 
+    // Yêu cầu đã được nhận và sẽ được xử lý bất đồng bộ
+    public static <T> ResponseEntity<BaseResponse<T>> accepted(T data, String message) {
+        BaseResponse<T> response = BaseResponse.<T>builder()
+                .status(HttpStatus.ACCEPTED.value()) // 202 Accepted
+                .message(message)
+                .data(data)
+                .build();
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(response);
+    }
+
     public static <T> ResponseEntity<BaseResponse<T>> badRequest(String message) {
         BaseResponse<T> response = BaseResponse.<T>builder()
                 .status(HttpStatus.BAD_REQUEST.value())
@@ -2,8 +2,11 @@ package com.hoxuanthai.be.lastdance.controller;
 
 import com.hoxuanthai.be.lastdance.dto.DeviceDto;
 import com.hoxuanthai.be.lastdance.dto.HealthDataDto;
+import com.hoxuanthai.be.lastdance.dto.HealthSeriesDto;
 import com.hoxuanthai.be.lastdance.dto.StatisticsDto;
+import com.hoxuanthai.be.lastdance.dto.SyncResultDto;
 import com.hoxuanthai.be.lastdance.dto.response.PageResponse;
+import com.hoxuanthai.be.lastdance.ingest.HealthBatchCodec;
 import com.hoxuanthai.be.lastdance.ratelimit.KeyType;
 import com.hoxuanthai.be.lastdance.ratelimit.RateLimit;
 import com.hoxuanthai.be.lastdance.ratelimit.RateLimitType;
@@ -13,11 +16,14 @@ import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 
 import org.springframework.data.domain.Page;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequiredArgsConstructor
@@ -26,11 +32,16 @@ public class DeviceController {
     private final DeviceService deviceService;
 
     @GetMapping("/devices")
-    @Operation(tags = "Device Service", description = "Get all devices registered.")
+    @Operation(tags = "Device Service", description = "Get all devices registered. With cursor, uses cursor pagination instead of page: pass an empty cursor for the first page, then nextCursor of the previous response.")
     ResponseEntity<BaseResponse<PageResponse<DeviceDto>>> getAllDevices(
             @RequestParam(required = false, defaultValue = "0") Integer page,
             @RequestParam(required = false, defaultValue = "10") Integer size,
-            @RequestParam(required = false, defaultValue = "id") String sortBy) {
+            @RequestParam(required = false, defaultValue = "id") String sortBy,
+            @RequestParam(required = false) String cursor) {
+        // Có tham số cursor: phân trang bằng cursor, cursor rỗng là trang đầu tiên
+        if (cursor != null) {
+            return BaseResponse.success(deviceService.getAllDevicesAfter(cursor, size, sortBy));
+        }
         Page<DeviceDto> devicePage = deviceService.getAllDevices(page, size, sortBy);
 
         PageResponse<DeviceDto> pageResponse = PageResponse.<DeviceDto>builder()
@@ -69,9 +80,26 @@ public class DeviceController {
     @PostMapping("/sync/health-data")
     @RateLimit(type = RateLimitType.UPLOAD_HEALTH_DATA, keyBy = KeyType.TOKEN)
     @Operation(tags = "Device Service", description = "Sync health data from device.")
-    ResponseEntity<BaseResponse<String>> syncHealthData(@RequestBody @Valid HealthDataDto healthDataDto) {
-        deviceService.syncHealthData(healthDataDto);
-        return BaseResponse.success(null, "Sync data successfully!");
+    ResponseEntity<BaseResponse<SyncResultDto>> syncHealthData(@RequestBody @Valid HealthDataDto healthDataDto) {
+        SyncResultDto result = deviceService.syncHealthData(healthDataDto);
+        if (result.isQueued()) {
+            return BaseResponse.accepted(result, "Sync data accepted!");
+        }
+        return BaseResponse.success(result, "Sync data successfully!");
+    }
+
+    @PostMapping(value = "/sync/health-data", consumes = HealthBatchCodec.MEDIA_TYPE)
+    @RateLimit(type = RateLimitType.UPLOAD_HEALTH_DATA, keyBy = KeyType.TOKEN)
+    @Operation(tags = "Device Service", description = "Sync health data from device in columnar binary format (optionally gzip encoded).")
+    ResponseEntity<BaseResponse<SyncResultDto>> syncColumnarHealthData(@RequestBody HealthBatchCodec.Message message) {
+        if (message.deviceUuid().isBlank()) {
+            return BaseResponse.badRequest("deviceUuid must not be empty");
+        }
+        SyncResultDto result = deviceService.syncHealthData(message);
+        if (result.isQueued()) {
+            return BaseResponse.accepted(result, "Sync data accepted!");
+        }
+        return BaseResponse.success(result, "Sync data successfully!");
     }
 
     @DeleteMapping("/device/{deviceUuid}")
@@ -90,6 +118,27 @@ public class DeviceController {
         return BaseResponse.success(stats);
     }
 
+    @GetMapping("/health-data/statistics/batch")
+    @Operation(tags = "Device Service", description = "Get aggregated health statistics for several metrics in one query.")
+    ResponseEntity<BaseResponse<Map<String, StatisticsDto>>> getHealthStatisticsBatch(
+            @RequestParam List<String> metrics,
+            @RequestParam String range) {
+        Map<String, StatisticsDto> stats = deviceService.getHealthStatistics(metrics, range);
+        return BaseResponse.success(stats);
+    }
+
+    @GetMapping("/health-data/statistics/series")
+    @Operation(tags = "Device Service", description = "Get health statistics over an arbitrary range, downsampled to at most the requested number of points.")
+    ResponseEntity<BaseResponse<HealthSeriesDto>> getHealthSeries(
+            @RequestParam String metric,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(required = false) Integer points,
+            @RequestParam(required = false, defaultValue = "false") boolean lttb) {
+        HealthSeriesDto series = deviceService.getHealthSeries(metric, from, to, points, lttb);
+        return BaseResponse.success(series);
+    }
+
     @PatchMapping("/device/{id}/enable")
     @PreAuthorize("hasRole('ADMIN')")
     @Operation(tags = "Device Service", description = "Admin enable device by id.")
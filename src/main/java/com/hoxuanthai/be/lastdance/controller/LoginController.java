@@ -2,6 +2,7 @@ package com.hoxuanthai.be.lastdance.controller;
 
 import com.hoxuanthai.be.lastdance.ratelimit.KeyType;
 import com.hoxuanthai.be.lastdance.ratelimit.RateLimit;
+import com.hoxuanthai.be.lastdance.ratelimit.RateLimitBackend;
 import com.hoxuanthai.be.lastdance.ratelimit.RateLimitType;
 import com.hoxuanthai.be.lastdance.security.dto.LoginRequest;
 import com.hoxuanthai.be.lastdance.security.dto.LoginResponse;
@@ -20,7 +21,7 @@ public class LoginController {
 	private final JwtTokenService jwtTokenService;
 
 	@PostMapping
-	@RateLimit(type = RateLimitType.LOGIN, keyBy = KeyType.IP)
+	@RateLimit(type = RateLimitType.LOGIN, keyBy = KeyType.IP, backend = RateLimitBackend.JDBC)
 	@Operation(tags = "Login Service", description = "You must log in with the correct information to successfully obtain the token information.")
 	public ResponseEntity<BaseResponse<LoginResponse>> loginRequest(@Valid @RequestBody LoginRequest loginRequest) {
 
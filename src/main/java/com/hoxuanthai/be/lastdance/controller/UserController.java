@@ -4,15 +4,18 @@ import com.hoxuanthai.be.lastdance.dto.DeviceDto;
 import com.hoxuanthai.be.lastdance.dto.HealthDataDto;
 import com.hoxuanthai.be.lastdance.dto.response.PageResponse;
 import com.hoxuanthai.be.lastdance.dto.UserDto;
+import com.hoxuanthai.be.lastdance.ingest.HealthBatchCodec;
 import com.hoxuanthai.be.lastdance.security.service.UserService;
 import com.hoxuanthai.be.lastdance.service.DeviceService;
 import io.swagger.v3.oas.annotations.Operation;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.time.LocalDateTime;
 import java.util.List;
@@ -28,11 +31,16 @@ public class UserController {
 
     @GetMapping("/users")
     @PreAuthorize("hasRole('ADMIN')")
-    @Operation(tags = "User Service", description = "Get all users ROLE_USER in the system.")
+    @Operation(tags = "User Service", description = "Get all users ROLE_USER in the system. With cursor, uses cursor pagination instead of page: pass an empty cursor for the first page, then nextCursor of the previous response.")
     public ResponseEntity<BaseResponse<PageResponse<UserDto>>> getAllUsers(
             @RequestParam(required = false, defaultValue = "0") Integer page,
             @RequestParam(required = false, defaultValue = "10") Integer size,
-            @RequestParam(required = false, defaultValue = "id") String sortBy) {
+            @RequestParam(required = false, defaultValue = "id") String sortBy,
+            @RequestParam(required = false) String cursor) {
+        // Có tham số cursor: phân trang bằng cursor, cursor rỗng là trang đầu tiên
+        if (cursor != null) {
+            return BaseResponse.success(userService.getAllUsersAfter(cursor, size, sortBy));
+        }
         Page<UserDto> usersPage = userService.getAllUsers(page, size, sortBy);
 
         PageResponse<UserDto> pageResponse = PageResponse.<UserDto>builder()
@@ -110,6 +118,34 @@ public class UserController {
         return BaseResponse.success(result);
     }
 
+    @GetMapping(value = "/user/{userId}/{deviceUuid}/health-data", produces = HealthBatchCodec.MEDIA_TYPE)
+    @PreAuthorize("hasRole('ADMIN')")
+    @Operation(tags = "Dashboard Service", description = "Get user health data for a specific date range in columnar binary format.")
+    ResponseEntity<HealthBatchCodec.Message> getUserHealthDataColumnar(
+            @RequestParam("startDate") LocalDateTime startDate,
+            @RequestParam(value = "endDate", required = false) LocalDateTime endDate,
+            @PathVariable Long userId,
+            @PathVariable String deviceUuid) {
+        return ResponseEntity.ok(deviceService.getHealthDataColumnar(userId, deviceUuid, startDate, endDate));
+    }
+
+    @GetMapping(value = "/user/{userId}/{deviceUuid}/health-data/stream", produces = "application/x-ndjson")
+    @PreAuthorize("hasRole('ADMIN')")
+    @Operation(tags = "Dashboard Service", description = "Stream user health data as NDJSON. The last line holds the cursor of the next page.")
+    ResponseEntity<StreamingResponseBody> streamUserHealthData(
+            @RequestParam("startDate") LocalDateTime startDate,
+            @RequestParam(value = "endDate", required = false) LocalDateTime endDate,
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "limit", required = false) Integer limit,
+            @PathVariable Long userId,
+            @PathVariable String deviceUuid) {
+        StreamingResponseBody body = deviceService.streamHealthData(userId, deviceUuid, startDate, endDate, cursor,
+                limit);
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType("application/x-ndjson"))
+                .body(body);
+    }
+
     @DeleteMapping("/user/{id}")
     @PreAuthorize("hasRole('ADMIN')")
     @Operation(tags = "User Service", description = "Admin soft delete user by id.")
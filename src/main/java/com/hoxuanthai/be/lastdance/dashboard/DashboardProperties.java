@@ -0,0 +1,21 @@
+package com.hoxuanthai.be.lastdance.dashboard;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Getter
+@Setter
+@Configuration
+@ConfigurationProperties(prefix = "dashboard")
+public class DashboardProperties {
+
+    // Thời gian chờ tối đa của mỗi phần thống kê, phần quá hạn bị bỏ khỏi kết quả
+    private Duration sectionTimeout = Duration.ofSeconds(2);
+
+    // Thống kê người dùng/thiết bị/database cũ hơn khoảng này được làm mới ở nền, request vẫn nhận giá trị cũ
+    private Duration refreshAfter = Duration.ofSeconds(30);
+}
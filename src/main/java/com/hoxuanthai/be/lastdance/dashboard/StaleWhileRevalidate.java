@@ -0,0 +1,80 @@
+package com.hoxuanthai.be.lastdance.dashboard;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Giá trị được tính lại định kỳ theo kiểu stale-while-revalidate.
+ * <p>
+ * Lần đọc đầu tiên tính giá trị đồng bộ (các thread đồng thời chờ chung một lần tính). Sau đó {@link #get()}
+ * luôn trả về ngay giá trị gần nhất; nếu giá trị cũ hơn {@code refreshAfter}, một lần tính lại được chạy trên
+ * executor, và chỉ một lần tính lại được chạy tại một thời điểm dù có bao nhiêu request. Khi tính lại lỗi,
+ * giá trị cũ được giữ lại và được thử lại ở lần đọc tiếp theo.
+ */
+@Slf4j
+public class StaleWhileRevalidate<T> {
+
+    private record Snapshot<T>(T value, long loadedAtNanos) {
+    }
+
+    private final String name;
+
+    private final Supplier<T> loader;
+
+    private final long refreshAfterNanos;
+
+    private final Executor executor;
+
+    private final ReentrantLock initialLoadLock = new ReentrantLock();
+
+    private final AtomicBoolean refreshing = new AtomicBoolean();
+
+    private volatile Snapshot<T> snapshot;
+
+    public StaleWhileRevalidate(String name, Supplier<T> loader, Duration refreshAfter, Executor executor) {
+        this.name = name;
+        this.loader = loader;
+        this.refreshAfterNanos = refreshAfter.toNanos();
+        this.executor = executor;
+    }
+
+    public T get() {
+        Snapshot<T> current = snapshot;
+        if (current == null) {
+            return loadInitial();
+        }
+        if (System.nanoTime() - current.loadedAtNanos() > refreshAfterNanos && refreshing.compareAndSet(false, true)) {
+            executor.execute(this::refresh);
+        }
+        return current.value();
+    }
+
+    private T loadInitial() {
+        initialLoadLock.lock();
+        try {
+            Snapshot<T> current = snapshot;
+            if (current == null) {
+                current = new Snapshot<>(loader.get(), System.nanoTime());
+                snapshot = current;
+            }
+            return current.value();
+        } finally {
+            initialLoadLock.unlock();
+        }
+    }
+
+    private void refresh() {
+        try {
+            snapshot = new Snapshot<>(loader.get(), System.nanoTime());
+        } catch (Exception e) {
+            log.warn("Failed to refresh {}, keeping the previous value: {}", name, e.getMessage());
+        } finally {
+            refreshing.set(false);
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.hoxuanthai.be.lastdance.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+
+/**
+ * Hai pool kết nối (primary và replica) sau một DataSource định tuyến, bật bằng {@code replica.enabled=true}.
+ * <p>
+ * DataSource chính của ứng dụng (JPA, JdbcTemplate) là {@link ReplicaRoutingDataSource} bọc trong
+ * {@link LazyConnectionDataSourceProxy}. Hai pool là bean riêng với tên pool riêng nên actuator xuất
+ * {@code hikaricp.connections.*} theo từng pool (tag {@code pool}).
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "replica", name = "enabled", havingValue = "true")
+public class ReplicaDataSourceConfiguration {
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        return properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    }
+
+    @Bean
+    @ConfigurationProperties("replica.hikari")
+    public HikariDataSource replicaDataSource(DataSourceProperties primaryProperties,
+                                              ReplicaProperties replicaProperties) {
+        HikariDataSource dataSource = DataSourceBuilder.create()
+                .type(HikariDataSource.class)
+                .url(replicaProperties.getUrl())
+                .username(replicaProperties.getUsername() != null
+                        ? replicaProperties.getUsername() : primaryProperties.determineUsername())
+                .password(replicaProperties.getPassword() != null
+                        ? replicaProperties.getPassword() : primaryProperties.determinePassword())
+                .build();
+        dataSource.setReadOnly(true);
+        return dataSource;
+    }
+
+    @Bean
+    public ReplicaHealthMonitor replicaHealthMonitor(@Qualifier("replicaDataSource") DataSource replicaDataSource,
+                                                     ReplicaProperties replicaProperties,
+                                                     MeterRegistry meterRegistry) {
+        return new ReplicaHealthMonitor(replicaDataSource, replicaProperties, meterRegistry);
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(@Qualifier("primaryDataSource") DataSource primaryDataSource,
+                                 @Qualifier("replicaDataSource") DataSource replicaDataSource,
+                                 ReplicaHealthMonitor replicaHealthMonitor, MeterRegistry meterRegistry) {
+        return new LazyConnectionDataSourceProxy(new ReplicaRoutingDataSource(primaryDataSource, replicaDataSource,
+                replicaHealthMonitor, meterRegistry));
+    }
+}
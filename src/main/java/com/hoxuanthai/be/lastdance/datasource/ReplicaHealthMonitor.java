@@ -0,0 +1,78 @@
+package com.hoxuanthai.be.lastdance.datasource;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+
+/**
+ * Kiểm tra định kỳ replica còn kết nối được và trễ bao lâu so với primary.
+ * <p>
+ * Độ trễ là thời gian từ transaction cuối cùng được replay đến hiện tại, bằng 0 khi replica đã replay hết WAL
+ * nhận được (primary không có ghi mới thì replay timestamp cũ nhưng replica không hề trễ).
+ * Replica chưa được kiểm tra, không kết nối được, hoặc trễ quá {@code replica.max-lag} thì không được dùng.
+ * Trạng thái được xuất qua {@code datasource.replica.available} và {@code datasource.replica.lag}.
+ */
+@Slf4j
+public class ReplicaHealthMonitor {
+
+    private static final String LAG_SQL = "SELECT CASE WHEN NOT pg_is_in_recovery() " +
+            "OR pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() THEN 0 " +
+            "ELSE COALESCE(EXTRACT(EPOCH FROM now() - pg_last_xact_replay_timestamp()), 0) END";
+
+    private final JdbcTemplate replicaJdbcTemplate;
+
+    private final Duration maxLag;
+
+    private volatile boolean available;
+
+    private volatile double lagSeconds = Double.NaN;
+
+    public ReplicaHealthMonitor(DataSource replica, ReplicaProperties properties, MeterRegistry meterRegistry) {
+        this.replicaJdbcTemplate = new JdbcTemplate(replica);
+        this.replicaJdbcTemplate.setQueryTimeout((int) Math.max(1, properties.getHealthCheckInterval().toSeconds()));
+        this.maxLag = properties.getMaxLag();
+        Gauge.builder("datasource.replica.available", this, monitor -> monitor.available ? 1 : 0)
+                .description("Whether read-only transactions are routed to the replica")
+                .register(meterRegistry);
+        Gauge.builder("datasource.replica.lag", this, monitor -> monitor.lagSeconds)
+                .description("Replication lag of the read replica")
+                .baseUnit("seconds")
+                .register(meterRegistry);
+    }
+
+    public boolean isAvailable() {
+        return available;
+    }
+
+    @Scheduled(fixedDelayString = "${replica.health-check-interval:5s}")
+    void check() {
+        try {
+            Double lag = replicaJdbcTemplate.queryForObject(LAG_SQL, Double.class);
+            lagSeconds = lag != null ? lag : 0;
+            boolean withinLag = lagSeconds <= maxLag.toMillis() / 1000.0;
+            if (withinLag != available) {
+                log.info("Read replica {} (lag {} s, max {})", withinLag ? "available" : "lagging, using primary",
+                        lagSeconds, maxLag);
+            }
+            available = withinLag;
+        } catch (Exception e) {
+            lagSeconds = Double.NaN;
+            markUnavailable(e);
+        }
+    }
+
+    /**
+     * Ngừng dùng replica cho đến lần kiểm tra thành công tiếp theo.
+     */
+    void markUnavailable(Exception cause) {
+        if (available) {
+            log.warn("Read replica unavailable, using primary: {}", cause.getMessage());
+        }
+        available = false;
+    }
+}
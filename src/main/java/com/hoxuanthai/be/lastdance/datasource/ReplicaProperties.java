@@ -0,0 +1,34 @@
+package com.hoxuanthai.be.lastdance.datasource;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/**
+ * Cấu hình read replica. Pool của replica được cấu hình riêng qua {@code replica.hikari.*}
+ * (cùng các khóa với {@code spring.datasource.hikari.*}).
+ */
+@Getter
+@Setter
+@Configuration
+@ConfigurationProperties(prefix = "replica")
+public class ReplicaProperties {
+
+    // Khi tắt, ứng dụng chỉ dùng một DataSource như trước
+    private boolean enabled = false;
+
+    private String url;
+
+    // Mặc định dùng tài khoản của primary
+    private String username;
+
+    private String password;
+
+    // Replica trễ hơn ngưỡng này so với primary thì transaction chỉ đọc quay về primary
+    private Duration maxLag = Duration.ofSeconds(10);
+
+    private Duration healthCheckInterval = Duration.ofSeconds(5);
+}
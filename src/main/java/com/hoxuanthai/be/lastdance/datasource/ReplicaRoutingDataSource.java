@@ -0,0 +1,80 @@
+package com.hoxuanthai.be.lastdance.datasource;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Map;
+
+/**
+ * Chọn DataSource cho từng kết nối: transaction {@code @Transactional(readOnly = true)} dùng replica khi
+ * {@link ReplicaHealthMonitor} báo replica sẵn sàng và không trễ quá {@code replica.max-lag}, mọi trường hợp khác
+ * dùng primary.
+ * <p>
+ * Phải được bọc trong {@code LazyConnectionDataSourceProxy}: transaction manager mở kết nối trước khi đánh dấu
+ * transaction là chỉ đọc, proxy hoãn việc lấy kết nối thật đến câu lệnh đầu tiên, lúc cờ read-only đã có.
+ * Nếu không lấy được kết nối từ replica (replica vừa dừng giữa hai lần kiểm tra), kết nối được lấy từ primary
+ * và replica bị đánh dấu không sẵn sàng cho đến lần kiểm tra tiếp theo.
+ */
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource {
+
+    private static final String PRIMARY = "primary";
+
+    private static final String REPLICA = "replica";
+
+    private final DataSource primary;
+
+    private final DataSource replica;
+
+    private final ReplicaHealthMonitor replicaHealth;
+
+    private final Counter primaryConnections;
+
+    private final Counter replicaConnections;
+
+    public ReplicaRoutingDataSource(DataSource primary, DataSource replica, ReplicaHealthMonitor replicaHealth,
+                                    MeterRegistry meterRegistry) {
+        this.primary = primary;
+        this.replica = replica;
+        this.replicaHealth = replicaHealth;
+        this.primaryConnections = routedCounter(meterRegistry, PRIMARY);
+        this.replicaConnections = routedCounter(meterRegistry, REPLICA);
+        setTargetDataSources(Map.of(PRIMARY, primary, REPLICA, replica));
+        setDefaultTargetDataSource(primary);
+        afterPropertiesSet();
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        return TransactionSynchronizationManager.isCurrentTransactionReadOnly() && replicaHealth.isAvailable()
+                ? REPLICA : PRIMARY;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (determineTargetDataSource() != replica) {
+            primaryConnections.increment();
+            return primary.getConnection();
+        }
+        try {
+            Connection connection = replica.getConnection();
+            replicaConnections.increment();
+            return connection;
+        } catch (SQLException e) {
+            replicaHealth.markUnavailable(e);
+            primaryConnections.increment();
+            return primary.getConnection();
+        }
+    }
+
+    private static Counter routedCounter(MeterRegistry meterRegistry, String target) {
+        return Counter.builder("datasource.routing.connections")
+                .description("Connections handed out by the read replica routing DataSource")
+                .tag("target", target)
+                .register(meterRegistry);
+    }
+}
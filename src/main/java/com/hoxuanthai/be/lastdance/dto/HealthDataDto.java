@@ -1,22 +1,40 @@
 package com.hoxuanthai.be.lastdance.dto;
 
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.hoxuanthai.be.lastdance.ingest.HealthBatch;
+import com.hoxuanthai.be.lastdance.ingest.HealthBatchJson;
+import com.hoxuanthai.be.lastdance.ratelimit.RateLimitCost;
+import io.swagger.v3.oas.annotations.media.ArraySchema;
+import io.swagger.v3.oas.annotations.media.Schema;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
 import lombok.*;
 
-import java.util.List;
-
 @Getter
 @Setter
 @Builder
 @NoArgsConstructor
 @AllArgsConstructor
-public class HealthDataDto {
+public class HealthDataDto implements RateLimitCost {
 
     @NotNull
     @NotBlank
     String deviceUuid;
     
+    // Lưu theo cột bằng mảng nguyên thủy, JSON vẫn là mảng các DataPoint
     @NotNull
-    List<DataPoint> dataPoints;
+    @ArraySchema(schema = @Schema(implementation = DataPoint.class))
+    @JsonSerialize(using = HealthBatchJson.Serializer.class)
+    @JsonDeserialize(using = HealthBatchJson.Deserializer.class)
+    HealthBatch dataPoints;
+
+    // Số thứ tự lô do thiết bị tự tăng, tùy chọn. Lô có số thứ tự đã được ghi nhận sẽ bị bỏ qua.
+    Long sequence;
+
+    // Chi phí rate limit tính theo số điểm dữ liệu trong lô
+    @Override
+    public long rateLimitUnits() {
+        return dataPoints != null ? dataPoints.size() : 0;
+    }
 }
@@ -0,0 +1,44 @@
+package com.hoxuanthai.be.lastdance.dto;
+
+import lombok.*;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class HealthSeriesDto {
+
+    private String metric;
+
+    private LocalDateTime from;
+
+    private LocalDateTime to;
+
+    // Độ rộng bucket (giây), null khi giảm mẫu bằng LTTB
+    private Long bucketSeconds;
+
+    // RAW, HOURLY hoặc DAILY
+    private String source;
+
+    // BUCKET (min/max/avg theo bucket) hoặc LTTB (điểm đại diện của từng bucket LTTB)
+    private String downsampling;
+
+    private List<SeriesPoint> points;
+
+    @Getter
+    @Setter
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class SeriesPoint {
+        private LocalDateTime timestamp;
+        private Double value; // Trung bình của bucket, hoặc giá trị của điểm được LTTB chọn
+        private Double min;
+        private Double max;
+        private Long count;
+    }
+}
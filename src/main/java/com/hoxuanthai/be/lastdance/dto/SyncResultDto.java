@@ -0,0 +1,21 @@
+package com.hoxuanthai.be.lastdance.dto;
+
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class SyncResultDto {
+
+    private int acceptedPoints;
+
+    private int skippedPoints; // Điểm dữ liệu trùng với dữ liệu đã ghi nhận trước đó
+
+    private LocalDateTime lastAcceptedTimestamp;
+
+    private boolean queued; // true nếu dữ liệu được ghi bất đồng bộ (202 Accepted)
+}
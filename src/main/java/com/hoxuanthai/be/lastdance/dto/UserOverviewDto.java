@@ -36,7 +36,7 @@ public class UserOverviewDto {
         private Integer totalDevices;
         private Integer activeDevices;
 
-        // Alert statistics
+        // Alert statistics: samples with SpO2 < 90% (high severity: < 85%)
         private Integer totalAlerts;
         private Integer highSeverityAlerts;
 
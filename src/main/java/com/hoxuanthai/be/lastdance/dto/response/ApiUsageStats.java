@@ -11,10 +11,22 @@ import lombok.*;
 @JsonInclude(JsonInclude.Include.NON_NULL)
 public class ApiUsageStats {
 
+    // Số request trong 1 phút gần nhất
     private Long requestsPerMinute;
 
+    // Số request trung bình mỗi phút trong 5 và 15 phút gần nhất
+    private Double requestsPerMinute5m;
+
+    private Double requestsPerMinute15m;
+
     private Double averageResponseTimeMs;
 
+    private Double p50ResponseTimeMs;
+
+    private Double p95ResponseTimeMs;
+
+    private Double p99ResponseTimeMs;
+
     private Double successRatePercentage;
 
 }
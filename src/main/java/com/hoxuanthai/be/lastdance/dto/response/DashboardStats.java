@@ -3,6 +3,8 @@ package com.hoxuanthai.be.lastdance.dto.response;
 import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.*;
 
+import java.util.List;
+
 @Getter
 @Setter
 @Builder
@@ -21,4 +23,7 @@ public class DashboardStats {
 
     private ServerStats serverStats;
 
+    // Các phần thống kê không lấy được kịp thời (lỗi hoặc quá thời gian chờ), null nếu đầy đủ
+    private List<String> unavailableSections;
+
 }
@@ -1,5 +1,6 @@
 package com.hoxuanthai.be.lastdance.dto.response;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Getter;
@@ -22,5 +23,9 @@ public class PageResponse<T> {
     private int totalPages;
     private boolean first;
     private boolean last;
+
+    // Con trỏ của trang tiếp theo khi phân trang bằng cursor, null ở trang cuối hoặc khi phân trang bằng page
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private String nextCursor;
 }
 
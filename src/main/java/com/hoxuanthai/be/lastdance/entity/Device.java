@@ -4,6 +4,8 @@ import jakarta.persistence.*;
 import lombok.*;
 import lombok.experimental.SuperBuilder;
 
+import java.time.LocalDateTime;
+
 @Entity
 @Getter
 @Setter
@@ -27,4 +29,11 @@ public class Device extends BaseEntity {
     @ManyToOne(fetch = FetchType.EAGER, optional = false)
     @JoinColumn(name = "user_id", nullable = false)
     private User user;
+
+    // Watermark đồng bộ, chỉ được cập nhật bởi luồng ghi dữ liệu sức khỏe (xem HealthDataWriter)
+    @Column(name = "last_data_timestamp", insertable = false, updatable = false)
+    private LocalDateTime lastDataTimestamp;
+
+    @Column(name = "last_sync_sequence", insertable = false, updatable = false)
+    private Long lastSyncSequence;
 }
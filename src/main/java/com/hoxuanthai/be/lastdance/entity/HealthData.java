@@ -2,6 +2,8 @@ package com.hoxuanthai.be.lastdance.entity;
 
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.SQLInsert;
+import org.hibernate.jdbc.Expectation;
 
 import java.time.LocalDateTime;
 import java.util.UUID;
@@ -14,11 +16,16 @@ import java.util.UUID;
 @NoArgsConstructor
 @AllArgsConstructor
 @Table(name = "HEALTH_DATA")
+// Điểm trùng (device_id, timestamp) bị bỏ qua như COPY và batch INSERT của HealthDataWriter.
+// Thứ tự cột phải khớp thứ tự tham số Hibernate sinh ra: thuộc tính thường theo tên, sau đó đến khóa chính.
+@SQLInsert(sql = "INSERT INTO health_data (activity_status, calories_burned, device_id, heart_rate, " +
+        "sleep_duration_minutes, spo2_percent, steps_count, water_intake_ml, id, timestamp) " +
+        "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?) ON CONFLICT (device_id, timestamp) DO NOTHING",
+        verify = Expectation.None.class)
 public class HealthData {
 
     @Id
-    @GeneratedValue
-    private UUID id;
+    private UUID id; // UUID v7 do HealthDataWriter gán trước khi ghi, tăng dần theo thời gian ghi
 
     @Id
     private LocalDateTime timestamp;
@@ -1,6 +1,8 @@
 package com.hoxuanthai.be.lastdance.exceptions;
 
 import com.hoxuanthai.be.lastdance.controller.BaseResponse;
+import com.hoxuanthai.be.lastdance.ingest.IngestQueueFullException;
+import com.hoxuanthai.be.lastdance.ratelimit.RateLimitAspect;
 import com.hoxuanthai.be.lastdance.ratelimit.RateLimitException;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.context.support.DefaultMessageSourceResolvable;
@@ -233,6 +235,40 @@ public class GlobalExceptionHandler extends ResponseEntityExceptionHandler {
                         .build());
     }
 
+    /**
+     * Xử lý ngoại lệ InvalidCursorException, xảy ra khi continuation token không hợp lệ.
+     *
+     * @param ex Ngoại lệ InvalidCursorException.
+     * @return ResponseEntity chứa thông tin lỗi.
+     */
+    @ExceptionHandler(InvalidCursorException.class)
+    public ResponseEntity<BaseResponse<Void>> handleInvalidCursorException(InvalidCursorException ex) {
+        log.warn("Invalid cursor: {}", ex.getMessage());
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                .body(BaseResponse.<Void>builder()
+                        .status(HttpStatus.BAD_REQUEST.value())
+                        .message(ex.getMessage())
+                        .build());
+    }
+
+    /**
+     * Xử lý ngoại lệ InvalidStatisticsRequestException, xảy ra khi tham số thống kê không hợp lệ
+     * (khoảng thời gian, số điểm).
+     *
+     * @param ex Ngoại lệ InvalidStatisticsRequestException.
+     * @return ResponseEntity chứa thông tin lỗi.
+     */
+    @ExceptionHandler(InvalidStatisticsRequestException.class)
+    public ResponseEntity<BaseResponse<Void>> handleInvalidStatisticsRequestException(
+            InvalidStatisticsRequestException ex) {
+        log.warn("Invalid statistics request: {}", ex.getMessage());
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                .body(BaseResponse.<Void>builder()
+                        .status(HttpStatus.BAD_REQUEST.value())
+                        .message(ex.getMessage())
+                        .build());
+    }
+
     /**
      * Xử lý ngoại lệ RateLimitException, xảy ra khi vượt quá giới hạn request.
      *
@@ -244,12 +280,30 @@ public class GlobalExceptionHandler extends ResponseEntityExceptionHandler {
         log.warn("Rate limit exceeded: {}", ex.getMessage());
         return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
                 .header("Retry-After", String.valueOf(ex.getRetryAfterSeconds()))
+                .header(RateLimitAspect.REMAINING_HEADER, "0")
                 .body(BaseResponse.<Void>builder()
                         .status(HttpStatus.TOO_MANY_REQUESTS.value())
                         .message("Too many requests. Please try again after " + ex.getRetryAfterSeconds() + " seconds.")
                         .build());
     }
 
+    /**
+     * Xử lý ngoại lệ IngestQueueFullException, xảy ra khi hàng đợi ghi dữ liệu sức khỏe đã đầy.
+     *
+     * @param ex Ngoại lệ IngestQueueFullException.
+     * @return ResponseEntity chứa thông tin lỗi.
+     */
+    @ExceptionHandler(IngestQueueFullException.class)
+    public ResponseEntity<BaseResponse<Void>> handleIngestQueueFullException(IngestQueueFullException ex) {
+        log.warn("Ingest rejected: {}", ex.getMessage());
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header("Retry-After", String.valueOf(ex.getRetryAfterSeconds()))
+                .body(BaseResponse.<Void>builder()
+                        .status(HttpStatus.SERVICE_UNAVAILABLE.value())
+                        .message("Server is busy. Please try again after " + ex.getRetryAfterSeconds() + " seconds.")
+                        .build());
+    }
+
     /**
      * Xử lý tất cả các ngoại lệ khác không được xử lý cụ thể. Đây là một trình xử
      * lý chung.
@@ -0,0 +1,7 @@
+package com.hoxuanthai.be.lastdance.exceptions;
+
+public class InvalidCursorException extends RuntimeException {
+    public InvalidCursorException(String message) {
+        super(message);
+    }
+}
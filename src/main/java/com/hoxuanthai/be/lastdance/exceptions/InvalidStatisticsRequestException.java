@@ -0,0 +1,7 @@
+package com.hoxuanthai.be.lastdance.exceptions;
+
+public class InvalidStatisticsRequestException extends RuntimeException {
+    public InvalidStatisticsRequestException(String message) {
+        super(message);
+    }
+}
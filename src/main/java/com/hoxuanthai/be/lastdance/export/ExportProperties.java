@@ -0,0 +1,20 @@
+package com.hoxuanthai.be.lastdance.export;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Getter
+@Setter
+@Configuration
+@ConfigurationProperties(prefix = "export")
+public class ExportProperties {
+
+    private int fetchSize = 1_000; // Số dòng JDBC đọc từ server cursor mỗi lần
+
+    private int defaultPageSize = 100_000; // Số dòng mỗi trang khi client không truyền limit
+
+    private int maxPageSize = 1_000_000;
+
+}
@@ -0,0 +1,36 @@
+package com.hoxuanthai.be.lastdance.export;
+
+import com.hoxuanthai.be.lastdance.exceptions.InvalidCursorException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Base64;
+
+/**
+ * Continuation token cho keyset pagination của dữ liệu sức khỏe một thiết bị.
+ * (device_id, timestamp) là duy nhất nên timestamp của dòng cuối cùng đủ để xác định trang tiếp theo.
+ * Token là số micro giây kể từ epoch, mã hóa base64url để client coi như chuỗi không trong suốt.
+ */
+public record HealthDataCursor(LocalDateTime lastTimestamp) {
+
+    public String encode() {
+        long micros = lastTimestamp.toEpochSecond(ZoneOffset.UTC) * 1_000_000L + lastTimestamp.getNano() / 1_000;
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(Long.toString(micros).getBytes(StandardCharsets.US_ASCII));
+    }
+
+    /**
+     * @throws InvalidCursorException nếu token không hợp lệ.
+     */
+    public static HealthDataCursor decode(String token) {
+        try {
+            long micros = Long.parseLong(new String(Base64.getUrlDecoder().decode(token), StandardCharsets.US_ASCII));
+            LocalDateTime timestamp = LocalDateTime.ofEpochSecond(Math.floorDiv(micros, 1_000_000L),
+                    (int) Math.floorMod(micros, 1_000_000L) * 1_000, ZoneOffset.UTC);
+            return new HealthDataCursor(timestamp);
+        } catch (IllegalArgumentException | java.time.DateTimeException e) {
+            throw new InvalidCursorException("Invalid cursor");
+        }
+    }
+}
@@ -0,0 +1,195 @@
+package com.hoxuanthai.be.lastdance.export;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.hoxuanthai.be.lastdance.dto.DataPoint;
+import com.hoxuanthai.be.lastdance.ingest.HealthBatch;
+import com.hoxuanthai.be.lastdance.ingest.HealthMetric;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+
+/**
+ * Xuất dữ liệu sức khỏe của một thiết bị dưới dạng NDJSON (mỗi dòng một {@link DataPoint}).
+ * <p>
+ * Dữ liệu được đọc bằng server-side cursor của PostgreSQL (fetch size trong transaction read-only)
+ * và ghi thẳng ra response từng dòng, không giữ danh sách kết quả trong bộ nhớ.
+ * Dòng cuối cùng luôn là {@code {"nextCursor": ...}}: khác null khi có thể còn dữ liệu,
+ * client gửi lại giá trị này qua tham số {@code cursor} để lấy trang tiếp theo.
+ */
+@Slf4j
+@Component
+public class HealthDataExporter {
+
+    private static final String COLUMNS = "timestamp, heart_rate, steps_count, spo2_percent, calories_burned, " +
+            "water_intake_ml, activity_status, sleep_duration_minutes";
+
+    private static final String FIRST_PAGE_SQL = "SELECT " + COLUMNS + " FROM health_data " +
+            "WHERE device_id = ? AND timestamp >= ? AND timestamp <= ? ORDER BY timestamp ASC LIMIT ?";
+
+    private static final String NEXT_PAGE_SQL = "SELECT " + COLUMNS + " FROM health_data " +
+            "WHERE device_id = ? AND timestamp > ? AND timestamp <= ? ORDER BY timestamp ASC LIMIT ?";
+
+    private static final String RANGE_SQL = "SELECT " + COLUMNS + " FROM health_data " +
+            "WHERE device_id = ? AND timestamp >= ? AND timestamp <= ? ORDER BY timestamp ASC";
+
+    private static final HealthMetric[] METRICS = HealthMetric.values();
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final TransactionTemplate readOnlyTransaction;
+
+    private final ObjectMapper objectMapper;
+
+    private final ObjectWriter dataPointWriter;
+
+    private final ExportProperties exportProperties;
+
+    public HealthDataExporter(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+                              ObjectMapper objectMapper, ExportProperties exportProperties) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.objectMapper = objectMapper;
+        // Flush theo nhóm fetch size thay vì sau mỗi dòng
+        this.dataPointWriter = objectMapper.writerFor(DataPoint.class)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        this.exportProperties = exportProperties;
+    }
+
+    /**
+     * Số dòng mỗi trang hợp lệ từ giá trị client gửi lên.
+     */
+    public int resolvePageSize(Integer limit) {
+        if (limit == null || limit <= 0) {
+            return exportProperties.getDefaultPageSize();
+        }
+        return Math.min(limit, exportProperties.getMaxPageSize());
+    }
+
+    /**
+     * Ghi một trang dữ liệu của thiết bị ra {@code out}.
+     *
+     * @param deviceId  ID của thiết bị.
+     * @param startDate Thời điểm bắt đầu (bao gồm).
+     * @param endDate   Thời điểm kết thúc (bao gồm).
+     * @param cursor    Vị trí tiếp tục từ trang trước, null cho trang đầu tiên.
+     * @param pageSize  Số dòng tối đa của trang.
+     * @param out       Output stream của response.
+     */
+    public void export(Long deviceId, LocalDateTime startDate, LocalDateTime endDate, HealthDataCursor cursor,
+                       int pageSize, OutputStream out) throws IOException {
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            // Mặc định Jackson chèn " " trước mỗi giá trị gốc sau giá trị đầu tiên; NDJSON chỉ phân tách bằng '\n'
+            generator.setRootValueSeparator(null);
+            RowWriter rowWriter = new RowWriter(generator);
+
+            long startTime = System.nanoTime();
+            readOnlyTransaction.executeWithoutResult(status -> jdbcTemplate.query(connection -> {
+                PreparedStatement ps = connection.prepareStatement(cursor == null ? FIRST_PAGE_SQL : NEXT_PAGE_SQL);
+                ps.setFetchSize(exportProperties.getFetchSize());
+                ps.setLong(1, deviceId);
+                ps.setObject(2, cursor == null ? startDate : cursor.lastTimestamp());
+                ps.setObject(3, endDate);
+                ps.setInt(4, pageSize);
+                return ps;
+            }, rowWriter::write));
+
+            // Trang đầy nghĩa là có thể còn dữ liệu phía sau
+            String nextCursor = rowWriter.rows == pageSize
+                    ? new HealthDataCursor(rowWriter.lastTimestamp).encode()
+                    : null;
+            generator.writeStartObject();
+            generator.writeStringField("nextCursor", nextCursor);
+            generator.writeEndObject();
+            generator.writeRaw('\n');
+            log.debug("Exported {} health data rows of device {} in {} ms", rowWriter.rows, deviceId,
+                    (System.nanoTime() - startTime) / 1_000_000);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Đọc dữ liệu của thiết bị trong khoảng thời gian thẳng vào mảng nguyên thủy của {@link HealthBatch}.
+     */
+    public HealthBatch load(Long deviceId, LocalDateTime startDate, LocalDateTime endDate) {
+        HealthBatch.Builder builder = HealthBatch.builder(exportProperties.getFetchSize());
+        readOnlyTransaction.executeWithoutResult(status -> jdbcTemplate.query(connection -> {
+            PreparedStatement ps = connection.prepareStatement(RANGE_SQL);
+            ps.setFetchSize(exportProperties.getFetchSize());
+            ps.setLong(1, deviceId);
+            ps.setObject(2, startDate);
+            ps.setObject(3, endDate);
+            return ps;
+        }, rs -> {
+            int row = builder.addRow(rs.getObject(1, LocalDateTime.class));
+            for (int i = 0; i < METRICS.length; i++) {
+                HealthMetric metric = METRICS[i];
+                int column = i + 2; // Sau cột timestamp
+                if (metric.isFloatingPoint()) {
+                    double value = rs.getDouble(column);
+                    if (!rs.wasNull()) {
+                        builder.setDouble(metric, row, value);
+                    }
+                } else {
+                    int value = rs.getInt(column);
+                    if (!rs.wasNull()) {
+                        builder.setInt(metric, row, value);
+                    }
+                }
+            }
+        }));
+        return builder.build();
+    }
+
+    private class RowWriter {
+
+        private final JsonGenerator generator;
+
+        private long rows;
+
+        private LocalDateTime lastTimestamp;
+
+        RowWriter(JsonGenerator generator) {
+            this.generator = generator;
+        }
+
+        void write(ResultSet rs) throws SQLException {
+            lastTimestamp = rs.getObject("timestamp", LocalDateTime.class);
+            DataPoint dataPoint = DataPoint.builder()
+                    .timestamp(lastTimestamp)
+                    .heartRate(rs.getObject("heart_rate", Integer.class))
+                    .stepCount(rs.getObject("steps_count", Integer.class))
+                    .spo2(rs.getObject("spo2_percent", Double.class))
+                    .caloriesBurned(rs.getObject("calories_burned", Double.class))
+                    .waterIntakeMl(rs.getObject("water_intake_ml", Integer.class))
+                    .activityStatus(rs.getObject("activity_status", Integer.class))
+                    .sleepDurationMinutes(rs.getObject("sleep_duration_minutes", Integer.class))
+                    .build();
+            try {
+                dataPointWriter.writeValue(generator, dataPoint);
+                generator.writeRaw('\n');
+                if (++rows % exportProperties.getFetchSize() == 0) {
+                    generator.flush();
+                }
+            } catch (IOException e) {
+                // Client ngắt kết nối: dừng đọc cursor và rollback transaction
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+}
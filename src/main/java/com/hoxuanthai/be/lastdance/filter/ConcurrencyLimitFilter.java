@@ -0,0 +1,63 @@
+package com.hoxuanthai.be.lastdance.filter;
+
+import com.hoxuanthai.be.lastdance.concurrency.ConcurrencyLimiter;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * Trả về 503 khi số request đang xử lý đạt giới hạn của {@link ConcurrencyLimiter} quá {@code acquire-timeout}.
+ * Actuator không bị giới hạn để health check vẫn hoạt động khi hệ thống quá tải; đường dẫn được so
+ * theo servlet path vì request URI còn chứa context-path ({@code /api/v1}).
+ * Permit được trả khi lần dispatch đầu tiên kết thúc, nên phần stream của response async không bị tính.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@Order(Ordered.HIGHEST_PRECEDENCE + 20)
+public class ConcurrencyLimitFilter extends OncePerRequestFilter {
+
+    private final ConcurrencyLimiter concurrencyLimiter;
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !concurrencyLimiter.isEnabled() || request.getServletPath().startsWith("/actuator");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request,
+                                    HttpServletResponse response,
+                                    FilterChain chain)
+            throws ServletException, IOException {
+
+        boolean acquired;
+        try {
+            acquired = concurrencyLimiter.tryAcquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            acquired = false;
+        }
+        if (!acquired) {
+            log.warn("Concurrency limit reached, rejecting {} {}", request.getMethod(), request.getRequestURI());
+            response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(concurrencyLimiter.getRetryAfterSeconds()));
+            response.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE, "Server is busy, please retry later");
+            return;
+        }
+
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            concurrencyLimiter.release();
+        }
+    }
+}
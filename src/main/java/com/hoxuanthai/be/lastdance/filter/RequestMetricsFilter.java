@@ -0,0 +1,93 @@
+package com.hoxuanthai.be.lastdance.filter;
+
+import com.hoxuanthai.be.lastdance.metrics.RollingRequestMetrics;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+
+/**
+ * Ghi thời gian xử lý và kết quả của mỗi request vào {@link RollingRequestMetrics}, theo route template.
+ * Chạy trước Spring Security để request bị từ chối (401/403) cũng được tính.
+ */
+@Component
+@RequiredArgsConstructor
+@Order(Ordered.HIGHEST_PRECEDENCE + 10)
+public class RequestMetricsFilter extends OncePerRequestFilter {
+
+    private final RollingRequestMetrics requestMetrics;
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request,
+                                    HttpServletResponse response,
+                                    FilterChain chain)
+            throws ServletException, IOException {
+
+        long startTime = System.nanoTime();
+        boolean failed = true;
+        try {
+            chain.doFilter(request, response);
+            failed = false;
+        } finally {
+            if (!failed && request.isAsyncStarted()) {
+                // Response dạng stream: chỉ tính khi request async kết thúc
+                request.getAsyncContext().addListener(new CompletionListener(request, response, startTime));
+            } else {
+                record(request, response, startTime, failed);
+            }
+        }
+    }
+
+    private void record(HttpServletRequest request, HttpServletResponse response, long startTime, boolean failed) {
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        String route = pattern != null
+                ? request.getMethod() + " " + pattern
+                : RollingRequestMetrics.UNMATCHED_ROUTE;
+        requestMetrics.record(route, failed || response.getStatus() >= 400, System.nanoTime() - startTime);
+    }
+
+    private final class CompletionListener implements AsyncListener {
+
+        private final HttpServletRequest request;
+        private final HttpServletResponse response;
+        private final long startTime;
+        private volatile boolean failed;
+
+        private CompletionListener(HttpServletRequest request, HttpServletResponse response, long startTime) {
+            this.request = request;
+            this.response = response;
+            this.startTime = startTime;
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            record(request, response, startTime, failed);
+        }
+
+        // onComplete luôn được gọi sau onTimeout/onError
+        @Override
+        public void onTimeout(AsyncEvent event) {
+            failed = true;
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+            failed = true;
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+            event.getAsyncContext().addListener(this);
+        }
+    }
+}
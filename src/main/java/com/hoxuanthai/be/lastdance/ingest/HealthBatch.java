@@ -0,0 +1,281 @@
+package com.hoxuanthai.be.lastdance.ingest;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Lô điểm dữ liệu sức khỏe lưu theo cột bằng mảng nguyên thủy.
+ * <p>
+ * Timestamp là số micro giây kể từ 1970-01-01T00:00 (LocalDateTime được coi như UTC, giống cột TIMESTAMP).
+ * Mỗi cột chỉ số là một {@code int[]} hoặc {@code double[]} tùy {@link HealthMetric#isFloatingPoint()},
+ * kèm một {@link BitSet} đánh dấu các dòng có giá trị null. Giá trị của dòng null trong mảng là 0.
+ * <p>
+ * Không tạo đối tượng cho từng điểm dữ liệu nên chi phí bộ nhớ của một lô 10k điểm chỉ là vài mảng.
+ */
+public final class HealthBatch {
+
+    /**
+     * Khoảng timestamp được chấp nhận [MIN_TIMESTAMP, MAX_TIMESTAMP): đồng hồ thiết bị sai hoặc payload hỏng
+     * bị từ chối khi nhận thay vì làm lỗi lệnh ghi về sau.
+     */
+    public static final LocalDateTime MIN_TIMESTAMP = LocalDateTime.of(2000, 1, 1, 0, 0);
+
+    public static final LocalDateTime MAX_TIMESTAMP = LocalDateTime.of(2100, 1, 1, 0, 0);
+
+    private static final long MIN_MICROS = toMicros(MIN_TIMESTAMP);
+
+    private static final long MAX_MICROS = toMicros(MAX_TIMESTAMP);
+
+    private static final HealthMetric[] METRICS = HealthMetric.values();
+
+    private final int size;
+
+    private final long[] timestamps;
+
+    private final int[][] intColumns = new int[METRICS.length][];
+
+    private final double[][] doubleColumns = new double[METRICS.length][];
+
+    private final BitSet[] nulls = new BitSet[METRICS.length];
+
+    private HealthBatch(int size, long[] timestamps) {
+        this.size = size;
+        this.timestamps = timestamps;
+    }
+
+    public static Builder builder(int capacity) {
+        return new Builder(capacity);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public long timestampMicros(int row) {
+        return timestamps[row];
+    }
+
+    public LocalDateTime timestamp(int row) {
+        return fromMicros(timestamps[row]);
+    }
+
+    public boolean isNull(HealthMetric metric, int row) {
+        return nulls[metric.ordinal()].get(row);
+    }
+
+    /**
+     * @return true nếu cột có ít nhất một giá trị khác null.
+     */
+    public boolean hasValues(HealthMetric metric) {
+        return nulls[metric.ordinal()].cardinality() < size;
+    }
+
+    public int getInt(HealthMetric metric, int row) {
+        return intColumns[metric.ordinal()][row];
+    }
+
+    public double getDouble(HealthMetric metric, int row) {
+        return doubleColumns[metric.ordinal()][row];
+    }
+
+    public Integer getIntOrNull(HealthMetric metric, int row) {
+        return isNull(metric, row) ? null : getInt(metric, row);
+    }
+
+    public Double getDoubleOrNull(HealthMetric metric, int row) {
+        return isNull(metric, row) ? null : getDouble(metric, row);
+    }
+
+    public long minTimestampMicros() {
+        long min = Long.MAX_VALUE;
+        for (int i = 0; i < size; i++) {
+            min = Math.min(min, timestamps[i]);
+        }
+        return min;
+    }
+
+    public long maxTimestampMicros() {
+        long max = Long.MIN_VALUE;
+        for (int i = 0; i < size; i++) {
+            max = Math.max(max, timestamps[i]);
+        }
+        return max;
+    }
+
+    /**
+     * Kiểm tra các ràng buộc của HEALTH_DATA để một điểm dữ liệu sai không làm lỗi cả lệnh COPY, cùng với
+     * khoảng timestamp hợp lệ và thứ tự tăng dần của timestamp mà việc bỏ qua phần đã đồng bộ dựa vào.
+     *
+     * @return Mô tả vi phạm đầu tiên, hoặc null nếu lô hợp lệ.
+     */
+    public String validate() {
+        for (int i = 0; i < size; i++) {
+            if (timestamps[i] < MIN_MICROS || timestamps[i] >= MAX_MICROS) {
+                return timestampOutOfRange(i);
+            }
+            if (i > 0 && timestamps[i] < timestamps[i - 1]) {
+                return "dataPoints[" + i + "].timestamp must not be before the previous data point";
+            }
+        }
+        BitSet activityNulls = nulls[HealthMetric.ACTIVITY_STATUS.ordinal()];
+        int[] activityStatus = intColumns[HealthMetric.ACTIVITY_STATUS.ordinal()];
+        for (int i = activityNulls.nextClearBit(0); i < size; i = activityNulls.nextClearBit(i + 1)) {
+            if (activityStatus[i] < 0 || activityStatus[i] > 3) {
+                return "dataPoints[" + i + "].activityStatus must be between 0 and 3";
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Các dòng từ {@code from} đến cuối lô.
+     */
+    public HealthBatch tail(int from) {
+        if (from == 0) {
+            return this;
+        }
+        HealthBatch tail = new HealthBatch(size - from, Arrays.copyOfRange(timestamps, from, size));
+        for (HealthMetric metric : METRICS) {
+            int i = metric.ordinal();
+            if (metric.isFloatingPoint()) {
+                tail.doubleColumns[i] = Arrays.copyOfRange(doubleColumns[i], from, size);
+            } else {
+                tail.intColumns[i] = Arrays.copyOfRange(intColumns[i], from, size);
+            }
+            tail.nulls[i] = nulls[i].get(from, size);
+        }
+        return tail;
+    }
+
+    public static boolean isWithinRange(LocalDateTime timestamp) {
+        return !timestamp.isBefore(MIN_TIMESTAMP) && timestamp.isBefore(MAX_TIMESTAMP);
+    }
+
+    public static String timestampOutOfRange(int row) {
+        return "dataPoints[" + row + "].timestamp must be between " + MIN_TIMESTAMP + " and " + MAX_TIMESTAMP;
+    }
+
+    public static long toMicros(LocalDateTime timestamp) {
+        return timestamp.toEpochSecond(ZoneOffset.UTC) * 1_000_000L + timestamp.getNano() / 1_000;
+    }
+
+    public static LocalDateTime fromMicros(long micros) {
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(micros, 1_000_000L),
+                (int) Math.floorMod(micros, 1_000_000L) * 1_000, ZoneOffset.UTC);
+    }
+
+    /**
+     * Tạo {@link HealthBatch} theo từng dòng. Mảng được cấp phát theo {@code capacity} ban đầu và chỉ
+     * được mở rộng khi số dòng vượt quá. Mọi giá trị chỉ số mặc định là null.
+     */
+    public static final class Builder {
+
+        private long[] timestamps;
+
+        private final int[][] intColumns = new int[METRICS.length][];
+
+        private final double[][] doubleColumns = new double[METRICS.length][];
+
+        private final BitSet[] nulls = new BitSet[METRICS.length];
+
+        private int size;
+
+        private Builder(int capacity) {
+            timestamps = new long[capacity];
+            for (HealthMetric metric : METRICS) {
+                int i = metric.ordinal();
+                if (metric.isFloatingPoint()) {
+                    doubleColumns[i] = new double[capacity];
+                } else {
+                    intColumns[i] = new int[capacity];
+                }
+                nulls[i] = new BitSet(capacity);
+            }
+        }
+
+        public int size() {
+            return size;
+        }
+
+        /**
+         * Thêm một dòng mới với mọi chỉ số là null.
+         *
+         * @return Chỉ số của dòng vừa thêm.
+         */
+        public int addRow(long timestampMicros) {
+            if (size == timestamps.length) {
+                grow();
+            }
+            timestamps[size] = timestampMicros;
+            for (BitSet columnNulls : nulls) {
+                columnNulls.set(size);
+            }
+            return size++;
+        }
+
+        public int addRow(LocalDateTime timestamp) {
+            return addRow(toMicros(timestamp));
+        }
+
+        public Builder setInt(HealthMetric metric, int row, int value) {
+            intColumns[metric.ordinal()][row] = value;
+            nulls[metric.ordinal()].clear(row);
+            return this;
+        }
+
+        public Builder setDouble(HealthMetric metric, int row, double value) {
+            doubleColumns[metric.ordinal()][row] = value;
+            nulls[metric.ordinal()].clear(row);
+            return this;
+        }
+
+        public Builder setInt(HealthMetric metric, int row, Integer value) {
+            return value == null ? this : setInt(metric, row, value.intValue());
+        }
+
+        public Builder setDouble(HealthMetric metric, int row, Double value) {
+            return value == null ? this : setDouble(metric, row, value.doubleValue());
+        }
+
+        public HealthBatch build() {
+            HealthBatch batch = new HealthBatch(size, trim(timestamps));
+            for (HealthMetric metric : METRICS) {
+                int i = metric.ordinal();
+                if (metric.isFloatingPoint()) {
+                    batch.doubleColumns[i] = size == doubleColumns[i].length
+                            ? doubleColumns[i]
+                            : Arrays.copyOf(doubleColumns[i], size);
+                } else {
+                    batch.intColumns[i] = size == intColumns[i].length
+                            ? intColumns[i]
+                            : Arrays.copyOf(intColumns[i], size);
+                }
+                batch.nulls[i] = nulls[i];
+            }
+            return batch;
+        }
+
+        private long[] trim(long[] array) {
+            return size == array.length ? array : Arrays.copyOf(array, size);
+        }
+
+        private void grow() {
+            int capacity = Math.max(16, timestamps.length * 2);
+            timestamps = Arrays.copyOf(timestamps, capacity);
+            for (HealthMetric metric : METRICS) {
+                int i = metric.ordinal();
+                if (metric.isFloatingPoint()) {
+                    doubleColumns[i] = Arrays.copyOf(doubleColumns[i], capacity);
+                } else {
+                    intColumns[i] = Arrays.copyOf(intColumns[i], capacity);
+                }
+            }
+        }
+    }
+}
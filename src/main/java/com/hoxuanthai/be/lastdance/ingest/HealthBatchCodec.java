@@ -0,0 +1,262 @@
+package com.hoxuanthai.be.lastdance.ingest;
+
+import com.hoxuanthai.be.lastdance.ratelimit.RateLimitCost;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Định dạng nhị phân theo cột cho dữ liệu sức khỏe ({@value #MEDIA_TYPE}).
+ * <pre>
+ * magic        "HBC1"
+ * deviceUuid   varint độ dài + UTF-8
+ * sequence     1 byte (0 = null, 1 = có) + zigzag varint
+ * count        varint số điểm dữ liệu
+ * timestamps   micro giây kể từ epoch: giá trị đầu, delta đầu và các delta-of-delta, tất cả là zigzag varint
+ * mỗi cột      theo thứ tự {@link HealthMetric}:
+ *              1 byte kiểu mã hóa: 0 = toàn null, 1 = có null bitmap, 2 = không có null
+ *              null bitmap ceil(count / 8) byte, bit i (LSB trước) = 1 nếu dòng i null
+ *              giá trị của các dòng khác null: cột INTEGER là zigzag varint của delta so với giá trị
+ *              khác null trước đó, cột DOUBLE là 8 byte IEEE 754 big-endian
+ * </pre>
+ * Với mẫu đều 1 giây, mỗi timestamp chỉ tốn 1 byte và mỗi chỉ số nguyên thay đổi chậm tốn 1-2 byte.
+ */
+public final class HealthBatchCodec {
+
+    public static final String MEDIA_TYPE = "application/x-health-columnar";
+
+    private static final byte[] MAGIC = {'H', 'B', 'C', '1'};
+
+    private static final int MAX_DEVICE_UUID_LENGTH = 255;
+
+    private static final int ALL_NULL = 0;
+
+    private static final int WITH_NULLS = 1;
+
+    private static final int NO_NULLS = 2;
+
+    private static final HealthMetric[] METRICS = HealthMetric.values();
+
+    private HealthBatchCodec() {
+    }
+
+    /**
+     * Một lô dữ liệu kèm thông tin thiết bị như trong payload.
+     */
+    public record Message(String deviceUuid, Long sequence, HealthBatch batch) implements RateLimitCost {
+
+        @Override
+        public long rateLimitUnits() {
+            return batch.size();
+        }
+    }
+
+    public static void encode(Message message, OutputStream out) throws IOException {
+        HealthBatch batch = message.batch();
+        int size = batch.size();
+        out.write(MAGIC);
+
+        byte[] deviceUuid = message.deviceUuid() != null
+                ? message.deviceUuid().getBytes(StandardCharsets.UTF_8)
+                : new byte[0];
+        writeVarint(out, deviceUuid.length);
+        out.write(deviceUuid);
+
+        if (message.sequence() == null) {
+            out.write(0);
+        } else {
+            out.write(1);
+            writeVarint(out, zigzag(message.sequence()));
+        }
+
+        writeVarint(out, size);
+        long previous = 0;
+        long previousDelta = 0;
+        for (int i = 0; i < size; i++) {
+            long timestamp = batch.timestampMicros(i);
+            long delta = timestamp - previous;
+            // Giá trị đầu tiên ghi nguyên, giá trị thứ hai ghi delta, các giá trị sau ghi delta-of-delta
+            writeVarint(out, zigzag(i < 2 ? delta : delta - previousDelta));
+            previousDelta = i == 0 ? 0 : delta;
+            previous = timestamp;
+        }
+
+        for (HealthMetric metric : METRICS) {
+            writeColumn(out, batch, metric);
+        }
+    }
+
+    private static void writeColumn(OutputStream out, HealthBatch batch, HealthMetric metric) throws IOException {
+        int size = batch.size();
+        int nullCount = 0;
+        for (int i = 0; i < size; i++) {
+            if (batch.isNull(metric, i)) {
+                nullCount++;
+            }
+        }
+        if (nullCount == size) {
+            out.write(ALL_NULL);
+            return;
+        }
+        if (nullCount > 0) {
+            out.write(WITH_NULLS);
+            byte[] bitmap = new byte[(size + 7) / 8];
+            for (int i = 0; i < size; i++) {
+                if (batch.isNull(metric, i)) {
+                    bitmap[i >>> 3] |= (byte) (1 << (i & 7));
+                }
+            }
+            out.write(bitmap);
+        } else {
+            out.write(NO_NULLS);
+        }
+
+        long previous = 0;
+        for (int i = 0; i < size; i++) {
+            if (batch.isNull(metric, i)) {
+                continue;
+            }
+            if (metric.isFloatingPoint()) {
+                writeLong(out, Double.doubleToLongBits(batch.getDouble(metric, i)));
+            } else {
+                int value = batch.getInt(metric, i);
+                writeVarint(out, zigzag(value - previous));
+                previous = value;
+            }
+        }
+    }
+
+    /**
+     * Giải mã payload thẳng vào các mảng nguyên thủy của {@link HealthBatch}.
+     *
+     * @param maxPoints Số điểm dữ liệu tối đa được chấp nhận, chặn payload khai báo kích thước quá lớn.
+     * @throws IOException nếu payload không hợp lệ.
+     */
+    public static Message decode(InputStream in, int maxPoints) throws IOException {
+        for (byte b : MAGIC) {
+            if (readByte(in) != (b & 0xFF)) {
+                throw new IOException("Invalid columnar health data header");
+            }
+        }
+
+        int uuidLength = (int) readVarint(in);
+        if (uuidLength < 0 || uuidLength > MAX_DEVICE_UUID_LENGTH) {
+            throw new IOException("Invalid device UUID length: " + uuidLength);
+        }
+        String deviceUuid = new String(in.readNBytes(uuidLength), StandardCharsets.UTF_8);
+
+        Long sequence = readByte(in) == 1 ? unzigzag(readVarint(in)) : null;
+
+        long count = readVarint(in);
+        if (count < 0 || count > maxPoints) {
+            throw new IOException("Invalid data point count: " + count);
+        }
+        int size = (int) count;
+        // Mảng được mở rộng dần theo dữ liệu thực tế, không cấp phát ngay theo số điểm khai báo
+        HealthBatch.Builder builder = HealthBatch.builder(Math.min(size, 8_192));
+
+        long previous = 0;
+        long previousDelta = 0;
+        for (int i = 0; i < size; i++) {
+            long value = unzigzag(readVarint(in));
+            long delta = i < 2 ? value : previousDelta + value;
+            previous += delta;
+            previousDelta = i == 0 ? 0 : delta;
+            builder.addRow(previous);
+        }
+
+        for (HealthMetric metric : METRICS) {
+            readColumn(in, builder, metric);
+        }
+        HealthBatch batch = builder.build();
+        String violation = batch.validate();
+        if (violation != null) {
+            throw new IOException(violation);
+        }
+        return new Message(deviceUuid, sequence, batch);
+    }
+
+    private static void readColumn(InputStream in, HealthBatch.Builder builder, HealthMetric metric)
+            throws IOException {
+        int size = builder.size();
+        int encoding = readByte(in);
+        if (encoding == ALL_NULL) {
+            return;
+        }
+        byte[] bitmap = null;
+        if (encoding == WITH_NULLS) {
+            bitmap = in.readNBytes((size + 7) / 8);
+            if (bitmap.length != (size + 7) / 8) {
+                throw new EOFException("Truncated null bitmap of " + metric);
+            }
+        } else if (encoding != NO_NULLS) {
+            throw new IOException("Unknown column encoding " + encoding + " of " + metric);
+        }
+
+        long previous = 0;
+        for (int i = 0; i < size; i++) {
+            if (bitmap != null && (bitmap[i >>> 3] & (1 << (i & 7))) != 0) {
+                continue;
+            }
+            if (metric.isFloatingPoint()) {
+                builder.setDouble(metric, i, Double.longBitsToDouble(readLong(in)));
+            } else {
+                previous += unzigzag(readVarint(in));
+                builder.setInt(metric, i, (int) previous);
+            }
+        }
+    }
+
+    private static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static void writeVarint(OutputStream out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    private static long readVarint(InputStream in) throws IOException {
+        long result = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = readByte(in);
+            result |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return result;
+            }
+        }
+        throw new IOException("Malformed varint");
+    }
+
+    private static void writeLong(OutputStream out, long value) throws IOException {
+        for (int shift = 56; shift >= 0; shift -= 8) {
+            out.write((int) (value >>> shift));
+        }
+    }
+
+    private static long readLong(InputStream in) throws IOException {
+        long result = 0;
+        for (int i = 0; i < 8; i++) {
+            result = (result << 8) | readByte(in);
+        }
+        return result;
+    }
+
+    private static int readByte(InputStream in) throws IOException {
+        int b = in.read();
+        if (b < 0) {
+            throw new EOFException("Unexpected end of columnar health data");
+        }
+        return b;
+    }
+}
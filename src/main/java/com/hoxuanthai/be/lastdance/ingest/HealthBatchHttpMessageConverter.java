@@ -0,0 +1,63 @@
+package com.hoxuanthai.be.lastdance.ingest;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Đọc/ghi {@link HealthBatchCodec.Message} với content type {@value HealthBatchCodec#MEDIA_TYPE}.
+ * Request body có thể được nén bằng gzip ({@code Content-Encoding: gzip}); response được nén bởi
+ * server.compression khi client gửi {@code Accept-Encoding: gzip}.
+ */
+@Component
+public class HealthBatchHttpMessageConverter extends AbstractHttpMessageConverter<HealthBatchCodec.Message> {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final IngestProperties ingestProperties;
+
+    public HealthBatchHttpMessageConverter(IngestProperties ingestProperties) {
+        super(MediaType.parseMediaType(HealthBatchCodec.MEDIA_TYPE));
+        this.ingestProperties = ingestProperties;
+    }
+
+    @Override
+    protected boolean supports(Class<?> clazz) {
+        return HealthBatchCodec.Message.class == clazz;
+    }
+
+    @Override
+    protected HealthBatchCodec.Message readInternal(Class<? extends HealthBatchCodec.Message> clazz,
+                                                    HttpInputMessage inputMessage) throws IOException {
+        InputStream body = inputMessage.getBody();
+        if ("gzip".equalsIgnoreCase(inputMessage.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING))) {
+            body = new GZIPInputStream(body, BUFFER_SIZE);
+        }
+        try {
+            return HealthBatchCodec.decode(new BufferedInputStream(body, BUFFER_SIZE),
+                    ingestProperties.getMaxPointsPerRequest());
+        } catch (IOException e) {
+            throw new HttpMessageNotReadableException("Invalid columnar health data: " + e.getMessage(), e,
+                    inputMessage);
+        }
+    }
+
+    @Override
+    protected void writeInternal(HealthBatchCodec.Message message, HttpOutputMessage outputMessage)
+            throws IOException {
+        OutputStream out = new BufferedOutputStream(outputMessage.getBody(), BUFFER_SIZE);
+        HealthBatchCodec.encode(message, out);
+        out.flush();
+    }
+}
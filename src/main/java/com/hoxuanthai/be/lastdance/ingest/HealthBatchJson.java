@@ -0,0 +1,167 @@
+package com.hoxuanthai.be.lastdance.ingest;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializerProvider;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+
+/**
+ * Chuyển đổi {@link HealthBatch} với mảng JSON các điểm dữ liệu, cùng cấu trúc với
+ * {@link com.hoxuanthai.be.lastdance.dto.DataPoint}.
+ * <p>
+ * Deserializer đọc token trực tiếp vào mảng nguyên thủy, không tạo DataPoint hay wrapper cho từng điểm.
+ */
+public final class HealthBatchJson {
+
+    private static final String TIMESTAMP = "timestamp";
+
+    private static final String ALERT_SCORE = "alertScore";
+
+    private static final HealthMetric[] METRICS = HealthMetric.values();
+
+    private static final int INITIAL_CAPACITY = 256;
+
+    private HealthBatchJson() {
+    }
+
+    /**
+     * Tên field JSON của chỉ số, theo {@link com.hoxuanthai.be.lastdance.dto.DataPoint}.
+     */
+    static String fieldName(HealthMetric metric) {
+        return switch (metric) {
+            case HEART_RATE -> "heartRate";
+            case STEPS_COUNT -> "stepCount";
+            case SPO2_PERCENT -> "spo2";
+            case CALORIES_BURNED -> "caloriesBurned";
+            case WATER_INTAKE_ML -> "waterIntakeMl";
+            case ACTIVITY_STATUS -> "activityStatus";
+            case SLEEP_DURATION_MINUTES -> "sleepDurationMinutes";
+        };
+    }
+
+    private static HealthMetric metricOf(String fieldName) {
+        return switch (fieldName) {
+            case "heartRate" -> HealthMetric.HEART_RATE;
+            case "stepCount" -> HealthMetric.STEPS_COUNT;
+            case "spo2" -> HealthMetric.SPO2_PERCENT;
+            case "caloriesBurned" -> HealthMetric.CALORIES_BURNED;
+            case "waterIntakeMl" -> HealthMetric.WATER_INTAKE_ML;
+            case "activityStatus" -> HealthMetric.ACTIVITY_STATUS;
+            case "sleepDurationMinutes" -> HealthMetric.SLEEP_DURATION_MINUTES;
+            default -> null;
+        };
+    }
+
+    public static class Serializer extends JsonSerializer<HealthBatch> {
+
+        @Override
+        public void serialize(HealthBatch batch, JsonGenerator gen, SerializerProvider provider) throws IOException {
+            gen.writeStartArray();
+            for (int row = 0; row < batch.size(); row++) {
+                gen.writeStartObject();
+                provider.defaultSerializeField(TIMESTAMP, batch.timestamp(row), gen);
+                for (HealthMetric metric : METRICS) {
+                    gen.writeFieldName(fieldName(metric));
+                    if (batch.isNull(metric, row)) {
+                        gen.writeNull();
+                    } else if (metric.isFloatingPoint()) {
+                        gen.writeNumber(batch.getDouble(metric, row));
+                    } else {
+                        gen.writeNumber(batch.getInt(metric, row));
+                    }
+                }
+                gen.writeNullField(ALERT_SCORE); // Không lưu trong HEALTH_DATA, giữ để response cùng cấu trúc với DataPoint
+                gen.writeEndObject();
+            }
+            gen.writeEndArray();
+        }
+    }
+
+    public static class Deserializer extends JsonDeserializer<HealthBatch> {
+
+        @Override
+        public HealthBatch deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+            if (!p.isExpectedStartArrayToken()) {
+                return (HealthBatch) ctxt.handleUnexpectedToken(HealthBatch.class, p);
+            }
+            HealthBatch.Builder builder = HealthBatch.builder(INITIAL_CAPACITY);
+            // Giá trị của điểm hiện tại, chỉ được ghi vào builder khi đã đọc xong object vì
+            // timestamp có thể xuất hiện sau các chỉ số
+            int[] intValues = new int[METRICS.length];
+            double[] doubleValues = new double[METRICS.length];
+            boolean[] present = new boolean[METRICS.length];
+
+            JsonToken token;
+            while ((token = p.nextToken()) != JsonToken.END_ARRAY) {
+                if (token != JsonToken.START_OBJECT) {
+                    return (HealthBatch) ctxt.handleUnexpectedToken(HealthBatch.class, p);
+                }
+                LocalDateTime timestamp = null;
+                Arrays.fill(present, false);
+
+                while (p.nextToken() == JsonToken.FIELD_NAME) {
+                    String fieldName = p.currentName();
+                    JsonToken valueToken = p.nextToken();
+                    if (TIMESTAMP.equals(fieldName)) {
+                        timestamp = valueToken == JsonToken.VALUE_NULL ? null : ctxt.readValue(p, LocalDateTime.class);
+                        continue;
+                    }
+                    HealthMetric metric = metricOf(fieldName);
+                    if (metric == null || valueToken == JsonToken.VALUE_NULL) {
+                        p.skipChildren(); // Field không dùng (ví dụ alertScore) hoặc giá trị null
+                        continue;
+                    }
+                    int i = metric.ordinal();
+                    present[i] = true;
+                    if (valueToken.isNumeric()) {
+                        if (metric.isFloatingPoint()) {
+                            doubleValues[i] = p.getDoubleValue();
+                        } else {
+                            intValues[i] = p.getIntValue();
+                        }
+                    } else if (metric.isFloatingPoint()) {
+                        // Giá trị không phải số (ví dụ chuỗi "97.5") đi qua coercion mặc định của Jackson
+                        doubleValues[i] = ctxt.readValue(p, Double.class);
+                    } else {
+                        intValues[i] = ctxt.readValue(p, Integer.class);
+                    }
+                }
+
+                if (timestamp == null) {
+                    ctxt.reportInputMismatch(HealthBatch.class, "dataPoints[%d].timestamp must not be null",
+                            builder.size());
+                }
+                // Kiểm tra trước khi đổi sang micro giây, năm quá lớn làm phép nhân bị tràn
+                if (!HealthBatch.isWithinRange(timestamp)) {
+                    ctxt.reportInputMismatch(HealthBatch.class, HealthBatch.timestampOutOfRange(builder.size()));
+                }
+                int row = builder.addRow(timestamp);
+                for (HealthMetric metric : METRICS) {
+                    int i = metric.ordinal();
+                    if (!present[i]) {
+                        continue;
+                    }
+                    if (metric.isFloatingPoint()) {
+                        builder.setDouble(metric, row, doubleValues[i]);
+                    } else {
+                        builder.setInt(metric, row, intValues[i]);
+                    }
+                }
+            }
+
+            HealthBatch batch = builder.build();
+            String violation = batch.validate();
+            if (violation != null) {
+                ctxt.reportInputMismatch(HealthBatch.class, violation);
+            }
+            return batch;
+        }
+    }
+}
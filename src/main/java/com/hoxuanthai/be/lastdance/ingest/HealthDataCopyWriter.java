@@ -0,0 +1,143 @@
+package com.hoxuanthai.be.lastdance.ingest;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.PGCopyOutputStream;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Ghi hàng loạt dữ liệu sức khỏe vào hypertable HEALTH_DATA bằng
+ * {@code COPY ... FROM STDIN (FORMAT BINARY)} của PostgreSQL.
+ * <p>
+ * Dữ liệu được stream trực tiếp lên server qua {@link PGCopyOutputStream}, không tạo entity,
+ * không đi qua persistence context nên chi phí tăng tuyến tính theo số điểm dữ liệu.
+ * Cột id được gán UUID v7 ({@link UuidV7}) để index khóa chính chỉ nhận thêm vào cuối.
+ * <p>
+ * COPY không hỗ trợ ON CONFLICT nên dữ liệu được COPY vào bảng tạm health_data_staging
+ * (ON COMMIT DELETE ROWS), sau đó chuyển sang HEALTH_DATA bằng
+ * {@code INSERT ... ON CONFLICT (device_id, timestamp) DO NOTHING} để bỏ qua dữ liệu trùng.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class HealthDataCopyWriter {
+
+    public static final long NOT_SUPPORTED = -1;
+
+    private static final String COLUMNS = "device_id, timestamp, heart_rate, steps_count, spo2_percent, " +
+            "calories_burned, water_intake_ml, activity_status, sleep_duration_minutes";
+
+    private static final String CREATE_STAGING_SQL = "CREATE TEMP TABLE IF NOT EXISTS health_data_staging " +
+            "(LIKE health_data INCLUDING DEFAULTS) ON COMMIT DELETE ROWS";
+
+    private static final String COPY_SQL = "COPY health_data_staging (id, " + COLUMNS + ") FROM STDIN (FORMAT BINARY)";
+
+    private static final String MERGE_SQL = "INSERT INTO health_data (id, " + COLUMNS + ") " +
+            "SELECT id, " + COLUMNS + " FROM health_data_staging " +
+            "ON CONFLICT (device_id, timestamp) DO NOTHING";
+
+    private static final byte[] COPY_SIGNATURE = {'P', 'G', 'C', 'O', 'P', 'Y', '\n', (byte) 0xFF, '\r', '\n', 0};
+
+    private static final short FIELD_COUNT = 10;
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    // PostgreSQL lưu TIMESTAMP dưới dạng số micro giây kể từ 2000-01-01 00:00:00
+    private static final long PG_EPOCH_MICROS = HealthBatch.toMicros(LocalDateTime.of(2000, 1, 1, 0, 0));
+
+    // Thứ tự cột chỉ số trong COLUMNS
+    private static final HealthMetric[] METRICS = HealthMetric.values();
+
+    private final DataSource dataSource;
+
+    /**
+     * Stream các lô dữ liệu vào HEALTH_DATA bằng một lệnh COPY trong transaction hiện tại.
+     * Chỉ gọi một lần cho mỗi transaction vì bảng tạm chỉ được dọn khi commit.
+     *
+     * @param batches Các lô dữ liệu cần ghi, mỗi lô thuộc về một thiết bị.
+     * @return Số bản ghi thực sự được thêm (không tính bản ghi trùng), hoặc {@link #NOT_SUPPORTED}
+     *         nếu kết nối hiện tại không phải PostgreSQL (khi đó caller dùng JPA).
+     */
+    public long copy(List<IngestBatch> batches) {
+        Connection connection = DataSourceUtils.getConnection(dataSource);
+        try {
+            if (!connection.isWrapperFor(PGConnection.class)) {
+                return NOT_SUPPORTED;
+            }
+            PGConnection pgConnection = connection.unwrap(PGConnection.class);
+
+            try (Statement statement = connection.createStatement()) {
+                statement.execute(CREATE_STAGING_SQL);
+            }
+
+            long startTime = System.nanoTime();
+            long rows = 0;
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                    new PGCopyOutputStream(pgConnection, COPY_SQL, BUFFER_SIZE), BUFFER_SIZE))) {
+                writeHeader(out);
+                for (IngestBatch batch : batches) {
+                    HealthBatch data = batch.data();
+                    for (int row = 0; row < data.size(); row++) {
+                        writeRow(out, batch.deviceId(), data, row);
+                    }
+                    rows += batch.size();
+                }
+                out.writeShort(-1); // trailer
+            }
+
+            int inserted;
+            try (Statement statement = connection.createStatement()) {
+                inserted = statement.executeUpdate(MERGE_SQL);
+            }
+            log.debug("Copied {} health data rows ({} duplicates skipped) from {} batches in {} ms", inserted,
+                    rows - inserted, batches.size(), (System.nanoTime() - startTime) / 1_000_000);
+            return inserted;
+        } catch (SQLException | IOException e) {
+            throw new RuntimeException("Bulk copy health data failed", e);
+        } finally {
+            DataSourceUtils.releaseConnection(connection, dataSource);
+        }
+    }
+
+    private void writeHeader(DataOutputStream out) throws IOException {
+        out.write(COPY_SIGNATURE);
+        out.writeInt(0); // flags
+        out.writeInt(0); // header extension length
+    }
+
+    private void writeRow(DataOutputStream out, long deviceId, HealthBatch data, int row) throws IOException {
+        out.writeShort(FIELD_COUNT);
+        UUID id = UuidV7.generate();
+        out.writeInt(16);
+        out.writeLong(id.getMostSignificantBits());
+        out.writeLong(id.getLeastSignificantBits());
+        out.writeInt(8);
+        out.writeLong(deviceId);
+        out.writeInt(8);
+        out.writeLong(data.timestampMicros(row) - PG_EPOCH_MICROS);
+        for (HealthMetric metric : METRICS) {
+            if (data.isNull(metric, row)) {
+                out.writeInt(-1);
+            } else if (metric.isFloatingPoint()) {
+                out.writeInt(8);
+                out.writeDouble(data.getDouble(metric, row));
+            } else {
+                out.writeInt(4);
+                out.writeInt(data.getInt(metric, row));
+            }
+        }
+    }
+}
@@ -0,0 +1,297 @@
+package com.hoxuanthai.be.lastdance.ingest;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.core.env.Environment;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.RecoverableDataAccessException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.CannotCreateTransactionException;
+
+import java.sql.SQLException;
+import java.sql.SQLRecoverableException;
+import java.sql.SQLTransientException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Hàng đợi ghi bất đồng bộ (write-behind) cho dữ liệu sức khỏe.
+ * <p>
+ * Request đồng bộ chỉ xác thực dữ liệu và đưa lô vào hàng đợi giới hạn theo số điểm dữ liệu.
+ * Một thread nền gom các lô thành micro-batch, flush khi đủ {@code max-batch-size} điểm hoặc
+ * hết {@code flush-interval}. Khi hàng đợi đầy, {@link IngestQueueFullException} được ném ra
+ * để client thử lại sau. Khi ứng dụng dừng, toàn bộ dữ liệu còn lại được flush trước khi thoát.
+ * <p>
+ * Client đã nhận 202 và sẽ không gửi lại, nên lỗi ghi có thể hết sau một lúc (mất kết nối, failover, timeout,
+ * lỗi serialization) được thử lại với backoff: lô được đưa lại đầu hàng đợi và vẫn được tính vào capacity để
+ * backpressure vẫn có tác dụng. Chỉ lô gặp lỗi không thể thành công khi thử lại (vi phạm ràng buộc, thiết bị
+ * đã bị xóa) mới bị bỏ và được đếm vào {@code ingest.flush.failed}.
+ */
+@Slf4j
+@Component
+public class HealthDataIngestQueue {
+
+    private final HealthDataWriter healthDataWriter;
+
+    private final IngestProperties.Async properties;
+
+    private final BlockingDeque<IngestBatch> queue = new LinkedBlockingDeque<>();
+
+    // Số điểm dữ liệu đang chờ hoặc đang được flush
+    private final AtomicInteger pendingPoints = new AtomicInteger();
+
+    private final Timer flushTimer;
+
+    private final Counter rejectedCounter;
+
+    private final Counter failedCounter;
+
+    private final Counter retriedCounter;
+
+    private volatile boolean running;
+
+    private final boolean virtualThreads;
+
+    private Thread drainer;
+
+    public HealthDataIngestQueue(HealthDataWriter healthDataWriter, IngestProperties ingestProperties,
+                                 MeterRegistry meterRegistry, Environment environment) {
+        this.healthDataWriter = healthDataWriter;
+        this.virtualThreads = Threading.VIRTUAL.isActive(environment);
+        this.properties = ingestProperties.getAsync();
+
+        Gauge.builder("ingest.queue.depth", pendingPoints, AtomicInteger::get)
+                .description("Health data points waiting to be written")
+                .register(meterRegistry);
+        this.flushTimer = Timer.builder("ingest.flush.latency")
+                .description("Time spent writing one micro-batch of health data")
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(meterRegistry);
+        this.rejectedCounter = Counter.builder("ingest.queue.rejected")
+                .description("Health data points rejected because the ingest queue was full")
+                .register(meterRegistry);
+        this.failedCounter = Counter.builder("ingest.flush.failed")
+                .description("Health data points dropped because they could not be written")
+                .register(meterRegistry);
+        this.retriedCounter = Counter.builder("ingest.flush.retried")
+                .description("Health data points put back in the queue after a transient write failure")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    void start() {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        running = true;
+        // Khi spring.threads.virtual.enabled=true, thread flush chạy trên virtual thread như các request
+        Thread.Builder builder = virtualThreads ? Thread.ofVirtual() : Thread.ofPlatform();
+        drainer = builder.name("health-ingest-drainer").start(this::drain);
+        log.info("Health data ingest queue started (capacity: {} points, max batch: {} points, flush interval: {})",
+                properties.getCapacity(), properties.getMaxBatchSize(), properties.getFlushInterval());
+    }
+
+    /**
+     * Đưa một lô dữ liệu vào hàng đợi ghi.
+     *
+     * @param batch Lô dữ liệu đã được xác thực.
+     * @throws IngestQueueFullException nếu hàng đợi đã đầy hoặc đang dừng.
+     */
+    public void enqueue(IngestBatch batch) {
+        int size = batch.size();
+        int current;
+        do {
+            current = pendingPoints.get();
+            // Cho phép một lô lớn hơn capacity khi hàng đợi rỗng để lô đó không bị từ chối mãi mãi
+            if (current > 0 && current + size > properties.getCapacity()) {
+                rejectedCounter.increment(size);
+                throw new IngestQueueFullException("Ingest queue is full", properties.getRetryAfter().toSeconds());
+            }
+        } while (!pendingPoints.compareAndSet(current, current + size));
+
+        if (!running) {
+            pendingPoints.addAndGet(-size);
+            rejectedCounter.increment(size);
+            throw new IngestQueueFullException("Ingest queue is not accepting data", properties.getRetryAfter().toSeconds());
+        }
+
+        queue.add(batch);
+    }
+
+    public boolean isEnabled() {
+        return properties.isEnabled();
+    }
+
+    public int getDepth() {
+        return pendingPoints.get();
+    }
+
+    private void drain() {
+        long flushIntervalNanos = properties.getFlushInterval().toNanos();
+        long backoffNanos = 0;
+        while (running || pendingPoints.get() > 0) {
+            try {
+                IngestBatch first = queue.poll(flushIntervalNanos, TimeUnit.NANOSECONDS);
+                if (first == null) {
+                    continue;
+                }
+
+                List<IngestBatch> batches = new ArrayList<>();
+                batches.add(first);
+                int points = first.size();
+                long deadline = System.nanoTime() + flushIntervalNanos;
+
+                while (points < properties.getMaxBatchSize()) {
+                    // Khi đang dừng thì không chờ thêm, chỉ gom những gì đã có trong hàng đợi
+                    long remaining = running ? deadline - System.nanoTime() : 0;
+                    IngestBatch next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : queue.poll();
+                    if (next == null) {
+                        break;
+                    }
+                    batches.add(next);
+                    points += next.size();
+                }
+
+                if (flush(batches, points)) {
+                    backoffNanos = 0;
+                } else {
+                    backoffNanos = backoffNanos == 0
+                            ? properties.getRetryBackoff().toNanos()
+                            : Math.min(backoffNanos * 2, properties.getMaxRetryBackoff().toNanos());
+                    TimeUnit.NANOSECONDS.sleep(backoffNanos);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                log.error("Health data ingest drainer interrupted, {} points were not written", pendingPoints.get());
+                return;
+            } catch (Throwable e) {
+                // Thread chết thì enqueue vẫn trả 202 cho đến khi đầy rồi 503 mãi mãi, nên không để lỗi nào thoát ra
+                log.error("Unexpected error in health data ingest drainer", e);
+            }
+        }
+    }
+
+    /**
+     * @return false nếu có lô được đưa lại hàng đợi để thử lại sau backoff.
+     */
+    private boolean flush(List<IngestBatch> batches, int points) {
+        long startTime = System.nanoTime();
+        try {
+            healthDataWriter.write(batches);
+            pendingPoints.addAndGet(-points);
+            return true;
+        } catch (Throwable e) {
+            if (isRetryable(e)) {
+                requeue(batches, points, e);
+                return false;
+            }
+            if (batches.size() == 1) {
+                drop(batches.get(0), e);
+                return true;
+            }
+            log.warn("Failed to flush {} health data points in one transaction, retrying per batch: {}",
+                    points, e.getMessage());
+            // Một lô lỗi (ví dụ thiết bị vừa bị xóa) không được làm mất dữ liệu của các lô khác
+            List<IngestBatch> retry = new ArrayList<>();
+            int retryPoints = 0;
+            for (IngestBatch batch : batches) {
+                try {
+                    healthDataWriter.write(List.of(batch));
+                    pendingPoints.addAndGet(-batch.size());
+                } catch (Throwable single) {
+                    if (isRetryable(single)) {
+                        retry.add(batch);
+                        retryPoints += batch.size();
+                    } else {
+                        drop(batch, single);
+                    }
+                }
+            }
+            if (retry.isEmpty()) {
+                return true;
+            }
+            requeue(retry, retryPoints, e);
+            return false;
+        } finally {
+            flushTimer.record(System.nanoTime() - startTime, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Đưa lô lại đầu hàng đợi theo thứ tự cũ, số điểm vẫn nằm trong {@code pendingPoints}.
+     */
+    private void requeue(List<IngestBatch> batches, int points, Throwable cause) {
+        for (int i = batches.size() - 1; i >= 0; i--) {
+            queue.addFirst(batches.get(i));
+        }
+        retriedCounter.increment(points);
+        log.warn("Failed to write {} health data points, will retry: {}", points, cause.toString());
+    }
+
+    private void drop(IngestBatch batch, Throwable cause) {
+        pendingPoints.addAndGet(-batch.size());
+        failedCounter.increment(batch.size());
+        log.error("Dropped {} health data points of device {}", batch.size(), batch.deviceId(), cause);
+    }
+
+    /**
+     * Lỗi có thể hết khi thử lại: mất kết nối, failover, timeout, lock/serialization, hoặc {@link Error}.
+     * Lỗi có SQLState khác (vi phạm ràng buộc, dữ liệu sai) và các lỗi còn lại không được thử lại.
+     */
+    static boolean isRetryable(Throwable e) {
+        if (e instanceof Error) {
+            return true;
+        }
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof SQLException sqlException && sqlException.getSQLState() != null) {
+                return isRetryable(sqlException.getSQLState());
+            }
+            if (cause instanceof TransientDataAccessException
+                    || cause instanceof RecoverableDataAccessException
+                    || cause instanceof DataAccessResourceFailureException
+                    || cause instanceof CannotCreateTransactionException
+                    || cause instanceof SQLTransientException
+                    || cause instanceof SQLRecoverableException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isRetryable(String sqlState) {
+        return sqlState.startsWith("08") // connection exception
+                || sqlState.startsWith("40") // serialization failure, deadlock
+                || sqlState.startsWith("53") // insufficient resources
+                || sqlState.startsWith("57") // query canceled (statement timeout), admin shutdown
+                || sqlState.equals("55P03") // lock not available
+                || sqlState.equals("25006"); // read-only transaction: primary vừa bị hạ cấp khi failover
+    }
+
+    /**
+     * Ngừng nhận dữ liệu mới và flush toàn bộ dữ liệu còn lại trước khi database bị đóng.
+     */
+    @PreDestroy
+    void stop() throws InterruptedException {
+        if (drainer == null) {
+            return;
+        }
+        running = false;
+        log.info("Draining health data ingest queue ({} points pending)", pendingPoints.get());
+        drainer.join(properties.getShutdownTimeout().toMillis());
+        if (drainer.isAlive()) {
+            drainer.interrupt();
+            log.error("Health data ingest queue did not drain within {}", properties.getShutdownTimeout());
+        }
+    }
+}
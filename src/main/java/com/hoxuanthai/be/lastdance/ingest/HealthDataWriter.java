@@ -0,0 +1,225 @@
+package com.hoxuanthai.be.lastdance.ingest;
+
+import com.hoxuanthai.be.lastdance.entity.Device;
+import com.hoxuanthai.be.lastdance.entity.HealthData;
+import jakarta.persistence.EntityManager;
+import jakarta.transaction.Transactional;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.Statement;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Ghi các lô dữ liệu sức khỏe xuống HEALTH_DATA trong một transaction.
+ * Dùng chung cho đồng bộ trực tiếp và cho hàng đợi ghi bất đồng bộ.
+ * <p>
+ * Việc ghi là idempotent: điểm dữ liệu trùng (device_id, timestamp) với dữ liệu đã có bị bỏ qua,
+ * và watermark đồng bộ của thiết bị được nâng lên trong cùng transaction.
+ * Sau khi ghi, {@link HealthDataWrittenEvent} được phát để các cache liên quan được làm mới.
+ */
+@Component
+@RequiredArgsConstructor
+public class HealthDataWriter {
+
+    // GREATEST bỏ qua giá trị NULL nên watermark chỉ tăng, không bao giờ giảm
+    private static final String ADVANCE_WATERMARK_SQL = "UPDATE devices SET " +
+            "last_data_timestamp = GREATEST(last_data_timestamp, ?), " +
+            "last_sync_sequence = GREATEST(last_sync_sequence, ?) " +
+            "WHERE id = ?";
+
+    private static final String INSERT_SQL = "INSERT INTO health_data (id, device_id, timestamp, heart_rate, " +
+            "steps_count, spo2_percent, calories_burned, water_intake_ml, activity_status, sleep_duration_minutes) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?) ON CONFLICT (device_id, timestamp) DO NOTHING";
+
+    // Khóa chính (id, timestamp): điều kiện timestamp giới hạn số chunk cần tìm
+    private static final String COUNT_INSERTED_SQL = "SELECT count(*) FROM health_data " +
+            "WHERE id = ANY(?) AND timestamp BETWEEN ? AND ?";
+
+    // Thứ tự cột chỉ số trong INSERT_SQL
+    private static final HealthMetric[] METRICS = HealthMetric.values();
+
+    private final HealthDataCopyWriter healthDataCopyWriter;
+
+    private final IngestProperties ingestProperties;
+
+    private final EntityManager entityManager;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    /**
+     * Ghi các lô dữ liệu bằng COPY, bằng Hibernate khi ingest.mode=JPA, hoặc bằng batch INSERT khi ingest.mode=INSERT
+     * hoặc kết nối không hỗ trợ COPY.
+     *
+     * @param batches Các lô dữ liệu cần ghi.
+     * @return Số điểm dữ liệu thực sự được thêm (không tính điểm trùng).
+     */
+    @Transactional
+    public long write(List<IngestBatch> batches) {
+        long inserted = HealthDataCopyWriter.NOT_SUPPORTED;
+        if (ingestProperties.getMode() == IngestMode.COPY) {
+            inserted = healthDataCopyWriter.copy(batches);
+        } else if (ingestProperties.getMode() == IngestMode.JPA) {
+            inserted = saveWithJpa(batches);
+        }
+        if (inserted == HealthDataCopyWriter.NOT_SUPPORTED) {
+            inserted = insertBatches(batches);
+        }
+
+        for (IngestBatch batch : batches) {
+            advanceWatermark(batch);
+        }
+        if (inserted > 0) {
+            eventPublisher.publishEvent(new HealthDataWrittenEvent(batches));
+        }
+        return inserted;
+    }
+
+    /**
+     * Ghi bằng batch INSERT ... ON CONFLICT DO NOTHING, mỗi lần gửi {@code ingest.insert-batch-size} dòng.
+     * Điểm trùng với dữ liệu đã có (kể cả do một lần ghi song song của cùng thiết bị) bị database bỏ qua thay vì
+     * vi phạm uq_health_data_device_timestamp; điểm trùng timestamp trong cùng lô bị bỏ trước khi gửi.
+     */
+    private long insertBatches(List<IngestBatch> batches) {
+        List<Row> rows = new ArrayList<>();
+        for (IngestBatch batch : batches) {
+            toRows(batch.deviceId(), batch.data(), new HashSet<>(), rows);
+        }
+        if (rows.isEmpty()) {
+            return 0;
+        }
+
+        int[][] counts = jdbcTemplate.batchUpdate(INSERT_SQL, rows, Math.max(1, ingestProperties.getInsertBatchSize()),
+                (ps, row) -> {
+                    ps.setObject(1, row.id());
+                    ps.setLong(2, row.deviceId());
+                    ps.setObject(3, row.timestamp());
+                    int index = 4;
+                    for (HealthMetric metric : METRICS) {
+                        if (row.data().isNull(metric, row.row())) {
+                            ps.setNull(index++, metric.isFloatingPoint() ? Types.DOUBLE : Types.INTEGER);
+                        } else if (metric.isFloatingPoint()) {
+                            ps.setDouble(index++, row.data().getDouble(metric, row.row()));
+                        } else {
+                            ps.setInt(index++, row.data().getInt(metric, row.row()));
+                        }
+                    }
+                });
+
+        long inserted = 0;
+        for (int[] chunk : counts) {
+            for (int count : chunk) {
+                if (count == Statement.SUCCESS_NO_INFO) {
+                    return countInserted(rows.stream().map(Row::id).toArray(UUID[]::new), batches);
+                }
+                inserted += count;
+            }
+        }
+        return inserted;
+    }
+
+    /**
+     * Ghi bằng {@code persist} thay vì {@code saveAll}: id đã được gán sẵn nên {@code saveAll} sẽ {@code merge}
+     * và SELECT từng dòng trước khi insert. Các INSERT được Hibernate gom theo hibernate.jdbc.batch_size,
+     * persistence context được flush và giải phóng sau mỗi {@code ingest.jpa-flush-size} entity.
+     * Câu INSERT của {@link HealthData} có ON CONFLICT DO NOTHING nên điểm trùng được database bỏ qua như ở chế độ
+     * INSERT; Hibernate không biết dòng nào bị bỏ qua nên số dòng được thêm được đếm lại theo id.
+     */
+    private long saveWithJpa(List<IngestBatch> batches) {
+        List<HealthData> healthDataList = new ArrayList<>();
+        for (IngestBatch batch : batches) {
+            Device device = entityManager.getReference(Device.class, batch.deviceId());
+            toHealthData(batch.data(), device, new HashSet<>(), healthDataList);
+        }
+        if (healthDataList.isEmpty()) {
+            return 0;
+        }
+
+        int flushSize = Math.max(1, ingestProperties.getJpaFlushSize());
+        for (int start = 0; start < healthDataList.size(); start += flushSize) {
+            List<HealthData> chunk = healthDataList.subList(start, Math.min(start + flushSize, healthDataList.size()));
+            chunk.forEach(entityManager::persist);
+            entityManager.flush();
+            chunk.forEach(entityManager::detach);
+        }
+        return countInserted(healthDataList.stream().map(HealthData::getId).toArray(UUID[]::new), batches);
+    }
+
+    /**
+     * Đếm số dòng được thêm theo id vừa sinh (dòng bị bỏ qua vì trùng giữ id cũ), dùng khi driver hoặc Hibernate
+     * không trả về số dòng của từng câu INSERT, ví dụ pgjdbc với reWriteBatchedInserts.
+     */
+    private long countInserted(UUID[] ids, List<IngestBatch> batches) {
+        LocalDateTime min = batches.stream().map(IngestBatch::minTimestamp).min(LocalDateTime::compareTo).orElseThrow();
+        LocalDateTime max = batches.stream().map(IngestBatch::maxTimestamp).max(LocalDateTime::compareTo).orElseThrow();
+        Long inserted = jdbcTemplate.query(COUNT_INSERTED_SQL, ps -> {
+            ps.setArray(1, ps.getConnection().createArrayOf("uuid", ids));
+            ps.setObject(2, min);
+            ps.setObject(3, max);
+        }, rs -> rs.next() ? rs.getLong(1) : 0L);
+        return inserted != null ? inserted : 0;
+    }
+
+    /**
+     * Chuyển các điểm dữ liệu của lô thành dòng cần ghi, bỏ qua điểm có timestamp đã nằm trong {@code seenTimestamps}.
+     */
+    static void toRows(long deviceId, HealthBatch data, Set<LocalDateTime> seenTimestamps, List<Row> target) {
+        for (int row = 0; row < data.size(); row++) {
+            LocalDateTime timestamp = data.timestamp(row);
+            if (seenTimestamps.add(timestamp)) {
+                target.add(new Row(UuidV7.generate(), deviceId, timestamp, data, row));
+            }
+        }
+    }
+
+    /**
+     * Chuyển các điểm dữ liệu của lô thành entity, bỏ qua điểm có timestamp đã nằm trong {@code seenTimestamps}.
+     */
+    static void toHealthData(HealthBatch data, Device device, Set<LocalDateTime> seenTimestamps,
+                             List<HealthData> target) {
+        for (int row = 0; row < data.size(); row++) {
+            LocalDateTime timestamp = data.timestamp(row);
+            if (!seenTimestamps.add(timestamp)) {
+                continue;
+            }
+            HealthData healthData = HealthData.builder()
+                    .id(UuidV7.generate())
+                    .device(device)
+                    .timestamp(timestamp)
+                    .heartRate(data.getIntOrNull(HealthMetric.HEART_RATE, row))
+                    .stepsCount(data.getIntOrNull(HealthMetric.STEPS_COUNT, row))
+                    .spo2Percent(data.getDoubleOrNull(HealthMetric.SPO2_PERCENT, row))
+                    .caloriesBurned(data.getDoubleOrNull(HealthMetric.CALORIES_BURNED, row))
+                    .waterIntakeMl(data.getIntOrNull(HealthMetric.WATER_INTAKE_ML, row))
+                    .activityStatus(data.getIntOrNull(HealthMetric.ACTIVITY_STATUS, row))
+                    .sleepDurationMinutes(data.getIntOrNull(HealthMetric.SLEEP_DURATION_MINUTES, row))
+                    .build();
+            target.add(healthData);
+        }
+    }
+
+    record Row(UUID id, long deviceId, LocalDateTime timestamp, HealthBatch data, int row) {
+    }
+
+    private void advanceWatermark(IngestBatch batch) {
+        jdbcTemplate.update(ADVANCE_WATERMARK_SQL, ps -> {
+            ps.setObject(1, batch.maxTimestamp());
+            if (batch.sequence() != null) {
+                ps.setLong(2, batch.sequence());
+            } else {
+                ps.setNull(2, Types.BIGINT);
+            }
+            ps.setLong(3, batch.deviceId());
+        });
+    }
+}
@@ -0,0 +1,10 @@
+package com.hoxuanthai.be.lastdance.ingest;
+
+import java.util.List;
+
+/**
+ * Được phát khi các lô dữ liệu sức khỏe đã được ghi xuống HEALTH_DATA.
+ * Listener nên dùng {@code @TransactionalEventListener} để chỉ xử lý sau khi transaction commit.
+ */
+public record HealthDataWrittenEvent(List<IngestBatch> batches) {
+}
@@ -0,0 +1,24 @@
+package com.hoxuanthai.be.lastdance.ingest;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Các cột chỉ số của HEALTH_DATA, theo đúng thứ tự cột trong lệnh COPY và trong định dạng columnar.
+ */
+@Getter
+@RequiredArgsConstructor
+public enum HealthMetric {
+
+    HEART_RATE("heart_rate", false),
+    STEPS_COUNT("steps_count", false),
+    SPO2_PERCENT("spo2_percent", true),
+    CALORIES_BURNED("calories_burned", true),
+    WATER_INTAKE_ML("water_intake_ml", false),
+    ACTIVITY_STATUS("activity_status", false),
+    SLEEP_DURATION_MINUTES("sleep_duration_minutes", false);
+
+    private final String columnName;
+
+    private final boolean floatingPoint; // DOUBLE PRECISION, ngược lại là INTEGER
+}
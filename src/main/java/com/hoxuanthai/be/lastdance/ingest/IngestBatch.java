@@ -0,0 +1,25 @@
+package com.hoxuanthai.be.lastdance.ingest;
+
+import java.time.LocalDateTime;
+
+/**
+ * Một lô điểm dữ liệu sức khỏe của một thiết bị, đã được xác thực và sẵn sàng ghi xuống database.
+ *
+ * @param userId   ID của người dùng sở hữu thiết bị.
+ * @param sequence Số thứ tự lô do thiết bị gửi lên, có thể null.
+ * @param data     Các điểm dữ liệu lưu theo cột.
+ */
+public record IngestBatch(Long deviceId, Long userId, Long sequence, HealthBatch data) {
+
+    public int size() {
+        return data.size();
+    }
+
+    public LocalDateTime minTimestamp() {
+        return data.isEmpty() ? null : HealthBatch.fromMicros(data.minTimestampMicros());
+    }
+
+    public LocalDateTime maxTimestamp() {
+        return data.isEmpty() ? null : HealthBatch.fromMicros(data.maxTimestampMicros());
+    }
+}
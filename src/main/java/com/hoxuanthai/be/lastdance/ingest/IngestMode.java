@@ -0,0 +1,10 @@
+package com.hoxuanthai.be.lastdance.ingest;
+
+/**
+ * Cách ghi dữ liệu sức khỏe xuống bảng HEALTH_DATA.
+ */
+public enum IngestMode {
+    COPY, // PostgreSQL COPY ... FROM STDIN (binary)
+    INSERT, // Batch INSERT ... ON CONFLICT DO NOTHING qua JDBC
+    JPA // Hibernate persist, gom batch theo hibernate.jdbc.batch_size và order_inserts
+}
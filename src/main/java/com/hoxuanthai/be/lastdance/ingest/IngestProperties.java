@@ -0,0 +1,46 @@
+package com.hoxuanthai.be.lastdance.ingest;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Getter
+@Setter
+@Configuration
+@ConfigurationProperties(prefix = "ingest")
+public class IngestProperties {
+
+    private IngestMode mode = IngestMode.COPY;
+
+    private int maxPointsPerRequest = 1_000_000; // Giới hạn số điểm dữ liệu của một payload columnar
+
+    private int insertBatchSize = 500; // Số dòng mỗi lần gửi batch INSERT ở chế độ INSERT
+
+    private int jpaFlushSize = 5_000; // Số entity persist trước mỗi lần flush khi ghi bằng JPA
+
+    private Async async = new Async();
+
+    @Getter
+    @Setter
+    public static class Async {
+
+        private boolean enabled = true;
+
+        private int capacity = 200_000; // Số điểm dữ liệu tối đa đang chờ ghi
+
+        private int maxBatchSize = 5_000; // Số điểm dữ liệu tối đa cho mỗi lần flush
+
+        private Duration flushInterval = Duration.ofMillis(500);
+
+        private Duration shutdownTimeout = Duration.ofSeconds(30);
+
+        private Duration retryAfter = Duration.ofSeconds(5);
+
+        private Duration retryBackoff = Duration.ofMillis(200); // Chờ trước lần ghi lại đầu tiên sau lỗi tạm thời
+
+        private Duration maxRetryBackoff = Duration.ofSeconds(30); // Backoff tăng gấp đôi đến giá trị này
+    }
+}
@@ -0,0 +1,30 @@
+package com.hoxuanthai.be.lastdance.ingest;
+
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Sinh UUID phiên bản 7 (RFC 9562): 48 bit đầu là thời điểm tạo tính bằng mili giây Unix, phần còn lại ngẫu nhiên.
+ * <p>
+ * Khóa chính của HEALTH_DATA là (id, timestamp). Với UUID ngẫu nhiên (v4) mỗi dòng mới rơi vào một vị trí bất kỳ
+ * của btree, gây tách trang và đọc lại các trang cũ; UUID v7 tăng dần theo thời gian nên dòng mới luôn được thêm
+ * vào cuối index. Giá trị cùng dạng với hàm uuid_generate_v7() trong database.
+ */
+public final class UuidV7 {
+
+    private UuidV7() {
+    }
+
+    public static UUID generate() {
+        return generate(System.currentTimeMillis());
+    }
+
+    public static UUID generate(long epochMillis) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        // unix_ts_ms (48 bit) | version (4 bit) | rand_a (12 bit)
+        long mostSigBits = (epochMillis << 16) | 0x7000L | (random.nextInt() & 0x0FFFL);
+        // variant 10 (2 bit) | rand_b (62 bit)
+        long leastSigBits = (random.nextLong() & 0x3FFFFFFFFFFFFFFFL) | 0x8000000000000000L;
+        return new UUID(mostSigBits, leastSigBits);
+    }
+}
@@ -0,0 +1,18 @@
+package com.hoxuanthai.be.lastdance.lifecycle;
+
+import java.nio.file.Path;
+
+/**
+ * Nơi lưu file lưu trữ của các chunk dữ liệu sức khỏe đã hết hạn.
+ */
+public interface ArchiveStorage {
+
+    /**
+     * Lưu file với key cho trước, ghi đè nếu đã tồn tại (lần chạy lại sau lỗi của cùng một chunk dùng cùng key).
+     *
+     * @param key  Đường dẫn tương đối, phân tách bằng '/'.
+     * @param file File cần lưu, caller xóa sau khi gọi.
+     * @return Vị trí đã lưu, dùng cho log.
+     */
+    String store(String key, Path file);
+}
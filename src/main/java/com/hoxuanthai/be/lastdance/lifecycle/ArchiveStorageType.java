@@ -0,0 +1,6 @@
+package com.hoxuanthai.be.lastdance.lifecycle;
+
+public enum ArchiveStorageType {
+    LOCAL, // Thư mục local
+    S3 // AWS S3 hoặc dịch vụ tương thích (MinIO)
+}
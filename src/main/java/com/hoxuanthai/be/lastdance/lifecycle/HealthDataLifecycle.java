@@ -0,0 +1,273 @@
+package com.hoxuanthai.be.lastdance.lifecycle;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Vòng đời dữ liệu của hypertable HEALTH_DATA: nén theo tuổi và lưu trữ rồi xóa chunk hết hạn.
+ * <p>
+ * Khi ứng dụng khởi động, compression policy được đặt theo {@code lifecycle.compress-after}.
+ * Job retention ({@code lifecycle.retention.cron}) xử lý từng chunk cũ hơn {@code lifecycle.retention.drop-after}:
+ * <ol>
+ *     <li>refresh HEALTH_DATA_HOURLY và HEALTH_DATA_DAILY cho khoảng thời gian của chunk, để thống kê vẫn còn
+ *     sau khi dữ liệu thô bị xóa (kể cả dữ liệu đồng bộ trễ chưa được materialize);</li>
+ *     <li>trong một transaction: khóa chunk với lệnh ghi, xuất chunk ra CSV nén gzip, lưu vào
+ *     {@link ArchiveStorage}, rồi {@code drop_chunks}. Lỗi ở bất kỳ bước nào thì chunk được giữ nguyên và
+ *     được xử lý lại ở lần chạy sau.</li>
+ * </ol>
+ * Xóa chunk thay cho DELETE nên không để lại dead tuple cần VACUUM. Job từ chối chạy nếu {@code drop-after}
+ * không dài hơn cửa sổ refresh của continuous aggregate, vì refresh policy sẽ tính lại khoảng đã mất dữ liệu thô
+ * và xóa luôn thống kê của nó. Chỉ chạy trên TimescaleDB.
+ */
+@Slf4j
+@Component
+public class HealthDataLifecycle {
+
+    private static final String TIMESCALE_SQL = "SELECT EXISTS (SELECT 1 FROM pg_extension WHERE extname = 'timescaledb')";
+
+    private static final String COMPRESS_AFTER_MATCHES_SQL = "SELECT EXISTS (SELECT 1 FROM timescaledb_information.jobs " +
+            "WHERE proc_name = 'policy_compression' AND hypertable_name = 'health_data' " +
+            "AND CAST(config ->> 'compress_after' AS INTERVAL) = CAST(? AS INTERVAL))";
+
+    // Migration V2026.10.18.00007 không đổi thứ tự nén khi đã có chunk nén, việc đó để CALL recompress_health_data_orderby()
+    private static final String ORDERBY_APPLIED_SQL = "SELECT EXISTS (SELECT 1 " +
+            "FROM timescaledb_information.compression_settings WHERE hypertable_name = 'health_data' " +
+            "AND attname = 'timestamp' AND orderby_column_index = 1 AND NOT orderby_asc)";
+
+    private static final String REMOVE_COMPRESSION_POLICY_SQL = "SELECT remove_compression_policy('health_data', if_exists => TRUE)";
+
+    private static final String ADD_COMPRESSION_POLICY_SQL = "SELECT add_compression_policy('health_data', " +
+            "compress_after => CAST(? AS INTERVAL))";
+
+    private static final String OUTSIDE_REFRESH_WINDOW_SQL = "SELECT CAST(? AS INTERVAL) > " +
+            "COALESCE(MAX(CAST(config ->> 'start_offset' AS INTERVAL)), INTERVAL '0') " +
+            "FROM timescaledb_information.jobs WHERE proc_name = 'policy_refresh_continuous_aggregate'";
+
+    // range_start/range_end được hiển thị dưới dạng timestamptz theo múi giờ của session, CAST về TIMESTAMP
+    // trong cùng session cho lại đúng biên của chunk
+    private static final String EXPIRED_CHUNKS_SQL = "SELECT chunk_schema, chunk_name, " +
+            "CAST(range_start AS TIMESTAMP), CAST(range_end AS TIMESTAMP) FROM timescaledb_information.chunks " +
+            "WHERE hypertable_name = 'health_data' AND CAST(range_end AS TIMESTAMP) <= LOCALTIMESTAMP - CAST(? AS INTERVAL) " +
+            "ORDER BY range_start LIMIT ?";
+
+    private static final String REFRESH_HOURLY_SQL = "CALL refresh_continuous_aggregate('health_data_hourly', " +
+            "CAST(? AS TIMESTAMP), CAST(? AS TIMESTAMP))";
+
+    private static final String REFRESH_DAILY_SQL = "CALL refresh_continuous_aggregate('health_data_daily', " +
+            "CAST(? AS TIMESTAMP), CAST(? AS TIMESTAMP))";
+
+    // Chỉ một instance xử lý chunk tại một thời điểm
+    private static final String TRY_LOCK_SQL = "SELECT pg_try_advisory_xact_lock(hashtext('health_data_retention'))";
+
+    private static final String CHUNK_EXISTS_SQL = "SELECT to_regclass(?) IS NOT NULL";
+
+    private static final String DROP_CHUNK_SQL = "SELECT drop_chunks('health_data', " +
+            "older_than => CAST(? AS TIMESTAMP), newer_than => CAST(? AS TIMESTAMP))";
+
+    private static final String COLUMNS = "id, device_id, timestamp, heart_rate, steps_count, spo2_percent, " +
+            "calories_burned, water_intake_ml, activity_status, sleep_duration_minutes";
+
+    private static final DateTimeFormatter KEY_DATE = DateTimeFormatter.ofPattern("yyyy/MM/dd");
+
+    private record Chunk(String schema, String name, LocalDateTime rangeStart, LocalDateTime rangeEnd) {
+
+        String qualifiedName() {
+            return quote(schema) + "." + quote(name);
+        }
+
+        private static String quote(String identifier) {
+            return "\"" + identifier.replace("\"", "\"\"") + "\"";
+        }
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final DataSource dataSource;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final ArchiveStorage archiveStorage;
+
+    private final LifecycleProperties properties;
+
+    private final Counter droppedChunks;
+
+    private final Counter archivedRows;
+
+    public HealthDataLifecycle(JdbcTemplate jdbcTemplate, DataSource dataSource,
+                               PlatformTransactionManager transactionManager, ArchiveStorage archiveStorage,
+                               LifecycleProperties lifecycleProperties, MeterRegistry meterRegistry) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.dataSource = dataSource;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.archiveStorage = archiveStorage;
+        this.properties = lifecycleProperties;
+        this.droppedChunks = Counter.builder("lifecycle.chunks.dropped")
+                .description("Expired health data chunks dropped by the retention job")
+                .register(meterRegistry);
+        this.archivedRows = Counter.builder("lifecycle.rows.archived")
+                .description("Health data rows exported before their chunk was dropped")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Đặt lại compression policy khi {@code lifecycle.compress-after} khác với policy đang có, và cảnh báo khi
+     * thứ tự nén timestamp DESC chưa được áp dụng cho các chunk đã nén.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void applyCompressionPolicy() {
+        try {
+            if (!isTimescale()) {
+                return;
+            }
+            if (!Boolean.TRUE.equals(jdbcTemplate.queryForObject(ORDERBY_APPLIED_SQL, Boolean.class))) {
+                log.warn("HEALTH_DATA is not compressed by timestamp DESC yet, run CALL recompress_health_data_orderby() " +
+                        "off-peak with free disk for the uncompressed size of its compressed chunks");
+            }
+            String compressAfter = toInterval(properties.getCompressAfter());
+            if (Boolean.TRUE.equals(jdbcTemplate.queryForObject(COMPRESS_AFTER_MATCHES_SQL, Boolean.class,
+                    compressAfter))) {
+                return;
+            }
+            jdbcTemplate.execute(REMOVE_COMPRESSION_POLICY_SQL);
+            jdbcTemplate.queryForObject(ADD_COMPRESSION_POLICY_SQL, Integer.class, compressAfter);
+            log.info("Health data compression policy set to compress chunks older than {}",
+                    properties.getCompressAfter());
+        } catch (Exception e) {
+            log.warn("Failed to apply health data compression policy: {}", e.getMessage());
+        }
+    }
+
+    @Scheduled(cron = "${lifecycle.retention.cron:0 30 3 * * *}")
+    void applyRetention() {
+        LifecycleProperties.Retention retention = properties.getRetention();
+        if (!retention.isEnabled()) {
+            return;
+        }
+        try {
+            if (!isTimescale()) {
+                return;
+            }
+            String dropAfter = toInterval(retention.getDropAfter());
+            if (!Boolean.TRUE.equals(jdbcTemplate.queryForObject(OUTSIDE_REFRESH_WINDOW_SQL, Boolean.class,
+                    dropAfter))) {
+                log.error("lifecycle.retention.drop-after ({}) must be longer than the continuous aggregate " +
+                        "refresh window, skipping retention", retention.getDropAfter());
+                return;
+            }
+
+            List<Chunk> chunks = jdbcTemplate.query(EXPIRED_CHUNKS_SQL, (rs, rowNum) -> new Chunk(rs.getString(1),
+                            rs.getString(2), rs.getObject(3, LocalDateTime.class), rs.getObject(4, LocalDateTime.class)),
+                    dropAfter, retention.getMaxChunksPerRun());
+            for (Chunk chunk : chunks) {
+                // CALL refresh_continuous_aggregate không chạy được trong transaction
+                jdbcTemplate.update(REFRESH_HOURLY_SQL, chunk.rangeStart(), chunk.rangeEnd());
+                jdbcTemplate.update(REFRESH_DAILY_SQL, chunk.rangeStart(), chunk.rangeEnd());
+                if (!Boolean.TRUE.equals(transactionTemplate.execute(status -> archiveAndDrop(chunk)))) {
+                    log.info("Retention is running on another instance, stopping");
+                    return;
+                }
+            }
+        } catch (Exception e) {
+            // Chunk chưa xử lý vẫn còn nguyên và được thử lại ở lần chạy sau
+            log.error("Health data retention failed: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * @return false nếu một instance khác đang xử lý.
+     */
+    private boolean archiveAndDrop(Chunk chunk) {
+        if (!Boolean.TRUE.equals(jdbcTemplate.queryForObject(TRY_LOCK_SQL, Boolean.class))) {
+            return false;
+        }
+        if (!Boolean.TRUE.equals(jdbcTemplate.queryForObject(CHUNK_EXISTS_SQL, Boolean.class,
+                chunk.qualifiedName()))) {
+            return true;
+        }
+        // Chặn lệnh ghi dữ liệu đồng bộ trễ vào chunk trong lúc xuất, để không dòng nào bị xóa mà chưa được lưu trữ
+        jdbcTemplate.execute("LOCK TABLE " + chunk.qualifiedName() + " IN SHARE MODE");
+
+        if (properties.getArchive().isEnabled()) {
+            String key = properties.getArchive().getPrefix() + "/" + chunk.rangeStart().format(KEY_DATE) + "/" +
+                    chunk.name() + ".csv.gz";
+            Path file = null;
+            try {
+                file = Files.createTempFile(chunk.name(), ".csv.gz");
+                long rows;
+                try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(file), 64 * 1024)) {
+                    rows = copyOut(chunk, out);
+                }
+                String location = archiveStorage.store(key, file);
+                archivedRows.increment(rows);
+                log.info("Archived {} health data rows of {} to {}", rows, chunk.name(), location);
+            } catch (IOException | SQLException e) {
+                throw new RuntimeException("Cannot archive health data chunk " + chunk.name(), e);
+            } finally {
+                deleteQuietly(file);
+            }
+        }
+
+        jdbcTemplate.queryForList(DROP_CHUNK_SQL, chunk.rangeEnd(), chunk.rangeStart());
+        droppedChunks.increment();
+        log.info("Dropped health data chunk {} [{}, {})", chunk.name(), chunk.rangeStart(), chunk.rangeEnd());
+        return true;
+    }
+
+    private long copyOut(Chunk chunk, OutputStream out) throws SQLException, IOException {
+        String sql = "COPY (SELECT " + COLUMNS + " FROM " + chunk.qualifiedName() + " ORDER BY device_id, timestamp) " +
+                "TO STDOUT WITH (FORMAT csv, HEADER)";
+        Connection connection = DataSourceUtils.getConnection(dataSource);
+        try {
+            return connection.unwrap(PGConnection.class).getCopyAPI().copyOut(sql, out);
+        } finally {
+            DataSourceUtils.releaseConnection(connection, dataSource);
+        }
+    }
+
+    private boolean isTimescale() {
+        if (Boolean.TRUE.equals(jdbcTemplate.queryForObject(TIMESCALE_SQL, Boolean.class))) {
+            return true;
+        }
+        log.debug("TimescaleDB is not installed, skipping health data lifecycle");
+        return false;
+    }
+
+    private static String toInterval(Duration duration) {
+        return duration.toSeconds() + " seconds";
+    }
+
+    private static void deleteQuietly(Path file) {
+        if (file == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.warn("Cannot delete temporary archive {}: {}", file, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package com.hoxuanthai.be.lastdance.lifecycle;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+@Getter
+@Setter
+@Configuration
+@ConfigurationProperties(prefix = "lifecycle")
+public class LifecycleProperties {
+
+    // Chunk của HEALTH_DATA cũ hơn khoảng này được nén (compression policy của TimescaleDB)
+    private Duration compressAfter = Duration.ofDays(7);
+
+    private Retention retention = new Retention();
+
+    private Archive archive = new Archive();
+
+    @Getter
+    @Setter
+    public static class Retention {
+
+        private boolean enabled = false;
+
+        // Chunk dữ liệu thô cũ hơn khoảng này được lưu trữ rồi xóa, phải dài hơn cửa sổ refresh của continuous aggregate
+        private Duration dropAfter = Duration.ofDays(90);
+
+        private String cron = "0 30 3 * * *";
+
+        private int maxChunksPerRun = 30;
+    }
+
+    @Getter
+    @Setter
+    public static class Archive {
+
+        // Khi tắt, chunk hết hạn bị xóa mà không xuất ra file
+        private boolean enabled = true;
+
+        private ArchiveStorageType storage = ArchiveStorageType.LOCAL;
+
+        private Path directory = Path.of("archive");
+
+        private String prefix = "health_data";
+
+        private S3 s3 = new S3();
+    }
+
+    @Getter
+    @Setter
+    public static class S3 {
+
+        private String bucket;
+
+        private String region = "ap-southeast-2";
+
+        // Endpoint của dịch vụ tương thích S3 (ví dụ MinIO), để trống khi dùng AWS S3
+        private String endpoint;
+
+        // Mặc định dùng AWS_ACCESS_KEY_ID / AWS_SECRET_ACCESS_KEY như S3Config
+        private String accessKey;
+
+        private String secretKey;
+    }
+}
@@ -0,0 +1,35 @@
+package com.hoxuanthai.be.lastdance.lifecycle;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+@Component
+@ConditionalOnProperty(prefix = "lifecycle.archive", name = "storage", havingValue = "LOCAL", matchIfMissing = true)
+public class LocalArchiveStorage implements ArchiveStorage {
+
+    private final Path directory;
+
+    public LocalArchiveStorage(LifecycleProperties lifecycleProperties) {
+        this.directory = lifecycleProperties.getArchive().getDirectory().toAbsolutePath();
+    }
+
+    @Override
+    public String store(String key, Path file) {
+        Path target = directory.resolve(key);
+        try {
+            Files.createDirectories(target.getParent());
+            // Ghi vào file tạm cùng thư mục rồi đổi tên để không bao giờ để lại file dở dang
+            Path partial = target.resolveSibling(target.getFileName() + ".partial");
+            Files.copy(file, partial, StandardCopyOption.REPLACE_EXISTING);
+            Files.move(partial, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new RuntimeException("Cannot store archive " + target, e);
+        }
+        return target.toString();
+    }
+}
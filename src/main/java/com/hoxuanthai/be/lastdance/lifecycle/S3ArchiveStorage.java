@@ -0,0 +1,53 @@
+package com.hoxuanthai.be.lastdance.lifecycle;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
+import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.S3ClientBuilder;
+import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+
+import java.net.URI;
+import java.nio.file.Path;
+
+/**
+ * Lưu file lưu trữ lên S3. Client riêng với S3Config để trỏ được vào endpoint tương thích S3 (MinIO)
+ * bằng path-style URL.
+ */
+@Component
+@ConditionalOnProperty(prefix = "lifecycle.archive", name = "storage", havingValue = "S3")
+public class S3ArchiveStorage implements ArchiveStorage {
+
+    private final S3Client s3Client;
+
+    private final String bucket;
+
+    public S3ArchiveStorage(LifecycleProperties lifecycleProperties) {
+        LifecycleProperties.S3 properties = lifecycleProperties.getArchive().getS3();
+        String accessKey = properties.getAccessKey() != null
+                ? properties.getAccessKey() : System.getenv("AWS_ACCESS_KEY_ID");
+        String secretKey = properties.getSecretKey() != null
+                ? properties.getSecretKey() : System.getenv("AWS_SECRET_ACCESS_KEY");
+        S3ClientBuilder builder = S3Client.builder()
+                .region(Region.of(properties.getRegion()))
+                .credentialsProvider(StaticCredentialsProvider.create(AwsBasicCredentials.create(accessKey, secretKey)));
+        if (properties.getEndpoint() != null && !properties.getEndpoint().isBlank()) {
+            builder.endpointOverride(URI.create(properties.getEndpoint())).forcePathStyle(true);
+        }
+        this.s3Client = builder.build();
+        this.bucket = properties.getBucket();
+    }
+
+    @Override
+    public String store(String key, Path file) {
+        s3Client.putObject(PutObjectRequest.builder()
+                .bucket(bucket)
+                .key(key)
+                .contentType("application/gzip")
+                .build(), RequestBody.fromFile(file));
+        return "s3://" + bucket + "/" + key;
+    }
+}
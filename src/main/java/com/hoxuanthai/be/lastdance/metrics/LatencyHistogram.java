@@ -0,0 +1,86 @@
+package com.hoxuanthai.be.lastdance.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Histogram thời gian xử lý dạng log-linear (kiểu HDR), ghi không khóa.
+ * <p>
+ * Giá trị tính bằng micro giây. Mỗi khoảng [2^k, 2^(k+1)) được chia thành {@value #SUB_BUCKETS} bucket đều nhau,
+ * nên sai số tương đối của phân vị không quá 1/{@value #SUB_BUCKETS}. Giá trị lớn hơn ~67 giây rơi vào bucket cuối.
+ */
+final class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 3;
+
+    static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+    // 2^26 µs ≈ 67 giây
+    private static final int MAX_EXPONENT = 26;
+
+    static final int BUCKET_COUNT = SUB_BUCKETS + (MAX_EXPONENT - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+
+    void record(long micros) {
+        counts.incrementAndGet(indexOf(micros));
+    }
+
+    void reset() {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            counts.set(i, 0);
+        }
+    }
+
+    /**
+     * Cộng dồn các bucket của histogram này vào {@code target}.
+     */
+    void addTo(long[] target) {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            target[i] += counts.get(i);
+        }
+    }
+
+    static int indexOf(long micros) {
+        if (micros < SUB_BUCKETS) {
+            return (int) Math.max(micros, 0);
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(micros);
+        if (exponent > MAX_EXPONENT) {
+            return BUCKET_COUNT - 1;
+        }
+        int subBucket = (int) (micros >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return SUB_BUCKETS + (exponent - SUB_BUCKET_BITS) * SUB_BUCKETS + subBucket;
+    }
+
+    /**
+     * Giá trị đại diện (điểm giữa) của bucket, micro giây.
+     */
+    static double valueOf(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        int exponent = (index - SUB_BUCKETS) / SUB_BUCKETS + SUB_BUCKET_BITS;
+        int subBucket = (index - SUB_BUCKETS) % SUB_BUCKETS;
+        long width = 1L << (exponent - SUB_BUCKET_BITS);
+        long lower = (1L << exponent) + subBucket * width;
+        return lower + width / 2.0;
+    }
+
+    /**
+     * @return Phân vị {@code quantile} (0..1) của các bucket đã cộng dồn, micro giây; 0 nếu không có dữ liệu.
+     */
+    static double quantile(long[] buckets, long total, double quantile) {
+        if (total == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(quantile * total));
+        long seen = 0;
+        for (int i = 0; i < buckets.length; i++) {
+            seen += buckets[i];
+            if (seen >= rank) {
+                return valueOf(i);
+            }
+        }
+        return valueOf(buckets.length - 1);
+    }
+}
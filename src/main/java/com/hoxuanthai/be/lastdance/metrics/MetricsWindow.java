@@ -0,0 +1,20 @@
+package com.hoxuanthai.be.lastdance.metrics;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Các cửa sổ thời gian trượt của {@link RollingRequestMetrics}.
+ */
+@Getter
+@RequiredArgsConstructor
+public enum MetricsWindow {
+
+    ONE_MINUTE("1m", 60),
+    FIVE_MINUTES("5m", 300),
+    FIFTEEN_MINUTES("15m", 900);
+
+    private final String tag;
+
+    private final int seconds;
+}
@@ -0,0 +1,18 @@
+package com.hoxuanthai.be.lastdance.metrics;
+
+/**
+ * Thống kê request trong một cửa sổ thời gian trượt.
+ *
+ * @param requests          Số request hoàn thành trong cửa sổ.
+ * @param errors            Số request có status >= 400 hoặc kết thúc bằng exception.
+ * @param requestsPerMinute Số request trung bình mỗi phút trong cửa sổ.
+ * @param meanMs            Thời gian xử lý trung bình (ms).
+ * @param p50Ms             Các phân vị thời gian xử lý (ms), sai số tương đối tối đa khoảng 12.5%.
+ */
+public record RequestMetricsSnapshot(long requests, long errors, double requestsPerMinute, double meanMs,
+                                     double p50Ms, double p95Ms, double p99Ms) {
+
+    public double successRatePercentage() {
+        return requests == 0 ? 100.0 : (double) (requests - errors) / requests * 100.0;
+    }
+}
@@ -0,0 +1,233 @@
+package com.hoxuanthai.be.lastdance.metrics;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Thống kê request HTTP theo cửa sổ trượt 1/5/15 phút cho từng route template, ghi không khóa.
+ * <p>
+ * Số request, số lỗi và tổng thời gian xử lý được đếm bằng {@link LongAdder} trong một vòng 900 ô, mỗi ô một giây.
+ * Thời gian xử lý được ghi vào {@link LatencyHistogram} trong một vòng ô 15 giây, nên phân vị của cửa sổ 1 phút
+ * được tính trên 60–75 giây gần nhất. Khi một ô được dùng lại cho giây mới, ô được đặt lại bởi thread đầu tiên
+ * ghi vào; vài request ghi đồng thời đúng lúc đặt lại có thể bị bỏ sót, chấp nhận được với số liệu giám sát.
+ * <p>
+ * Số liệu tổng hợp của mọi route được xuất qua gauge {@code http.server.requests.rolling.*} với tag window,
+ * và số liệu 1 phút của từng route với tag route.
+ */
+@Component
+public class RollingRequestMetrics {
+
+    public static final String UNMATCHED_ROUTE = "UNMATCHED";
+
+    private static final String OTHER_ROUTE = "OTHER";
+
+    // Số route template tối đa được theo dõi riêng, route vượt quá được gộp vào OTHER
+    private static final int MAX_ROUTES = 100;
+
+    private static final int SECOND_SLOTS = MetricsWindow.FIFTEEN_MINUTES.getSeconds();
+
+    private static final int HISTOGRAM_SLOT_SECONDS = 15;
+
+    // Thêm một ô cho ô hiện tại đang ghi dở
+    private static final int HISTOGRAM_SLOTS = SECOND_SLOTS / HISTOGRAM_SLOT_SECONDS + 1;
+
+    private final long originNanos = System.nanoTime();
+
+    private final RouteMetrics total = new RouteMetrics();
+
+    private final Map<String, RouteMetrics> routes = new ConcurrentHashMap<>();
+
+    private final MeterRegistry meterRegistry;
+
+    public RollingRequestMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+        for (MetricsWindow window : MetricsWindow.values()) {
+            registerGauges(total, window, "window", window.getTag());
+        }
+    }
+
+    /**
+     * Ghi nhận một request đã hoàn thành.
+     *
+     * @param route         Route template, ví dụ "GET /user/{userId}".
+     * @param error         true nếu request trả về status >= 400 hoặc kết thúc bằng exception.
+     * @param durationNanos Thời gian xử lý.
+     */
+    public void record(String route, boolean error, long durationNanos) {
+        long second = currentSecond();
+        long micros = TimeUnit.NANOSECONDS.toMicros(durationNanos);
+        total.record(second, error, micros);
+        routeMetrics(route).record(second, error, micros);
+    }
+
+    /**
+     * Thống kê của mọi route trong cửa sổ.
+     */
+    public RequestMetricsSnapshot snapshot(MetricsWindow window) {
+        return total.snapshot(currentSecond(), window);
+    }
+
+    /**
+     * Thống kê của một route template trong cửa sổ, hoặc thống kê rỗng nếu route chưa có request nào.
+     */
+    public RequestMetricsSnapshot snapshot(String route, MetricsWindow window) {
+        RouteMetrics metrics = routes.get(route);
+        return metrics != null
+                ? metrics.snapshot(currentSecond(), window)
+                : new RequestMetricsSnapshot(0, 0, 0, 0, 0, 0, 0);
+    }
+
+    private RouteMetrics routeMetrics(String route) {
+        RouteMetrics metrics = routes.get(route);
+        if (metrics != null) {
+            return metrics;
+        }
+        String key = routes.size() < MAX_ROUTES ? route : OTHER_ROUTE;
+        return routes.computeIfAbsent(key, k -> {
+            RouteMetrics created = new RouteMetrics();
+            registerGauges(created, MetricsWindow.ONE_MINUTE, "route", k);
+            return created;
+        });
+    }
+
+    private void registerGauges(RouteMetrics metrics, MetricsWindow window, String tagKey, String tagValue) {
+        gauge("http.server.requests.rolling.rate", "Requests per minute over the rolling window",
+                metrics, window, RequestMetricsSnapshot::requestsPerMinute, tagKey, tagValue, null);
+        gauge("http.server.requests.rolling.success", "Percentage of requests without error over the rolling window",
+                metrics, window, RequestMetricsSnapshot::successRatePercentage, tagKey, tagValue, null);
+        gauge("http.server.requests.rolling.latency", "Request latency in milliseconds over the rolling window",
+                metrics, window, RequestMetricsSnapshot::p50Ms, tagKey, tagValue, "0.5");
+        gauge("http.server.requests.rolling.latency", "Request latency in milliseconds over the rolling window",
+                metrics, window, RequestMetricsSnapshot::p95Ms, tagKey, tagValue, "0.95");
+        gauge("http.server.requests.rolling.latency", "Request latency in milliseconds over the rolling window",
+                metrics, window, RequestMetricsSnapshot::p99Ms, tagKey, tagValue, "0.99");
+    }
+
+    private void gauge(String name, String description, RouteMetrics metrics, MetricsWindow window,
+                       ToDoubleFunction<RequestMetricsSnapshot> value, String tagKey, String tagValue, String quantile) {
+        Gauge.Builder<RouteMetrics> builder = Gauge.builder(name, metrics,
+                        m -> value.applyAsDouble(m.snapshot(currentSecond(), window)))
+                .description(description)
+                .tag(tagKey, tagValue);
+        if (quantile != null) {
+            builder.tag("quantile", quantile);
+        }
+        builder.register(meterRegistry);
+    }
+
+    private long currentSecond() {
+        return (System.nanoTime() - originNanos) / 1_000_000_000L;
+    }
+
+    private static final class SecondSlot {
+
+        final AtomicLong second = new AtomicLong(-1);
+        final LongAdder count = new LongAdder();
+        final LongAdder errors = new LongAdder();
+        final LongAdder latencyMicros = new LongAdder();
+
+        void reset() {
+            count.reset();
+            errors.reset();
+            latencyMicros.reset();
+        }
+    }
+
+    private static final class HistogramSlot {
+
+        final AtomicLong period = new AtomicLong(-1);
+        final LatencyHistogram histogram = new LatencyHistogram();
+    }
+
+    private static final class RouteMetrics {
+
+        private final SecondSlot[] seconds = new SecondSlot[SECOND_SLOTS];
+
+        private final HistogramSlot[] histograms = new HistogramSlot[HISTOGRAM_SLOTS];
+
+        RouteMetrics() {
+            for (int i = 0; i < SECOND_SLOTS; i++) {
+                seconds[i] = new SecondSlot();
+            }
+            for (int i = 0; i < HISTOGRAM_SLOTS; i++) {
+                histograms[i] = new HistogramSlot();
+            }
+        }
+
+        void record(long second, boolean error, long micros) {
+            SecondSlot slot = seconds[(int) (second % SECOND_SLOTS)];
+            if (advance(slot.second, second)) {
+                slot.reset();
+            }
+            if (slot.second.get() == second) {
+                slot.count.increment();
+                if (error) {
+                    slot.errors.increment();
+                }
+                slot.latencyMicros.add(micros);
+            }
+
+            long period = second / HISTOGRAM_SLOT_SECONDS;
+            HistogramSlot histogramSlot = histograms[(int) (period % HISTOGRAM_SLOTS)];
+            if (advance(histogramSlot.period, period)) {
+                histogramSlot.histogram.reset();
+            }
+            if (histogramSlot.period.get() == period) {
+                histogramSlot.histogram.record(micros);
+            }
+        }
+
+        /**
+         * @return true nếu thread hiện tại chuyển ô sang {@code target} và phải đặt lại ô.
+         */
+        private static boolean advance(AtomicLong current, long target) {
+            long value = current.get();
+            return value < target && current.compareAndSet(value, target);
+        }
+
+        RequestMetricsSnapshot snapshot(long now, MetricsWindow window) {
+            long from = now - window.getSeconds();
+            long requests = 0;
+            long errors = 0;
+            long latencyMicros = 0;
+            for (SecondSlot slot : seconds) {
+                long second = slot.second.get();
+                if (second > from && second <= now) {
+                    requests += slot.count.sum();
+                    errors += slot.errors.sum();
+                    latencyMicros += slot.latencyMicros.sum();
+                }
+            }
+
+            long[] buckets = new long[LatencyHistogram.BUCKET_COUNT];
+            long fromPeriod = from / HISTOGRAM_SLOT_SECONDS;
+            for (HistogramSlot slot : histograms) {
+                long period = slot.period.get();
+                if (period >= fromPeriod && period >= 0) {
+                    slot.histogram.addTo(buckets);
+                }
+            }
+            long histogramTotal = 0;
+            for (long count : buckets) {
+                histogramTotal += count;
+            }
+
+            // Khi ứng dụng mới chạy, chỉ chia cho khoảng thời gian đã có
+            double elapsedSeconds = Math.min(window.getSeconds(), now + 1);
+            return new RequestMetricsSnapshot(requests, errors,
+                    requests * 60.0 / elapsedSeconds,
+                    requests == 0 ? 0 : latencyMicros / 1000.0 / requests,
+                    LatencyHistogram.quantile(buckets, histogramTotal, 0.50) / 1000.0,
+                    LatencyHistogram.quantile(buckets, histogramTotal, 0.95) / 1000.0,
+                    LatencyHistogram.quantile(buckets, histogramTotal, 0.99) / 1000.0);
+        }
+    }
+}
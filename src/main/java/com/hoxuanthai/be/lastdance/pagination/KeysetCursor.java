@@ -0,0 +1,39 @@
+package com.hoxuanthai.be.lastdance.pagination;
+
+import com.hoxuanthai.be.lastdance.exceptions.InvalidCursorException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Continuation token cho keyset pagination của danh sách quản trị (users, devices).
+ * Chứa khóa sắp xếp, giá trị khóa và id của dòng cuối cùng của trang trước, mã hóa base64url
+ * để client coi như chuỗi không trong suốt.
+ */
+public record KeysetCursor(KeysetSortKey sortKey, String lastValue, long lastId) {
+
+    public static KeysetCursor of(KeysetSortKey sortKey, Object lastValue, long lastId) {
+        return new KeysetCursor(sortKey, sortKey.format(lastValue), lastId);
+    }
+
+    public String encode() {
+        String raw = sortKey.name() + "|" + lastId + "|" + lastValue;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @param expected Khóa sắp xếp của request, phải trùng với khóa lúc tạo token.
+     * @throws InvalidCursorException nếu token không hợp lệ hoặc được tạo cho khóa sắp xếp khác.
+     */
+    public static KeysetCursor decode(String token, KeysetSortKey expected) {
+        try {
+            String[] parts = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8).split("\\|", 3);
+            if (parts.length != 3 || !expected.name().equals(parts[0])) {
+                throw new InvalidCursorException("Invalid cursor");
+            }
+            return new KeysetCursor(expected, parts[2], Long.parseLong(parts[1]));
+        } catch (IllegalArgumentException e) {
+            throw new InvalidCursorException("Invalid cursor");
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.hoxuanthai.be.lastdance.pagination;
+
+import com.hoxuanthai.be.lastdance.exceptions.InvalidCursorException;
+import jakarta.persistence.Query;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.Set;
+
+/**
+ * Các khóa sắp xếp được hỗ trợ bởi keyset pagination của danh sách quản trị.
+ * Thứ tự luôn là (khóa, id) tăng dần, id phá hòa khi nhiều dòng có cùng giá trị khóa,
+ * nên trang tiếp theo là các dòng có (khóa, id) lớn hơn dòng cuối cùng của trang trước.
+ */
+@Getter
+@RequiredArgsConstructor
+public enum KeysetSortKey {
+
+    ID("id", Long.class),
+    USERNAME("username", String.class),
+    DEVICE_UUID("deviceUuid", String.class),
+    DEVICE_NAME("deviceName", String.class),
+    CREATED_AT("createdAt", LocalDateTime.class);
+
+    private final String property;
+
+    private final Class<?> type;
+
+    /**
+     * @throws InvalidCursorException nếu {@code property} không thuộc {@code allowed}.
+     */
+    public static KeysetSortKey of(String property, Set<KeysetSortKey> allowed) {
+        for (KeysetSortKey key : allowed) {
+            if (key.property.equals(property)) {
+                return key;
+            }
+        }
+        throw new InvalidCursorException("Unsupported sort key for cursor pagination: " + property);
+    }
+
+    public String path(String alias) {
+        return alias + "." + property;
+    }
+
+    /**
+     * Điều kiện JPQL chọn các dòng sau con trỏ, dùng tham số :lastValue và :lastId.
+     */
+    public String after(String alias) {
+        if (this == ID) {
+            return " AND " + alias + ".id > :lastId";
+        }
+        return " AND (" + path(alias) + " > :lastValue OR (" + path(alias) + " = :lastValue AND "
+                + alias + ".id > :lastId))";
+    }
+
+    public String orderBy(String alias) {
+        return this == ID ? " ORDER BY " + alias + ".id" : " ORDER BY " + path(alias) + ", " + alias + ".id";
+    }
+
+    public void bind(Query query, KeysetCursor cursor) {
+        query.setParameter("lastId", cursor.lastId());
+        if (this != ID) {
+            query.setParameter("lastValue", parse(cursor.lastValue()));
+        }
+    }
+
+    String format(Object value) {
+        return value.toString();
+    }
+
+    private Object parse(String value) {
+        try {
+            if (type == Long.class) {
+                return Long.parseLong(value);
+            }
+            if (type == LocalDateTime.class) {
+                return LocalDateTime.parse(value);
+            }
+            return value;
+        } catch (RuntimeException e) {
+            throw new InvalidCursorException("Invalid cursor");
+        }
+    }
+}
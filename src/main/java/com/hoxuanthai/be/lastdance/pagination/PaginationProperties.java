@@ -0,0 +1,20 @@
+package com.hoxuanthai.be.lastdance.pagination;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Getter
+@Setter
+@Configuration
+@ConfigurationProperties(prefix = "pagination")
+public class PaginationProperties {
+
+    private int maxPageSize = 100;
+
+    // Thời gian dùng lại tổng số dòng của danh sách, thay vì COUNT(*) ở mỗi trang
+    private Duration totalCountTtl = Duration.ofMinutes(1);
+}
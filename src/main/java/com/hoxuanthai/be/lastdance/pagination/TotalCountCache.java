@@ -0,0 +1,37 @@
+package com.hoxuanthai.be.lastdance.pagination;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.stereotype.Component;
+
+import java.util.function.Supplier;
+
+/**
+ * Tổng số dòng của các danh sách phân trang, dùng lại trong {@code pagination.total-count-ttl}
+ * thay vì chạy COUNT(*) ở mỗi trang. Con số có thể lệch với dữ liệu mới nhất trong khoảng thời gian đó.
+ */
+@Component
+public class TotalCountCache {
+
+    private final Cache<String, Long> counts;
+
+    public TotalCountCache(PaginationProperties paginationProperties) {
+        this.counts = Caffeine.newBuilder()
+                .expireAfterWrite(paginationProperties.getTotalCountTtl())
+                .build();
+    }
+
+    /**
+     * Không dùng {@link Cache#get} để truy vấn database không chạy khi đang giữ lock của cache.
+     */
+    public long get(String list, Supplier<Long> counter) {
+        Long cached = counts.getIfPresent(list);
+        if (cached != null) {
+            return cached;
+        }
+        Long count = counter.get();
+        long total = count != null ? count : 0;
+        counts.put(list, total);
+        return total;
+    }
+}
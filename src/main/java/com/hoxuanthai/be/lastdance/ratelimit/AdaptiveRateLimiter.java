@@ -0,0 +1,92 @@
+package com.hoxuanthai.be.lastdance.ratelimit;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Điều chỉnh tốc độ làm mới của các limit adaptive (AIMD) theo tải của đường ghi dữ liệu sức khỏe.
+ * <p>
+ * Sau mỗi {@code rate-limit.adaptive.interval}, nếu thời gian flush trung bình của hàng đợi ghi, số thread chờ
+ * kết nối Hikari hoặc độ sâu hàng đợi vượt ngưỡng thì hệ số tải bị nhân với {@code decrease-factor};
+ * ngược lại hệ số được cộng thêm {@code increase-step} cho đến khi về 1. Capacity không đổi nên client
+ * gửi ít vẫn dùng được token đã tích lũy, chỉ tốc độ hồi token chung bị giảm.
+ */
+@Slf4j
+@Component
+public class AdaptiveRateLimiter {
+
+    private final RateLimitConfigurations configurations;
+
+    private final RateLimitProperties.Adaptive properties;
+
+    private final MeterRegistry meterRegistry;
+
+    private long lastFlushCount;
+
+    private double lastFlushTotalNanos;
+
+    public AdaptiveRateLimiter(RateLimitConfigurations configurations, RateLimitProperties rateLimitProperties,
+                               MeterRegistry meterRegistry) {
+        this.configurations = configurations;
+        this.properties = rateLimitProperties.getAdaptive();
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Scheduled(fixedDelayString = "${rate-limit.adaptive.interval:5s}")
+    void adjust() {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        double flushLatencyNanos = averageFlushLatencyNanos();
+        double pendingConnections = sumGauges("hikaricp.connections.pending");
+        double queueDepth = sumGauges("ingest.queue.depth");
+
+        boolean overloaded = flushLatencyNanos > properties.getMaxFlushLatency().toNanos()
+                || pendingConnections > properties.getMaxPendingConnections()
+                || queueDepth > properties.getMaxQueueDepth();
+
+        double current = configurations.getLoadFactor();
+        double next = overloaded
+                ? Math.max(properties.getMinFactor(), current * properties.getDecreaseFactor())
+                : Math.min(1.0, current + properties.getIncreaseStep());
+        if (next != current) {
+            log.info("Adaptive rate limit factor {} -> {} (flush latency: {} ms, pending connections: {}, queue depth: {})",
+                    current, next, TimeUnit.NANOSECONDS.toMillis((long) flushLatencyNanos), pendingConnections, queueDepth);
+            configurations.setLoadFactor(next);
+        }
+    }
+
+    /**
+     * Thời gian flush trung bình kể từ lần kiểm tra trước, 0 nếu không có lần flush nào.
+     */
+    private double averageFlushLatencyNanos() {
+        Timer timer = meterRegistry.find("ingest.flush.latency").timer();
+        if (timer == null) {
+            return 0;
+        }
+        long count = timer.count();
+        double totalNanos = timer.totalTime(TimeUnit.NANOSECONDS);
+        long flushes = count - lastFlushCount;
+        double average = flushes > 0 ? (totalNanos - lastFlushTotalNanos) / flushes : 0;
+        lastFlushCount = count;
+        lastFlushTotalNanos = totalNanos;
+        return average;
+    }
+
+    private double sumGauges(String name) {
+        double sum = 0;
+        for (Gauge gauge : meterRegistry.find(name).gauges()) {
+            double value = gauge.value();
+            if (!Double.isNaN(value)) {
+                sum += value;
+            }
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,14 @@
+package com.hoxuanthai.be.lastdance.ratelimit;
+
+import io.github.bucket4j.Bucket;
+
+/**
+ * Nơi lưu và cấp bucket cho rate limiter.
+ */
+public interface BucketStore {
+
+    /**
+     * Lấy hoặc tạo bucket cho key
+     */
+    Bucket resolve(RateLimitType type, KeyType keyType, RateLimitKey key);
+}
@@ -0,0 +1,77 @@
+package com.hoxuanthai.be.lastdance.ratelimit;
+
+import io.github.bucket4j.Bucket;
+import io.github.bucket4j.TokensInheritanceStrategy;
+import io.github.bucket4j.distributed.ExpirationAfterWriteStrategy;
+import io.github.bucket4j.distributed.jdbc.PrimaryKeyMapper;
+import io.github.bucket4j.postgresql.Bucket4jPostgreSQL;
+import io.github.bucket4j.postgresql.PostgreSQLSelectForUpdateBasedProxyManager;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+/**
+ * Lưu bucket trong bảng {@code lastdance_rate_limit} của PostgreSQL để giới hạn được áp dụng chung cho mọi instance.
+ * <p>
+ * Mỗi lần consume là một transaction {@code SELECT ... FOR UPDATE} trên dòng của key, nên chỉ nên dùng
+ * cho các endpoint có tần suất thấp (đăng nhập, đồng bộ). Mỗi dòng có {@code expires_at} là thời điểm bucket
+ * đầy lại; các dòng đã hết hạn được xóa định kỳ vì bucket mới tạo lại cho kết quả như nhau.
+ */
+@Slf4j
+@Component
+public class JdbcBucketStore implements BucketStore {
+
+    private final PostgreSQLSelectForUpdateBasedProxyManager<String> proxyManager;
+
+    private final RateLimitProperties.Jdbc properties;
+
+    private final RateLimitConfigurations configurations;
+
+    private final Counter removedCounter;
+
+    public JdbcBucketStore(DataSource dataSource, RateLimitConfigurations configurations,
+                           RateLimitProperties rateLimitProperties, MeterRegistry meterRegistry) {
+        this.configurations = configurations;
+        this.properties = rateLimitProperties.getJdbc();
+        this.proxyManager = Bucket4jPostgreSQL.selectForUpdateBasedBuilder(dataSource)
+                .primaryKeyMapper(PrimaryKeyMapper.STRING)
+                .table(properties.getTable())
+                .expiresAtColumn("expires_at")
+                .expirationAfterWrite(ExpirationAfterWriteStrategy
+                        .basedOnTimeForRefillingBucketUpToMax(properties.getKeepAfterRefill()))
+                .requestTimeout(properties.getRequestTimeout())
+                .build();
+        this.removedCounter = Counter.builder("rate-limit.jdbc.expired.removed")
+                .description("Expired rate limit buckets removed from the database")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public Bucket resolve(RateLimitType type, KeyType keyType, RateLimitKey key) {
+        RateLimitConfigurations.Current current = configurations.get(type);
+        // Bucket lưu version cấu hình, Bucket4j tự thay cấu hình khi version hiện hành lớn hơn (adaptive)
+        return proxyManager.builder()
+                .withImplicitConfigurationReplacement(current.version(), TokensInheritanceStrategy.AS_IS)
+                .build(type.name() + ":" + keyType.name() + ":" + key, current::configuration);
+    }
+
+    /**
+     * Xóa các bucket đã hết hạn, mỗi lần tối đa {@code cleanup-batch-size} dòng cho đến khi hết.
+     */
+    @Scheduled(fixedDelayString = "${rate-limit.jdbc.cleanup-interval:5m}")
+    void removeExpired() {
+        try {
+            int removed;
+            do {
+                removed = proxyManager.removeExpired(properties.getCleanupBatchSize());
+                removedCounter.increment(removed);
+            } while (removed >= properties.getCleanupBatchSize());
+        } catch (Exception e) {
+            // Bảng chưa được tạo hoặc database tạm thời không truy cập được: thử lại ở lần sau
+            log.warn("Failed to remove expired rate limit buckets: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package com.hoxuanthai.be.lastdance.ratelimit;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.github.bucket4j.Bandwidth;
+import io.github.bucket4j.Bucket;
+import io.github.bucket4j.TokensInheritanceStrategy;
+import io.github.bucket4j.local.LocalBucketBuilder;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Lưu bucket trong bộ nhớ của instance hiện tại.
+ * <p>
+ * Bucket được chia theo cặp (RateLimitType, KeyType), mỗi cặp là một cache riêng với key là {@link RateLimitKey},
+ * nên việc tìm bucket không cần ghép chuỗi. Mỗi cache bị giới hạn bởi {@code rate-limit.local.maximum-size},
+ * và bucket không được dùng trong {@code rate-limit.local.idle-timeout} bị loại. Bucket bị loại khi đã đầy lại
+ * không làm thay đổi kết quả, vì bucket mới cũng bắt đầu đầy. Số bucket và số lần loại được xuất qua metric
+ * {@code cache.*} với tên "rate-limit-buckets" và tag type/keyBy.
+ */
+@Component
+public class LocalBucketStore implements BucketStore {
+
+    private final RateLimitConfigurations configurations;
+
+    private final Map<RateLimitType, Map<KeyType, Buckets>> buckets = new EnumMap<>(RateLimitType.class);
+
+    public LocalBucketStore(RateLimitConfigurations configurations, RateLimitProperties rateLimitProperties,
+                            MeterRegistry meterRegistry) {
+        this.configurations = configurations;
+        RateLimitProperties.Local properties = rateLimitProperties.getLocal();
+        for (RateLimitType type : RateLimitType.values()) {
+            Map<KeyType, Buckets> byKeyType = new EnumMap<>(KeyType.class);
+            for (KeyType keyType : KeyType.values()) {
+                Cache<RateLimitKey, VersionedBucket> cache = Caffeine.newBuilder()
+                        .maximumSize(properties.getMaximumSize())
+                        .expireAfterAccess(properties.getIdleTimeout())
+                        .recordStats()
+                        .build();
+                CaffeineCacheMetrics.monitor(meterRegistry, cache, "rate-limit-buckets",
+                        "type", type.name(), "keyBy", keyType.name());
+                byKeyType.put(keyType, new Buckets(cache, key -> newBucket(type)));
+            }
+            buckets.put(type, byKeyType);
+        }
+    }
+
+    @Override
+    public Bucket resolve(RateLimitType type, KeyType keyType, RateLimitKey key) {
+        Buckets entry = buckets.get(type).get(keyType);
+        VersionedBucket versioned = entry.cache().get(key, entry.factory());
+        RateLimitConfigurations.Current current = configurations.get(type);
+        if (versioned.version != current.version()) {
+            // Cấu hình đã thay đổi (adaptive): giữ nguyên số token hiện có, chỉ đổi tốc độ làm mới
+            versioned.bucket.replaceConfiguration(current.configuration(), TokensInheritanceStrategy.AS_IS);
+            versioned.version = current.version();
+        }
+        return versioned.bucket;
+    }
+
+    private VersionedBucket newBucket(RateLimitType type) {
+        RateLimitConfigurations.Current current = configurations.get(type);
+        LocalBucketBuilder builder = Bucket.builder();
+        for (Bandwidth bandwidth : current.configuration().getBandwidths()) {
+            builder.addLimit(bandwidth);
+        }
+        return new VersionedBucket(builder.build(), current.version());
+    }
+
+    private static final class VersionedBucket {
+
+        private final Bucket bucket;
+
+        private volatile long version;
+
+        private VersionedBucket(Bucket bucket, long version) {
+            this.bucket = bucket;
+            this.version = version;
+        }
+    }
+
+    private record Buckets(Cache<RateLimitKey, VersionedBucket> cache, Function<RateLimitKey, VersionedBucket> factory) {
+    }
+}
@@ -13,4 +13,5 @@ import java.lang.annotation.Target;
 public @interface RateLimit {
     RateLimitType type();
     KeyType keyBy() default KeyType.IP;
+    RateLimitBackend backend() default RateLimitBackend.LOCAL;
 }
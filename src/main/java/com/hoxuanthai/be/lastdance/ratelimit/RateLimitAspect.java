@@ -1,6 +1,8 @@
 package com.hoxuanthai.be.lastdance.ratelimit;
 
+import io.github.bucket4j.ConsumptionProbe;
 import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.aspectj.lang.ProceedingJoinPoint;
@@ -12,6 +14,8 @@ import org.springframework.stereotype.Component;
 import org.springframework.web.context.request.RequestContextHolder;
 import org.springframework.web.context.request.ServletRequestAttributes;
 
+import java.util.concurrent.TimeUnit;
+
 /**
  * Aspect xử lý giới hạn tần suất (rate limiting) cho các phương thức được chú thích bằng @RateLimit.
  */
@@ -21,63 +25,83 @@ import org.springframework.web.context.request.ServletRequestAttributes;
 @RequiredArgsConstructor
 public class RateLimitAspect {
 
+    public static final String REMAINING_HEADER = "RateLimit-Remaining";
+
+    private static final String BEARER_PREFIX = "Bearer ";
+
     private final RateLimitService rateLimitService;
 
     @Around("@annotation(rateLimit)")
     public Object checkRateLimit(ProceedingJoinPoint joinPoint, RateLimit rateLimit) throws Throwable {
-        String keyValue = resolveKeyValue(rateLimit.keyBy());
-        String key = rateLimitService.createKey(rateLimit.type(), rateLimit.keyBy(), keyValue);
+        ServletRequestAttributes attrs = (ServletRequestAttributes) RequestContextHolder.getRequestAttributes();
+        HttpServletRequest request = attrs != null ? attrs.getRequest() : null;
+        RateLimitKey key = resolveKey(rateLimit.keyBy(), request);
 
-        if (!rateLimitService.tryConsume(key, rateLimit.type())) {
-            log.warn("Rate limit exceeded - Type: {}, Key: {}, KeyValue: {}",
-                    rateLimit.type(), rateLimit.keyBy(), keyValue);
-            throw new RateLimitException(rateLimit.type());
+        ConsumptionProbe probe = rateLimitService.tryConsumeAndReturnRemaining(rateLimit.type(), rateLimit.keyBy(),
+                key, rateLimit.backend(), costUnits(joinPoint.getArgs()));
+        if (!probe.isConsumed()) {
+            log.warn("Rate limit exceeded - Type: {}, Key: {}, KeyValue: {}", rateLimit.type(), rateLimit.keyBy(), key);
+            // Làm tròn lên để client không thử lại trước khi có token
+            long retryAfterSeconds = Math.max(1, TimeUnit.NANOSECONDS.toSeconds(
+                    probe.getNanosToWaitForRefill() + TimeUnit.SECONDS.toNanos(1) - 1));
+            throw new RateLimitException(rateLimit.type(), retryAfterSeconds);
         }
 
+        HttpServletResponse response = attrs != null ? attrs.getResponse() : null;
+        if (response != null) {
+            response.setHeader(REMAINING_HEADER, Long.toString(probe.getRemainingTokens()));
+        }
         log.debug("Rate limit passed - Type: {}, Key: {}, Remaining: {}",
-                rateLimit.type(), key, rateLimitService.getAvailableTokens(key, rateLimit.type()));
+                rateLimit.type(), key, probe.getRemainingTokens());
 
         return joinPoint.proceed();
     }
 
-    private String resolveKeyValue(KeyType keyType) {
+    private long costUnits(Object[] args) {
+        long units = 0;
+        for (Object arg : args) {
+            if (arg instanceof RateLimitCost cost) {
+                units += cost.rateLimitUnits();
+            }
+        }
+        return units;
+    }
+
+    private RateLimitKey resolveKey(KeyType keyType, HttpServletRequest request) {
         return switch (keyType) {
-            case IP -> getClientIp();
-            case USER_ID -> getUserId();
-            case TOKEN -> getToken();
-            case ROLE -> getUserRole();
+            case IP -> RateLimitKey.ofAddress(getClientIp(request));
+            case USER_ID -> getUserId(request);
+            case TOKEN -> getToken(request);
+            case ROLE -> RateLimitKey.of(getUserRole());
         };
     }
 
-    private String getClientIp() {
-        HttpServletRequest request = getCurrentRequest();
+    private String getClientIp(HttpServletRequest request) {
         if (request == null) return "unknown";
 
         String xForwardedFor = request.getHeader("X-Forwarded-For");
         if (xForwardedFor != null && !xForwardedFor.isEmpty()) {
-            return xForwardedFor.split(",")[0].trim();
+            int comma = xForwardedFor.indexOf(',');
+            return (comma < 0 ? xForwardedFor : xForwardedFor.substring(0, comma)).trim();
         }
         return request.getRemoteAddr();
     }
 
-    private String getUserId() {
+    private RateLimitKey getUserId(HttpServletRequest request) {
         Authentication auth = SecurityContextHolder.getContext().getAuthentication();
         if (auth != null && auth.isAuthenticated() && !"anonymousUser".equals(auth.getPrincipal())) {
-            return auth.getName();
+            return RateLimitKey.of(auth.getName());
         }
-        return getClientIp(); // Fallback to IP if not authenticated
+        return RateLimitKey.ofAddress(getClientIp(request)); // Fallback to IP if not authenticated
     }
 
-    private String getToken() {
-        HttpServletRequest request = getCurrentRequest();
-        if (request == null) return getClientIp();
-
-        String authHeader = request.getHeader("Authorization");
-        if (authHeader != null && authHeader.startsWith("Bearer ")) {
-            // Dùng hash của token thay vì token đầy đủ
-            return String.valueOf(authHeader.hashCode());
+    private RateLimitKey getToken(HttpServletRequest request) {
+        String authHeader = request != null ? request.getHeader("Authorization") : null;
+        if (authHeader != null && authHeader.startsWith(BEARER_PREFIX)) {
+            // Dùng SHA-256 của token thay vì token đầy đủ
+            return RateLimitKey.of(authHeader.substring(BEARER_PREFIX.length()));
         }
-        return getClientIp(); // Fallback to IP
+        return RateLimitKey.ofAddress(getClientIp(request)); // Fallback to IP
     }
 
     private String getUserRole() {
@@ -87,9 +111,4 @@ public class RateLimitAspect {
         }
         return "ANONYMOUS";
     }
-
-    private HttpServletRequest getCurrentRequest() {
-        ServletRequestAttributes attrs = (ServletRequestAttributes) RequestContextHolder.getRequestAttributes();
-        return attrs != null ? attrs.getRequest() : null;
-    }
-}
\ No newline at end of file
+}
@@ -0,0 +1,16 @@
+package com.hoxuanthai.be.lastdance.ratelimit;
+
+/**
+ * Nơi lưu trạng thái bucket của rate limiter.
+ */
+public enum RateLimitBackend {
+    /**
+     * Bucket nằm trong bộ nhớ của từng instance, giới hạn theo số lượng và thời gian không hoạt động.
+     * Giới hạn được tính riêng cho mỗi instance.
+     */
+    LOCAL,
+    /**
+     * Bucket được lưu trong bảng lastdance_rate_limit của PostgreSQL, giới hạn được chia sẻ giữa các instance.
+     */
+    JDBC
+}
@@ -0,0 +1,96 @@
+package com.hoxuanthai.be.lastdance.ratelimit;
+
+import io.github.bucket4j.Bandwidth;
+import io.github.bucket4j.BucketConfiguration;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Cấu hình bucket hiện hành của từng {@link RateLimitType}, tạo từ {@code rate-limit.limits}.
+ * <p>
+ * Với các limit adaptive, tốc độ làm mới được nhân với một hệ số tải chung do {@link AdaptiveRateLimiter} cập nhật.
+ * Mỗi lần hệ số thay đổi, cấu hình mới được gắn version lớn hơn; bucket store so sánh version để thay cấu hình
+ * của bucket khi bucket được dùng lần tiếp theo, không phải duyệt lại toàn bộ bucket.
+ */
+@Component
+public class RateLimitConfigurations {
+
+    /**
+     * Cấu hình bucket kèm version, version tăng mỗi khi cấu hình của type thay đổi.
+     */
+    public record Current(BucketConfiguration configuration, long version) {
+    }
+
+    private static final RateLimitType[] TYPES = RateLimitType.values();
+
+    private final RateLimitProperties.Limit[] limits = new RateLimitProperties.Limit[TYPES.length];
+
+    private final AtomicReferenceArray<Current> current = new AtomicReferenceArray<>(TYPES.length);
+
+    private volatile double loadFactor = 1.0;
+
+    public RateLimitConfigurations(RateLimitProperties rateLimitProperties, MeterRegistry meterRegistry) {
+        for (RateLimitType type : TYPES) {
+            RateLimitProperties.Limit limit = rateLimitProperties.getLimits().get(type);
+            if (limit == null || limit.getCapacity() <= 0) {
+                throw new IllegalStateException("rate-limit.limits." + type.name() + ".capacity must be configured");
+            }
+            limits[type.ordinal()] = limit;
+            current.set(type.ordinal(), new Current(build(limit, 1.0), 1));
+        }
+        Gauge.builder("rate-limit.adaptive.factor", this, RateLimitConfigurations::getLoadFactor)
+                .description("Multiplier applied to the refill rate of adaptive rate limits")
+                .register(meterRegistry);
+    }
+
+    public Current get(RateLimitType type) {
+        return current.get(type.ordinal());
+    }
+
+    /**
+     * Số token cần consume cho request có {@code units} đơn vị, tối thiểu 1 và không vượt quá capacity
+     * để request lớn nhất vẫn có thể đi qua khi bucket đầy.
+     */
+    public long tokensFor(RateLimitType type, long units) {
+        RateLimitProperties.Limit limit = limits[type.ordinal()];
+        if (limit.getUnitsPerToken() <= 0 || units <= limit.getUnitsPerToken()) {
+            return 1;
+        }
+        long tokens = (units + limit.getUnitsPerToken() - 1) / limit.getUnitsPerToken();
+        return Math.min(tokens, limit.getCapacity());
+    }
+
+    public double getLoadFactor() {
+        return loadFactor;
+    }
+
+    /**
+     * Áp dụng hệ số tải mới cho các limit adaptive.
+     */
+    void setLoadFactor(double factor) {
+        if (factor == loadFactor) {
+            return;
+        }
+        loadFactor = factor;
+        for (RateLimitType type : TYPES) {
+            RateLimitProperties.Limit limit = limits[type.ordinal()];
+            if (limit.isAdaptive()) {
+                current.set(type.ordinal(), new Current(build(limit, factor), get(type).version() + 1));
+            }
+        }
+    }
+
+    private static BucketConfiguration build(RateLimitProperties.Limit limit, double factor) {
+        double refillFactor = limit.isAdaptive() ? factor : 1.0;
+        long refillTokens = Math.max(1, Math.round(limit.getRefillTokens() * refillFactor));
+        return BucketConfiguration.builder()
+                .addLimit(Bandwidth.builder()
+                        .capacity(limit.getCapacity())
+                        .refillGreedy(refillTokens, limit.getPeriod())
+                        .build())
+                .build();
+    }
+}
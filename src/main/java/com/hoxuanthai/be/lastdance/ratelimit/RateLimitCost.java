@@ -0,0 +1,12 @@
+package com.hoxuanthai.be.lastdance.ratelimit;
+
+/**
+ * Request body có chi phí rate limit phụ thuộc vào kích thước, ví dụ số điểm dữ liệu trong một lô đồng bộ.
+ * <p>
+ * Khi một tham số của phương thức có @RateLimit cài đặt interface này, số token bị trừ là
+ * {@code ceil(rateLimitUnits() / units-per-token)} thay vì 1 (xem {@link RateLimitProperties.Limit}).
+ */
+public interface RateLimitCost {
+
+    long rateLimitUnits();
+}
@@ -5,10 +5,10 @@ public class RateLimitException extends RuntimeException {
     private final RateLimitType rateLimitType;
     private final long retryAfterSeconds;
 
-    public RateLimitException(RateLimitType rateLimitType) {
+    public RateLimitException(RateLimitType rateLimitType, long retryAfterSeconds) {
         super("Rate limit exceeded for: " + rateLimitType.name());
         this.rateLimitType = rateLimitType;
-        this.retryAfterSeconds = rateLimitType.getDuration().getSeconds();
+        this.retryAfterSeconds = retryAfterSeconds;
     }
 
     public RateLimitType getRateLimitType() {
@@ -19,4 +19,3 @@ public class RateLimitException extends RuntimeException {
         return retryAfterSeconds;
     }
 }
-
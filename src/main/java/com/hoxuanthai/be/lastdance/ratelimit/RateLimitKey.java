@@ -0,0 +1,136 @@
+package com.hoxuanthai.be.lastdance.ratelimit;
+
+import com.hoxuanthai.be.lastdance.security.utils.TokenDigest;
+
+/**
+ * Giá trị key của một bucket dưới dạng 128 bit, thay cho chuỗi ghép từ IP/token.
+ * <p>
+ * Địa chỉ IP được parse thành số (IPv4 được ánh xạ vào IPv6 dạng ::ffff:a.b.c.d), các giá trị khác
+ * (token, username, role) được thay bằng 128 bit đầu của SHA-256 nên hai giá trị khác nhau không dùng chung bucket.
+ */
+public record RateLimitKey(long high, long low) {
+
+    private static final long IPV4_MAPPED_PREFIX = 0xFFFFL << 32;
+
+    /**
+     * @param address Địa chỉ IPv4 hoặc IPv6 dạng chuỗi. Giá trị không phải địa chỉ hợp lệ được băm như chuỗi thường.
+     */
+    public static RateLimitKey ofAddress(String address) {
+        long ipv4 = parseIpv4(address, 0, address.length());
+        if (ipv4 >= 0) {
+            return new RateLimitKey(0, IPV4_MAPPED_PREFIX | ipv4);
+        }
+        RateLimitKey ipv6 = parseIpv6(address);
+        return ipv6 != null ? ipv6 : of(address);
+    }
+
+    public static RateLimitKey of(String value) {
+        TokenDigest digest = TokenDigest.of(value);
+        return new RateLimitKey(digest.high(), digest.low());
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%016x%016x", high, low);
+    }
+
+    /**
+     * @return Địa chỉ IPv4 dạng số không dấu, hoặc -1 nếu s[start, end) không phải IPv4.
+     */
+    private static long parseIpv4(String s, int start, int end) {
+        long result = 0;
+        int octets = 0;
+        int i = start;
+        while (i < end) {
+            int octetStart = i;
+            int value = 0;
+            while (i < end && s.charAt(i) >= '0' && s.charAt(i) <= '9') {
+                value = value * 10 + (s.charAt(i) - '0');
+                if (++i - octetStart > 3) {
+                    return -1;
+                }
+            }
+            if (i == octetStart || value > 255 || ++octets > 4) {
+                return -1;
+            }
+            result = (result << 8) | value;
+            if (i < end) {
+                if (s.charAt(i) != '.' || i + 1 == end) {
+                    return -1;
+                }
+                i++;
+            }
+        }
+        return octets == 4 ? result : -1;
+    }
+
+    private static RateLimitKey parseIpv6(String s) {
+        int end = s.indexOf('%'); // bỏ zone id (fe80::1%eth0)
+        if (end < 0) {
+            end = s.length();
+        }
+        int[] groups = new int[8];
+        int count = 0;
+        int compressAt = -1;
+        int i = 0;
+        if (s.startsWith("::")) {
+            compressAt = 0;
+            i = 2;
+        }
+        while (i < end) {
+            if (count == 8) {
+                return null;
+            }
+            int groupStart = i;
+            int value = 0;
+            int digit;
+            while (i < end && (digit = Character.digit(s.charAt(i), 16)) >= 0) {
+                value = (value << 4) | digit;
+                i++;
+            }
+            if (i < end && s.charAt(i) == '.') {
+                // IPv4 nhúng ở cuối (::ffff:1.2.3.4) chiếm hai nhóm
+                long ipv4 = count <= 6 ? parseIpv4(s, groupStart, end) : -1;
+                if (ipv4 < 0) {
+                    return null;
+                }
+                groups[count++] = (int) (ipv4 >>> 16);
+                groups[count++] = (int) (ipv4 & 0xFFFF);
+                break;
+            }
+            if (i == groupStart || i - groupStart > 4) {
+                return null;
+            }
+            groups[count++] = value;
+            if (i == end) {
+                break;
+            }
+            if (s.charAt(i++) != ':' || i == end) {
+                return null;
+            }
+            if (s.charAt(i) == ':') {
+                if (compressAt >= 0) {
+                    return null;
+                }
+                compressAt = count;
+                i++;
+            }
+        }
+        if (compressAt < 0 ? count != 8 : count > 7) {
+            return null;
+        }
+
+        long high = 0;
+        long low = 0;
+        int zeros = 8 - count;
+        for (int group = 0, source = 0; group < 8; group++) {
+            int value = compressAt >= 0 && group >= compressAt && group < compressAt + zeros ? 0 : groups[source++];
+            if (group < 4) {
+                high = (high << 16) | value;
+            } else {
+                low = (low << 16) | value;
+            }
+        }
+        return new RateLimitKey(high, low);
+    }
+}
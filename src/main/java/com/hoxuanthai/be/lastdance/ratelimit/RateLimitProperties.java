@@ -0,0 +1,105 @@
+package com.hoxuanthai.be.lastdance.ratelimit;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+
+@Getter
+@Setter
+@Configuration
+@ConfigurationProperties(prefix = "rate-limit")
+public class RateLimitProperties {
+
+    // Giới hạn của từng RateLimitType, mọi type đều phải được cấu hình
+    private Map<RateLimitType, Limit> limits = new EnumMap<>(RateLimitType.class);
+
+    private Adaptive adaptive = new Adaptive();
+
+    private Local local = new Local();
+
+    private Jdbc jdbc = new Jdbc();
+
+    @Getter
+    @Setter
+    public static class Limit {
+
+        // Số token tối đa trong bucket
+        private long capacity;
+
+        // Số token được làm mới sau mỗi period (mặc định bằng capacity)
+        private Long refillTokens;
+
+        private Duration period = Duration.ofMinutes(1);
+
+        // Số đơn vị (điểm dữ liệu) tính là một token với request body cài đặt RateLimitCost; 0 = mỗi request một token
+        private long unitsPerToken;
+
+        // Tốc độ làm mới bị giảm khi hệ thống quá tải (xem Adaptive)
+        private boolean adaptive;
+
+        public long getRefillTokens() {
+            return refillTokens != null ? refillTokens : capacity;
+        }
+    }
+
+    /**
+     * Điều chỉnh tốc độ làm mới của các limit có adaptive = true theo kiểu AIMD:
+     * giảm theo cấp số nhân khi một ngưỡng bị vượt, tăng dần theo cấp số cộng khi mọi chỉ số đã ổn định.
+     */
+    @Getter
+    @Setter
+    public static class Adaptive {
+
+        private boolean enabled = true;
+
+        private Duration interval = Duration.ofSeconds(5);
+
+        // Thời gian flush trung bình của hàng đợi ghi (ingest.flush.latency) trong mỗi interval
+        private Duration maxFlushLatency = Duration.ofMillis(500);
+
+        // Số thread đang chờ kết nối Hikari (hikaricp.connections.pending)
+        private double maxPendingConnections = 2;
+
+        // Số điểm dữ liệu đang chờ trong hàng đợi ghi (ingest.queue.depth)
+        private double maxQueueDepth = 100_000;
+
+        private double decreaseFactor = 0.5;
+
+        private double increaseStep = 0.1;
+
+        private double minFactor = 0.1;
+    }
+
+    @Getter
+    @Setter
+    public static class Local {
+
+        // Số bucket tối đa trong bộ nhớ cho mỗi cặp (RateLimitType, KeyType), bucket ít dùng nhất bị loại trước
+        private long maximumSize = 100_000;
+
+        // Bucket không được dùng trong khoảng này bị loại; nên lớn hơn period của các limit
+        private Duration idleTimeout = Duration.ofMinutes(10);
+    }
+
+    @Getter
+    @Setter
+    public static class Jdbc {
+
+        private String table = "lastdance_rate_limit";
+
+        // Thời gian chờ tối đa cho một thao tác trên bucket trong database
+        private Duration requestTimeout = Duration.ofSeconds(2);
+
+        // Dòng đã hết hạn được giữ thêm khoảng này sau khi bucket đầy lại
+        private Duration keepAfterRefill = Duration.ofSeconds(10);
+
+        private Duration cleanupInterval = Duration.ofMinutes(5);
+
+        private int cleanupBatchSize = 1000;
+    }
+}
@@ -1,46 +1,43 @@
 package com.hoxuanthai.be.lastdance.ratelimit;
 
 import io.github.bucket4j.Bucket;
+import io.github.bucket4j.ConsumptionProbe;
+import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
-
 @Service
+@RequiredArgsConstructor
 public class RateLimitService {
 
-    private final Map<String, Bucket> buckets = new ConcurrentHashMap<>();
+    private final RateLimitConfigurations configurations;
 
-    /**
-     * Tạo key duy nhất cho mỗi bucket
-     */
-    public String createKey(RateLimitType type, KeyType keyType, String keyValue) {
-        return type.name() + ":" + keyType.name() + ":" + keyValue;
-    }
+    private final LocalBucketStore localBucketStore;
+
+    private final JdbcBucketStore jdbcBucketStore;
 
     /**
      * Lấy hoặc tạo bucket cho key
      */
-    public Bucket resolveBucket(String key, RateLimitType type) {
-        return buckets.computeIfAbsent(key, k -> Bucket.builder()
-                .addLimit(type.getBandwidth())
-                .build());
+    public Bucket resolveBucket(RateLimitType type, KeyType keyType, RateLimitKey key, RateLimitBackend backend) {
+        return storeOf(backend).resolve(type, keyType, key);
     }
 
     /**
-     * Kiểm tra và consume 1 token
-     * @return true nếu được phép, false nếu bị rate limit
+     * Consume token cho request có {@code units} đơn vị (xem {@link RateLimitCost}) và trả về kết quả cùng
+     * số token còn lại, chỉ với một lần tìm bucket (và một round-trip tới database với backend JDBC).
+     * @param units Kích thước request, 0 nếu request không có chi phí theo kích thước (trừ 1 token)
+     * @return probe với isConsumed() = false nếu bị rate limit
      */
-    public boolean tryConsume(String key, RateLimitType type) {
-        Bucket bucket = resolveBucket(key, type);
-        return bucket.tryConsume(1);
+    public ConsumptionProbe tryConsumeAndReturnRemaining(RateLimitType type, KeyType keyType, RateLimitKey key,
+                                                         RateLimitBackend backend, long units) {
+        return resolveBucket(type, keyType, key, backend)
+                .tryConsumeAndReturnRemaining(configurations.tokensFor(type, units));
     }
 
-    /**
-     * Lấy số token còn lại
-     */
-    public long getAvailableTokens(String key, RateLimitType type) {
-        Bucket bucket = resolveBucket(key, type);
-        return bucket.getAvailableTokens();
+    private BucketStore storeOf(RateLimitBackend backend) {
+        return switch (backend) {
+            case LOCAL -> localBucketStore;
+            case JDBC -> jdbcBucketStore;
+        };
     }
 }
@@ -1,26 +1,11 @@
 package com.hoxuanthai.be.lastdance.ratelimit;
 
-import io.github.bucket4j.Bandwidth;
-import lombok.Getter;
-import lombok.RequiredArgsConstructor;
-
-import java.time.Duration;
-
-@Getter
-@RequiredArgsConstructor
+/**
+ * Các loại giới hạn tần suất. Dung lượng và tốc độ làm mới được cấu hình trong
+ * {@code rate-limit.limits.<TYPE>} (xem {@link RateLimitProperties}).
+ */
 public enum RateLimitType {
 
-    LOGIN(5, Duration.ofMinutes(1)),
-    UPLOAD_HEALTH_DATA(10, Duration.ofMinutes(1));
-
-    private final int capacity; // Số lượt request tối đa
-    private final Duration duration; // Thời gian làm mới
-
-    // Phương thức để tạo Bandwidth từ thông tin của enum
-    public Bandwidth getBandwidth() {
-        return Bandwidth.builder()
-                .capacity(capacity)
-                .refillGreedy(capacity, duration)
-                .build();
-    }
+    LOGIN,
+    UPLOAD_HEALTH_DATA
 }
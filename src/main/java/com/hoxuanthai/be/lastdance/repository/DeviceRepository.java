@@ -1,7 +1,7 @@
 package com.hoxuanthai.be.lastdance.repository;
 
+import com.hoxuanthai.be.lastdance.dto.DeviceDto;
 import com.hoxuanthai.be.lastdance.entity.Device;
-import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
@@ -27,8 +27,10 @@ public interface DeviceRepository extends JpaRepository<Device, Long> {
     @Query("SELECT COUNT(d.id) FROM Device d WHERE d.user.id = ?1 AND d.isActive = true AND d.deleted = false")
     Long countActiveDevicesByUserId(Long userId);
 
-    @Query(value = "SELECT d FROM Device d WHERE d.deleted = false", countQuery = "SELECT COUNT(d) FROM Device d WHERE d.deleted = false")
-    Page<Device> findAllNotDeleted(Pageable pageable);
+    // Projection trong một truy vấn, tránh load User (EAGER) riêng cho từng thiết bị
+    @Query("SELECT new com.hoxuanthai.be.lastdance.dto.DeviceDto(d.id, d.deviceUuid, d.deviceName, d.isActive, u.id, u.username) " +
+            "FROM Device d JOIN d.user u WHERE d.deleted = false")
+    List<DeviceDto> findAllDtosNotDeleted(Pageable pageable);
 
     @Query("SELECT COUNT(d.id) FROM Device d WHERE d.deleted = false")
     Long countNotDeleted();
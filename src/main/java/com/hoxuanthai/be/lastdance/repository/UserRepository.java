@@ -1,11 +1,13 @@
 package com.hoxuanthai.be.lastdance.repository;
 
 import com.hoxuanthai.be.lastdance.entity.User;
-import org.springframework.data.domain.Page;
+import com.hoxuanthai.be.lastdance.security.dto.AuthenticatedPrincipal;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 public interface UserRepository extends JpaRepository<User, Long> {
@@ -13,6 +15,9 @@ public interface UserRepository extends JpaRepository<User, Long> {
 	@Query("SELECT u FROM User u LEFT JOIN FETCH u.devices WHERE u.username = ?1 AND u.deleted = false")
 	User findByUsername(String username);
 
+	@Query("SELECT new com.hoxuanthai.be.lastdance.security.dto.AuthenticatedPrincipal(u.id, u.username, u.userRole, u.enabled) FROM User u WHERE u.username = ?1 AND u.deleted = false")
+	AuthenticatedPrincipal findPrincipalByUsername(String username);
+
 	boolean existsByEmail(String email);
 
 	boolean existsByUsername(String username);
@@ -20,8 +25,12 @@ public interface UserRepository extends JpaRepository<User, Long> {
 	@Query("SELECT u FROM User u LEFT JOIN FETCH u.devices WHERE u.id = ?1 AND u.userRole = 'USER' AND u.deleted = false")
 	Optional<User> findByIdWithDevices(Long id);
 
-	@Query(value = "SELECT DISTINCT u FROM User u LEFT JOIN FETCH u.devices WHERE u.userRole = 'USER' AND u.deleted = false", countQuery = "SELECT COUNT(u) FROM User u WHERE u.userRole = 'USER' AND u.deleted = false")
-	Page<User> findAllWithDevices(Pageable pageable);
+	// Trang id trước, thiết bị được fetch sau bằng findAllWithDevicesByIdIn để LIMIT/OFFSET chạy trong database
+	@Query("SELECT u.id FROM User u WHERE u.userRole = 'USER' AND u.deleted = false")
+	List<Long> findUserIds(Pageable pageable);
+
+	@Query("SELECT DISTINCT u FROM User u LEFT JOIN FETCH u.devices WHERE u.id IN ?1")
+	List<User> findAllWithDevicesByIdIn(Collection<Long> ids);
 
 	@Query("SELECT COUNT(u.id) FROM User u WHERE u.userRole = 'USER' AND u.deleted = false")
 	Long countUser();
@@ -0,0 +1,15 @@
+package com.hoxuanthai.be.lastdance.security.dto;
+
+import com.hoxuanthai.be.lastdance.entity.UserRole;
+
+/**
+ * Thông tin tối thiểu của người dùng cần cho mỗi request đã xác thực.
+ */
+public record AuthenticatedPrincipal(Long userId, String username, UserRole userRole, boolean enabled) {
+
+	public AuthenticatedPrincipal(Long userId, String username, UserRole userRole, Boolean enabled) {
+
+		this(userId, username, userRole, Boolean.TRUE.equals(enabled));
+	}
+
+}
@@ -1,6 +1,7 @@
 package com.hoxuanthai.be.lastdance.security.jwt;
 
-import com.hoxuanthai.be.lastdance.security.service.UserDetailsServiceImpl;
+import com.hoxuanthai.be.lastdance.security.dto.AuthenticatedPrincipal;
+import com.hoxuanthai.be.lastdance.security.service.PrincipalCache;
 import com.hoxuanthai.be.lastdance.security.utils.SecurityConstants;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
@@ -10,14 +11,17 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.logging.log4j.util.Strings;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.context.SecurityContext;
 import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.User;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.stereotype.Service;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
+import java.util.Collections;
 import java.util.Objects;
 
 @Slf4j
@@ -27,7 +31,7 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
 	private final JwtTokenManager jwtTokenManager;
 
-	private final UserDetailsServiceImpl userDetailsService;
+	private final PrincipalCache principalCache;
 
 	@Override
 	protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
@@ -36,13 +40,15 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
 		final String header = request.getHeader(SecurityConstants.HEADER_STRING);
 
 		String username = null;
-		String authToken = null;
+		VerifiedToken verifiedToken = null;
 		if (Objects.nonNull(header) && header.startsWith(SecurityConstants.TOKEN_PREFIX)) {
 
-			authToken = header.replace(SecurityConstants.TOKEN_PREFIX, Strings.EMPTY);
+			final String authToken = header.replace(SecurityConstants.TOKEN_PREFIX, Strings.EMPTY);
 
 			try {
-				username = jwtTokenManager.getUsernameFromToken(authToken);
+				// Token is decoded and verified once per request (and once per token while it is cached)
+				verifiedToken = jwtTokenManager.verify(authToken);
+				username = verifiedToken.username();
 			}
 			catch (Exception e) {
 				log.error("Authentication Exception : {}", e.getMessage());
@@ -60,14 +66,17 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
 			return;
 		}
 
-		final UserDetails user = userDetailsService.loadUserByUsername(username);
-		final boolean validToken = jwtTokenManager.validateToken(authToken, user.getUsername());
+		// Cached projection of the user instead of loading the entity with its devices on every request
+		final AuthenticatedPrincipal principal = principalCache.get(username);
 
-		if (!validToken || !user.isEnabled()) {
+		if (Objects.isNull(principal) || !principal.enabled() || verifiedToken.isExpired()) {
 			chain.doFilter(request, response);
 			return;
 		}
 
+		final SimpleGrantedAuthority grantedAuthority = new SimpleGrantedAuthority("ROLE_" + principal.userRole().name());
+		final UserDetails user = new User(principal.username(), Strings.EMPTY, true, true, true, true, Collections.singletonList(grantedAuthority));
+
 		final UsernamePasswordAuthenticationToken authentication = new UsernamePasswordAuthenticationToken(user, null, user.getAuthorities());
 		authentication.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
 		securityContext.setAuthentication(authentication);
@@ -5,6 +5,8 @@ import lombok.Setter;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Configuration;
 
+import java.time.Duration;
+
 @Getter
 @Setter
 @Configuration
@@ -17,4 +19,10 @@ public class JwtProperties {
 
 	private long expirationMinute;
 
+	private long verifiedTokenCacheSize = 10_000;
+
+	private long principalCacheSize = 10_000;
+
+	private Duration principalCacheTtl = Duration.ofSeconds(60);
+
 }
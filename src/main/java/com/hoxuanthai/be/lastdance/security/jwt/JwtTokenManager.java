@@ -4,19 +4,49 @@ import com.auth0.jwt.JWT;
 import com.auth0.jwt.JWTVerifier;
 import com.auth0.jwt.algorithms.Algorithm;
 import com.auth0.jwt.interfaces.DecodedJWT;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
 import com.hoxuanthai.be.lastdance.entity.User;
 import com.hoxuanthai.be.lastdance.entity.UserRole;
-import lombok.RequiredArgsConstructor;
+import com.hoxuanthai.be.lastdance.security.utils.TokenDigest;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
 import org.springframework.stereotype.Component;
 
+import java.time.Duration;
+import java.time.Instant;
 import java.util.Date;
 
 @Component
-@RequiredArgsConstructor
 public class JwtTokenManager {
 
+	private static final String ROLE_CLAIM = "role";
+
 	private final JwtProperties jwtProperties;
 
+	private final Algorithm algorithm;
+
+	private final JWTVerifier jwtVerifier;
+
+	// Token đã xác thực, key theo digest của token, hết hạn đúng thời điểm exp của token
+	private final Cache<TokenDigest, VerifiedToken> verifiedTokens;
+
+	public JwtTokenManager(JwtProperties jwtProperties, MeterRegistry meterRegistry) {
+
+		this.jwtProperties = jwtProperties;
+		this.algorithm = Algorithm.HMAC256(jwtProperties.getSecretKey().getBytes());
+		this.jwtVerifier = JWT.require(algorithm).build();
+		//@formatter:off
+		this.verifiedTokens = Caffeine.newBuilder()
+				.maximumSize(jwtProperties.getVerifiedTokenCacheSize())
+				.expireAfter(Expiry.creating((TokenDigest digest, VerifiedToken token) -> Duration.between(Instant.now(), token.expiresAt())))
+				.recordStats()
+				.build();
+		//@formatter:on
+		CaffeineCacheMetrics.monitor(meterRegistry, verifiedTokens, "jwt.verified-tokens");
+	}
+
 	public String generateToken(User user) {
 
 		final String username = user.getUsername();
@@ -26,48 +56,43 @@ public class JwtTokenManager {
 		return JWT.create()
 				.withSubject(username)
 				.withIssuer(jwtProperties.getIssuer())
-				.withClaim("role", userRole.name())
+				.withClaim(ROLE_CLAIM, userRole.name())
 				.withIssuedAt(new Date())
 				.withExpiresAt(new Date(System.currentTimeMillis() + jwtProperties.getExpirationMinute() * 60 * 1000))
-				.sign(Algorithm.HMAC256(jwtProperties.getSecretKey().getBytes()));
+				.sign(algorithm);
 		//@formatter:on
 	}
 
-	public String getUsernameFromToken(String token) {
-
-		final DecodedJWT decodedJWT = getDecodedJWT(token);
-
-		return decodedJWT.getSubject();
-	}
-
-	public boolean validateToken(String token, String authenticatedUsername) {
-
-		final String usernameFromToken = getUsernameFromToken(token);
-
-		final boolean equalsUsername = usernameFromToken.equals(authenticatedUsername);
-		final boolean tokenExpired = isTokenExpired(token);
-
-		return equalsUsername && !tokenExpired;
-	}
-
-	private boolean isTokenExpired(String token) {
-
-		final Date expirationDateFromToken = getExpirationDateFromToken(token);
-		return expirationDateFromToken.before(new Date());
+	/**
+	 * Xác thực token và trả về các claim cần thiết. Mỗi token chỉ được giải mã và kiểm tra chữ ký
+	 * một lần, các request sau dùng kết quả trong cache cho đến khi token hết hạn.
+	 *
+	 * @throws com.auth0.jwt.exceptions.JWTVerificationException nếu token không hợp lệ hoặc đã hết hạn.
+	 */
+	public VerifiedToken verify(String token) {
+
+		final TokenDigest digest = TokenDigest.of(token);
+		final VerifiedToken cached = verifiedTokens.getIfPresent(digest);
+		if (cached != null && !cached.isExpired()) {
+			return cached;
+		}
+
+		final DecodedJWT decodedJWT = jwtVerifier.verify(token);
+		final VerifiedToken verifiedToken = new VerifiedToken(decodedJWT.getSubject(), decodedJWT.getClaim(ROLE_CLAIM).asString(), decodedJWT.getExpiresAtAsInstant());
+		verifiedTokens.put(digest, verifiedToken);
+		return verifiedToken;
 	}
 
-	private Date getExpirationDateFromToken(String token) {
-
-		final DecodedJWT decodedJWT = getDecodedJWT(token);
+	public String getUsernameFromToken(String token) {
 
-		return decodedJWT.getExpiresAt();
+		return verify(token).username();
 	}
 
-	private DecodedJWT getDecodedJWT(String token) {
+	public boolean validateToken(String token, String authenticatedUsername) {
 
-		final JWTVerifier jwtVerifier = JWT.require(Algorithm.HMAC256(jwtProperties.getSecretKey().getBytes())).build();
+		final VerifiedToken verifiedToken = verify(token);
 
-		return jwtVerifier.verify(token);
+		return verifiedToken.username().equals(authenticatedUsername) && !verifiedToken.isExpired();
 	}
 
 }
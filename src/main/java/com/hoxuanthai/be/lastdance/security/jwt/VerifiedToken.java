@@ -0,0 +1,15 @@
+package com.hoxuanthai.be.lastdance.security.jwt;
+
+import java.time.Instant;
+
+/**
+ * Các claim cần thiết của một JWT đã được xác thực chữ ký.
+ */
+public record VerifiedToken(String username, String role, Instant expiresAt) {
+
+	public boolean isExpired() {
+
+		return expiresAt.isBefore(Instant.now());
+	}
+
+}
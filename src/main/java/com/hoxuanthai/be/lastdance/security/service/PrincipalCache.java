@@ -0,0 +1,89 @@
+package com.hoxuanthai.be.lastdance.security.service;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.hoxuanthai.be.lastdance.repository.UserRepository;
+import com.hoxuanthai.be.lastdance.security.dto.AuthenticatedPrincipal;
+import com.hoxuanthai.be.lastdance.security.jwt.JwtProperties;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Cache username → {@link AuthenticatedPrincipal} để JwtAuthenticationFilter không phải truy vấn database ở mỗi request.
+ * <p>
+ * Entry hết hạn sau {@code jwt.principalCacheTtl}, và bị loại ngay khi trạng thái người dùng thay đổi
+ * (enable, disable, xóa, đổi mật khẩu, cập nhật thông tin).
+ * <p>
+ * Truy vấn database chạy trên virtual thread riêng, không chạy trong lock của cache: request chờ kết quả
+ * mà không giữ monitor nên không pin carrier thread khi pool kết nối đang bận.
+ */
+@Component
+public class PrincipalCache {
+
+	private final UserRepository userRepository;
+
+	private final ExecutorService executor;
+
+	private final AsyncCache<String, AuthenticatedPrincipal> principals;
+
+	public PrincipalCache(UserRepository userRepository, JwtProperties jwtProperties, MeterRegistry meterRegistry,
+						  @Qualifier("virtualThreadExecutor") ExecutorService executor) {
+
+		this.userRepository = userRepository;
+		this.executor = executor;
+		//@formatter:off
+		this.principals = Caffeine.newBuilder()
+				.maximumSize(jwtProperties.getPrincipalCacheSize())
+				.expireAfterWrite(jwtProperties.getPrincipalCacheTtl())
+				.recordStats()
+				.buildAsync();
+		//@formatter:on
+		CaffeineCacheMetrics.monitor(meterRegistry, principals, "principals");
+	}
+
+	/**
+	 * @return Principal của người dùng, hoặc null nếu người dùng không tồn tại hoặc đã bị xóa.
+	 */
+	public AuthenticatedPrincipal get(String username) {
+
+		// Kết quả null (người dùng không tồn tại) không được cache
+		try {
+			return principals.get(username, (key, ignored) ->
+					CompletableFuture.supplyAsync(() -> userRepository.findPrincipalByUsername(key), executor)).join();
+		} catch (CompletionException e) {
+			// Giữ nguyên exception của repository như khi truy vấn trực tiếp
+			if (e.getCause() instanceof RuntimeException cause) {
+				throw cause;
+			}
+			throw e;
+		}
+	}
+
+	/**
+	 * Loại principal khỏi cache sau khi transaction hiện tại commit, để request đồng thời không nạp lại trạng thái cũ.
+	 */
+	public void evict(String username) {
+
+		if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+			principals.synchronous().invalidate(username);
+			return;
+		}
+		TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+
+			@Override
+			public void afterCommit() {
+
+				principals.synchronous().invalidate(username);
+			}
+		});
+	}
+
+}
@@ -1,6 +1,7 @@
 package com.hoxuanthai.be.lastdance.security.service;
 
 import com.hoxuanthai.be.lastdance.dto.UserDto;
+import com.hoxuanthai.be.lastdance.dto.response.PageResponse;
 import com.hoxuanthai.be.lastdance.dto.response.UsersStats;
 import com.hoxuanthai.be.lastdance.entity.User;
 import com.hoxuanthai.be.lastdance.security.dto.AuthenticatedUserDto;
@@ -18,6 +19,8 @@ public interface UserService {
 
 	Page<UserDto> getAllUsers(int page, int size, String sortBy);
 
+	PageResponse<UserDto> getAllUsersAfter(String cursor, int size, String sortBy);
+
 	UserDto getUserById(Long userId);
 
 	UserDto getUserDetailByUsername(String username);
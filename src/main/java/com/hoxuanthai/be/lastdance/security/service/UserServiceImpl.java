@@ -1,10 +1,16 @@
 package com.hoxuanthai.be.lastdance.security.service;
 
 import com.hoxuanthai.be.lastdance.dto.UserDto;
+import com.hoxuanthai.be.lastdance.dto.response.PageResponse;
 import com.hoxuanthai.be.lastdance.dto.response.UsersStats;
 import com.hoxuanthai.be.lastdance.entity.User;
 import com.hoxuanthai.be.lastdance.entity.UserRole;
+import com.hoxuanthai.be.lastdance.exceptions.InvalidCursorException;
 import com.hoxuanthai.be.lastdance.exceptions.ResourceNotFoundException;
+import com.hoxuanthai.be.lastdance.pagination.KeysetCursor;
+import com.hoxuanthai.be.lastdance.pagination.KeysetSortKey;
+import com.hoxuanthai.be.lastdance.pagination.PaginationProperties;
+import com.hoxuanthai.be.lastdance.pagination.TotalCountCache;
 import com.hoxuanthai.be.lastdance.repository.UserRepository;
 import com.hoxuanthai.be.lastdance.security.dto.AuthenticatedUserDto;
 import com.hoxuanthai.be.lastdance.security.dto.RegistrationRequest;
@@ -13,15 +19,25 @@ import com.hoxuanthai.be.lastdance.security.mapper.UserMapper;
 import com.hoxuanthai.be.lastdance.service.S3StorageService;
 import com.hoxuanthai.be.lastdance.service.UserValidationService;
 import com.hoxuanthai.be.lastdance.utils.GeneralMessageAccessor;
-import jakarta.transaction.Transactional;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.TypedQuery;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
 
 @Slf4j
 @Service
@@ -30,6 +46,9 @@ public class UserServiceImpl implements UserService {
 
 	private static final String REGISTRATION_SUCCESSFUL = "registration_successful";
 
+	private static final Set<KeysetSortKey> USER_SORT_KEYS = EnumSet.of(KeysetSortKey.ID, KeysetSortKey.USERNAME,
+			KeysetSortKey.CREATED_AT);
+
 	private final UserRepository userRepository;
 
 	private final BCryptPasswordEncoder bCryptPasswordEncoder;
@@ -42,6 +61,14 @@ public class UserServiceImpl implements UserService {
 
 	private final S3StorageService s3StorageService;
 
+	private final PrincipalCache principalCache;
+
+	private final EntityManager entityManager;
+
+	private final TotalCountCache totalCountCache;
+
+	private final PaginationProperties paginationProperties;
+
 	@Override
 	public User findByUsername(String username) {
 
@@ -101,7 +128,73 @@ public class UserServiceImpl implements UserService {
 	@Override
 	public Page<UserDto> getAllUsers(int page, int size, String sortBy) {
 		Pageable pageable = PageRequest.of(page, size, Sort.by(sortBy).ascending());
-		return userRepository.findAllWithDevices(pageable).map(user -> userMapper.toDto(user));
+		List<UserDto> content = findUsersWithDevices(userRepository.findUserIds(pageable));
+		return new PageImpl<>(content, pageable, countUsers());
+	}
+
+	/**
+	 * Lấy một trang người dùng bằng keyset pagination: trang tiếp theo bắt đầu ngay sau dòng cuối cùng
+	 * của trang trước (theo {@code cursor}) nên chi phí không tăng theo độ sâu của trang như OFFSET.
+	 * Trang id được lấy trước, sau đó thiết bị của các người dùng trong trang được fetch bằng một truy vấn IN.
+	 *
+	 * @param cursor {@code nextCursor} của trang trước, null cho trang đầu tiên
+	 * @param size   kích thước trang, tối đa {@code pagination.max-page-size}
+	 * @param sortBy trường để sắp xếp: id, username hoặc createdAt
+	 * @return PageResponse<UserDto> chứa trang hiện tại và {@code nextCursor} (null ở trang cuối)
+	 * @throws InvalidCursorException nếu cursor không hợp lệ hoặc trường sắp xếp không được hỗ trợ
+	 */
+	@Override
+	public PageResponse<UserDto> getAllUsersAfter(String cursor, int size, String sortBy) {
+		KeysetSortKey sortKey = KeysetSortKey.of(sortBy, USER_SORT_KEYS);
+		int pageSize = Math.min(Math.max(size, 1), paginationProperties.getMaxPageSize());
+		KeysetCursor after = cursor != null && !cursor.isBlank() ? KeysetCursor.decode(cursor, sortKey) : null;
+
+		TypedQuery<Object[]> query = entityManager.createQuery("SELECT u.id, " + sortKey.path("u") + " " +
+				"FROM User u WHERE u.userRole = 'USER' AND u.deleted = false" +
+				(after != null ? sortKey.after("u") : "") + sortKey.orderBy("u"), Object[].class);
+		if (after != null) {
+			sortKey.bind(query, after);
+		}
+		// Một dòng thêm để biết còn trang sau hay không
+		List<Object[]> rows = query.setMaxResults(pageSize + 1).getResultList();
+		boolean hasMore = rows.size() > pageSize;
+		List<Object[]> pageRows = hasMore ? rows.subList(0, pageSize) : rows;
+
+		List<UserDto> content = findUsersWithDevices(pageRows.stream().map(row -> (Long) row[0]).toList());
+		Object[] last = hasMore ? pageRows.get(pageRows.size() - 1) : null;
+		long total = countUsers();
+		return PageResponse.<UserDto>builder()
+				.content(content)
+				.page(0)
+				.size(pageSize)
+				.totalElements(total)
+				.totalPages((int) ((total + pageSize - 1) / pageSize))
+				.first(after == null)
+				.last(!hasMore)
+				.nextCursor(last != null ? KeysetCursor.of(sortKey, last[1], (Long) last[0]).encode() : null)
+				.build();
+	}
+
+	/**
+	 * Fetch người dùng kèm thiết bị theo danh sách id, giữ nguyên thứ tự của {@code ids}.
+	 */
+	private List<UserDto> findUsersWithDevices(List<Long> ids) {
+		if (ids.isEmpty()) {
+			return List.of();
+		}
+		Map<Long, User> users = new HashMap<>();
+		for (User user : userRepository.findAllWithDevicesByIdIn(ids)) {
+			users.put(user.getId(), user);
+		}
+		return ids.stream()
+				.map(users::get)
+				.filter(Objects::nonNull)
+				.map(userMapper::toDto)
+				.toList();
+	}
+
+	private long countUsers() {
+		return totalCountCache.get("users", userRepository::countUser);
 	}
 
 	/**
@@ -148,6 +241,7 @@ public class UserServiceImpl implements UserService {
 				.orElseThrow(() -> new ResourceNotFoundException("User not found with Id: " + userDto.getId()));
 		User updatedUser = userMapper.updateEntity(userDto, existingUser);
 		User savedUser = userRepository.save(updatedUser);
+		principalCache.evict(existingUser.getUsername());
 		return userMapper.toDto(savedUser);
 	}
 
@@ -172,6 +266,7 @@ public class UserServiceImpl implements UserService {
 
 		user.setPassword(bCryptPasswordEncoder.encode(newPassword));
 		userRepository.save(user);
+		principalCache.evict(user.getUsername());
 		log.info("Password changed successfully for user with Id: {}", userId);
 	}
 
@@ -181,6 +276,7 @@ public class UserServiceImpl implements UserService {
 	 * @return UsersStats đối tượng chứa thống kê về người dùng
 	 */
 	@Override
+	@Transactional(readOnly = true)
 	public UsersStats getUsersStats() {
 		Long totalUsers = userRepository.countUser();
 		Long totalUsersActive = userRepository.countUserActive();
@@ -204,6 +300,7 @@ public class UserServiceImpl implements UserService {
 
 		user.setDeleted(true);
 		userRepository.save(user);
+		principalCache.evict(user.getUsername());
 	}
 
 	/**
@@ -235,6 +332,7 @@ public class UserServiceImpl implements UserService {
 				.orElseThrow(() -> new ResourceNotFoundException("User not found with Id: " + userId));
 		user.setEnabled(true);
 		userRepository.save(user);
+		principalCache.evict(user.getUsername());
 		log.info("User with Id: {} has been enabled", userId);
 	}
 
@@ -251,6 +349,7 @@ public class UserServiceImpl implements UserService {
 				.orElseThrow(() -> new ResourceNotFoundException("User not found with Id: " + userId));
 		user.setEnabled(false);
 		userRepository.save(user);
+		principalCache.evict(user.getUsername());
 		log.info("User with Id: {} has been disabled", userId);
 	}
 }
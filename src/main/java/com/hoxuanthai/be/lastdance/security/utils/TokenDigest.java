@@ -0,0 +1,30 @@
+package com.hoxuanthai.be.lastdance.security.utils;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * 128 bit đầu của SHA-256 (trên UTF-8) của một token, dùng làm key cho cache thay vì giữ nguyên chuỗi token.
+ * Không dùng US-ASCII: ký tự ngoài ASCII đều thành {@code ?} nên username như "hải" và "hái" sẽ trùng key.
+ */
+public record TokenDigest(long high, long low) {
+
+	public static TokenDigest of(String token) {
+
+		final ByteBuffer digest = ByteBuffer.wrap(sha256().digest(token.getBytes(StandardCharsets.UTF_8)));
+		return new TokenDigest(digest.getLong(), digest.getLong());
+	}
+
+	private static MessageDigest sha256() {
+
+		try {
+			return MessageDigest.getInstance("SHA-256");
+		}
+		catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException("SHA-256 is not available", e);
+		}
+	}
+
+}
@@ -10,8 +10,9 @@ import jakarta.persistence.Query;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
-import java.time.LocalDateTime;
+import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 
 @Slf4j
@@ -24,34 +25,33 @@ public class AdminServiceImpl implements AdminService {
     private final EntityManager entityManager;
 
     @Override
+    @Transactional(readOnly = true)
     public UserOverviewDto getUserOverview(Long userId) {
         // Get user info
         User user = userRepository.findById(userId)
                 .orElseThrow(() -> new ResourceNotFoundException("User not found with ID: " + userId));
 
-        // Calculate time range (last 7 days)
-        LocalDateTime endTime = LocalDateTime.now();
-        LocalDateTime startTime = endTime.minusDays(7);
+        // Last 7 days including today, read from the per-day summary instead of raw samples
+        LocalDate startDay = LocalDate.now().minusDays(6);
 
-        // Query for aggregated health statistics
+        // Averages over all samples of the period: SUM(sum) / SUM(count) of the daily rows
         String sql = "SELECT " +
-                "AVG(hd.heart_rate) AS avg_hr, " +
-                "AVG(hd.spo2) AS avg_spo2, " +
-                "AVG(hd.step_count) AS avg_steps, " +
-                "AVG(hd.calories_burned) AS avg_calories, " +
-                "AVG(hd.water_intake_ml) AS avg_water, " +
-                "AVG(hd.sleep_duration_minutes) AS avg_sleep, " +
-                "MAX(hd.timestamp) AS last_sync " +
-                "FROM health_data hd " +
-                "JOIN devices d ON hd.device_id = d.id " +
-                "WHERE d.user_id = :userId " +
-                "AND hd.timestamp >= :startTime " +
-                "AND hd.timestamp <= :endTime";
+                "SUM(s.heart_rate_sum) / NULLIF(SUM(s.heart_rate_count), 0) AS avg_hr, " +
+                "SUM(s.spo2_percent_sum) / NULLIF(SUM(s.spo2_percent_count), 0) AS avg_spo2, " +
+                "SUM(s.steps_count_sum) / NULLIF(SUM(s.steps_count_count), 0) AS avg_steps, " +
+                "SUM(s.calories_burned_sum) / NULLIF(SUM(s.calories_burned_count), 0) AS avg_calories, " +
+                "SUM(s.water_intake_ml_sum) / NULLIF(SUM(s.water_intake_ml_count), 0) AS avg_water, " +
+                "SUM(s.sleep_duration_minutes_sum) / NULLIF(SUM(s.sleep_duration_minutes_count), 0) AS avg_sleep, " +
+                "MAX(s.last_sync) AS last_sync, " +
+                "SUM(s.low_spo2_count) AS total_alerts, " +
+                "SUM(s.critical_spo2_count) AS high_severity_alerts " +
+                "FROM user_daily_summary s " +
+                "WHERE s.user_id = :userId " +
+                "AND s.day >= :startDay";
 
         Query query = entityManager.createNativeQuery(sql);
         query.setParameter("userId", userId);
-        query.setParameter("startTime", startTime);
-        query.setParameter("endTime", endTime);
+        query.setParameter("startDay", startDay);
 
         Object[] result = (Object[]) query.getSingleResult();
 
@@ -59,24 +59,6 @@ public class AdminServiceImpl implements AdminService {
         Long totalDevices = deviceRepository.countByUserId(userId);
         Long activeDevices = deviceRepository.countActiveDevicesByUserId(userId);
 
-        // Count alerts (assuming alert_score >= 0.5 is considered an alert)
-        String alertSql = "SELECT " +
-                "COUNT(*) AS total_alerts, " +
-                "COUNT(CASE WHEN hd.alert_score >= 0.8 THEN 1 END) AS high_severity_alerts " +
-                "FROM health_data hd " +
-                "JOIN devices d ON hd.device_id = d.id " +
-                "WHERE d.user_id = :userId " +
-                "AND hd.timestamp >= :startTime " +
-                "AND hd.timestamp <= :endTime " +
-                "AND hd.alert_score >= 0.5";
-
-        Query alertQuery = entityManager.createNativeQuery(alertSql);
-        alertQuery.setParameter("userId", userId);
-        alertQuery.setParameter("startTime", startTime);
-        alertQuery.setParameter("endTime", endTime);
-
-        Object[] alertResult = (Object[]) alertQuery.getSingleResult();
-
         // Build HealthSummary
         UserOverviewDto.HealthSummary healthSummary = UserOverviewDto.HealthSummary.builder()
                 .avgHeartRate(result[0] != null ? ((Number) result[0]).doubleValue() : 0.0)
@@ -87,8 +69,8 @@ public class AdminServiceImpl implements AdminService {
                 .avgSleepMinutes(result[5] != null ? ((Number) result[5]).doubleValue() : 0.0)
                 .totalDevices(totalDevices != null ? totalDevices.intValue() : 0)
                 .activeDevices(activeDevices != null ? activeDevices.intValue() : 0)
-                .totalAlerts(alertResult[0] != null ? ((Number) alertResult[0]).intValue() : 0)
-                .highSeverityAlerts(alertResult[1] != null ? ((Number) alertResult[1]).intValue() : 0)
+                .totalAlerts(result[7] != null ? ((Number) result[7]).intValue() : 0)
+                .highSeverityAlerts(result[8] != null ? ((Number) result[8]).intValue() : 0)
                 .lastSyncTime(result[6] != null ? ((java.sql.Timestamp) result[6]).toLocalDateTime()
                         .format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss")) : "Never")
                 .build();
@@ -1,51 +1,112 @@
 package com.hoxuanthai.be.lastdance.service;
 
+import com.hoxuanthai.be.lastdance.dashboard.DashboardProperties;
+import com.hoxuanthai.be.lastdance.dashboard.StaleWhileRevalidate;
 import com.hoxuanthai.be.lastdance.dto.response.*;
+import com.hoxuanthai.be.lastdance.metrics.MetricsWindow;
+import com.hoxuanthai.be.lastdance.metrics.RequestMetricsSnapshot;
+import com.hoxuanthai.be.lastdance.metrics.RollingRequestMetrics;
 import com.hoxuanthai.be.lastdance.security.service.UserService;
 import com.zaxxer.hikari.HikariDataSource;
 import com.zaxxer.hikari.HikariPoolMXBean;
 import io.micrometer.core.instrument.MeterRegistry;
-import io.micrometer.core.instrument.Timer;
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 
 import javax.sql.DataSource;
-import java.sql.Connection;
-import java.sql.ResultSet;
-import java.sql.Statement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
 
 @Slf4j
 @Service
-@RequiredArgsConstructor
 public class DashboardServiceImpl implements DashboardService {
 
     private final MeterRegistry meterRegistry;
-    private final UserService userService;
-    private final DeviceService deviceService;
+    private final RollingRequestMetrics requestMetrics;
     private final DataSource dataSource;
+    private final JdbcTemplate jdbcTemplate;
+    private final ExecutorService executor;
+    private final DashboardProperties properties;
+
+    // Các phần thống kê cần truy vấn database được giữ dạng snapshot và làm mới ở nền,
+    // nên nhiều admin cùng mở dashboard không làm tăng tải database
+    private final StaleWhileRevalidate<UsersStats> usersStats;
+    private final StaleWhileRevalidate<DevicesStats> devicesStats;
+    private final StaleWhileRevalidate<DatabaseStats> databaseStats;
+
+    public DashboardServiceImpl(MeterRegistry meterRegistry, RollingRequestMetrics requestMetrics,
+                                UserService userService, DeviceService deviceService, DataSource dataSource, JdbcTemplate jdbcTemplate,
+                                @Qualifier("virtualThreadExecutor") ExecutorService executor,
+                                DashboardProperties properties) {
+        this.meterRegistry = meterRegistry;
+        this.requestMetrics = requestMetrics;
+        this.dataSource = dataSource;
+        this.jdbcTemplate = jdbcTemplate;
+        this.executor = executor;
+        this.properties = properties;
+        this.usersStats = new StaleWhileRevalidate<>("users stats", userService::getUsersStats,
+                properties.getRefreshAfter(), executor);
+        this.devicesStats = new StaleWhileRevalidate<>("devices stats", deviceService::getDevicesStats,
+                properties.getRefreshAfter(), executor);
+        this.databaseStats = new StaleWhileRevalidate<>("database stats", this::loadDatabaseStats,
+                properties.getRefreshAfter(), executor);
+    }
 
     /**
      * Lấy thống kê tổng quan của hệ thống.
+     * <p>
+     * Các phần thống kê được lấy song song trên virtual thread, mỗi phần có thời gian chờ riêng
+     * ({@code dashboard.section-timeout}). Phần bị lỗi hoặc quá hạn được bỏ khỏi kết quả và liệt kê trong
+     * {@code unavailableSections} thay vì làm hỏng cả dashboard.
      *
      * @return DashboardStats chứa các thống kê về người dùng, thiết bị, máy chủ, cơ sở dữ liệu và sử dụng API.
      */
     @Override
     public DashboardStats getDashboardStats() {
-        UsersStats usersStats = getUsersStats();
-        DevicesStats devicesStats = getDevicesStats();
-        ServerStats serverStats = getServerStats();
-        DatabaseStats databaseStats = getDatabaseStats();
-        ApiUsageStats apiUsageStats = getApiUsageStats();
-
-        return DashboardStats.builder()
-                .usersStats(usersStats)
-                .devicesStats(devicesStats)
-                .serverStats(serverStats)
-                .databaseStats(databaseStats)
-                .apiUsageStats(apiUsageStats)
+        CompletableFuture<UsersStats> users = section("usersStats", this::getUsersStats);
+        CompletableFuture<DevicesStats> devices = section("devicesStats", this::getDevicesStats);
+        CompletableFuture<ServerStats> server = section("serverStats", this::getServerStats);
+        CompletableFuture<DatabaseStats> database = section("databaseStats", this::getDatabaseStats);
+        CompletableFuture<ApiUsageStats> apiUsage = section("apiUsageStats", this::getApiUsageStats);
+
+        CompletableFuture.allOf(users, devices, server, database, apiUsage).join();
+
+        List<String> unavailable = new ArrayList<>();
+        DashboardStats stats = DashboardStats.builder()
+                .usersStats(result("usersStats", users, unavailable))
+                .devicesStats(result("devicesStats", devices, unavailable))
+                .serverStats(result("serverStats", server, unavailable))
+                .databaseStats(result("databaseStats", database, unavailable))
+                .apiUsageStats(result("apiUsageStats", apiUsage, unavailable))
                 .build();
+        if (!unavailable.isEmpty()) {
+            stats.setUnavailableSections(unavailable);
+        }
+        return stats;
+    }
+
+    private <T> CompletableFuture<T> section(String name, Supplier<T> supplier) {
+        return CompletableFuture.supplyAsync(supplier, executor)
+                .orTimeout(properties.getSectionTimeout().toMillis(), TimeUnit.MILLISECONDS)
+                .exceptionally(e -> {
+                    log.warn("Dashboard section {} unavailable: {}", name, e.toString());
+                    return null;
+                });
+    }
+
+    private static <T> T result(String name, CompletableFuture<T> future, List<String> unavailable) {
+        T value = future.join();
+        if (value == null) {
+            unavailable.add(name);
+        }
+        return value;
     }
 
     /**
@@ -55,7 +116,7 @@ public class DashboardServiceImpl implements DashboardService {
      */
     @Override
     public UsersStats getUsersStats() {
-        return userService.getUsersStats();
+        return usersStats.get();
     }
 
     /**
@@ -65,7 +126,7 @@ public class DashboardServiceImpl implements DashboardService {
      */
     @Override
     public DevicesStats getDevicesStats() {
-        return deviceService.getDevicesStats();
+        return devicesStats.get();
     }
 
     /**
@@ -103,34 +164,41 @@ public class DashboardServiceImpl implements DashboardService {
         return (meter != null) ? meter.value() : 0.0;
     }
 
+    /**
+     * Lấy thống kê về cơ sở dữ liệu từ snapshot, được làm mới ở nền sau mỗi {@code dashboard.refresh-after}.
+     *
+     * @return DatabaseStats chứa trạng thái kết nối, thời gian phản hồi, kích thước pool và dung lượng database.
+     */
     @Override
     public DatabaseStats getDatabaseStats() {
+        return databaseStats.get();
+    }
+
+    private DatabaseStats loadDatabaseStats() {
         boolean isConnected = false;
         Double responseTimeMs = null;
         Long connectionPoolSize = null;
         Long activeConnections = null;
         Double databaseSizeGB = null;
 
-        long startTime = System.currentTimeMillis();
-
-        try (Connection connection = dataSource.getConnection()) {
-            isConnected = connection.isValid(5);
-            responseTimeMs = (double) (System.currentTimeMillis() - startTime);
-
-            if (dataSource instanceof HikariDataSource hikariDataSource) {
-                HikariPoolMXBean poolMXBean = hikariDataSource.getHikariPoolMXBean();
-                if (poolMXBean != null) {
-                    connectionPoolSize = (long) hikariDataSource.getMaximumPoolSize();
-                    activeConnections = (long) poolMXBean.getActiveConnections();
-                }
+        // Đọc trạng thái pool của primary từ MXBean, không cần mượn thêm kết nối
+        HikariDataSource hikariDataSource = primaryPool();
+        if (hikariDataSource != null) {
+            HikariPoolMXBean poolMXBean = hikariDataSource.getHikariPoolMXBean();
+            if (poolMXBean != null) {
+                connectionPoolSize = (long) hikariDataSource.getMaximumPoolSize();
+                activeConnections = (long) poolMXBean.getActiveConnections();
             }
+        }
 
-            try (Statement stmt = connection.createStatement();
-                 ResultSet rs = stmt.executeQuery("SELECT pg_database_size(current_database())")) {
-                if (rs.next()) {
-                    long sizeBytes = rs.getLong(1);
-                    databaseSizeGB = Math.round((double) sizeBytes / (1024 * 1024 * 1024) * 1000.0) / 1000.0;
-                }
+        long startTime = System.nanoTime();
+        try {
+            // Truy vấn dung lượng cũng là phép kiểm tra kết nối, thay cho Connection.isValid
+            Long sizeBytes = jdbcTemplate.queryForObject("SELECT pg_database_size(current_database())", Long.class);
+            responseTimeMs = (System.nanoTime() - startTime) / 1_000_000.0;
+            isConnected = true;
+            if (sizeBytes != null) {
+                databaseSizeGB = Math.round((double) sizeBytes / (1024 * 1024 * 1024) * 1000.0) / 1000.0;
             }
         } catch (Exception e) {
             log.error("Error getting database stats: {}", e.getMessage());
@@ -146,41 +214,32 @@ public class DashboardServiceImpl implements DashboardService {
                 .build();
     }
 
-    @Override
-    public ApiUsageStats getApiUsageStats() {
-
-        var timer = meterRegistry.find("http.server.requests").timer();
-
-        if (timer == null) {
-            return ApiUsageStats.builder()
-                    .requestsPerMinute(0L)
-                    .averageResponseTimeMs(0.0)
-                    .successRatePercentage(100.0)
-                    .build();
+    // DataSource có thể là proxy định tuyến primary/replica, ngoài transaction unwrap trả về pool của primary
+    private HikariDataSource primaryPool() {
+        try {
+            return dataSource.isWrapperFor(HikariDataSource.class) ? dataSource.unwrap(HikariDataSource.class) : null;
+        } catch (SQLException e) {
+            return null;
         }
+    }
 
+    /**
+     * Lấy thống kê sử dụng API trong cửa sổ trượt 1 phút (và tốc độ trung bình 5/15 phút).
+     *
+     * @return ApiUsageStats chứa số request mỗi phút, thời gian phản hồi trung bình, p50/p95/p99 và tỷ lệ thành công.
+     */
+    @Override
+    public ApiUsageStats getApiUsageStats() {
+        RequestMetricsSnapshot lastMinute = requestMetrics.snapshot(MetricsWindow.ONE_MINUTE);
         return ApiUsageStats.builder()
-                .requestsPerMinute(Math.round(timer.count() / (timer.totalTime(TimeUnit.MINUTES) > 0 ? timer.totalTime(TimeUnit.MINUTES) : 1)))
-                .averageResponseTimeMs(timer.mean(TimeUnit.MILLISECONDS))
-                .successRatePercentage(calculateSuccessRate())
+                .requestsPerMinute(Math.round(lastMinute.requestsPerMinute()))
+                .requestsPerMinute5m(requestMetrics.snapshot(MetricsWindow.FIVE_MINUTES).requestsPerMinute())
+                .requestsPerMinute15m(requestMetrics.snapshot(MetricsWindow.FIFTEEN_MINUTES).requestsPerMinute())
+                .averageResponseTimeMs(lastMinute.meanMs())
+                .p50ResponseTimeMs(lastMinute.p50Ms())
+                .p95ResponseTimeMs(lastMinute.p95Ms())
+                .p99ResponseTimeMs(lastMinute.p99Ms())
+                .successRatePercentage(lastMinute.successRatePercentage())
                 .build();
     }
-
-    // Helper method to calculate success rate
-    private Double calculateSuccessRate() {
-        // Lấy tổng số request (tất cả các status code)
-        var allRequests = meterRegistry.find("http.server.requests").timers();
-        long totalCount = allRequests.stream().mapToLong(Timer::count).sum();
-
-        if (totalCount == 0) return 100.0;
-
-        // Lấy số request thành công (thường là tag outcome="SUCCESS")
-        var successRequests = meterRegistry.find("http.server.requests")
-                .tag("outcome", "SUCCESS")
-                .timers();
-        long successCount = successRequests.stream().mapToLong(Timer::count).sum();
-
-        // Tính tỷ lệ phần trăm
-        return (double) successCount / totalCount * 100;
-    }
 }
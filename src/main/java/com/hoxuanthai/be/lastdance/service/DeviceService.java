@@ -2,12 +2,18 @@ package com.hoxuanthai.be.lastdance.service;
 
 import com.hoxuanthai.be.lastdance.dto.DeviceDto;
 import com.hoxuanthai.be.lastdance.dto.HealthDataDto;
+import com.hoxuanthai.be.lastdance.dto.HealthSeriesDto;
 import com.hoxuanthai.be.lastdance.dto.StatisticsDto;
+import com.hoxuanthai.be.lastdance.dto.response.PageResponse;
+import com.hoxuanthai.be.lastdance.dto.SyncResultDto;
 import com.hoxuanthai.be.lastdance.dto.response.DevicesStats;
+import com.hoxuanthai.be.lastdance.ingest.HealthBatchCodec;
 import org.springframework.data.domain.Page;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
 
 public interface DeviceService {
 
@@ -22,18 +28,32 @@ public interface DeviceService {
      */
     List<DeviceDto> getMyDevices();
 
-    void syncHealthData(HealthDataDto healthDataDto);
+    SyncResultDto syncHealthData(HealthDataDto healthDataDto);
+
+    SyncResultDto syncHealthData(HealthBatchCodec.Message message);
 
     HealthDataDto getHealthData(Long userId, String deviceUuid, LocalDateTime startDate, LocalDateTime endDate);
 
+    HealthBatchCodec.Message getHealthDataColumnar(Long userId, String deviceUuid, LocalDateTime startDate,
+                                                   LocalDateTime endDate);
+
+    StreamingResponseBody streamHealthData(Long userId, String deviceUuid, LocalDateTime startDate,
+                                           LocalDateTime endDate, String cursor, Integer limit);
+
     Page<DeviceDto> getAllDevices(int page, int size, String sortBy);
 
+    PageResponse<DeviceDto> getAllDevicesAfter(String cursor, int size, String sortBy);
+
     DevicesStats getDevicesStats();
 
     void removeDevice(String deviceUuid);
 
     StatisticsDto getHealthStatistics(String metric, String range);
 
+    Map<String, StatisticsDto> getHealthStatistics(List<String> metrics, String range);
+
+    HealthSeriesDto getHealthSeries(String metric, LocalDateTime from, LocalDateTime to, Integer points, boolean lttb);
+
     /**
      * Enable a device (set isActive to true)
      */
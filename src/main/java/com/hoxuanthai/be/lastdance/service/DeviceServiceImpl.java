@@ -1,52 +1,124 @@
 package com.hoxuanthai.be.lastdance.service;
 
-import com.hoxuanthai.be.lastdance.dto.DataPoint;
 import com.hoxuanthai.be.lastdance.dto.DeviceDto;
 import com.hoxuanthai.be.lastdance.dto.HealthDataDto;
+import com.hoxuanthai.be.lastdance.dto.HealthSeriesDto;
 import com.hoxuanthai.be.lastdance.dto.StatisticsDto;
+import com.hoxuanthai.be.lastdance.dto.SyncResultDto;
 import com.hoxuanthai.be.lastdance.dto.response.DevicesStats;
+import com.hoxuanthai.be.lastdance.dto.response.PageResponse;
+import com.hoxuanthai.be.lastdance.exceptions.InvalidCursorException;
+import com.hoxuanthai.be.lastdance.exceptions.InvalidStatisticsRequestException;
 import com.hoxuanthai.be.lastdance.exceptions.ResourceNotFoundException;
+import com.hoxuanthai.be.lastdance.export.HealthDataCursor;
+import com.hoxuanthai.be.lastdance.export.HealthDataExporter;
+import com.hoxuanthai.be.lastdance.ingest.HealthBatch;
+import com.hoxuanthai.be.lastdance.ingest.HealthBatchCodec;
+import com.hoxuanthai.be.lastdance.ingest.HealthDataIngestQueue;
+import com.hoxuanthai.be.lastdance.ingest.HealthDataWriter;
+import com.hoxuanthai.be.lastdance.ingest.IngestBatch;
 import com.hoxuanthai.be.lastdance.mapper.DeviceMapper;
+import com.hoxuanthai.be.lastdance.pagination.KeysetCursor;
+import com.hoxuanthai.be.lastdance.pagination.KeysetSortKey;
+import com.hoxuanthai.be.lastdance.pagination.PaginationProperties;
+import com.hoxuanthai.be.lastdance.pagination.TotalCountCache;
 import com.hoxuanthai.be.lastdance.entity.Device;
-import com.hoxuanthai.be.lastdance.entity.HealthData;
 import com.hoxuanthai.be.lastdance.entity.User;
 import com.hoxuanthai.be.lastdance.repository.DeviceRepository;
-import com.hoxuanthai.be.lastdance.repository.HealthDataRepository;
 import com.hoxuanthai.be.lastdance.repository.UserRepository;
+import com.hoxuanthai.be.lastdance.security.dto.AuthenticatedPrincipal;
+import com.hoxuanthai.be.lastdance.security.service.PrincipalCache;
+import com.hoxuanthai.be.lastdance.statistics.Lttb;
+import com.hoxuanthai.be.lastdance.statistics.SeriesResolution;
+import com.hoxuanthai.be.lastdance.statistics.StatisticsCache;
+import com.hoxuanthai.be.lastdance.statistics.StatisticsProperties;
+import com.hoxuanthai.be.lastdance.statistics.StatisticsRange;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.Query;
-import jakarta.transaction.Transactional;
-import lombok.RequiredArgsConstructor;
+import jakarta.persistence.TypedQuery;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
-import java.util.UUID;
+import java.util.Map;
+import java.util.Set;
+import java.util.StringJoiner;
 
 @Slf4j
 @Service
-@RequiredArgsConstructor
 public class DeviceServiceImpl implements DeviceService {
 
+    private static final Set<KeysetSortKey> DEVICE_SORT_KEYS = EnumSet.of(KeysetSortKey.ID,
+            KeysetSortKey.DEVICE_UUID, KeysetSortKey.DEVICE_NAME, KeysetSortKey.CREATED_AT);
+
     private final DeviceRepository deviceRepository;
 
     private final UserRepository userRepository;
 
-    private final HealthDataRepository healthDataRepository;
-
     private final DeviceMapper deviceMapper;
 
     private final EntityManager entityManager;
 
+    private final HealthDataWriter healthDataWriter;
+
+    private final HealthDataIngestQueue healthDataIngestQueue;
+
+    private final StatisticsProperties statisticsProperties;
+
+    private final StatisticsCache statisticsCache;
+
+    private final HealthDataExporter healthDataExporter;
+
+    private final PrincipalCache principalCache;
+
+    private final TotalCountCache totalCountCache;
+
+    private final PaginationProperties paginationProperties;
+
+    private final TransactionTemplate readOnlyTransaction;
+
+    public DeviceServiceImpl(DeviceRepository deviceRepository, UserRepository userRepository,
+                             DeviceMapper deviceMapper, EntityManager entityManager,
+                             HealthDataWriter healthDataWriter, HealthDataIngestQueue healthDataIngestQueue,
+                             StatisticsProperties statisticsProperties, StatisticsCache statisticsCache,
+                             HealthDataExporter healthDataExporter, PrincipalCache principalCache,
+                             TotalCountCache totalCountCache, PaginationProperties paginationProperties,
+                             PlatformTransactionManager transactionManager) {
+        this.deviceRepository = deviceRepository;
+        this.userRepository = userRepository;
+        this.deviceMapper = deviceMapper;
+        this.entityManager = entityManager;
+        this.healthDataWriter = healthDataWriter;
+        this.healthDataIngestQueue = healthDataIngestQueue;
+        this.statisticsProperties = statisticsProperties;
+        this.statisticsCache = statisticsCache;
+        this.healthDataExporter = healthDataExporter;
+        this.principalCache = principalCache;
+        this.totalCountCache = totalCountCache;
+        this.paginationProperties = paginationProperties;
+        // Thống kê chỉ mở transaction (và lấy connection) khi cache miss, không giữ connection khi đọc cache
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+    }
+
     /**
      * Đăng ký một thiết bị mới cho người dùng.
      *
@@ -122,38 +194,93 @@ public class DeviceServiceImpl implements DeviceService {
      * Đồng bộ hóa dữ liệu sức khỏe từ một thiết bị.
      * Phương thức này nhận dữ liệu sức khỏe, tìm thiết bị tương ứng bằng UUID,
      * và lưu các điểm dữ liệu sức khỏe vào cơ sở dữ liệu.
+     * Khi ingest.async.enabled=true, dữ liệu được đưa vào hàng đợi ghi bất đồng bộ
+     * và request trả về ngay mà không chờ database.
+     * <p>
+     * Đồng bộ là idempotent: lô có sequence đã được ghi nhận bị bỏ qua toàn bộ, các điểm dữ liệu
+     * đầu lô không mới hơn watermark của thiết bị bị bỏ qua trước khi gửi SQL, phần còn lại được
+     * ghi với ON CONFLICT (device_id, timestamp) DO NOTHING.
      *
      * @param healthDataDto Đối tượng chứa UUID của thiết bị và danh sách các điểm
      *                      dữ liệu sức khỏe.
-     * @return true nếu đồng bộ thành công, false nếu không tìm thấy thiết bị.
+     * @return SyncResultDto cho biết số điểm dữ liệu được nhận, bị bỏ qua và dữ liệu đã được ghi hay đang chờ ghi.
+     * @throws ResourceNotFoundException nếu không tìm thấy thiết bị.
      */
     @Override
-    @Transactional
-    public void syncHealthData(HealthDataDto healthDataDto) {
-
-        Device device = deviceRepository.findByDeviceUuid(healthDataDto.getDeviceUuid())
-                .orElseThrow(() -> new ResourceNotFoundException(
-                        "Device with UUID " + healthDataDto.getDeviceUuid() + " not found"));
-
-        List<HealthData> healthDataList = new ArrayList<>();
-        for (DataPoint datapoint : healthDataDto.getDataPoints()) {
-            HealthData healthData = HealthData.builder()
-                    .id(UUID.randomUUID()) // Generate a new UUID for each health data entry
-                    .device(device)
-                    .timestamp(datapoint.getTimestamp())
-                    .heartRate(datapoint.getHeartRate())
-                    .stepsCount(datapoint.getStepCount())
-                    .spo2Percent(datapoint.getSpo2())
-                    .caloriesBurned(datapoint.getCaloriesBurned())
-                    .waterIntakeMl(datapoint.getWaterIntakeMl())
-                    .activityStatus(datapoint.getActivityStatus())
-                    .sleepDurationMinutes(datapoint.getSleepDurationMinutes())
+    public SyncResultDto syncHealthData(HealthDataDto healthDataDto) {
+        return syncHealthData(healthDataDto.getDeviceUuid(), healthDataDto.getSequence(),
+                healthDataDto.getDataPoints());
+    }
+
+    /**
+     * Đồng bộ hóa dữ liệu sức khỏe gửi lên ở định dạng columnar ({@value HealthBatchCodec#MEDIA_TYPE}).
+     * Dữ liệu đã nằm sẵn trong mảng nguyên thủy nên được chuyển thẳng xuống tầng ghi.
+     *
+     * @param message Payload đã giải mã gồm UUID thiết bị, số thứ tự lô và các điểm dữ liệu.
+     * @return SyncResultDto như {@link #syncHealthData(HealthDataDto)}.
+     * @throws ResourceNotFoundException nếu không tìm thấy thiết bị.
+     */
+    @Override
+    public SyncResultDto syncHealthData(HealthBatchCodec.Message message) {
+        return syncHealthData(message.deviceUuid(), message.sequence(), message.batch());
+    }
+
+    private SyncResultDto syncHealthData(String deviceUuid, Long sequence, HealthBatch data) {
+        Device device = deviceRepository.findByDeviceUuid(deviceUuid)
+                .orElseThrow(() -> new ResourceNotFoundException("Device with UUID " + deviceUuid + " not found"));
+
+        LocalDateTime watermark = device.getLastDataTimestamp();
+
+        // Thiết bị gửi lại một lô đã được ghi nhận (ví dụ do mất phản hồi)
+        if (sequence != null && device.getLastSyncSequence() != null && sequence <= device.getLastSyncSequence()) {
+            return SyncResultDto.builder()
+                    .skippedPoints(data.size())
+                    .lastAcceptedTimestamp(watermark)
                     .build();
-            healthDataList.add(healthData);
         }
 
-        healthDataRepository.saveAll(healthDataList);
+        int skipped = countAcceptedPrefix(data, watermark);
+        HealthBatch newData = data.tail(skipped);
+        if (newData.isEmpty()) {
+            return SyncResultDto.builder()
+                    .skippedPoints(skipped)
+                    .lastAcceptedTimestamp(watermark)
+                    .build();
+        }
 
+        IngestBatch batch = new IngestBatch(device.getId(), device.getUser().getId(), sequence, newData);
+        if (healthDataIngestQueue.isEnabled()) {
+            healthDataIngestQueue.enqueue(batch);
+            return SyncResultDto.builder()
+                    .acceptedPoints(batch.size())
+                    .skippedPoints(skipped)
+                    .queued(true)
+                    .lastAcceptedTimestamp(watermark)
+                    .build();
+        }
+
+        int inserted = (int) healthDataWriter.write(List.of(batch));
+        LocalDateTime batchMax = batch.maxTimestamp();
+        return SyncResultDto.builder()
+                .acceptedPoints(inserted)
+                .skippedPoints(data.size() - inserted)
+                .lastAcceptedTimestamp(watermark == null || batchMax.isAfter(watermark) ? batchMax : watermark)
+                .build();
+    }
+
+    /**
+     * Đếm số điểm dữ liệu ở đầu lô không mới hơn watermark, tức là đã được ghi nhận ở lần đồng bộ trước.
+     */
+    private int countAcceptedPrefix(HealthBatch data, LocalDateTime watermark) {
+        if (watermark == null) {
+            return 0;
+        }
+        long watermarkMicros = HealthBatch.toMicros(watermark);
+        int count = 0;
+        while (count < data.size() && data.timestampMicros(count) <= watermarkMicros) {
+            count++;
+        }
+        return count;
     }
 
     /**
@@ -173,28 +300,69 @@ public class DeviceServiceImpl implements DeviceService {
         userRepository.findById(userId).orElseThrow(() -> new ResourceNotFoundException(""));
         Device device = deviceRepository.findByDeviceUuid(deviceUuid)
                 .orElseThrow(() -> new ResourceNotFoundException(""));
-        List<HealthData> healthDataList = healthDataRepository.findByDeviceAndTimestampBetween(device, startDate,
-                endDate);
-        List<DataPoint> dataPoints = new ArrayList<>();
-        for (HealthData healthData : healthDataList) {
-            DataPoint dataPoint = DataPoint.builder()
-                    .timestamp(healthData.getTimestamp())
-                    .heartRate(healthData.getHeartRate())
-                    .stepCount(healthData.getStepsCount())
-                    .spo2(healthData.getSpo2Percent())
-                    .caloriesBurned(healthData.getCaloriesBurned())
-                    .waterIntakeMl(healthData.getWaterIntakeMl())
-                    .activityStatus(healthData.getActivityStatus())
-                    .sleepDurationMinutes(healthData.getSleepDurationMinutes())
-                    .build();
-            dataPoints.add(dataPoint);
-        }
+        // Đọc thẳng vào mảng nguyên thủy thay vì tạo entity rồi DataPoint cho từng dòng
+        HealthBatch dataPoints = healthDataExporter.load(device.getId(), startDate, endDate);
         return HealthDataDto.builder()
                 .deviceUuid(deviceUuid)
                 .dataPoints(dataPoints)
                 .build();
     }
 
+    /**
+     * Lấy dữ liệu sức khỏe từ một thiết bị ở định dạng columnar ({@value HealthBatchCodec#MEDIA_TYPE}).
+     * Dữ liệu được đọc thẳng từ JDBC vào mảng nguyên thủy, không tạo entity hay DataPoint.
+     *
+     * @param userId     ID của người dùng sở hữu thiết bị.
+     * @param deviceUuid UUID của thiết bị.
+     * @param startDate  Thời điểm bắt đầu của khoảng thời gian.
+     * @param endDate    Thời điểm kết thúc của khoảng thời gian, mặc định là hiện tại.
+     * @return Payload columnar chứa các điểm dữ liệu trong khoảng thời gian.
+     * @throws ResourceNotFoundException nếu không tìm thấy người dùng hoặc thiết bị.
+     */
+    @Override
+    public HealthBatchCodec.Message getHealthDataColumnar(Long userId, String deviceUuid, LocalDateTime startDate,
+                                                          LocalDateTime endDate) {
+        userRepository.findById(userId).orElseThrow(() -> new ResourceNotFoundException("User not found"));
+        Device device = deviceRepository.findByDeviceUuid(deviceUuid)
+                .orElseThrow(() -> new ResourceNotFoundException("Device not found"));
+        if (!device.getUser().getId().equals(userId)) {
+            throw new ResourceNotFoundException("Device not found");
+        }
+        HealthBatch data = healthDataExporter.load(device.getId(), startDate,
+                endDate != null ? endDate : LocalDateTime.now());
+        return new HealthBatchCodec.Message(deviceUuid, null, data);
+    }
+
+    /**
+     * Xuất dữ liệu sức khỏe của một thiết bị dưới dạng NDJSON, đọc và ghi từng dòng với bộ nhớ không đổi.
+     * Người dùng, thiết bị và cursor được kiểm tra trước khi response bắt đầu được ghi.
+     *
+     * @param userId     ID của người dùng sở hữu thiết bị.
+     * @param deviceUuid UUID của thiết bị.
+     * @param startDate  Thời điểm bắt đầu của khoảng thời gian.
+     * @param endDate    Thời điểm kết thúc của khoảng thời gian, mặc định là hiện tại.
+     * @param cursor     Continuation token từ trang trước, null cho trang đầu tiên.
+     * @param limit      Số dòng tối đa của trang.
+     * @return StreamingResponseBody ghi dữ liệu ra response.
+     * @throws ResourceNotFoundException nếu không tìm thấy người dùng hoặc thiết bị.
+     */
+    @Override
+    public StreamingResponseBody streamHealthData(Long userId, String deviceUuid, LocalDateTime startDate,
+                                                  LocalDateTime endDate, String cursor, Integer limit) {
+        userRepository.findById(userId).orElseThrow(() -> new ResourceNotFoundException("User not found"));
+        Device device = deviceRepository.findByDeviceUuid(deviceUuid)
+                .orElseThrow(() -> new ResourceNotFoundException("Device not found"));
+        if (!device.getUser().getId().equals(userId)) {
+            throw new ResourceNotFoundException("Device not found");
+        }
+
+        Long deviceId = device.getId();
+        LocalDateTime endTime = endDate != null ? endDate : LocalDateTime.now();
+        HealthDataCursor healthDataCursor = cursor != null ? HealthDataCursor.decode(cursor) : null;
+        int pageSize = healthDataExporter.resolvePageSize(limit);
+        return out -> healthDataExporter.export(deviceId, startDate, endTime, healthDataCursor, pageSize, out);
+    }
+
     /**
      * Lấy tất cả các thiết bị với phân trang và sắp xếp.
      *
@@ -206,7 +374,57 @@ public class DeviceServiceImpl implements DeviceService {
     @Override
     public Page<DeviceDto> getAllDevices(int page, int size, String sortBy) {
         Pageable pageable = PageRequest.of(page, size, Sort.by(sortBy).ascending());
-        return deviceRepository.findAllNotDeleted(pageable).map(deviceMapper::toDto);
+        return new PageImpl<>(deviceRepository.findAllDtosNotDeleted(pageable), pageable, countDevices());
+    }
+
+    /**
+     * Lấy một trang thiết bị bằng keyset pagination: trang tiếp theo bắt đầu ngay sau dòng cuối cùng
+     * của trang trước (theo {@code cursor}) nên chi phí không tăng theo độ sâu của trang như OFFSET.
+     *
+     * @param cursor {@code nextCursor} của trang trước, null cho trang đầu tiên.
+     * @param size   Kích thước trang, tối đa {@code pagination.max-page-size}.
+     * @param sortBy Trường để sắp xếp: id, deviceUuid, deviceName hoặc createdAt.
+     * @return PageResponse chứa trang hiện tại và {@code nextCursor} (null ở trang cuối).
+     * @throws InvalidCursorException nếu cursor không hợp lệ hoặc trường sắp xếp không được hỗ trợ.
+     */
+    @Override
+    public PageResponse<DeviceDto> getAllDevicesAfter(String cursor, int size, String sortBy) {
+        KeysetSortKey sortKey = KeysetSortKey.of(sortBy, DEVICE_SORT_KEYS);
+        int pageSize = Math.min(Math.max(size, 1), paginationProperties.getMaxPageSize());
+        KeysetCursor after = cursor != null && !cursor.isBlank() ? KeysetCursor.decode(cursor, sortKey) : null;
+
+        TypedQuery<Object[]> query = entityManager.createQuery("SELECT d.id, d.deviceUuid, d.deviceName, " +
+                "d.isActive, u.id, u.username, " + sortKey.path("d") + " " +
+                "FROM Device d JOIN d.user u WHERE d.deleted = false" +
+                (after != null ? sortKey.after("d") : "") + sortKey.orderBy("d"), Object[].class);
+        if (after != null) {
+            sortKey.bind(query, after);
+        }
+        // Một dòng thêm để biết còn trang sau hay không
+        List<Object[]> rows = query.setMaxResults(pageSize + 1).getResultList();
+        boolean hasMore = rows.size() > pageSize;
+        List<Object[]> pageRows = hasMore ? rows.subList(0, pageSize) : rows;
+
+        List<DeviceDto> content = pageRows.stream()
+                .map(row -> new DeviceDto((Long) row[0], (String) row[1], (String) row[2], (Boolean) row[3],
+                        (Long) row[4], (String) row[5]))
+                .toList();
+        Object[] last = hasMore ? pageRows.get(pageRows.size() - 1) : null;
+        long total = countDevices();
+        return PageResponse.<DeviceDto>builder()
+                .content(content)
+                .page(0)
+                .size(pageSize)
+                .totalElements(total)
+                .totalPages((int) ((total + pageSize - 1) / pageSize))
+                .first(after == null)
+                .last(!hasMore)
+                .nextCursor(last != null ? KeysetCursor.of(sortKey, last[6], (Long) last[0]).encode() : null)
+                .build();
+    }
+
+    private long countDevices() {
+        return totalCountCache.get("devices", deviceRepository::countNotDeleted);
     }
 
     /**
@@ -216,6 +434,7 @@ public class DeviceServiceImpl implements DeviceService {
      *         bị không hoạt động.
      */
     @Override
+    @Transactional(readOnly = true)
     public DevicesStats getDevicesStats() {
         Long totalDevices = deviceRepository.countNotDeleted();
         Long activeDevices = deviceRepository.countActiveDevices();
@@ -237,74 +456,125 @@ public class DeviceServiceImpl implements DeviceService {
         deviceRepository.save(device);
     }
 
+    /**
+     * Lấy thống kê của một chỉ số sức khỏe cho người dùng hiện tại.
+     * Mặc định range=day được đọc từ continuous aggregate HEALTH_DATA_HOURLY (TimescaleDB tự ghép thêm
+     * phần dữ liệu thô chưa được materialize nên kết quả luôn bao gồm dữ liệu vừa đồng bộ), range=week được đọc
+     * từ USER_DAILY_SUMMARY, trễ tối đa {@code statistics.daily-summary.refresh-interval} so với dữ liệu thô.
+     * Kết quả được cache theo bucket hiện tại và bị loại khi có dữ liệu mới rơi vào cửa sổ thống kê; transaction
+     * read-only chỉ được mở khi cache miss.
+     *
+     * @param metric Chỉ số cần thống kê (calories, steps, water, hr, spo2, sleep).
+     * @param range  Khoảng thời gian: day (bucket theo giờ) hoặc week (bucket theo ngày).
+     * @return StatisticsDto chứa dữ liệu biểu đồ và các giá trị tổng hợp.
+     * @throws ResourceNotFoundException nếu không tìm thấy người dùng.
+     */
     @Override
     public StatisticsDto getHealthStatistics(String metric, String range) {
-        // Get current authenticated user
-        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
-        String username = auth.getName();
-        User user = userRepository.findByUsername(username);
-        if (user == null) {
-            throw new ResourceNotFoundException("User not found");
-        }
+        Long userId = currentUserId();
 
-        // Determine time range and bucket interval
-        LocalDateTime endTime = LocalDateTime.now();
-        LocalDateTime startTime;
-        String bucketInterval;
-        DateTimeFormatter labelFormatter;
-
-        if ("day".equalsIgnoreCase(range)) {
-            startTime = endTime.minusHours(24);
-            bucketInterval = "1 hour";
-            labelFormatter = DateTimeFormatter.ofPattern("HH:mm");
-        } else { // week
-            startTime = endTime.minusDays(7);
-            bucketInterval = "1 day";
-            labelFormatter = DateTimeFormatter.ofPattern("MM/dd");
-        }
+        // Window ends at the end of the current bucket so requests within one bucket share a cache entry
+        StatisticsRange statisticsRange = StatisticsRange.from(range);
+        LocalDateTime endTime = statisticsRange.alignedEnd(LocalDateTime.now());
 
         // Determine column name based on metric
         String columnName = getColumnNameForMetric(metric);
 
-        // Build TimescaleDB time_bucket query
-        // Note: time_bucket requires INTERVAL type, so we cast the parameter explicitly
-        String sql = "SELECT " +
-                "time_bucket(CAST(:interval AS INTERVAL), timestamp) AS bucket, " +
-                "AVG(" + columnName + ") AS avg_value " +
-                "FROM health_data hd " +
-                "JOIN devices d ON hd.device_id = d.id " +
-                "WHERE d.user_id = :userId " +
-                "AND hd.timestamp >= :startTime " +
-                "AND hd.timestamp <= :endTime " +
-                "AND " + columnName + " IS NOT NULL " +
-                "GROUP BY bucket " +
-                "ORDER BY bucket ASC";
+        return statisticsCache.get(userId, columnName, statisticsRange, endTime,
+                () -> readOnlyTransaction.execute(status ->
+                        computeHealthStatistics(userId, List.of(columnName), statisticsRange, endTime)
+                                .get(columnName)));
+    }
 
-        Query query = entityManager.createNativeQuery(sql);
-        query.setParameter("interval", bucketInterval);
-        query.setParameter("userId", user.getId());
-        query.setParameter("startTime", startTime);
+    /**
+     * Lấy thống kê của nhiều chỉ số sức khỏe cho người dùng hiện tại bằng một truy vấn duy nhất:
+     * mỗi chỉ số là một cột aggregate trong cùng một lần time_bucket, thay vì một request và một lần quét
+     * cho mỗi chỉ số như {@link #getHealthStatistics(String, String)}.
+     * Các chỉ số đã có trong cache không được tính lại.
+     *
+     * @param metrics Các chỉ số cần thống kê (calories, steps, water, hr, spo2, sleep).
+     * @param range   Khoảng thời gian: day (bucket theo giờ) hoặc week (bucket theo ngày).
+     * @return StatisticsDto của từng chỉ số, theo thứ tự yêu cầu.
+     * @throws InvalidStatisticsRequestException nếu không có chỉ số nào.
+     * @throws ResourceNotFoundException         nếu không tìm thấy người dùng.
+     */
+    @Override
+    public Map<String, StatisticsDto> getHealthStatistics(List<String> metrics, String range) {
+        if (metrics == null || metrics.isEmpty()) {
+            throw new InvalidStatisticsRequestException("At least one metric is required");
+        }
+        Map<String, String> columnByMetric = new LinkedHashMap<>();
+        for (String metric : metrics) {
+            columnByMetric.put(metric.toLowerCase(), getColumnNameForMetric(metric));
+        }
+
+        Long userId = currentUserId();
+        StatisticsRange statisticsRange = StatisticsRange.from(range);
+        LocalDateTime endTime = statisticsRange.alignedEnd(LocalDateTime.now());
+
+        Map<String, StatisticsDto> statisticsByColumn = statisticsCache.getAll(userId,
+                new LinkedHashSet<>(columnByMetric.values()), statisticsRange, endTime,
+                columns -> readOnlyTransaction.execute(status ->
+                        computeHealthStatistics(userId, columns, statisticsRange, endTime)));
+
+        Map<String, StatisticsDto> result = new LinkedHashMap<>();
+        columnByMetric.forEach((metric, columnName) -> result.put(metric, statisticsByColumn.get(columnName)));
+        return result;
+    }
+
+    /**
+     * Tính thống kê của các cột trong một lần quét, trả về StatisticsDto theo tên cột.
+     */
+    private Map<String, StatisticsDto> computeHealthStatistics(Long userId, List<String> columnNames,
+                                                               StatisticsRange range, LocalDateTime endTime) {
+        Query query;
+        if (range == StatisticsRange.WEEK && statisticsProperties.isUseDailySummary()) {
+            query = entityManager.createNativeQuery(buildDailySummaryStatisticsSql(columnNames));
+        } else {
+            query = entityManager.createNativeQuery(statisticsProperties.isUseContinuousAggregates()
+                    ? buildAggregateStatisticsSql(range.getAggregateView(), columnNames)
+                    : buildRawStatisticsSql(columnNames));
+            query.setParameter("interval", range.getBucketInterval());
+        }
+        query.setParameter("userId", userId);
+        query.setParameter("startTime", range.startOf(endTime));
         query.setParameter("endTime", endTime);
 
         @SuppressWarnings("unchecked")
         List<Object[]> results = query.getResultList();
 
-        // Process results
-        List<StatisticsDto.ChartDataPoint> chartData = new ArrayList<>();
+        // Process results, column i + 1 is the bucket average of columnNames[i] (null when the bucket has no value)
+        List<List<StatisticsDto.ChartDataPoint>> chartData = new ArrayList<>(columnNames.size());
+        for (int i = 0; i < columnNames.size(); i++) {
+            chartData.add(new ArrayList<>());
+        }
+        for (Object[] row : results) {
+            String label = ((java.sql.Timestamp) row[0]).toLocalDateTime().format(range.getLabelFormatter());
+            for (int i = 0; i < columnNames.size(); i++) {
+                if (row[i + 1] != null) {
+                    chartData.get(i).add(StatisticsDto.ChartDataPoint.builder()
+                            .value(((Number) row[i + 1]).doubleValue())
+                            .label(label)
+                            .build());
+                }
+            }
+        }
+
+        Map<String, StatisticsDto> statistics = new HashMap<>();
+        for (int i = 0; i < columnNames.size(); i++) {
+            statistics.put(columnNames.get(i), toStatistics(chartData.get(i)));
+        }
+        return statistics;
+    }
+
+    private StatisticsDto toStatistics(List<StatisticsDto.ChartDataPoint> chartData) {
         double sum = 0;
         double max = Double.MIN_VALUE;
         double min = Double.MAX_VALUE;
         int count = 0;
 
-        for (Object[] row : results) {
-            LocalDateTime bucket = ((java.sql.Timestamp) row[0]).toLocalDateTime();
-            Double value = ((Number) row[1]).doubleValue();
-
-            chartData.add(StatisticsDto.ChartDataPoint.builder()
-                    .value(value)
-                    .label(bucket.format(labelFormatter))
-                    .build());
-
+        for (StatisticsDto.ChartDataPoint point : chartData) {
+            double value = point.getValue();
             sum += value;
             max = Math.max(max, value);
             min = Math.min(min, value);
@@ -329,6 +599,263 @@ public class DeviceServiceImpl implements DeviceService {
                 .build();
     }
 
+    /**
+     * Build TimescaleDB time_bucket query over raw health data, one average per column.
+     * Note: time_bucket requires INTERVAL type, so we cast the parameter explicitly
+     */
+    private String buildRawStatisticsSql(List<String> columnNames) {
+        StringBuilder averages = new StringBuilder();
+        StringJoiner notNull = new StringJoiner(" OR ", "(", ")");
+        for (String columnName : columnNames) {
+            averages.append(", AVG(hd.").append(columnName).append(")");
+            notNull.add("hd." + columnName + " IS NOT NULL");
+        }
+        return "SELECT " +
+                "time_bucket(CAST(:interval AS INTERVAL), hd.timestamp) AS bucket" + averages + " " +
+                "FROM health_data hd " +
+                "JOIN devices d ON hd.device_id = d.id " +
+                "WHERE d.user_id = :userId " +
+                "AND hd.timestamp >= :startTime " +
+                "AND hd.timestamp < :endTime " +
+                "AND " + notNull + " " +
+                "GROUP BY bucket " +
+                "ORDER BY bucket ASC";
+    }
+
+    /**
+     * Build query over a continuous aggregate. The bucket containing startTime is included,
+     * and the per-bucket average over all devices is SUM(sum) / SUM(count), same as AVG over raw data.
+     */
+    private String buildAggregateStatisticsSql(String aggregateView, List<String> columnNames) {
+        StringBuilder averages = new StringBuilder();
+        StringJoiner hasValue = new StringJoiner(" OR ", "(", ")");
+        for (String columnName : columnNames) {
+            averages.append(", SUM(a.").append(columnName).append("_sum) / NULLIF(SUM(a.")
+                    .append(columnName).append("_count), 0)");
+            hasValue.add("a." + columnName + "_count > 0");
+        }
+        return "SELECT " +
+                "a.bucket AS bucket" + averages + " " +
+                "FROM " + aggregateView + " a " +
+                "JOIN devices d ON a.device_id = d.id " +
+                "WHERE d.user_id = :userId " +
+                "AND a.bucket >= time_bucket(CAST(:interval AS INTERVAL), CAST(:startTime AS TIMESTAMP)) " +
+                "AND a.bucket < :endTime " +
+                "AND " + hasValue + " " +
+                "GROUP BY a.bucket " +
+                "ORDER BY a.bucket ASC";
+    }
+
+    /**
+     * Build query over USER_DAILY_SUMMARY (one row per user and day, all devices already merged).
+     * The window of the week range is aligned to whole days, so it maps exactly onto summary days.
+     */
+    private String buildDailySummaryStatisticsSql(List<String> columnNames) {
+        StringBuilder averages = new StringBuilder();
+        StringJoiner hasValue = new StringJoiner(" OR ", "(", ")");
+        for (String columnName : columnNames) {
+            averages.append(", CAST(s.").append(columnName).append("_sum AS DOUBLE PRECISION) / NULLIF(s.")
+                    .append(columnName).append("_count, 0)");
+            hasValue.add("s." + columnName + "_count > 0");
+        }
+        return "SELECT " +
+                "CAST(s.day AS TIMESTAMP) AS bucket" + averages + " " +
+                "FROM user_daily_summary s " +
+                "WHERE s.user_id = :userId " +
+                "AND s.day >= CAST(:startTime AS DATE) " +
+                "AND s.day < CAST(:endTime AS DATE) " +
+                "AND " + hasValue + " " +
+                "ORDER BY s.day ASC";
+    }
+
+    /**
+     * Lấy chuỗi thống kê của một chỉ số trên khoảng thời gian tùy ý cho người dùng hiện tại.
+     * Độ rộng bucket được chọn theo số điểm yêu cầu, và dữ liệu được đọc từ nguồn tương ứng
+     * (HEALTH_DATA_DAILY, HEALTH_DATA_HOURLY hoặc dữ liệu thô, xem {@link SeriesResolution}),
+     * nên chi phí truy vấn phụ thuộc vào số điểm chứ không vào độ dài khoảng thời gian.
+     * <p>
+     * Với {@code lttb = true}, dữ liệu thô được giảm mẫu bằng LTTB để giữ lại các đỉnh của chuỗi.
+     * Khi khoảng thời gian chứa nhiều hơn {@code statistics.series.lttb-max-raw-points} điểm thô,
+     * kết quả là min/max/avg theo bucket như khi không dùng LTTB.
+     *
+     * @param metric Chỉ số cần thống kê (calories, steps, water, hr, spo2, sleep).
+     * @param from   Thời điểm bắt đầu (bao gồm).
+     * @param to     Thời điểm kết thúc (không bao gồm).
+     * @param points Số điểm tối đa mong muốn, mặc định {@code statistics.series.default-points}.
+     * @param lttb   Giảm mẫu dữ liệu thô bằng LTTB.
+     * @return HealthSeriesDto chứa các điểm theo thứ tự thời gian.
+     * @throws InvalidStatisticsRequestException nếu khoảng thời gian hoặc số điểm không hợp lệ.
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public HealthSeriesDto getHealthSeries(String metric, LocalDateTime from, LocalDateTime to, Integer points,
+                                           boolean lttb) {
+        StatisticsProperties.Series properties = statisticsProperties.getSeries();
+        int targetPoints = points != null ? points : properties.getDefaultPoints();
+        if (!from.isBefore(to)) {
+            throw new InvalidStatisticsRequestException("'from' must be before 'to'");
+        }
+        if (Duration.between(from, to).compareTo(properties.getMaxRange()) > 0) {
+            throw new InvalidStatisticsRequestException(
+                    "Range must not exceed " + properties.getMaxRange().toDays() + " days");
+        }
+        if (targetPoints < 2 || targetPoints > properties.getMaxPoints()) {
+            throw new InvalidStatisticsRequestException(
+                    "'points' must be between 2 and " + properties.getMaxPoints());
+        }
+
+        Long userId = currentUserId();
+        String columnName = getColumnNameForMetric(metric);
+
+        if (lttb) {
+            List<HealthSeriesDto.SeriesPoint> sampled = downsampleRawSeries(userId, columnName, from, to,
+                    targetPoints, properties.getLttbMaxRawPoints());
+            if (sampled != null) {
+                return HealthSeriesDto.builder()
+                        .metric(metric)
+                        .from(from)
+                        .to(to)
+                        .source(SeriesResolution.Tier.RAW.name())
+                        .downsampling("LTTB")
+                        .points(sampled)
+                        .build();
+            }
+        }
+
+        SeriesResolution resolution = SeriesResolution.choose(from, to, targetPoints,
+                statisticsProperties.isUseContinuousAggregates());
+        String sql = resolution.tier() == SeriesResolution.Tier.RAW
+                ? buildRawSeriesSql(columnName)
+                : buildAggregateSeriesSql(resolution.tier().getAggregateView(), columnName);
+
+        Query query = entityManager.createNativeQuery(sql);
+        query.setParameter("interval", resolution.interval());
+        query.setParameter("userId", userId);
+        query.setParameter("startTime", resolution.tier().align(from));
+        query.setParameter("endTime", to);
+
+        @SuppressWarnings("unchecked")
+        List<Object[]> results = query.getResultList();
+
+        List<HealthSeriesDto.SeriesPoint> seriesPoints = new ArrayList<>(results.size());
+        for (Object[] row : results) {
+            seriesPoints.add(HealthSeriesDto.SeriesPoint.builder()
+                    .timestamp(((java.sql.Timestamp) row[0]).toLocalDateTime())
+                    .value(((Number) row[1]).doubleValue())
+                    .min(((Number) row[2]).doubleValue())
+                    .max(((Number) row[3]).doubleValue())
+                    .count(((Number) row[4]).longValue())
+                    .build());
+        }
+
+        return HealthSeriesDto.builder()
+                .metric(metric)
+                .from(from)
+                .to(to)
+                .bucketSeconds(resolution.bucketWidth().toSeconds())
+                .source(resolution.tier().name())
+                .downsampling("BUCKET")
+                .points(seriesPoints)
+                .build();
+    }
+
+    /**
+     * Đọc dữ liệu thô của các thiết bị của người dùng và giảm mẫu bằng LTTB.
+     *
+     * @return Các điểm được chọn, hoặc null nếu khoảng thời gian chứa nhiều hơn {@code maxRawPoints} điểm.
+     */
+    private List<HealthSeriesDto.SeriesPoint> downsampleRawSeries(Long userId, String columnName,
+                                                                  LocalDateTime from, LocalDateTime to,
+                                                                  int targetPoints, int maxRawPoints) {
+        Query query = entityManager.createNativeQuery("SELECT hd.timestamp, " +
+                "CAST(hd." + columnName + " AS DOUBLE PRECISION) " +
+                "FROM health_data hd " +
+                "JOIN devices d ON hd.device_id = d.id " +
+                "WHERE d.user_id = :userId " +
+                "AND hd.timestamp >= :startTime " +
+                "AND hd.timestamp < :endTime " +
+                "AND hd." + columnName + " IS NOT NULL " +
+                "ORDER BY hd.timestamp ASC " +
+                "LIMIT :limit");
+        query.setParameter("userId", userId);
+        query.setParameter("startTime", from);
+        query.setParameter("endTime", to);
+        query.setParameter("limit", maxRawPoints + 1);
+
+        @SuppressWarnings("unchecked")
+        List<Object[]> results = query.getResultList();
+        if (results.size() > maxRawPoints) {
+            return null;
+        }
+
+        List<LocalDateTime> timestamps = new ArrayList<>(results.size());
+        double[] epochSeconds = new double[results.size()];
+        double[] values = new double[results.size()];
+        for (int i = 0; i < results.size(); i++) {
+            Object[] row = results.get(i);
+            LocalDateTime timestamp = ((java.sql.Timestamp) row[0]).toLocalDateTime();
+            timestamps.add(timestamp);
+            epochSeconds[i] = HealthBatch.toMicros(timestamp) / 1e6;
+            values[i] = ((Number) row[1]).doubleValue();
+        }
+        return Lttb.downsample(timestamps, epochSeconds, values, targetPoints);
+    }
+
+    /**
+     * Min/max/avg theo bucket trên dữ liệu thô.
+     */
+    private String buildRawSeriesSql(String columnName) {
+        return "SELECT " +
+                "time_bucket(CAST(:interval AS INTERVAL), hd.timestamp) AS bucket, " +
+                "AVG(hd." + columnName + ") AS avg_value, " +
+                "MIN(hd." + columnName + ") AS min_value, " +
+                "MAX(hd." + columnName + ") AS max_value, " +
+                "COUNT(hd." + columnName + ") AS value_count " +
+                "FROM health_data hd " +
+                "JOIN devices d ON hd.device_id = d.id " +
+                "WHERE d.user_id = :userId " +
+                "AND hd.timestamp >= :startTime " +
+                "AND hd.timestamp < :endTime " +
+                "AND hd." + columnName + " IS NOT NULL " +
+                "GROUP BY bucket " +
+                "ORDER BY bucket ASC";
+    }
+
+    /**
+     * Min/max/avg theo bucket trên continuous aggregate, gộp nhiều bucket của aggregate thành một bucket của chuỗi.
+     * Trung bình được tính bằng SUM(sum) / SUM(count) như trên dữ liệu thô.
+     */
+    private String buildAggregateSeriesSql(String aggregateView, String columnName) {
+        return "SELECT " +
+                "time_bucket(CAST(:interval AS INTERVAL), a.bucket) AS series_bucket, " +
+                "SUM(a." + columnName + "_sum) / SUM(a." + columnName + "_count) AS avg_value, " +
+                "MIN(a." + columnName + "_min) AS min_value, " +
+                "MAX(a." + columnName + "_max) AS max_value, " +
+                "SUM(a." + columnName + "_count) AS value_count " +
+                "FROM " + aggregateView + " a " +
+                "JOIN devices d ON a.device_id = d.id " +
+                "WHERE d.user_id = :userId " +
+                "AND a.bucket >= :startTime " +
+                "AND a.bucket < :endTime " +
+                "AND a." + columnName + "_count > 0 " +
+                "GROUP BY series_bucket " +
+                "ORDER BY series_bucket ASC";
+    }
+
+    /**
+     * Id của người dùng hiện tại, chỉ cần id vì thiết bị được join trong truy vấn thống kê.
+     *
+     * @throws ResourceNotFoundException nếu không tìm thấy người dùng.
+     */
+    private Long currentUserId() {
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        AuthenticatedPrincipal principal = principalCache.get(auth.getName());
+        if (principal == null) {
+            throw new ResourceNotFoundException("User not found");
+        }
+        return principal.userId();
+    }
+
     /**
      * Map metric parameter to database column name
      */
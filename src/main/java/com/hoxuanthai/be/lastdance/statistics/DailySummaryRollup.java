@@ -0,0 +1,226 @@
+package com.hoxuanthai.be.lastdance.statistics;
+
+import com.hoxuanthai.be.lastdance.ingest.HealthDataWrittenEvent;
+import com.hoxuanthai.be.lastdance.ingest.IngestBatch;
+import com.hoxuanthai.be.lastdance.lifecycle.LifecycleProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Array;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Duy trì bảng USER_DAILY_SUMMARY (thống kê theo ngày của từng người dùng).
+ * <p>
+ * Khi dữ liệu sức khỏe được ghi, các (user, ngày) bị ảnh hưởng được đánh dấu trong USER_DAILY_SUMMARY_DIRTY
+ * trong cùng transaction với lần ghi, nên không ngày nào bị bỏ sót kể cả khi ứng dụng dừng giữa chừng.
+ * Job định kỳ lấy các ngày đã đánh dấu ({@code FOR UPDATE SKIP LOCKED} để nhiều instance chạy song song)
+ * và tính lại chúng từ HEALTH_DATA; chi phí tỉ lệ với số ngày có dữ liệu mới chứ không với toàn bộ lịch sử.
+ * Sau mỗi lần tính lại, cache thống kê của các ngày đó bị loại.
+ * <p>
+ * Khi bật retention, ngày cũ hơn {@code lifecycle.retention.drop-after} không được tính lại: dữ liệu thô của ngày đó
+ * có thể đã bị xóa, nên vài điểm đến muộn sẽ ghi đè tổng hợp của cả ngày. Tổng hợp đã có được giữ nguyên.
+ */
+@Slf4j
+@Component
+public class DailySummaryRollup {
+
+    private static final String MARK_DIRTY_SQL = "INSERT INTO user_daily_summary_dirty (user_id, day) " +
+            "VALUES (?, ?) ON CONFLICT (user_id, day) DO NOTHING";
+
+    private static final String TAKE_DIRTY_SQL = "DELETE FROM user_daily_summary_dirty " +
+            "WHERE (user_id, day) IN (" +
+            "SELECT user_id, day FROM user_daily_summary_dirty ORDER BY marked_at LIMIT ? FOR UPDATE SKIP LOCKED) " +
+            "RETURNING user_id, day";
+
+    private static final String[] COLUMNS = {
+            "heart_rate", "steps_count", "spo2_percent", "calories_burned", "water_intake_ml", "sleep_duration_minutes"
+    };
+
+    private static final String REFRESH_SQL = buildRefreshSql();
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final StatisticsCache statisticsCache;
+
+    private final StatisticsProperties.DailySummary properties;
+
+    private final LifecycleProperties.Retention retention;
+
+    private final Counter refreshedCounter;
+
+    private final Counter expiredCounter;
+
+    public DailySummaryRollup(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+                              StatisticsCache statisticsCache, StatisticsProperties statisticsProperties,
+                              LifecycleProperties lifecycleProperties, MeterRegistry meterRegistry) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.statisticsCache = statisticsCache;
+        this.properties = statisticsProperties.getDailySummary();
+        this.retention = lifecycleProperties.getRetention();
+        this.refreshedCounter = Counter.builder("statistics.daily-summary.refreshed")
+                .description("User days recomputed in the daily health summary")
+                .register(meterRegistry);
+        this.expiredCounter = Counter.builder("statistics.daily-summary.expired")
+                .description("User days not recomputed because their raw health data is past retention")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Đánh dấu các ngày có dữ liệu vừa được ghi. Chạy đồng bộ trong transaction ghi dữ liệu
+     * (không dùng {@code @TransactionalEventListener}) để dấu và dữ liệu cùng commit hoặc cùng rollback.
+     */
+    @EventListener
+    public void onHealthDataWritten(HealthDataWrittenEvent event) {
+        Set<UserDay> days = new LinkedHashSet<>();
+        for (IngestBatch batch : event.batches()) {
+            LocalDateTime min = batch.minTimestamp();
+            if (batch.userId() == null || min == null) {
+                continue;
+            }
+            for (LocalDate day = min.toLocalDate(); !day.isAfter(batch.maxTimestamp().toLocalDate());
+                 day = day.plusDays(1)) {
+                days.add(new UserDay(batch.userId(), day));
+            }
+        }
+        if (days.isEmpty()) {
+            return;
+        }
+        // Sắp xếp để các transaction ghi đồng thời lấy lock theo cùng thứ tự
+        List<UserDay> sorted = days.stream().sorted().toList();
+        jdbcTemplate.batchUpdate(MARK_DIRTY_SQL, sorted, sorted.size(), (ps, userDay) -> {
+            ps.setLong(1, userDay.userId());
+            ps.setDate(2, Date.valueOf(userDay.day()));
+        });
+    }
+
+    /**
+     * Tính lại các ngày đã được đánh dấu, mỗi transaction tối đa {@code batch-size} ngày cho đến khi hết.
+     */
+    @Scheduled(fixedDelayString = "${statistics.daily-summary.refresh-interval:30s}")
+    void refreshDirtyDays() {
+        try {
+            RefreshedBatch batch;
+            do {
+                batch = transactionTemplate.execute(status -> refreshBatch());
+                refreshedCounter.increment(batch.refreshed().size());
+                expiredCounter.increment(batch.taken() - batch.refreshed().size());
+                evictStatistics(batch.refreshed());
+            } while (batch.taken() >= properties.getBatchSize());
+        } catch (Exception e) {
+            // Database tạm thời không truy cập được: các ngày vẫn còn dấu và được xử lý ở lần sau
+            log.warn("Failed to refresh daily health summary: {}", e.getMessage());
+        }
+    }
+
+    private RefreshedBatch refreshBatch() {
+        List<UserDay> taken = jdbcTemplate.query(TAKE_DIRTY_SQL,
+                (rs, rowNum) -> new UserDay(rs.getLong(1), rs.getDate(2).toLocalDate()),
+                properties.getBatchSize());
+        List<UserDay> days = withinRetention(taken);
+        if (days.isEmpty()) {
+            return new RefreshedBatch(taken.size(), days);
+        }
+        jdbcTemplate.update(REFRESH_SQL, ps -> {
+            Long[] userIds = new Long[days.size()];
+            Date[] dates = new Date[days.size()];
+            for (int i = 0; i < days.size(); i++) {
+                userIds[i] = days.get(i).userId();
+                dates[i] = Date.valueOf(days.get(i).day());
+            }
+            Array userIdArray = ps.getConnection().createArrayOf("bigint", userIds);
+            Array dateArray = ps.getConnection().createArrayOf("date", dates);
+            ps.setArray(1, userIdArray);
+            ps.setArray(2, dateArray);
+        });
+        return new RefreshedBatch(taken.size(), days);
+    }
+
+    /**
+     * Bỏ các ngày có phần nào cũ hơn {@code lifecycle.retention.drop-after}, vì chunk chứa chúng có thể đã bị xóa.
+     */
+    private List<UserDay> withinRetention(List<UserDay> days) {
+        if (!retention.isEnabled()) {
+            return days;
+        }
+        LocalDateTime cutoff = LocalDateTime.now().minus(retention.getDropAfter());
+        return days.stream().filter(userDay -> !userDay.day().atStartOfDay().isBefore(cutoff)).toList();
+    }
+
+    private void evictStatistics(List<UserDay> days) {
+        Map<Long, LocalDateTime[]> ranges = new HashMap<>();
+        for (UserDay userDay : days) {
+            LocalDateTime start = userDay.day().atStartOfDay();
+            LocalDateTime end = start.plusDays(1).minusNanos(1000);
+            ranges.merge(userDay.userId(), new LocalDateTime[]{start, end}, (a, b) -> new LocalDateTime[]{
+                    a[0].isBefore(b[0]) ? a[0] : b[0],
+                    a[1].isAfter(b[1]) ? a[1] : b[1]
+            });
+        }
+        statisticsCache.evict(ranges);
+    }
+
+    /**
+     * Tính lại các (user, ngày) từ HEALTH_DATA. Tham số 1 và 2 là mảng user_id và ngày có cùng độ dài.
+     */
+    private static String buildRefreshSql() {
+        List<String> columns = new ArrayList<>();
+        List<String> values = new ArrayList<>();
+        for (String column : COLUMNS) {
+            for (String aggregate : new String[]{"sum", "count", "min", "max"}) {
+                columns.add(column + "_" + aggregate);
+                values.add(aggregate.toUpperCase() + "(hd." + column + ")");
+            }
+        }
+        columns.addAll(List.of("low_spo2_count", "critical_spo2_count", "last_sync", "updated_at"));
+        values.addAll(List.of("COUNT(*) FILTER (WHERE hd.spo2_percent < 90)",
+                "COUNT(*) FILTER (WHERE hd.spo2_percent < 85)", "MAX(hd.timestamp)", "CURRENT_TIMESTAMP"));
+
+        StringBuilder updates = new StringBuilder();
+        for (String column : columns) {
+            updates.append(updates.isEmpty() ? "" : ", ").append(column).append(" = EXCLUDED.").append(column);
+        }
+        return "INSERT INTO user_daily_summary (user_id, day, " + String.join(", ", columns) + ") " +
+                "SELECT dirty.user_id, dirty.day, " + String.join(", ", values) + " " +
+                "FROM UNNEST(?, ?) AS dirty(user_id, day) " +
+                "JOIN devices d ON d.user_id = dirty.user_id " +
+                "JOIN health_data hd ON hd.device_id = d.id " +
+                "AND hd.timestamp >= dirty.day AND hd.timestamp < dirty.day + 1 " +
+                "GROUP BY dirty.user_id, dirty.day " +
+                "ON CONFLICT (user_id, day) DO UPDATE SET " + updates;
+    }
+
+    /**
+     * @param taken     Số ngày đã lấy khỏi USER_DAILY_SUMMARY_DIRTY, kể cả ngày bị bỏ qua vì quá hạn retention.
+     * @param refreshed Các ngày đã được tính lại.
+     */
+    private record RefreshedBatch(int taken, List<UserDay> refreshed) {
+    }
+
+    record UserDay(Long userId, LocalDate day) implements Comparable<UserDay> {
+
+        @Override
+        public int compareTo(UserDay other) {
+            int byUser = userId.compareTo(other.userId);
+            return byUser != 0 ? byUser : day.compareTo(other.day);
+        }
+    }
+}
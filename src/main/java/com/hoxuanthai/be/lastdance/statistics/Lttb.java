@@ -0,0 +1,96 @@
+package com.hoxuanthai.be.lastdance.statistics;
+
+import com.hoxuanthai.be.lastdance.dto.HealthSeriesDto;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Giảm mẫu chuỗi thời gian bằng Largest-Triangle-Three-Buckets (Steinarsson, 2013).
+ * <p>
+ * Điểm đầu và điểm cuối luôn được giữ. Các điểm còn lại chia thành {@code threshold - 2} bucket,
+ * mỗi bucket chọn điểm tạo tam giác lớn nhất với điểm đã chọn ở bucket trước và điểm trung bình của bucket sau,
+ * nên các đỉnh (ví dụ nhịp tim tăng vọt) được giữ lại thay vì bị làm phẳng như khi lấy trung bình.
+ * Mỗi điểm trả về kèm min/max/số điểm của bucket nó đại diện.
+ */
+public final class Lttb {
+
+    private Lttb() {
+    }
+
+    /**
+     * @param timestamps Thời điểm, tăng dần.
+     * @param epochSeconds Thời điểm dưới dạng số giây (trục x), cùng thứ tự với {@code timestamps}.
+     * @param values     Giá trị tại từng thời điểm.
+     * @param threshold  Số điểm tối đa trả về.
+     */
+    public static List<HealthSeriesDto.SeriesPoint> downsample(List<LocalDateTime> timestamps, double[] epochSeconds,
+                                                               double[] values, int threshold) {
+        int size = timestamps.size();
+        List<HealthSeriesDto.SeriesPoint> sampled = new ArrayList<>(Math.min(size, threshold));
+        if (threshold >= size || threshold < 3) {
+            for (int i = 0; i < size; i++) {
+                sampled.add(point(timestamps, values, i, i, i + 1));
+            }
+            return sampled;
+        }
+
+        double every = (double) (size - 2) / (threshold - 2);
+        int selected = 0;
+        sampled.add(point(timestamps, values, 0, 0, 1));
+
+        for (int bucket = 0; bucket < threshold - 2; bucket++) {
+            // Điểm trung bình của bucket kế tiếp (với bucket cuối là điểm cuối cùng)
+            int nextStart = (int) ((bucket + 1) * every) + 1;
+            int nextEnd = Math.min((int) ((bucket + 2) * every) + 1, size);
+            double averageX = 0;
+            double averageY = 0;
+            for (int i = nextStart; i < nextEnd; i++) {
+                averageX += epochSeconds[i];
+                averageY += values[i];
+            }
+            int nextCount = nextEnd - nextStart;
+            averageX /= nextCount;
+            averageY /= nextCount;
+
+            int start = (int) (bucket * every) + 1;
+            int end = (int) ((bucket + 1) * every) + 1;
+            double selectedX = epochSeconds[selected];
+            double selectedY = values[selected];
+            double maxArea = -1;
+            int maxIndex = start;
+            for (int i = start; i < end; i++) {
+                // Hai lần diện tích tam giác, chỉ dùng để so sánh
+                double area = Math.abs((selectedX - averageX) * (values[i] - selectedY)
+                        - (selectedX - epochSeconds[i]) * (averageY - selectedY));
+                if (area > maxArea) {
+                    maxArea = area;
+                    maxIndex = i;
+                }
+            }
+            sampled.add(point(timestamps, values, maxIndex, start, end));
+            selected = maxIndex;
+        }
+
+        sampled.add(point(timestamps, values, size - 1, size - 1, size));
+        return sampled;
+    }
+
+    private static HealthSeriesDto.SeriesPoint point(List<LocalDateTime> timestamps, double[] values, int index,
+                                                     int bucketStart, int bucketEnd) {
+        double min = Double.MAX_VALUE;
+        double max = -Double.MAX_VALUE;
+        for (int i = bucketStart; i < bucketEnd; i++) {
+            min = Math.min(min, values[i]);
+            max = Math.max(max, values[i]);
+        }
+        return HealthSeriesDto.SeriesPoint.builder()
+                .timestamp(timestamps.get(index))
+                .value(values[index])
+                .min(min)
+                .max(max)
+                .count((long) (bucketEnd - bucketStart))
+                .build();
+    }
+}
@@ -0,0 +1,79 @@
+package com.hoxuanthai.be.lastdance.statistics;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+
+/**
+ * Độ rộng bucket và nguồn dữ liệu cho một chuỗi thống kê trên khoảng thời gian tùy ý.
+ * <p>
+ * Độ rộng bucket là giá trị nhỏ nhất trong thang {@link #WIDTHS} sao cho số bucket không vượt số điểm yêu cầu
+ * (vượt thang thì dùng bội số ngày). Bucket từ 1 ngày trở lên đọc từ HEALTH_DATA_DAILY, từ 1 giờ trở lên
+ * đọc từ HEALTH_DATA_HOURLY, nhỏ hơn thì đọc dữ liệu thô, nên chi phí truy vấn bị chặn theo số điểm
+ * chứ không theo độ dài khoảng thời gian.
+ *
+ * @param bucketWidth Độ rộng bucket.
+ * @param tier        Nguồn dữ liệu.
+ */
+public record SeriesResolution(Duration bucketWidth, Tier tier) {
+
+    private static final long SECONDS_PER_HOUR = 3_600;
+
+    private static final long SECONDS_PER_DAY = 86_400;
+
+    static final List<Duration> WIDTHS = List.of(
+            Duration.ofMinutes(1), Duration.ofMinutes(2), Duration.ofMinutes(5), Duration.ofMinutes(10),
+            Duration.ofMinutes(15), Duration.ofMinutes(30),
+            Duration.ofHours(1), Duration.ofHours(2), Duration.ofHours(3), Duration.ofHours(6), Duration.ofHours(12),
+            Duration.ofDays(1), Duration.ofDays(2), Duration.ofDays(7), Duration.ofDays(14), Duration.ofDays(30));
+
+    @Getter
+    @RequiredArgsConstructor
+    public enum Tier {
+
+        RAW(null, ChronoUnit.MICROS),
+        HOURLY("health_data_hourly", ChronoUnit.HOURS),
+        DAILY("health_data_daily", ChronoUnit.DAYS);
+
+        private final String aggregateView;
+
+        private final ChronoUnit granularity;
+
+        /**
+         * Lùi thời điểm bắt đầu về đầu bucket của nguồn dữ liệu để bucket đầu tiên không bị thiếu.
+         */
+        public LocalDateTime align(LocalDateTime from) {
+            return from.truncatedTo(granularity);
+        }
+    }
+
+    /**
+     * @param useAggregates false khi không dùng continuous aggregate (luôn đọc dữ liệu thô).
+     */
+    public static SeriesResolution choose(LocalDateTime from, LocalDateTime to, int points, boolean useAggregates) {
+        Duration target = Duration.between(from, to).dividedBy(points);
+        Duration width = WIDTHS.stream()
+                .filter(candidate -> candidate.compareTo(target) >= 0)
+                .findFirst()
+                .orElseGet(() -> Duration.ofDays((target.toSeconds() + SECONDS_PER_DAY - 1) / SECONDS_PER_DAY));
+
+        Tier tier = Tier.RAW;
+        if (useAggregates && width.toSeconds() % SECONDS_PER_DAY == 0) {
+            tier = Tier.DAILY;
+        } else if (useAggregates && width.toSeconds() % SECONDS_PER_HOUR == 0) {
+            tier = Tier.HOURLY;
+        }
+        return new SeriesResolution(width, tier);
+    }
+
+    /**
+     * Tham số INTERVAL cho time_bucket.
+     */
+    public String interval() {
+        return bucketWidth.toSeconds() + " seconds";
+    }
+}
@@ -0,0 +1,241 @@
+package com.hoxuanthai.be.lastdance.statistics;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.hoxuanthai.be.lastdance.datasource.ReplicaProperties;
+import com.hoxuanthai.be.lastdance.dto.StatisticsDto;
+import com.hoxuanthai.be.lastdance.ingest.HealthDataWrittenEvent;
+import com.hoxuanthai.be.lastdance.ingest.IngestBatch;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Cache trong bộ nhớ cho kết quả thống kê sức khỏe, key theo (userId, metric, range, thời điểm kết thúc
+ * đã căn theo bucket).
+ * <p>
+ * Entry bị loại khi vượt {@code maximum-size}, khi hết TTL của range tương ứng, hoặc ngay khi
+ * dữ liệu mới của người dùng được ghi vào cửa sổ thời gian của entry đó (sau khi transaction commit).
+ * Mỗi người dùng có một thế hệ invalidation tăng sau mỗi lần loại: kết quả được tính từ trước lần loại
+ * (loader đọc trước khi transaction ghi commit) không được lưu vào cache. Key được đánh chỉ mục theo userId
+ * để lần loại chỉ duyệt các entry của người dùng đó.
+ * Số lần hit/miss được xuất qua actuator với tên {@code cache.gets{cache=statistics}}.
+ */
+@Slf4j
+@Component
+public class StatisticsCache {
+
+    public static final String CACHE_NAME = "statistics";
+
+    private final boolean enabled;
+
+    private final Cache<Key, StatisticsDto> cache;
+
+    /**
+     * Key và thế hệ invalidation theo userId. Hết hạn sau TTL dài nhất kể từ lần truy cập cuối nên luôn sống lâu
+     * hơn các entry của người dùng; không giới hạn kích thước để không bị loại khi entry còn trong cache.
+     */
+    private final Cache<Long, UserEntries> entriesByUser;
+
+    private final Duration replicaMaxLag;
+
+    public StatisticsCache(StatisticsProperties statisticsProperties, ReplicaProperties replicaProperties,
+                           MeterRegistry meterRegistry) {
+        StatisticsProperties.Cache properties = statisticsProperties.getCache();
+        this.enabled = properties.isEnabled();
+        this.replicaMaxLag = replicaProperties.isEnabled() ? replicaProperties.getMaxLag() : Duration.ZERO;
+        Duration maxTtl = properties.getDayTtl().compareTo(properties.getWeekTtl()) > 0
+                ? properties.getDayTtl() : properties.getWeekTtl();
+        this.entriesByUser = Caffeine.newBuilder()
+                .expireAfterAccess(maxTtl)
+                .build();
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(properties.getMaximumSize())
+                .expireAfter(Expiry.creating((Key key, StatisticsDto value) -> switch (key.range()) {
+                    case DAY -> properties.getDayTtl();
+                    case WEEK -> properties.getWeekTtl();
+                }))
+                // Chạy đồng bộ trong lock của entry nên không xen giữa lúc putIfCurrent thêm lại cùng key
+                .evictionListener((Key key, StatisticsDto value, RemovalCause cause) -> {
+                    UserEntries entries = entriesByUser.getIfPresent(key.userId());
+                    if (entries != null) {
+                        entries.keys.remove(key);
+                    }
+                })
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, CACHE_NAME);
+    }
+
+    /**
+     * Lấy thống kê từ cache, hoặc tính bằng {@code loader} và lưu lại khi chưa có.
+     * Không dùng {@link Cache#get} để truy vấn database không chạy khi đang giữ lock của cache.
+     */
+    public StatisticsDto get(Long userId, String metric, StatisticsRange range, LocalDateTime alignedEnd,
+                             Supplier<StatisticsDto> loader) {
+        if (!enabled) {
+            return loader.get();
+        }
+        Key key = new Key(userId, metric, range, alignedEnd);
+        StatisticsDto cached = cache.getIfPresent(key);
+        if (cached != null) {
+            return cached;
+        }
+        UserEntries entries = userEntries(userId);
+        long generation = entries.generation.get();
+        StatisticsDto statistics = loader.get();
+        putIfCurrent(entries, generation, key, statistics);
+        return statistics;
+    }
+
+    /**
+     * Lấy thống kê của nhiều metric từ cache. Các metric chưa có được tính bằng một lần gọi {@code loader}
+     * (nhận danh sách metric còn thiếu, trả về thống kê theo metric) và lưu lại.
+     */
+    public Map<String, StatisticsDto> getAll(Long userId, Collection<String> metrics, StatisticsRange range,
+                                             LocalDateTime alignedEnd,
+                                             Function<List<String>, Map<String, StatisticsDto>> loader) {
+        if (!enabled) {
+            return loader.apply(List.copyOf(metrics));
+        }
+        Map<String, StatisticsDto> statistics = new HashMap<>();
+        List<String> missing = new ArrayList<>();
+        for (String metric : metrics) {
+            StatisticsDto cached = cache.getIfPresent(new Key(userId, metric, range, alignedEnd));
+            if (cached != null) {
+                statistics.put(metric, cached);
+            } else {
+                missing.add(metric);
+            }
+        }
+        if (!missing.isEmpty()) {
+            UserEntries entries = userEntries(userId);
+            long generation = entries.generation.get();
+            loader.apply(missing).forEach((metric, loaded) -> {
+                putIfCurrent(entries, generation, new Key(userId, metric, range, alignedEnd), loaded);
+                statistics.put(metric, loaded);
+            });
+        }
+        return statistics;
+    }
+
+    private UserEntries userEntries(Long userId) {
+        return entriesByUser.get(userId, id -> new UserEntries());
+    }
+
+    /**
+     * Lưu kết quả nếu người dùng chưa bị invalidation kể từ khi loader bắt đầu.
+     * Key được thêm vào chỉ mục trước khi kiểm tra thế hệ, còn {@link #removeOverlapping} tăng thế hệ trước khi
+     * duyệt chỉ mục, nên một lần loại chạy song song hoặc thấy key để loại, hoặc làm lần lưu này bị bỏ qua.
+     */
+    private void putIfCurrent(UserEntries entries, long generation, Key key, StatisticsDto statistics) {
+        cache.asMap().compute(key, (k, existing) -> {
+            entries.keys.add(k);
+            if (entries.generation.get() != generation || entriesByUser.getIfPresent(k.userId()) != entries) {
+                if (existing == null) {
+                    entries.keys.remove(k);
+                }
+                return existing;
+            }
+            return statistics;
+        });
+    }
+
+    /**
+     * Loại các entry có cửa sổ thời gian giao với khoảng thời gian của dữ liệu vừa được ghi.
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onHealthDataWritten(HealthDataWrittenEvent event) {
+        // Cache rỗng vẫn cần tăng thế hệ vì loader đang chạy có thể đã đọc dữ liệu trước khi commit
+        if (!enabled) {
+            return;
+        }
+
+        // Gộp khoảng thời gian đã ghi theo người dùng để chỉ duyệt entry của mỗi người dùng một lần
+        Map<Long, LocalDateTime[]> writtenRanges = new HashMap<>();
+        for (IngestBatch batch : event.batches()) {
+            LocalDateTime min = batch.minTimestamp();
+            LocalDateTime max = batch.maxTimestamp();
+            if (batch.userId() == null || min == null) {
+                continue;
+            }
+            writtenRanges.merge(batch.userId(), new LocalDateTime[]{min, max}, (a, b) -> new LocalDateTime[]{
+                    a[0].isBefore(b[0]) ? a[0] : b[0],
+                    a[1].isAfter(b[1]) ? a[1] : b[1]
+            });
+        }
+        evict(writtenRanges);
+    }
+
+    /**
+     * Loại các entry của người dùng có cửa sổ thời gian giao với khoảng [from, to] tương ứng.
+     * <p>
+     * Khi thống kê được đọc từ read replica, entry được tính lại ngay sau lần loại này có thể vẫn là dữ liệu
+     * trước khi ghi (replica trễ tối đa {@code replica.max-lag}), nên các entry đó bị loại thêm một lần sau khoảng trễ.
+     *
+     * @param ranges Khoảng thời gian {from, to} theo userId.
+     */
+    public void evict(Map<Long, LocalDateTime[]> ranges) {
+        if (!enabled || ranges.isEmpty()) {
+            return;
+        }
+        removeOverlapping(ranges);
+        if (replicaMaxLag.isPositive()) {
+            CompletableFuture.runAsync(() -> removeOverlapping(ranges),
+                    CompletableFuture.delayedExecutor(replicaMaxLag.toMillis(), TimeUnit.MILLISECONDS));
+        }
+    }
+
+    private void removeOverlapping(Map<Long, LocalDateTime[]> ranges) {
+        ranges.forEach((userId, range) -> {
+            // Không có UserEntries nghĩa là không có entry và không có loader nào đang chạy cho người dùng này
+            UserEntries entries = entriesByUser.getIfPresent(userId);
+            if (entries == null) {
+                return;
+            }
+            entries.generation.incrementAndGet();
+            for (Key key : entries.keys) {
+                if (key.overlaps(range[0], range[1])) {
+                    // Bỏ khỏi chỉ mục trước: lần lưu song song sẽ thêm lại key trước khi entry bị loại
+                    entries.keys.remove(key);
+                    cache.invalidate(key);
+                }
+            }
+        });
+    }
+
+    private static final class UserEntries {
+
+        private final Set<Key> keys = ConcurrentHashMap.newKeySet();
+
+        private final AtomicLong generation = new AtomicLong();
+    }
+
+    record Key(Long userId, String metric, StatisticsRange range, LocalDateTime alignedEnd) {
+
+        // Cửa sổ của entry là [alignedEnd - span, alignedEnd)
+        boolean overlaps(LocalDateTime from, LocalDateTime to) {
+            return from.isBefore(alignedEnd) && !to.isBefore(range.startOf(alignedEnd));
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.hoxuanthai.be.lastdance.statistics;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Getter
+@Setter
+@Configuration
+@ConfigurationProperties(prefix = "statistics")
+public class StatisticsProperties {
+
+    // Đọc thống kê từ continuous aggregate HEALTH_DATA_HOURLY / HEALTH_DATA_DAILY thay vì dữ liệu thô
+    private boolean useContinuousAggregates = true;
+
+    // Đọc thống kê tuần từ USER_DAILY_SUMMARY (trễ tối đa daily-summary.refresh-interval so với dữ liệu thô)
+    private boolean useDailySummary = true;
+
+    private Cache cache = new Cache();
+
+    private Series series = new Series();
+
+    private DailySummary dailySummary = new DailySummary();
+
+    @Getter
+    @Setter
+    public static class Cache {
+
+        private boolean enabled = true;
+
+        private long maximumSize = 10_000;
+
+        // Thống kê theo ngày có bucket 1 giờ, theo tuần có bucket 1 ngày nên được giữ lâu hơn
+        private Duration dayTtl = Duration.ofMinutes(5);
+
+        private Duration weekTtl = Duration.ofMinutes(30);
+    }
+
+    @Getter
+    @Setter
+    public static class Series {
+
+        private int defaultPoints = 200;
+
+        private int maxPoints = 2_000;
+
+        // Khoảng thời gian dài nhất của một chuỗi
+        private Duration maxRange = Duration.ofDays(732);
+
+        // Số điểm dữ liệu thô tối đa được đọc để giảm mẫu bằng LTTB, vượt quá thì trả về min/max/avg theo bucket
+        private int lttbMaxRawPoints = 100_000;
+    }
+
+    @Getter
+    @Setter
+    public static class DailySummary {
+
+        // Chu kỳ tính lại các ngày đã được đánh dấu
+        private Duration refreshInterval = Duration.ofSeconds(30);
+
+        // Số (user, ngày) tính lại trong một transaction
+        private int batchSize = 1_000;
+    }
+}
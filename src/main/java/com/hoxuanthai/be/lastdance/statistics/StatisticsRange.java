@@ -0,0 +1,50 @@
+package com.hoxuanthai.be.lastdance.statistics;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * Khoảng thời gian thống kê hỗ trợ bởi /health-data/statistics.
+ * Cửa sổ thống kê được căn theo bucket: kết thúc ở cuối bucket hiện tại nên hai request trong
+ * cùng một bucket có cùng cửa sổ (và cùng cache key).
+ */
+@Getter
+@RequiredArgsConstructor
+public enum StatisticsRange {
+
+    DAY(Duration.ofHours(24), ChronoUnit.HOURS, "1 hour", "health_data_hourly", DateTimeFormatter.ofPattern("HH:mm")),
+    WEEK(Duration.ofDays(7), ChronoUnit.DAYS, "1 day", "health_data_daily", DateTimeFormatter.ofPattern("MM/dd"));
+
+    private final Duration span;
+
+    private final ChronoUnit bucketUnit;
+
+    private final String bucketInterval; // Tham số INTERVAL cho time_bucket
+
+    private final String aggregateView; // Continuous aggregate tương ứng với bucketInterval
+
+    private final DateTimeFormatter labelFormatter;
+
+    /**
+     * "day" cho thống kê theo giờ trong 24 giờ, mọi giá trị khác là "week" (giữ nguyên hành vi cũ).
+     */
+    public static StatisticsRange from(String range) {
+        return "day".equalsIgnoreCase(range) ? DAY : WEEK;
+    }
+
+    /**
+     * Thời điểm kết thúc (không bao gồm) của cửa sổ chứa {@code now}: cuối bucket hiện tại.
+     */
+    public LocalDateTime alignedEnd(LocalDateTime now) {
+        return now.truncatedTo(bucketUnit).plus(1, bucketUnit);
+    }
+
+    public LocalDateTime startOf(LocalDateTime alignedEnd) {
+        return alignedEnd.minus(span);
+    }
+}
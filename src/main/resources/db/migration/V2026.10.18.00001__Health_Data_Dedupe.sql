@@ -0,0 +1,25 @@
+-- Thiết lập search_path để Postgres biết phải làm việc trong schema 'public'
+SET search_path = public;
+
+-- CHỐNG TRÙNG LẶP DỮ LIỆU SỨC KHỎE
+-- Thiết bị gửi lại lô dữ liệu khi mạng chập chờn, mỗi điểm dữ liệu được sinh UUID mới
+-- nên khóa chính (id, timestamp) không ngăn được bản ghi trùng.
+
+-- Xóa các bản ghi trùng (device_id, timestamp) đã tồn tại, giữ lại một bản ghi
+DELETE FROM HEALTH_DATA a
+    USING HEALTH_DATA b
+WHERE a.device_id = b.device_id
+  AND a.timestamp = b.timestamp
+  AND a.id > b.id;
+
+-- Unique index thay thế idx_health_data_device_id (cùng cột, cùng thứ tự),
+-- dùng làm arbiter cho INSERT ... ON CONFLICT (device_id, timestamp) DO NOTHING
+CREATE UNIQUE INDEX IF NOT EXISTS uq_health_data_device_timestamp ON HEALTH_DATA(device_id, timestamp DESC);
+DROP INDEX IF EXISTS idx_health_data_device_id;
+
+-- Watermark đồng bộ của từng thiết bị
+ALTER TABLE DEVICES ADD COLUMN IF NOT EXISTS last_data_timestamp TIMESTAMP;
+ALTER TABLE DEVICES ADD COLUMN IF NOT EXISTS last_sync_sequence BIGINT;
+
+COMMENT ON COLUMN DEVICES.last_data_timestamp IS 'Thời điểm của điểm dữ liệu mới nhất đã được ghi nhận';
+COMMENT ON COLUMN DEVICES.last_sync_sequence IS 'Số thứ tự lô đồng bộ lớn nhất đã được ghi nhận (do thiết bị gửi lên)';
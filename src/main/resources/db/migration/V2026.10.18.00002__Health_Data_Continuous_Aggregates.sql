@@ -0,0 +1,113 @@
+-- Thiết lập search_path để Postgres biết phải làm việc trong schema 'public'
+SET search_path = public;
+
+-- CONTINUOUS AGGREGATES CHO HEALTH_DATA
+-- Thống kê theo giờ/ngày được tính sẵn thay vì quét dữ liệu thô mỗi lần mở dashboard.
+-- materialized_only = false: khi truy vấn, TimescaleDB tự ghép phần đã materialize với dữ liệu thô
+-- mới hơn watermark (real-time aggregation), nên dữ liệu vừa đồng bộ vẫn xuất hiện ngay.
+-- Giá trị trung bình của nhiều bucket/thiết bị phải tính bằng SUM(*_sum) / SUM(*_count).
+
+-- Aggregate theo giờ, tính trực tiếp từ HEALTH_DATA
+CREATE MATERIALIZED VIEW IF NOT EXISTS HEALTH_DATA_HOURLY
+WITH (timescaledb.continuous, timescaledb.materialized_only = false) AS
+SELECT device_id,
+       time_bucket(INTERVAL '1 hour', timestamp) AS bucket,
+       AVG(heart_rate)                AS heart_rate_avg,
+       MIN(heart_rate)                AS heart_rate_min,
+       MAX(heart_rate)                AS heart_rate_max,
+       SUM(heart_rate)                AS heart_rate_sum,
+       COUNT(heart_rate)              AS heart_rate_count,
+       AVG(steps_count)               AS steps_count_avg,
+       MIN(steps_count)               AS steps_count_min,
+       MAX(steps_count)               AS steps_count_max,
+       SUM(steps_count)               AS steps_count_sum,
+       COUNT(steps_count)             AS steps_count_count,
+       AVG(spo2_percent)              AS spo2_percent_avg,
+       MIN(spo2_percent)              AS spo2_percent_min,
+       MAX(spo2_percent)              AS spo2_percent_max,
+       SUM(spo2_percent)              AS spo2_percent_sum,
+       COUNT(spo2_percent)            AS spo2_percent_count,
+       AVG(calories_burned)           AS calories_burned_avg,
+       MIN(calories_burned)           AS calories_burned_min,
+       MAX(calories_burned)           AS calories_burned_max,
+       SUM(calories_burned)           AS calories_burned_sum,
+       COUNT(calories_burned)         AS calories_burned_count,
+       AVG(water_intake_ml)           AS water_intake_ml_avg,
+       MIN(water_intake_ml)           AS water_intake_ml_min,
+       MAX(water_intake_ml)           AS water_intake_ml_max,
+       SUM(water_intake_ml)           AS water_intake_ml_sum,
+       COUNT(water_intake_ml)         AS water_intake_ml_count,
+       AVG(sleep_duration_minutes)    AS sleep_duration_minutes_avg,
+       MIN(sleep_duration_minutes)    AS sleep_duration_minutes_min,
+       MAX(sleep_duration_minutes)    AS sleep_duration_minutes_max,
+       SUM(sleep_duration_minutes)    AS sleep_duration_minutes_sum,
+       COUNT(sleep_duration_minutes)  AS sleep_duration_minutes_count
+FROM HEALTH_DATA
+GROUP BY device_id, bucket
+WITH NO DATA;
+
+-- Aggregate theo ngày, tính từ HEALTH_DATA_HOURLY (hierarchical continuous aggregate)
+CREATE MATERIALIZED VIEW IF NOT EXISTS HEALTH_DATA_DAILY
+WITH (timescaledb.continuous, timescaledb.materialized_only = false) AS
+SELECT device_id,
+       time_bucket(INTERVAL '1 day', bucket) AS bucket,
+       SUM(heart_rate_sum) / NULLIF(SUM(heart_rate_count), 0)                         AS heart_rate_avg,
+       MIN(heart_rate_min)                                                            AS heart_rate_min,
+       MAX(heart_rate_max)                                                            AS heart_rate_max,
+       SUM(heart_rate_sum)                                                            AS heart_rate_sum,
+       SUM(heart_rate_count)                                                          AS heart_rate_count,
+       SUM(steps_count_sum) / NULLIF(SUM(steps_count_count), 0)                       AS steps_count_avg,
+       MIN(steps_count_min)                                                           AS steps_count_min,
+       MAX(steps_count_max)                                                           AS steps_count_max,
+       SUM(steps_count_sum)                                                           AS steps_count_sum,
+       SUM(steps_count_count)                                                         AS steps_count_count,
+       SUM(spo2_percent_sum) / NULLIF(SUM(spo2_percent_count), 0)                     AS spo2_percent_avg,
+       MIN(spo2_percent_min)                                                          AS spo2_percent_min,
+       MAX(spo2_percent_max)                                                          AS spo2_percent_max,
+       SUM(spo2_percent_sum)                                                          AS spo2_percent_sum,
+       SUM(spo2_percent_count)                                                        AS spo2_percent_count,
+       SUM(calories_burned_sum) / NULLIF(SUM(calories_burned_count), 0)               AS calories_burned_avg,
+       MIN(calories_burned_min)                                                       AS calories_burned_min,
+       MAX(calories_burned_max)                                                       AS calories_burned_max,
+       SUM(calories_burned_sum)                                                       AS calories_burned_sum,
+       SUM(calories_burned_count)                                                     AS calories_burned_count,
+       SUM(water_intake_ml_sum) / NULLIF(SUM(water_intake_ml_count), 0)               AS water_intake_ml_avg,
+       MIN(water_intake_ml_min)                                                       AS water_intake_ml_min,
+       MAX(water_intake_ml_max)                                                       AS water_intake_ml_max,
+       SUM(water_intake_ml_sum)                                                       AS water_intake_ml_sum,
+       SUM(water_intake_ml_count)                                                     AS water_intake_ml_count,
+       SUM(sleep_duration_minutes_sum) / NULLIF(SUM(sleep_duration_minutes_count), 0) AS sleep_duration_minutes_avg,
+       MIN(sleep_duration_minutes_min)                                                AS sleep_duration_minutes_min,
+       MAX(sleep_duration_minutes_max)                                                AS sleep_duration_minutes_max,
+       SUM(sleep_duration_minutes_sum)                                                AS sleep_duration_minutes_sum,
+       SUM(sleep_duration_minutes_count)                                              AS sleep_duration_minutes_count
+FROM HEALTH_DATA_HOURLY
+GROUP BY device_id, time_bucket(INTERVAL '1 day', bucket)
+WITH NO DATA;
+
+CREATE INDEX IF NOT EXISTS idx_health_data_hourly_device_bucket ON HEALTH_DATA_HOURLY(device_id, bucket DESC);
+CREATE INDEX IF NOT EXISTS idx_health_data_daily_device_bucket ON HEALTH_DATA_DAILY(device_id, bucket DESC);
+
+-- Refresh policy: materialize lại cửa sổ gần đây để nhận dữ liệu đồng bộ trễ (thiết bị offline nhiều ngày).
+-- start_offset bằng tuổi nén của HEALTH_DATA (7 ngày) vì dữ liệu cũ hơn hầu như không còn thay đổi.
+SELECT add_continuous_aggregate_policy('HEALTH_DATA_HOURLY',
+                                       start_offset => INTERVAL '7 days',
+                                       end_offset => INTERVAL '1 hour',
+                                       schedule_interval => INTERVAL '15 minutes',
+                                       if_not_exists => TRUE
+       );
+
+SELECT add_continuous_aggregate_policy('HEALTH_DATA_DAILY',
+                                       start_offset => INTERVAL '8 days',
+                                       end_offset => INTERVAL '1 day',
+                                       schedule_interval => INTERVAL '1 hour',
+                                       if_not_exists => TRUE
+       );
+
+-- Materialize toàn bộ dữ liệu lịch sử một lần (refresh policy chỉ xử lý cửa sổ gần đây).
+-- CALL refresh_continuous_aggregate không chạy được trong transaction block: chạy bằng psql ở chế độ autocommit.
+CALL refresh_continuous_aggregate('HEALTH_DATA_HOURLY', NULL, LOCALTIMESTAMP - INTERVAL '1 hour');
+CALL refresh_continuous_aggregate('HEALTH_DATA_DAILY', NULL, LOCALTIMESTAMP - INTERVAL '1 day');
+
+COMMENT ON MATERIALIZED VIEW HEALTH_DATA_HOURLY IS 'Thống kê dữ liệu sức khỏe theo giờ của từng thiết bị (continuous aggregate)';
+COMMENT ON MATERIALIZED VIEW HEALTH_DATA_DAILY IS 'Thống kê dữ liệu sức khỏe theo ngày của từng thiết bị (continuous aggregate trên HEALTH_DATA_HOURLY)';
@@ -0,0 +1,18 @@
+-- Thiết lập search_path để Postgres biết phải làm việc trong schema 'public'
+SET search_path = public;
+
+-- BUCKET CỦA RATE LIMITER DÙNG CHUNG GIỮA CÁC INSTANCE
+-- Bucket4j lưu trạng thái bucket đã serialize trong cột state, khóa dòng bằng SELECT ... FOR UPDATE khi consume.
+-- expires_at (epoch millis) là thời điểm bucket đầy lại, sau đó dòng có thể được xóa mà không ảnh hưởng giới hạn.
+CREATE TABLE IF NOT EXISTS LASTDANCE_RATE_LIMIT
+(
+    id         VARCHAR(255) PRIMARY KEY,
+    state      BYTEA,
+    expires_at BIGINT
+);
+
+CREATE INDEX IF NOT EXISTS idx_lastdance_rate_limit_expires_at ON LASTDANCE_RATE_LIMIT(expires_at);
+
+COMMENT ON TABLE LASTDANCE_RATE_LIMIT IS 'Trạng thái bucket của rate limiter (backend JDBC)';
+COMMENT ON COLUMN LASTDANCE_RATE_LIMIT.id IS 'Key của bucket: <RateLimitType>:<KeyType>:<giá trị>';
+COMMENT ON COLUMN LASTDANCE_RATE_LIMIT.expires_at IS 'Thời điểm (epoch millis) bucket đầy lại và có thể bị xóa';
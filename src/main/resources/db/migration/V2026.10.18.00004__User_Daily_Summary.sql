@@ -0,0 +1,97 @@
+-- Thiết lập search_path để Postgres biết phải làm việc trong schema 'public'
+SET search_path = public;
+
+-- THỐNG KÊ THEO NGÀY CỦA TỪNG NGƯỜI DÙNG
+-- Một dòng cho mỗi (user_id, day), gộp dữ liệu của mọi thiết bị của người dùng, để overview và thống kê tuần
+-- đọc O(số ngày) dòng thay vì quét dữ liệu thô. Trung bình của nhiều ngày tính bằng SUM(*_sum) / SUM(*_count).
+-- Khi dữ liệu mới được ghi, ngày tương ứng được đánh dấu trong USER_DAILY_SUMMARY_DIRTY (cùng transaction với lần ghi),
+-- job định kỳ chỉ tính lại các ngày đã đánh dấu từ HEALTH_DATA.
+CREATE TABLE IF NOT EXISTS USER_DAILY_SUMMARY
+(
+    user_id                      BIGINT    NOT NULL,
+    day                          DATE      NOT NULL,
+    heart_rate_sum               BIGINT,
+    heart_rate_count             BIGINT    NOT NULL DEFAULT 0,
+    heart_rate_min               INTEGER,
+    heart_rate_max               INTEGER,
+    steps_count_sum              BIGINT,
+    steps_count_count            BIGINT    NOT NULL DEFAULT 0,
+    steps_count_min              INTEGER,
+    steps_count_max              INTEGER,
+    spo2_percent_sum             DOUBLE PRECISION,
+    spo2_percent_count           BIGINT    NOT NULL DEFAULT 0,
+    spo2_percent_min             DOUBLE PRECISION,
+    spo2_percent_max             DOUBLE PRECISION,
+    calories_burned_sum          DOUBLE PRECISION,
+    calories_burned_count        BIGINT    NOT NULL DEFAULT 0,
+    calories_burned_min          DOUBLE PRECISION,
+    calories_burned_max          DOUBLE PRECISION,
+    water_intake_ml_sum          BIGINT,
+    water_intake_ml_count        BIGINT    NOT NULL DEFAULT 0,
+    water_intake_ml_min          INTEGER,
+    water_intake_ml_max          INTEGER,
+    sleep_duration_minutes_sum   BIGINT,
+    sleep_duration_minutes_count BIGINT    NOT NULL DEFAULT 0,
+    sleep_duration_minutes_min   INTEGER,
+    sleep_duration_minutes_max   INTEGER,
+    low_spo2_count               BIGINT    NOT NULL DEFAULT 0,
+    critical_spo2_count          BIGINT    NOT NULL DEFAULT 0,
+    last_sync                    TIMESTAMP,
+    updated_at                   TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    PRIMARY KEY (user_id, day),
+    CONSTRAINT fk_user_daily_summary_user FOREIGN KEY (user_id) REFERENCES USERS (id) ON DELETE CASCADE
+);
+
+CREATE TABLE IF NOT EXISTS USER_DAILY_SUMMARY_DIRTY
+(
+    user_id   BIGINT    NOT NULL,
+    day       DATE      NOT NULL,
+    marked_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    PRIMARY KEY (user_id, day),
+    CONSTRAINT fk_user_daily_summary_dirty_user FOREIGN KEY (user_id) REFERENCES USERS (id) ON DELETE CASCADE
+);
+
+CREATE INDEX IF NOT EXISTS idx_user_daily_summary_dirty_marked_at ON USER_DAILY_SUMMARY_DIRTY (marked_at);
+
+-- Tính toàn bộ dữ liệu lịch sử một lần, sau đó job chỉ xử lý các ngày được đánh dấu
+INSERT INTO USER_DAILY_SUMMARY
+SELECT d.user_id,
+       CAST(hd.timestamp AS DATE),
+       SUM(hd.heart_rate),
+       COUNT(hd.heart_rate),
+       MIN(hd.heart_rate),
+       MAX(hd.heart_rate),
+       SUM(hd.steps_count),
+       COUNT(hd.steps_count),
+       MIN(hd.steps_count),
+       MAX(hd.steps_count),
+       SUM(hd.spo2_percent),
+       COUNT(hd.spo2_percent),
+       MIN(hd.spo2_percent),
+       MAX(hd.spo2_percent),
+       SUM(hd.calories_burned),
+       COUNT(hd.calories_burned),
+       MIN(hd.calories_burned),
+       MAX(hd.calories_burned),
+       SUM(hd.water_intake_ml),
+       COUNT(hd.water_intake_ml),
+       MIN(hd.water_intake_ml),
+       MAX(hd.water_intake_ml),
+       SUM(hd.sleep_duration_minutes),
+       COUNT(hd.sleep_duration_minutes),
+       MIN(hd.sleep_duration_minutes),
+       MAX(hd.sleep_duration_minutes),
+       COUNT(*) FILTER (WHERE hd.spo2_percent < 90),
+       COUNT(*) FILTER (WHERE hd.spo2_percent < 85),
+       MAX(hd.timestamp),
+       CURRENT_TIMESTAMP
+FROM HEALTH_DATA hd
+         JOIN DEVICES d ON hd.device_id = d.id
+GROUP BY d.user_id, CAST(hd.timestamp AS DATE)
+ON CONFLICT (user_id, day) DO NOTHING;
+
+COMMENT ON TABLE USER_DAILY_SUMMARY IS 'Thống kê dữ liệu sức khỏe theo ngày của từng người dùng (gộp mọi thiết bị)';
+COMMENT ON COLUMN USER_DAILY_SUMMARY.low_spo2_count IS 'Số điểm dữ liệu có SpO2 < 90% (cảnh báo)';
+COMMENT ON COLUMN USER_DAILY_SUMMARY.critical_spo2_count IS 'Số điểm dữ liệu có SpO2 < 85% (cảnh báo mức cao)';
+COMMENT ON COLUMN USER_DAILY_SUMMARY.last_sync IS 'Timestamp của điểm dữ liệu mới nhất trong ngày';
+COMMENT ON TABLE USER_DAILY_SUMMARY_DIRTY IS 'Các ngày có dữ liệu mới, chờ job tính lại USER_DAILY_SUMMARY';
@@ -0,0 +1,12 @@
+-- Thiết lập search_path để Postgres biết phải làm việc trong schema 'public'
+SET search_path = public;
+
+-- INDEX CHO KEYSET PAGINATION CỦA /users VÀ /devices
+-- Mỗi khóa sắp xếp được hỗ trợ có một index (khóa, id) chỉ chứa các dòng của danh sách,
+-- để trang tiếp theo là một index range scan bắt đầu ngay sau dòng cuối của trang trước.
+-- username và device_uuid đã có unique index nên không cần thêm.
+CREATE INDEX IF NOT EXISTS idx_users_list_id ON USERS(id) WHERE user_role = 'USER' AND deleted = false;
+CREATE INDEX IF NOT EXISTS idx_users_list_created_at ON USERS(created_at, id) WHERE user_role = 'USER' AND deleted = false;
+
+CREATE INDEX IF NOT EXISTS idx_devices_list_name ON DEVICES(device_name, id) WHERE deleted = false;
+CREATE INDEX IF NOT EXISTS idx_devices_list_created_at ON DEVICES(created_at, id) WHERE deleted = false;
@@ -0,0 +1,23 @@
+-- Thiết lập search_path để Postgres biết phải làm việc trong schema 'public'
+SET search_path = public;
+
+-- UUID PHIÊN BẢN 7 CHO HEALTH_DATA.id
+-- Khóa chính (id, timestamp) với UUID ngẫu nhiên làm mỗi lần insert rơi vào vị trí bất kỳ của btree.
+-- UUID v7 bắt đầu bằng thời điểm tạo (mili giây Unix) nên dòng mới luôn được thêm vào cuối index.
+-- Ứng dụng tự sinh id (UuidV7), default này dành cho các dòng được insert trực tiếp bằng SQL.
+CREATE OR REPLACE FUNCTION uuid_generate_v7() RETURNS UUID AS
+$$
+SELECT encode(
+               set_bit(
+                       set_bit(
+                               overlay(uuid_send(gen_random_uuid())
+                                       placing substring(int8send(floor(extract(epoch FROM clock_timestamp()) * 1000)::BIGINT) FROM 3)
+                                       FROM 1 FOR 6),
+                               52, 1),
+                       53, 1),
+               'hex')::UUID
+$$ LANGUAGE SQL VOLATILE;
+
+ALTER TABLE HEALTH_DATA ALTER COLUMN id SET DEFAULT uuid_generate_v7();
+
+COMMENT ON FUNCTION uuid_generate_v7() IS 'Sinh UUID phiên bản 7 (tăng dần theo thời gian tạo)';
@@ -0,0 +1,102 @@
+-- Thiết lập search_path để Postgres biết phải làm việc trong schema 'public'
+SET search_path = public;
+
+-- THỨ TỰ SẮP XẾP KHI NÉN HEALTH_DATA
+-- Mỗi segment (device_id) được nén theo timestamp DESC: truy vấn theo khoảng thời gian của một thiết bị chỉ giải nén
+-- các batch có min/max timestamp giao với khoảng đó, và dữ liệu mới nhất nằm ở batch đầu tiên.
+-- Tuổi nén (lifecycle.compress-after) và retention (lifecycle.retention.*) do ứng dụng quản lý, xem HealthDataLifecycle.
+--
+-- TimescaleDB từ chối đổi cấu hình nén khi đã có chunk được nén. Migration không giải nén các chunk đó (giải nén
+-- toàn bộ trong một transaction giữ lock và cần dung lượng của mọi chunk cùng lúc), nên:
+--   * chưa có chunk nén: đổi thứ tự ngay;
+--   * đã có chunk nén: giữ nguyên cấu hình cũ, người vận hành chạy CALL recompress_health_data_orderby();
+--     ngoài giờ cao điểm (xem bên dưới). Ứng dụng ghi cảnh báo khi khởi động nếu thứ tự chưa được đổi.
+DO
+$$
+    BEGIN
+        IF EXISTS (SELECT 1
+                   FROM timescaledb_information.compression_settings
+                   WHERE hypertable_name = 'health_data'
+                     AND attname = 'timestamp'
+                     AND orderby_column_index = 1
+                     AND NOT orderby_asc) THEN
+            RETURN;
+        END IF;
+        IF EXISTS (SELECT 1
+                   FROM timescaledb_information.chunks
+                   WHERE hypertable_name = 'health_data'
+                     AND is_compressed) THEN
+            RAISE NOTICE 'HEALTH_DATA has compressed chunks, run CALL recompress_health_data_orderby() to apply compress_orderby = timestamp DESC';
+            RETURN;
+        END IF;
+        ALTER TABLE HEALTH_DATA SET (
+            timescaledb.compress,
+            timescaledb.compress_segmentby = 'device_id',
+            timescaledb.compress_orderby = 'timestamp DESC'
+            );
+    END
+$$;
+
+-- Đổi thứ tự nén của HEALTH_DATA khi đã có chunk nén, chạy bằng tay: CALL recompress_health_data_orderby();
+-- Phải gọi ngoài transaction (psql autocommit) vì procedure COMMIT sau mỗi chunk:
+--   1. tạm dừng compression policy để job không nén lại chunk đang được xử lý;
+--   2. giải nén lần lượt từng chunk nén, mỗi chunk một transaction (lock chỉ giữ trên chunk đó);
+--   3. đổi compress_orderby, rồi nén lại từng chunk ở bước 2, mỗi chunk một transaction;
+--   4. bật lại compression policy.
+-- Dung lượng trống cần có: tổng kích thước chưa nén của mọi chunk nén (cấu hình nén chỉ đổi được khi không còn
+-- chunk nào được nén), cộng WAL tương ứng cho đến checkpoint kế tiếp. Ước lượng trước khi chạy:
+--   SELECT pg_size_pretty(sum(before_compression_total_bytes) - sum(after_compression_total_bytes))
+--   FROM chunk_compression_stats('health_data') WHERE compression_status = 'Compressed';
+-- Nếu bị ngắt giữa chừng, chạy lại procedure: các chunk còn nén được giải nén tiếp, các chunk đã giải nén được
+-- compression policy nén lại sau khi thứ tự được đổi (policy vẫn tạm dừng cho đến khi procedure chạy xong).
+CREATE OR REPLACE PROCEDURE recompress_health_data_orderby()
+    LANGUAGE plpgsql
+AS
+$$
+    DECLARE
+        policy_job_id INTEGER;
+        compressed    REGCLASS[];
+        chunk         REGCLASS;
+    BEGIN
+        SELECT job_id
+        INTO policy_job_id
+        FROM timescaledb_information.jobs
+        WHERE proc_name = 'policy_compression'
+          AND hypertable_name = 'health_data';
+        IF policy_job_id IS NOT NULL THEN
+            PERFORM alter_job(policy_job_id, scheduled => FALSE);
+            COMMIT;
+        END IF;
+
+        SELECT array_agg(format('%I.%I', chunk_schema, chunk_name)::REGCLASS ORDER BY range_start)
+        INTO compressed
+        FROM timescaledb_information.chunks
+        WHERE hypertable_name = 'health_data'
+          AND is_compressed;
+
+        FOREACH chunk IN ARRAY coalesce(compressed, '{}')
+            LOOP
+                PERFORM decompress_chunk(chunk, if_compressed => TRUE);
+                COMMIT;
+                RAISE NOTICE 'Decompressed %', chunk;
+            END LOOP;
+
+        ALTER TABLE HEALTH_DATA SET (
+            timescaledb.compress,
+            timescaledb.compress_segmentby = 'device_id',
+            timescaledb.compress_orderby = 'timestamp DESC'
+            );
+        COMMIT;
+
+        FOREACH chunk IN ARRAY coalesce(compressed, '{}')
+            LOOP
+                PERFORM compress_chunk(chunk, if_not_compressed => TRUE);
+                COMMIT;
+                RAISE NOTICE 'Compressed %', chunk;
+            END LOOP;
+
+        IF policy_job_id IS NOT NULL THEN
+            PERFORM alter_job(policy_job_id, scheduled => TRUE);
+        END IF;
+    END
+$$;
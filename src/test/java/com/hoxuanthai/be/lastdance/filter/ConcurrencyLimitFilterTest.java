@@ -0,0 +1,37 @@
+package com.hoxuanthai.be.lastdance.filter;
+
+import com.hoxuanthai.be.lastdance.concurrency.ConcurrencyLimiter;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ConcurrencyLimitFilterTest {
+
+    private final ConcurrencyLimiter concurrencyLimiter = mock(ConcurrencyLimiter.class);
+
+    private final ConcurrencyLimitFilter filter = new ConcurrencyLimitFilter(concurrencyLimiter);
+
+    @Test
+    void actuatorUnderContextPathIsNotLimited() {
+        when(concurrencyLimiter.isEnabled()).thenReturn(true);
+
+        assertTrue(filter.shouldNotFilter(request("/actuator/health")));
+        assertFalse(filter.shouldNotFilter(request("/health-data")));
+    }
+
+    @Test
+    void nothingIsLimitedWhenDisabled() {
+        assertTrue(filter.shouldNotFilter(request("/health-data")));
+    }
+
+    private static MockHttpServletRequest request(String servletPath) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/v1" + servletPath);
+        request.setContextPath("/api/v1");
+        request.setServletPath(servletPath);
+        return request;
+    }
+}
@@ -0,0 +1,202 @@
+package com.hoxuanthai.be.lastdance.ingest;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.mock.http.MockHttpInputMessage;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HealthBatchCodecTest {
+
+    private static final LocalDateTime START = LocalDateTime.of(2026, 10, 18, 8, 0);
+
+    @Test
+    void roundTripKeepsTimestampsValuesAndNulls() throws IOException {
+        HealthBatch.Builder builder = HealthBatch.builder(5);
+        // Khoảng cách không đều để delta-of-delta khác 0, và hai điểm trùng timestamp
+        long start = HealthBatch.toMicros(START);
+        long[] timestamps = {start, start + 1_000_000, start + 1_000_000, start + 61_500_000, start + 61_500_001};
+        for (int row = 0; row < timestamps.length; row++) {
+            builder.addRow(timestamps[row]);
+        }
+        // Cột không có null, giá trị giảm để delta âm
+        int[] heartRates = {120, 72, 65, 180, -3};
+        for (int row = 0; row < heartRates.length; row++) {
+            builder.setInt(HealthMetric.HEART_RATE, row, heartRates[row]);
+        }
+        // Cột có null bitmap
+        builder.setDouble(HealthMetric.SPO2_PERCENT, 0, 97.5);
+        builder.setDouble(HealthMetric.SPO2_PERCENT, 3, Double.NaN);
+        builder.setInt(HealthMetric.STEPS_COUNT, 4, Integer.MAX_VALUE);
+        builder.setInt(HealthMetric.ACTIVITY_STATUS, 2, 3);
+        // WATER_INTAKE_ML, CALORIES_BURNED, SLEEP_DURATION_MINUTES toàn null
+        HealthBatch batch = builder.build();
+
+        HealthBatchCodec.Message decoded = roundTrip(new HealthBatchCodec.Message("thiết-bị-01", -42L, batch));
+
+        assertEquals("thiết-bị-01", decoded.deviceUuid());
+        assertEquals(-42L, decoded.sequence());
+        assertBatchEquals(batch, decoded.batch());
+        assertFalse(decoded.batch().hasValues(HealthMetric.WATER_INTAKE_ML));
+        assertTrue(Double.isNaN(decoded.batch().getDouble(HealthMetric.SPO2_PERCENT, 3)));
+    }
+
+    @Test
+    void roundTripWithoutSequenceOrDataPoints() throws IOException {
+        HealthBatch empty = HealthBatch.builder(0).build();
+
+        HealthBatchCodec.Message decoded = roundTrip(new HealthBatchCodec.Message("device", null, empty));
+
+        assertEquals("device", decoded.deviceUuid());
+        assertNull(decoded.sequence());
+        assertTrue(decoded.batch().isEmpty());
+    }
+
+    @Test
+    void converterDecodesGzipBody() throws IOException {
+        HealthBatch batch = sample(1_000);
+        byte[] encoded = encode(new HealthBatchCodec.Message("device", 7L, batch));
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(compressed)) {
+            gzip.write(encoded);
+        }
+        MockHttpInputMessage input = new MockHttpInputMessage(compressed.toByteArray());
+        input.getHeaders().set(HttpHeaders.CONTENT_ENCODING, "gzip");
+
+        HealthBatchCodec.Message decoded = new HealthBatchHttpMessageConverter(new IngestProperties())
+                .read(HealthBatchCodec.Message.class, input);
+
+        assertEquals(7L, decoded.sequence());
+        assertBatchEquals(batch, decoded.batch());
+    }
+
+    @Test
+    void converterRejectsTruncatedGzipBody() throws IOException {
+        byte[] encoded = encode(new HealthBatchCodec.Message("device", 7L, sample(100)));
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(compressed)) {
+            gzip.write(encoded);
+        }
+        byte[] body = Arrays.copyOf(compressed.toByteArray(), compressed.size() / 2);
+        MockHttpInputMessage input = new MockHttpInputMessage(body);
+        input.getHeaders().set(HttpHeaders.CONTENT_ENCODING, "gzip");
+
+        HealthBatchHttpMessageConverter converter = new HealthBatchHttpMessageConverter(new IngestProperties());
+        assertThrows(HttpMessageNotReadableException.class, () -> converter.read(HealthBatchCodec.Message.class, input));
+    }
+
+    @Test
+    void rejectsEveryTruncatedPayload() throws IOException {
+        byte[] encoded = encode(new HealthBatchCodec.Message("device", 7L, sample(20)));
+
+        for (int length = 0; length < encoded.length; length++) {
+            byte[] truncated = Arrays.copyOf(encoded, length);
+            assertThrows(IOException.class, () -> decode(truncated, Integer.MAX_VALUE),
+                    "payload truncated to " + length + " bytes");
+        }
+    }
+
+    @Test
+    void rejectsInvalidHeaderAndTooManyPoints() throws IOException {
+        byte[] encoded = encode(new HealthBatchCodec.Message("device", null, sample(20)));
+
+        assertThrows(IOException.class, () -> decode(encoded, 19));
+        encoded[0] = 'X';
+        assertThrows(IOException.class, () -> decode(encoded, Integer.MAX_VALUE));
+    }
+
+    @Test
+    void rejectsDecreasingTimestamps() throws IOException {
+        long start = HealthBatch.toMicros(START);
+        HealthBatch.Builder builder = HealthBatch.builder(3);
+        builder.addRow(start);
+        builder.addRow(start + 2_000_000);
+        builder.addRow(start + 1_000_000);
+
+        byte[] encoded = encode(new HealthBatchCodec.Message("device", null, builder.build()));
+
+        IOException e = assertThrows(IOException.class, () -> decode(encoded, Integer.MAX_VALUE));
+        assertTrue(e.getMessage().contains("dataPoints[2]"), e.getMessage());
+    }
+
+    @Test
+    void rejectsTimestampsOutsideSupportedRange() throws IOException {
+        long[] outOfRange = {
+                0,
+                HealthBatch.toMicros(HealthBatch.MIN_TIMESTAMP) - 1,
+                HealthBatch.toMicros(HealthBatch.MAX_TIMESTAMP),
+                Long.MAX_VALUE,
+                Long.MIN_VALUE
+        };
+        for (long micros : outOfRange) {
+            HealthBatch.Builder builder = HealthBatch.builder(1);
+            builder.addRow(micros);
+            byte[] encoded = encode(new HealthBatchCodec.Message("device", null, builder.build()));
+
+            assertThrows(IOException.class, () -> decode(encoded, Integer.MAX_VALUE), "timestamp " + micros);
+        }
+    }
+
+    private static HealthBatch sample(int points) {
+        HealthBatch.Builder builder = HealthBatch.builder(points);
+        long start = HealthBatch.toMicros(START);
+        for (int i = 0; i < points; i++) {
+            int row = builder.addRow(start + i * 1_000_000L);
+            if (i % 7 != 0) {
+                builder.setInt(HealthMetric.HEART_RATE, row, 60 + i % 40);
+            }
+            builder.setInt(HealthMetric.STEPS_COUNT, row, i % 30);
+            if (i % 3 == 0) {
+                builder.setDouble(HealthMetric.CALORIES_BURNED, row, i * 0.25);
+            }
+            builder.setInt(HealthMetric.ACTIVITY_STATUS, row, i % 4);
+        }
+        return builder.build();
+    }
+
+    private static HealthBatchCodec.Message roundTrip(HealthBatchCodec.Message message) throws IOException {
+        return decode(encode(message), Integer.MAX_VALUE);
+    }
+
+    private static byte[] encode(HealthBatchCodec.Message message) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        HealthBatchCodec.encode(message, out);
+        return out.toByteArray();
+    }
+
+    private static HealthBatchCodec.Message decode(byte[] payload, int maxPoints) throws IOException {
+        return HealthBatchCodec.decode(new ByteArrayInputStream(payload), maxPoints);
+    }
+
+    private static void assertBatchEquals(HealthBatch expected, HealthBatch actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int row = 0; row < expected.size(); row++) {
+            assertEquals(expected.timestampMicros(row), actual.timestampMicros(row), "timestamp of row " + row);
+            for (HealthMetric metric : HealthMetric.values()) {
+                String column = metric + " of row " + row;
+                assertEquals(expected.isNull(metric, row), actual.isNull(metric, row), column);
+                if (expected.isNull(metric, row)) {
+                    continue;
+                }
+                if (metric.isFloatingPoint()) {
+                    assertEquals(Double.doubleToRawLongBits(expected.getDouble(metric, row)),
+                            Double.doubleToRawLongBits(actual.getDouble(metric, row)), column);
+                } else {
+                    assertEquals(expected.getInt(metric, row), actual.getInt(metric, row), column);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package com.hoxuanthai.be.lastdance.ingest;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.postgresql.util.PSQLException;
+import org.postgresql.util.PSQLState;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.CannotGetJdbcConnectionException;
+import org.springframework.mock.env.MockEnvironment;
+
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class HealthDataIngestQueueTest {
+
+    private final HealthDataWriter writer = mock(HealthDataWriter.class);
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private HealthDataIngestQueue queue;
+
+    @AfterEach
+    void stop() throws InterruptedException {
+        if (queue != null) {
+            queue.stop();
+        }
+    }
+
+    @Test
+    void classifiesFailures() {
+        assertTrue(HealthDataIngestQueue.isRetryable(new CannotGetJdbcConnectionException("pool exhausted")));
+        assertTrue(HealthDataIngestQueue.isRetryable(new RuntimeException("Bulk copy health data failed",
+                new PSQLException("connection lost", PSQLState.CONNECTION_FAILURE))));
+        assertTrue(HealthDataIngestQueue.isRetryable(new SQLException("could not serialize access", "40001")));
+        assertTrue(HealthDataIngestQueue.isRetryable(new SQLException("read-only transaction", "25006")));
+        assertTrue(HealthDataIngestQueue.isRetryable(new OutOfMemoryError()));
+
+        assertFalse(HealthDataIngestQueue.isRetryable(new DataIntegrityViolationException("fk",
+                new SQLException("violates foreign key constraint", "23503"))));
+        assertFalse(HealthDataIngestQueue.isRetryable(new IllegalStateException("bug")));
+    }
+
+    @Test
+    void retriesTransientFailureUntilWritten() throws InterruptedException {
+        when(writer.write(anyList()))
+                .thenThrow(new CannotGetJdbcConnectionException("database is restarting"))
+                .thenThrow(new CannotGetJdbcConnectionException("database is restarting"))
+                .thenReturn(10L);
+        queue = start();
+
+        queue.enqueue(batch(1L, 10));
+
+        verify(writer, timeout(5_000).times(3)).write(anyList());
+        awaitDepth(0);
+        assertEquals(0, meterRegistry.counter("ingest.flush.failed").count());
+        assertEquals(20, meterRegistry.counter("ingest.flush.retried").count());
+    }
+
+    @Test
+    void pointsAwaitingRetryStillCountTowardsCapacity() {
+        when(writer.write(anyList())).thenThrow(new CannotGetJdbcConnectionException("database is down"));
+        queue = start();
+
+        queue.enqueue(batch(1L, 10));
+
+        verify(writer, timeout(5_000).atLeast(2)).write(anyList());
+        assertEquals(10, queue.getDepth());
+        assertEquals(0, meterRegistry.counter("ingest.flush.failed").count());
+    }
+
+    @Test
+    void dropsOnlyBatchThatCannotBeWritten() throws InterruptedException {
+        List<IngestBatch> written = new CopyOnWriteArrayList<>();
+        when(writer.write(anyList())).thenAnswer(invocation -> {
+            List<IngestBatch> batches = invocation.getArgument(0);
+            if (batches.stream().anyMatch(batch -> batch.deviceId() == 2L)) {
+                throw new DataIntegrityViolationException("device deleted",
+                        new SQLException("violates foreign key constraint", "23503"));
+            }
+            written.addAll(batches);
+            return batches.stream().mapToLong(IngestBatch::size).sum();
+        });
+        queue = start();
+
+        queue.enqueue(batch(1L, 10));
+        queue.enqueue(batch(2L, 5));
+        queue.enqueue(batch(3L, 10));
+
+        verify(writer, timeout(5_000).times(4)).write(anyList());
+        assertEquals(List.of(1L, 3L), written.stream().map(IngestBatch::deviceId).toList());
+        awaitDepth(0);
+        assertEquals(5, meterRegistry.counter("ingest.flush.failed").count());
+    }
+
+    @Test
+    void drainerSurvivesErrors() {
+        when(writer.write(anyList()))
+                .thenThrow(new StackOverflowError())
+                .thenReturn(10L);
+        queue = start();
+
+        queue.enqueue(batch(1L, 10));
+
+        verify(writer, timeout(5_000).times(2)).write(anyList());
+        queue.enqueue(batch(1L, 10));
+        verify(writer, timeout(5_000).times(3)).write(anyList());
+    }
+
+    // pendingPoints giảm sau khi write trả về, nên chờ thay vì kiểm tra ngay sau verify
+    private void awaitDepth(int expected) throws InterruptedException {
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (queue.getDepth() != expected && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(expected, queue.getDepth());
+    }
+
+    private HealthDataIngestQueue start() {
+        IngestProperties properties = new IngestProperties();
+        // Gom cả ba lô của một lần enqueue liên tiếp vào cùng một micro-batch
+        properties.getAsync().setFlushInterval(Duration.ofMillis(200));
+        properties.getAsync().setRetryBackoff(Duration.ofMillis(10));
+        properties.getAsync().setMaxRetryBackoff(Duration.ofMillis(50));
+        properties.getAsync().setShutdownTimeout(Duration.ofMillis(500));
+        HealthDataIngestQueue queue = new HealthDataIngestQueue(writer, properties, meterRegistry, new MockEnvironment());
+        queue.start();
+        return queue;
+    }
+
+    private static IngestBatch batch(long deviceId, int points) {
+        HealthBatch.Builder builder = HealthBatch.builder(points);
+        long start = HealthBatch.toMicros(LocalDateTime.of(2026, 10, 18, 8, 0));
+        for (int i = 0; i < points; i++) {
+            builder.addRow(start + i * 1_000_000L);
+        }
+        return new IngestBatch(deviceId, deviceId, null, builder.build());
+    }
+}
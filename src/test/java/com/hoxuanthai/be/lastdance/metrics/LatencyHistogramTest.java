@@ -0,0 +1,100 @@
+package com.hoxuanthai.be.lastdance.metrics;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LatencyHistogramTest {
+
+    private static final long MAX_TRACKED_MICROS = (1L << 27) - 1;
+
+    @Test
+    void smallValuesHaveOneBucketEach() {
+        for (int micros = 0; micros < LatencyHistogram.SUB_BUCKETS; micros++) {
+            assertEquals(micros, LatencyHistogram.indexOf(micros));
+            assertEquals(micros, LatencyHistogram.valueOf(micros));
+        }
+        assertEquals(0, LatencyHistogram.indexOf(-5));
+    }
+
+    @Test
+    void indexIsMonotonicAndCoversEveryBucket() {
+        int previous = 0;
+        for (long micros = 0; micros <= MAX_TRACKED_MICROS; micros += Math.max(1, micros / 64)) {
+            int index = LatencyHistogram.indexOf(micros);
+            assertTrue(index == previous || index == previous + 1, "index jumps at " + micros);
+            previous = index;
+        }
+        assertEquals(LatencyHistogram.BUCKET_COUNT - 1, previous);
+    }
+
+    @Test
+    void valuesAboveRangeFallInLastBucket() {
+        assertEquals(LatencyHistogram.BUCKET_COUNT - 1, LatencyHistogram.indexOf(MAX_TRACKED_MICROS));
+        assertEquals(LatencyHistogram.BUCKET_COUNT - 1, LatencyHistogram.indexOf(MAX_TRACKED_MICROS + 1));
+        assertEquals(LatencyHistogram.BUCKET_COUNT - 1, LatencyHistogram.indexOf(Long.MAX_VALUE));
+    }
+
+    @Test
+    void representativeValueLiesInItsBucket() {
+        for (int index = 0; index < LatencyHistogram.BUCKET_COUNT; index++) {
+            assertEquals(index, LatencyHistogram.indexOf((long) LatencyHistogram.valueOf(index)), "bucket " + index);
+        }
+    }
+
+    @Test
+    void relativeErrorIsBoundedBySubBuckets() {
+        double maxError = 1.0 / LatencyHistogram.SUB_BUCKETS;
+        for (long micros = 1; micros <= MAX_TRACKED_MICROS; micros += Math.max(1, micros / 100)) {
+            double value = LatencyHistogram.valueOf(LatencyHistogram.indexOf(micros));
+            assertTrue(Math.abs(value - micros) / micros <= maxError, "error too large at " + micros);
+        }
+    }
+
+    @Test
+    void quantileOfEmptyHistogramIsZero() {
+        assertEquals(0, LatencyHistogram.quantile(new long[LatencyHistogram.BUCKET_COUNT], 0, 0.99));
+    }
+
+    @Test
+    void quantileFollowsRecordedDistribution() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        // 90 request 1 ms, 9 request 10 ms, 1 request 100 ms
+        for (int i = 0; i < 90; i++) {
+            histogram.record(1_000);
+        }
+        for (int i = 0; i < 9; i++) {
+            histogram.record(10_000);
+        }
+        histogram.record(100_000);
+        long[] buckets = new long[LatencyHistogram.BUCKET_COUNT];
+        histogram.addTo(buckets);
+
+        assertEquals(LatencyHistogram.valueOf(LatencyHistogram.indexOf(1_000)),
+                LatencyHistogram.quantile(buckets, 100, 0));
+        assertEquals(LatencyHistogram.valueOf(LatencyHistogram.indexOf(1_000)),
+                LatencyHistogram.quantile(buckets, 100, 0.5));
+        assertEquals(LatencyHistogram.valueOf(LatencyHistogram.indexOf(1_000)),
+                LatencyHistogram.quantile(buckets, 100, 0.9));
+        assertEquals(LatencyHistogram.valueOf(LatencyHistogram.indexOf(10_000)),
+                LatencyHistogram.quantile(buckets, 100, 0.95));
+        assertEquals(LatencyHistogram.valueOf(LatencyHistogram.indexOf(10_000)),
+                LatencyHistogram.quantile(buckets, 100, 0.99));
+        assertEquals(LatencyHistogram.valueOf(LatencyHistogram.indexOf(100_000)),
+                LatencyHistogram.quantile(buckets, 100, 1));
+    }
+
+    @Test
+    void resetClearsCounts() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(1_000);
+        histogram.reset();
+        long[] buckets = new long[LatencyHistogram.BUCKET_COUNT];
+        histogram.addTo(buckets);
+
+        for (long count : buckets) {
+            assertEquals(0, count);
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package com.hoxuanthai.be.lastdance.pagination;
+
+import com.hoxuanthai.be.lastdance.exceptions.InvalidCursorException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class KeysetCursorTest {
+
+    @Test
+    void roundTripsEverySortKey() {
+        assertRoundTrip(KeysetCursor.of(KeysetSortKey.ID, 42L, 42L));
+        assertRoundTrip(KeysetCursor.of(KeysetSortKey.USERNAME, "hải", 7L));
+        assertRoundTrip(KeysetCursor.of(KeysetSortKey.DEVICE_UUID, "6f1c2a9e-0b7d-4c55-9a59-0c1f7b1e2d3a", 8L));
+        assertRoundTrip(KeysetCursor.of(KeysetSortKey.DEVICE_NAME, "Đồng hồ", 9L));
+        assertRoundTrip(KeysetCursor.of(KeysetSortKey.CREATED_AT, LocalDateTime.of(2026, 10, 18, 9, 30, 0, 123_000),
+                Long.MAX_VALUE));
+    }
+
+    @Test
+    void valueMayContainSeparator() {
+        assertRoundTrip(KeysetCursor.of(KeysetSortKey.DEVICE_NAME, "a|b||c|", 3L));
+        assertRoundTrip(KeysetCursor.of(KeysetSortKey.USERNAME, "|", 4L));
+    }
+
+    @Test
+    void emptyValueRoundTrips() {
+        assertRoundTrip(KeysetCursor.of(KeysetSortKey.DEVICE_NAME, "", 5L));
+    }
+
+    @Test
+    void tokenIsUrlSafe() {
+        String token = KeysetCursor.of(KeysetSortKey.DEVICE_NAME, "??>>~~", 1L).encode();
+
+        assertFalse(token.contains("+") || token.contains("/") || token.contains("="), token);
+    }
+
+    @Test
+    void rejectsTokenOfAnotherSortKey() {
+        String token = KeysetCursor.of(KeysetSortKey.USERNAME, "alice", 1L).encode();
+
+        assertThrows(InvalidCursorException.class, () -> KeysetCursor.decode(token, KeysetSortKey.DEVICE_NAME));
+    }
+
+    @Test
+    void rejectsNonBase64Token() {
+        assertThrows(InvalidCursorException.class, () -> KeysetCursor.decode("not base64!", KeysetSortKey.USERNAME));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"", "USERNAME", "USERNAME|1", "USERNAME|abc|alice", "USERNAME||alice"})
+    void rejectsMalformedContent(String raw) {
+        String token = Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+
+        assertThrows(InvalidCursorException.class, () -> KeysetCursor.decode(token, KeysetSortKey.USERNAME));
+    }
+
+    private static void assertRoundTrip(KeysetCursor cursor) {
+        assertEquals(cursor, KeysetCursor.decode(cursor.encode(), cursor.sortKey()));
+    }
+}
@@ -0,0 +1,66 @@
+package com.hoxuanthai.be.lastdance.ratelimit;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+class RateLimitKeyTest {
+
+    @Test
+    void ipv4IsMappedIntoIpv6() {
+        assertEquals(new RateLimitKey(0, 0x0000_FFFF_C0A8_010AL), RateLimitKey.ofAddress("192.168.1.10"));
+        assertEquals(new RateLimitKey(0, 0x0000_FFFF_0000_0000L), RateLimitKey.ofAddress("0.0.0.0"));
+        assertEquals(new RateLimitKey(0, 0x0000_FFFF_FFFF_FFFFL), RateLimitKey.ofAddress("255.255.255.255"));
+    }
+
+    @Test
+    void ipv4MappedIpv6EqualsPlainIpv4() {
+        assertEquals(RateLimitKey.ofAddress("192.168.1.10"), RateLimitKey.ofAddress("::ffff:192.168.1.10"));
+        assertEquals(RateLimitKey.ofAddress("192.168.1.10"), RateLimitKey.ofAddress("::ffff:c0a8:10a"));
+        assertEquals(RateLimitKey.ofAddress("192.168.1.10"), RateLimitKey.ofAddress("0:0:0:0:0:ffff:192.168.1.10"));
+    }
+
+    @Test
+    void ipv6() {
+        assertEquals(new RateLimitKey(0x2001_0DB8_0000_0000L, 1), RateLimitKey.ofAddress("2001:db8::1"));
+        assertEquals(RateLimitKey.ofAddress("2001:db8::1"), RateLimitKey.ofAddress("2001:0db8:0:0:0:0:0:0001"));
+        assertEquals(RateLimitKey.ofAddress("2001:db8::1"), RateLimitKey.ofAddress("2001:DB8::1"));
+        assertEquals(new RateLimitKey(0x0001_0002_0003_0004L, 0x0005_0006_0007_0008L),
+                RateLimitKey.ofAddress("1:2:3:4:5:6:7:8"));
+        assertEquals(new RateLimitKey(0x0001_0000_0000_0000L, 0), RateLimitKey.ofAddress("1::"));
+        assertEquals(new RateLimitKey(0x0001_0002_0003_0000L, 0x0000_0006_0007_0008L),
+                RateLimitKey.ofAddress("1:2:3::6:7:8"));
+    }
+
+    @Test
+    void unspecifiedAndLoopbackIpv6() {
+        assertEquals(new RateLimitKey(0, 0), RateLimitKey.ofAddress("::"));
+        assertEquals(new RateLimitKey(0, 1), RateLimitKey.ofAddress("::1"));
+        assertEquals(RateLimitKey.ofAddress("::"), RateLimitKey.ofAddress("0:0:0:0:0:0:0:0"));
+    }
+
+    @Test
+    void zoneIdIsIgnored() {
+        assertEquals(new RateLimitKey(0xFE80_0000_0000_0000L, 1), RateLimitKey.ofAddress("fe80::1%eth0"));
+        assertEquals(RateLimitKey.ofAddress("fe80::1"), RateLimitKey.ofAddress("fe80::1%25"));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "", "256.1.1.1", "1.2.3", "1.2.3.4.", "1..2.3", ".1.2.3", "1.2.3.4.5", "1234.1.1.1", "a.b.c.d",
+            ":", ":::", "1:2", "1:2:3:4:5:6:7", "1:2:3:4:5:6:7:8:9", "1::2::3", "12345::", "::g", "1:", ":1",
+            "::ffff:1.2.3", "::ffff:256.1.1.1", "1:2:3:4:5:6:7:1.2.3.4", "unknown", "%eth0"
+    })
+    void malformedAddressIsHashedAsString(String address) {
+        assertEquals(RateLimitKey.of(address), RateLimitKey.ofAddress(address));
+    }
+
+    @Test
+    void hashedValuesDoNotCollideOnNonAsciiCharacters() {
+        assertNotEquals(RateLimitKey.of("hải"), RateLimitKey.of("hái"));
+        assertNotEquals(RateLimitKey.of("hải"), RateLimitKey.of("h?i"));
+    }
+}